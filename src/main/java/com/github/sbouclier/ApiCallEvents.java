@@ -0,0 +1,37 @@
+package com.github.sbouclier;
+
+/**
+ * Java Flight Recorder events of Kraken API calls.
+ *
+ * This is the Java 8 implementation, which never records anything. On Java 11+ the multi-release jar provides an
+ * implementation committing a {@code com.github.sbouclier.ApiCall} event per call (see {@code src/main/java11}).
+ *
+ * @author synapticloop
+ */
+final class ApiCallEvents {
+
+	/**
+	 * Private constructor
+	 */
+	private ApiCallEvents() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Begin an API call event
+	 *
+	 * @return event handle to commit, null when not recording
+	 */
+	static Object begin() {
+		return null;
+	}
+
+	/**
+	 * Commit an API call event with the phase timing of the call
+	 *
+	 * @param event handle returned by {@link #begin()}
+	 * @param trace completed trace of the call
+	 */
+	static void commit(Object event, RequestTrace trace) {
+	}
+}
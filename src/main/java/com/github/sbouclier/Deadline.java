@@ -0,0 +1,198 @@
+package com.github.sbouclier;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end deadline of Kraken API calls.
+ *
+ * A deadline bound to the calling thread applies to every call made within its scope: each blocking step (waiting
+ * for a permit or a stream, connecting, reading, decoding) is bounded by the time left, and the call fails with
+ * "call deadline exceeded" once it is over. Nested scopes never extend the deadline of an enclosing one.
+ *
+ * <pre>
+ * Deadline.Scope scope = Deadline.after(500, TimeUnit.MILLISECONDS).bind();
+ * try {
+ *     client.getOrderBook("XBTEUR");
+ * } finally {
+ *     scope.close();
+ * }
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public final class Deadline {
+
+	private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+	private final long deadlineNanos;
+
+	private Deadline(long deadlineNanos) {
+		this.deadlineNanos = deadlineNanos;
+	}
+
+	/**
+	 * Create deadline
+	 *
+	 * @param timeout time from now
+	 * @param unit    time unit
+	 * @return deadline
+	 */
+	public static Deadline after(long timeout, TimeUnit unit) {
+		return new Deadline(System.nanoTime() + unit.toNanos(timeout));
+	}
+
+	/**
+	 * Get deadline bound to the current thread
+	 *
+	 * @return current deadline, null if none
+	 */
+	public static Deadline current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Get deadline of a call: the current one, shortened to the timeout if it is shorter
+	 *
+	 * @param timeoutMillis call timeout in milliseconds, 0 for none
+	 * @return deadline of the call, null if unbounded
+	 */
+	static Deadline forCall(long timeoutMillis) {
+		final Deadline current = CURRENT.get();
+		if (timeoutMillis <= 0) {
+			return current;
+		}
+		return after(timeoutMillis, TimeUnit.MILLISECONDS).earliest(current);
+	}
+
+	/**
+	 * Get earliest of this deadline and another
+	 *
+	 * @param other other deadline, may be null
+	 * @return earliest deadline
+	 */
+	public Deadline earliest(Deadline other) {
+		return (other == null || deadlineNanos - other.deadlineNanos <= 0) ? this : other;
+	}
+
+	/**
+	 * Bind deadline to the current thread, shortened to any deadline already bound
+	 *
+	 * @return scope to close to restore the previous deadline
+	 */
+	public Scope bind() {
+		final Deadline previous = CURRENT.get();
+		CURRENT.set(earliest(previous));
+		return new Scope(previous);
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Get time left
+	 *
+	 * @param unit time unit
+	 * @return time left, 0 if expired
+	 */
+	public long remaining(TimeUnit unit) {
+		return unit.convert(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+	}
+
+	public boolean isExpired() {
+		return deadlineNanos - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * Fail if expired
+	 *
+	 * @throws KrakenApiException if the deadline is over
+	 */
+	public void check() throws KrakenApiException {
+		if (isExpired()) {
+			throw new KrakenApiException("call deadline exceeded");
+		}
+	}
+
+	/**
+	 * Cap a {@link java.net.URLConnection} timeout to the time left of the current deadline
+	 *
+	 * @param timeoutMillis timeout in milliseconds, 0 for infinite
+	 * @return capped timeout, never 0 (infinite) when a deadline is bound
+	 */
+	static int capTimeoutMillis(int timeoutMillis) {
+		final Deadline current = CURRENT.get();
+		if (current == null) {
+			return timeoutMillis;
+		}
+
+		final int remaining = (int) Math.min(Integer.MAX_VALUE, Math.max(1, current.remaining(TimeUnit.MILLISECONDS)));
+		return (timeoutMillis == 0) ? remaining : Math.min(timeoutMillis, remaining);
+	}
+
+	/**
+	 * Guard stream so that reads fail once the current deadline is over, bounding the whole body transfer and not only
+	 * each read
+	 *
+	 * @param in stream to guard
+	 * @return guarded stream, or the stream itself if no deadline is bound
+	 */
+	static InputStream guard(InputStream in) {
+		final Deadline current = CURRENT.get();
+		return (current == null) ? in : new GuardedInputStream(in, current);
+	}
+
+	/**
+	 * Scope of a bound deadline
+	 */
+	public static final class Scope implements AutoCloseable {
+		private final Deadline previous;
+
+		private Scope(Deadline previous) {
+			this.previous = previous;
+		}
+
+		@Override
+		public void close() {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+
+	/**
+	 * Stream failing reads after a deadline
+	 */
+	private static class GuardedInputStream extends FilterInputStream {
+		private final Deadline deadline;
+
+		GuardedInputStream(InputStream in, Deadline deadline) {
+			super(in);
+			this.deadline = deadline;
+		}
+
+		@Override
+		public int read() throws IOException {
+			checkDeadline();
+			return super.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			checkDeadline();
+			return super.read(b, off, len);
+		}
+
+		private void checkDeadline() throws SocketTimeoutException {
+			if (deadline.isExpired()) {
+				throw new SocketTimeoutException("call deadline exceeded");
+			}
+		}
+	}
+}
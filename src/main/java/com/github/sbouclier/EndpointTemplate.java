@@ -0,0 +1,96 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.utils.ByteUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable, precomputed description of a Kraken endpoint: URI path (as string and UTF-8 bytes), HTTP method,
+ * whether calls must be authenticated and whether responses are typically large.
+ *
+ * Templates of the current API version are built once per {@link KrakenApiMethod}, so that neither the path string
+ * nor its bytes (used for signing) are rebuilt on each call.
+ *
+ * @author synapticloop
+ */
+public final class EndpointTemplate {
+
+	private final String path;
+	private final byte[] pathBytes;
+	private final String httpMethod;
+	private final boolean authenticated;
+	private final boolean largeResponse;
+
+	EndpointTemplate(int apiVersion, String name, boolean authenticated, boolean largeResponse) {
+		this("/" + apiVersion + "/" + (authenticated ? "private/" : "public/") + name, authenticated, largeResponse);
+	}
+
+	private EndpointTemplate(String path, boolean authenticated, boolean largeResponse) {
+		this.path = path;
+		this.pathBytes = ByteUtils.stringToBytes(path);
+		this.httpMethod = authenticated ? "POST" : "GET";
+		this.authenticated = authenticated;
+		this.largeResponse = largeResponse;
+	}
+
+	/**
+	 * Get template of an URI path, the precomputed one for paths of {@link KrakenApiMethod}
+	 *
+	 * @param path          URI path
+	 * @param authenticated whether the endpoint is private
+	 * @return endpoint template
+	 */
+	static EndpointTemplate forPath(String path, boolean authenticated) {
+		EndpointTemplate template = ByPath.TEMPLATES.get(path);
+		return (template != null) ? template : new EndpointTemplate(path, authenticated, false);
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Get URI path encoded in UTF-8, shared: must not be modified
+	 *
+	 * @return path bytes
+	 */
+	byte[] getPathBytes() {
+		return pathBytes;
+	}
+
+	public String getHttpMethod() {
+		return httpMethod;
+	}
+
+	public boolean isAuthenticated() {
+		return authenticated;
+	}
+
+	/**
+	 * Whether responses are typically large (history, candles, order book...) and worth compressing
+	 *
+	 * @return true if large
+	 */
+	public boolean isLargeResponse() {
+		return largeResponse;
+	}
+
+	@Override
+	public String toString() {
+		return httpMethod + " " + path;
+	}
+
+	/**
+	 * Templates of {@link KrakenApiMethod} by path, in a holder so that it is built after the enum constants
+	 */
+	private static class ByPath {
+		private static final Map<String, EndpointTemplate> TEMPLATES = new HashMap<>();
+
+		static {
+			for (KrakenApiMethod method : KrakenApiMethod.values()) {
+				TEMPLATES.put(method.getTemplate().getPath(), method.getTemplate());
+			}
+		}
+	}
+}
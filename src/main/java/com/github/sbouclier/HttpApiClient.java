@@ -1,13 +1,14 @@
 package com.github.sbouclier;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.sbouclier.result.Result;
 import com.github.sbouclier.result.ResultWithLastId;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Objects;
 
 /**
  * Http API client
@@ -18,8 +19,17 @@ import java.util.regex.Pattern;
 @SuppressWarnings("rawtypes")
 public class HttpApiClient<T extends Result> {
 
+	/**
+	 * Shared mapper, the body stream is left open so that the transport can read it to its end
+	 */
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+
 	private HttpJsonClient client;
 	private int apiVersion = 0;
+	private RequestListener requestListener;
+	private long callTimeoutMillis;
+	private RequestScheduler scheduler;
+	private long rateLimitWaitNanos;
 
 	public HttpApiClient() {
 		client = new HttpJsonClient();
@@ -43,18 +53,7 @@ public class HttpApiClient<T extends Result> {
 	 * @throws KrakenApiException
 	 */
 	public T callPublic(String baseUrl, KrakenApiMethod method, Class<T> result) throws KrakenApiException {
-		try {
-			final String responseString = this.client.executePublicQuery(baseUrl, method.getUrl(apiVersion));
-			T res = new ObjectMapper().readValue(responseString, result);
-
-			if (!res.getError().isEmpty()) {
-				throw new KrakenApiException(res.getError());
-			}
-
-			return res;
-		} catch (IOException ex) {
-			throw new KrakenApiException("unable to query Kraken API", ex);
-		}
+		return call(method, null, result, false, reader -> this.client.executePublicQuery(baseUrl, method.getUrl(apiVersion), null, reader));
 	}
 
 	/**
@@ -68,18 +67,7 @@ public class HttpApiClient<T extends Result> {
 	 * @throws KrakenApiException
 	 */
 	public T callPublic(String baseUrl, KrakenApiMethod method, Class<T> result, Map<String, String> params) throws KrakenApiException {
-		try {
-			final String responseString = this.client.executePublicQuery(baseUrl, method.getUrl(apiVersion), params);
-			T res = new ObjectMapper().readValue(responseString, result);
-
-			if (!res.getError().isEmpty()) {
-				throw new KrakenApiException(res.getError());
-			}
-
-			return res;
-		} catch (IOException ex) {
-			throw new KrakenApiException("unable to query Kraken API", ex);
-		}
+		return call(method, params, result, false, reader -> this.client.executePublicQuery(baseUrl, method.getUrl(apiVersion), params, reader));
 	}
 
 	/**
@@ -93,22 +81,7 @@ public class HttpApiClient<T extends Result> {
 	 * @throws KrakenApiException
 	 */
 	public T callPublicWithLastId(String baseUrl, KrakenApiMethod method, Class<T> result, Map<String, String> params) throws KrakenApiException {
-		try {
-			final String responseString = this.client.executePublicQuery(baseUrl, method.getUrl(apiVersion), params);
-
-			LastIdExtractedResult extractedResult = extractLastId(responseString);
-
-			T res = new ObjectMapper().readValue(extractedResult.responseWithoutLastId, result);
-			((ResultWithLastId) res).setLastId(extractedResult.lastId);
-
-			if (!res.getError().isEmpty()) {
-				throw new KrakenApiException(res.getError());
-			}
-
-			return res;
-		} catch (IOException ex) {
-			throw new KrakenApiException("unable to query Kraken API", ex);
-		}
+		return call(method, params, result, true, reader -> this.client.executePublicQuery(baseUrl, method.getUrl(apiVersion), params, reader));
 	}
 
 	/**
@@ -121,18 +94,7 @@ public class HttpApiClient<T extends Result> {
 	 * @throws KrakenApiException
 	 */
 	public T callPrivate(String baseUrl, KrakenApiMethod method, Class<T> result) throws KrakenApiException {
-		try {
-			final String responseString = this.client.executePrivateQuery(baseUrl, method.getUrl(apiVersion));
-			T res = new ObjectMapper().readValue(responseString, result);
-
-			if (!res.getError().isEmpty()) {
-				throw new KrakenApiException(res.getError());
-			}
-
-			return res;
-		} catch (IOException ex) {
-			throw new KrakenApiException("unable to query Kraken API", ex);
-		}
+		return call(method, null, result, false, reader -> this.client.executePrivateQuery(baseUrl, method.getUrl(apiVersion), null, reader));
 	}
 
 	/**
@@ -146,52 +108,194 @@ public class HttpApiClient<T extends Result> {
 	 * @throws KrakenApiException
 	 */
 	public T callPrivate(String baseUrl, KrakenApiMethod method, Class<T> result, Map<String, String> params) throws KrakenApiException {
+		return call(method, params, result, false, reader -> this.client.executePrivateQuery(baseUrl, method.getUrl(apiVersion), params, reader));
+	}
+
+	/**
+	 * Call private kraken method with a JSON body, for methods taking nested parameters
+	 *
+	 * @param baseUrl kraken base url
+	 * @param method  kraken method
+	 * @param result  result class
+	 * @param params  method parameters, values mapped to JSON
+	 * @return result
+	 * @throws KrakenApiException
+	 */
+	public T callPrivateJson(String baseUrl, KrakenApiMethod method, Class<T> result, Map<String, ?> params) throws KrakenApiException {
+		return call(method, params, result, false, reader -> this.client.executePrivateJsonQuery(baseUrl, method.getUrl(apiVersion), params, reader));
+	}
+
+	/**
+	 * Set listener notified with the phase timing of every call made by this client
+	 *
+	 * @param requestListener listener, null to disable tracing
+	 */
+	public void setRequestListener(RequestListener requestListener) {
+		this.requestListener = requestListener;
+	}
+
+	/**
+	 * Set connect and read timeouts of the connections of this client
+	 *
+	 * @param connectTimeoutMillis connect timeout in milliseconds, 0 for infinite
+	 * @param readTimeoutMillis    timeout of each socket read in milliseconds, 0 for infinite
+	 */
+	public void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+		this.client.setTimeouts(connectTimeoutMillis, readTimeoutMillis);
+	}
+
+	/**
+	 * Set end-to-end timeout of every call made by this client, from its start to its decoded result. A shorter
+	 * {@link Deadline} bound by the caller still applies.
+	 *
+	 * @param callTimeoutMillis call timeout in milliseconds, 0 for none
+	 */
+	public void setCallTimeout(long callTimeoutMillis) {
+		this.callTimeoutMillis = callTimeoutMillis;
+	}
+
+	/**
+	 * Set scheduler admitting the calls made by this client
+	 *
+	 * @param scheduler scheduler, null to make calls at once
+	 */
+	public void setScheduler(RequestScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Set time waited for the rate limit by the caller before the next call, reported in the trace of that call
+	 *
+	 * @param rateLimitWaitNanos waited time in nanoseconds, as returned by {@link RateLimiter#acquire(double)}
+	 */
+	void setRateLimitWait(long rateLimitWaitNanos) {
+		this.rateLimitWaitNanos = rateLimitWaitNanos;
+	}
+
+	/**
+	 * Set transport of the calls made by this client
+	 *
+	 * @param transport transport, null to use {@link javax.net.ssl.HttpsURLConnection}
+	 */
+	public void setTransport(HttpTransport transport) {
+		this.client.setTransport(transport);
+	}
+
+	/**
+	 * Query streaming the JSON response to a reader
+	 */
+	@FunctionalInterface
+	private interface JsonQuery<R> {
+		R execute(ResponseReader<R> reader) throws IOException, KrakenApiException;
+	}
+
+	/**
+	 * Execute query within the call deadline once admitted by the scheduler, decode its response as it is received
+	 * and trace the call if a listener is registered or a flight recording is capturing API call events
+	 *
+	 * @param method     kraken method
+	 * @param params     method parameters, may be null
+	 * @param result     result class
+	 * @param withLastId whether the last id must be extracted from the response
+	 * @param query      query to execute
+	 * @return result
+	 * @throws KrakenApiException
+	 */
+	private T call(KrakenApiMethod method, Map<String, ?> params, Class<T> result, boolean withLastId, JsonQuery<T> query) throws KrakenApiException {
+		final long waitedNanos = rateLimitWaitNanos;
+		rateLimitWaitNanos = 0;
+		final Object event = ApiCallEvents.begin();
+		final RequestTrace trace = (requestListener != null || event != null) ? RequestTrace.start(method, (params != null) ? Objects.toString(params.get("pair"), null) : null) : null;
+		final Deadline deadline = Deadline.forCall(callTimeoutMillis);
+		final Deadline.Scope scope = (deadline != null) ? deadline.bind() : null;
+		RequestScheduler.Permit permit = null;
+
 		try {
-			final String responseString = this.client.executePrivateQuery(baseUrl, method.getUrl(apiVersion), params);
-			T res = new ObjectMapper().readValue(responseString, result);
+			if (deadline != null) {
+				deadline.check();
+			}
+
+			if (scheduler != null) {
+				permit = scheduler.acquire(method);
+			}
+
+			if (trace != null) {
+				trace.admitted(waitedNanos);
+			}
+
+			final T res = query.execute(body -> {
+				final T decoded = decode(body, result, withLastId);
+				if (trace != null) {
+					trace.decoded();
+				}
+				return decoded;
+			});
+
+			if (withLastId && ((ResultWithLastId) res).getLastId() == null) {
+				throw new KrakenApiException("unable to extract last id");
+			}
 
 			if (!res.getError().isEmpty()) {
 				throw new KrakenApiException(res.getError());
 			}
 
+			if (trace != null) {
+				trace.succeeded();
+			}
+
 			return res;
 		} catch (IOException ex) {
-			throw new KrakenApiException("unable to query Kraken API", ex);
-		}
-	}
+			KrakenApiException failure = (deadline != null && deadline.isExpired())
+					? new KrakenApiException("call deadline exceeded", ex)
+					: new KrakenApiException("unable to query Kraken API", ex);
+			if (trace != null) {
+				trace.failed(failure);
+			}
+			throw failure;
+		} catch (KrakenApiException ex) {
+			if (trace != null) {
+				trace.failed(ex);
+			}
+			throw ex;
+		} finally {
+			if (permit != null) {
+				permit.release();
+			}
 
-	/**
-	 * LastId extracted class result
-	 */
-	private class LastIdExtractedResult {
-		public String responseWithoutLastId;
-		public Long lastId;
+			if (scope != null) {
+				scope.close();
+			}
+
+			if (trace != null) {
+				trace.finish();
+				ApiCallEvents.commit(event, trace);
 
-		public LastIdExtractedResult(String responseWithoutLastId, Long lastId) {
-			this.responseWithoutLastId = responseWithoutLastId;
-			this.lastId = lastId;
+				if (requestListener != null) {
+					requestListener.onRequestCompleted(trace);
+				}
+			}
 		}
 	}
 
 	/**
-	 * Extract last id from string and wrap it with response without it
+	 * Decode response body, extracting the last id of the result if requested
 	 *
-	 * @param response
-	 * @return extracted result
-	 * @throws KrakenApiException
+	 * @param body       response body
+	 * @param result     result class
+	 * @param withLastId whether the last id must be extracted
+	 * @return result, with a null last id if requested but missing
+	 * @throws IOException if the response cannot be decoded
 	 */
-	private LastIdExtractedResult extractLastId(String response) throws KrakenApiException {
-		final String lastPattern = ",(\\s*)\"last\":\"{0,1}([0-9]+)\"{0,1}";
+	private T decode(InputStream body, Class<T> result, boolean withLastId) throws IOException {
+		final JsonParser parser = OBJECT_MAPPER.getFactory().createParser(body);
 
-		Pattern pattern = Pattern.compile(lastPattern);
-		Matcher matcher = pattern.matcher(response);
-
-		if (matcher.find()) {
-			response = response.replaceAll(lastPattern, "");
-
-			return new LastIdExtractedResult(response, Long.valueOf(matcher.group(2)));
-		} else {
-			throw new KrakenApiException("unable to extract last id");
+		if (!withLastId) {
+			return OBJECT_MAPPER.readValue(parser, result);
 		}
+
+		final LastIdJsonParser lastIdParser = new LastIdJsonParser(parser);
+		final T res = OBJECT_MAPPER.readValue(lastIdParser, result);
+		((ResultWithLastId) res).setLastId(lastIdParser.getLastId());
+		return res;
 	}
 }
@@ -10,25 +10,82 @@ import com.github.sbouclier.result.*;
  */
 public class HttpApiClientFactory {
 
+	private RequestListener requestListener;
+	private HttpTransport transport;
+	private int connectTimeoutMillis = HttpJsonClient.DEFAULT_CONNECT_TIMEOUT_MILLIS;
+	private int readTimeoutMillis = HttpJsonClient.DEFAULT_READ_TIMEOUT_MILLIS;
+	private long callTimeoutMillis;
+	private RequestScheduler scheduler;
+
+	/**
+	 * Set listener notified with the phase timing of every call made by the clients of this factory
+	 *
+	 * @param requestListener listener, null to disable tracing
+	 */
+	public void setRequestListener(RequestListener requestListener) {
+		this.requestListener = requestListener;
+	}
+
+	/**
+	 * Set connect and read timeouts of the clients of this factory
+	 *
+	 * @param connectTimeoutMillis connect timeout in milliseconds, 0 for infinite
+	 * @param readTimeoutMillis    timeout of each socket read in milliseconds, 0 for infinite
+	 */
+	public void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+		if (connectTimeoutMillis < 0 || readTimeoutMillis < 0) {
+			throw new IllegalArgumentException("timeouts can not be negative");
+		}
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
+	/**
+	 * Set end-to-end timeout of every call made by the clients of this factory
+	 *
+	 * @param callTimeoutMillis call timeout in milliseconds, 0 for none
+	 */
+	public void setCallTimeout(long callTimeoutMillis) {
+		this.callTimeoutMillis = callTimeoutMillis;
+	}
+
+	/**
+	 * Set transport shared by the clients of this factory
+	 *
+	 * @param transport transport, e.g. {@link HttpTransports#http2OrDefault()}, null to use one {@link javax.net.ssl.HttpsURLConnection} per call
+	 */
+	public void setTransport(HttpTransport transport) {
+		this.transport = transport;
+	}
+
+	/**
+	 * Set scheduler admitting the calls made by the clients of this factory
+	 *
+	 * @param scheduler scheduler, null to make calls at once
+	 */
+	public void setScheduler(RequestScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
 	@SuppressWarnings("rawtypes")
 	public HttpApiClient<? extends Result> getHttpApiClient(KrakenApiMethod method) {
 		switch(method) {
 		case SERVER_TIME:
-			return new HttpApiClient<ServerTimeResult>();
+			return configure(new HttpApiClient<ServerTimeResult>());
 		case ASSET_INFORMATION:
-			return new HttpApiClient<AssetsInformationResult>();
+			return configure(new HttpApiClient<AssetsInformationResult>());
 		case ASSET_PAIRS:
-			return new HttpApiClient<AssetPairsResult>();
+			return configure(new HttpApiClient<AssetPairsResult>());
 		case TICKER_INFORMATION:
-			return new HttpApiClient<TickerInformationResult>();
+			return configure(new HttpApiClient<TickerInformationResult>());
 		case OHLC:
-			return new HttpApiClient<OHLCResult>();
+			return configure(new HttpApiClient<OHLCResult>());
 		case ORDER_BOOK:
-			return new HttpApiClient<OrderBookResult>();
+			return configure(new HttpApiClient<OrderBookResult>());
 		case RECENT_TRADES:
-			return new HttpApiClient<RecentTradeResult>();
+			return configure(new HttpApiClient<RecentTradeResult>());
 		case RECENT_SPREADS:
-			return new HttpApiClient<RecentSpreadResult>();
+			return configure(new HttpApiClient<RecentSpreadResult>());
 		default:
 			throw new IllegalArgumentException("Unknown Kraken API method");
 		}
@@ -38,35 +95,53 @@ public class HttpApiClientFactory {
 	public HttpApiClient<? extends Result> getHttpApiClient(String apiKey, String apiSecret, KrakenApiMethod method) {
 		switch(method) {
 		case ACCOUNT_BALANCE:
-			return new HttpApiClient<AccountBalanceResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<AccountBalanceResult>(apiKey, apiSecret));
 		case TRADE_BALANCE:
-			return new HttpApiClient<TradeBalanceResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<TradeBalanceResult>(apiKey, apiSecret));
 		case OPEN_ORDERS:
-			return new HttpApiClient<OpenOrdersResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<OpenOrdersResult>(apiKey, apiSecret));
 		case CLOSED_ORDERS:
-			return new HttpApiClient<ClosedOrdersResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<ClosedOrdersResult>(apiKey, apiSecret));
 		case ORDERS_INFORMATION:
-			return new HttpApiClient<OrdersInformationResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<OrdersInformationResult>(apiKey, apiSecret));
 		case TRADES_HISTORY:
-			return new HttpApiClient<TradesHistoryResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<TradesHistoryResult>(apiKey, apiSecret));
 		case TRADES_INFORMATION:
-			return new HttpApiClient<TradesInformationResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<TradesInformationResult>(apiKey, apiSecret));
 		case OPEN_POSITIONS:
-			return new HttpApiClient<OpenPositionsResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<OpenPositionsResult>(apiKey, apiSecret));
 		case LEDGERS_INFORMATION:
-			return new HttpApiClient<LedgersInformationResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<LedgersInformationResult>(apiKey, apiSecret));
 		case QUERY_LEDGERS:
-			return new HttpApiClient<LedgersInformationResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<LedgersInformationResult>(apiKey, apiSecret));
 		case TRADE_VOLUME:
-			return new HttpApiClient<TradeVolumeResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<TradeVolumeResult>(apiKey, apiSecret));
 		case WITHDRAW_INFO:
-			return new HttpApiClient<WithdrawInfoResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<WithdrawInfoResult>(apiKey, apiSecret));
 		case WITHDRAW_STATUS:
-			return new HttpApiClient<WithdrawStatusResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<WithdrawStatusResult>(apiKey, apiSecret));
 		case ADD_STANDARD_ORDER:
-			return new HttpApiClient<AddStandardOrderResult>(apiKey, apiSecret);
+			return configure(new HttpApiClient<AddStandardOrderResult>(apiKey, apiSecret));
+		case ADD_ORDER_BATCH:
+			return configure(new HttpApiClient<AddOrderBatchResult>(apiKey, apiSecret));
+		case CANCEL_ORDER:
+		case CANCEL_ALL_ORDERS:
+		case CANCEL_ORDER_BATCH:
+			return configure(new HttpApiClient<CancelOrderResult>(apiKey, apiSecret));
+		case WEBSOCKETS_TOKEN:
+			return configure(new HttpApiClient<WebSocketsTokenResult>(apiKey, apiSecret));
 		default:
 			throw new IllegalArgumentException("Unknown Kraken API method");
 		}
 	}
+
+	@SuppressWarnings("rawtypes")
+	private <T extends Result> HttpApiClient<T> configure(HttpApiClient<T> client) {
+		client.setRequestListener(requestListener);
+		client.setTransport(transport);
+		client.setTimeouts(connectTimeoutMillis, readTimeoutMillis);
+		client.setCallTimeout(callTimeoutMillis);
+		client.setScheduler(scheduler);
+		return client;
+	}
 }
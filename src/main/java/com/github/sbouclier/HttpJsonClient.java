@@ -1,15 +1,19 @@
 package com.github.sbouclier;
 
-import com.github.sbouclier.utils.Base64Utils;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.sbouclier.utils.ByteUtils;
-import com.github.sbouclier.utils.CryptoUtils;
+import com.github.sbouclier.utils.CountingInputStream;
+import com.github.sbouclier.utils.ParameterWriter;
 
 import javax.net.ssl.HttpsURLConnection;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -19,8 +23,23 @@ import java.util.Map;
  */
 public class HttpJsonClient {
 
+	private static final ThreadLocal<ParameterWriter> PARAMETER_WRITER = ThreadLocal.withInitial(ParameterWriter::new);
+
+	private static final ObjectMapper JSON_WRITER = new ObjectMapper();
+
+	static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded; charset=utf-8";
+	static final String JSON_CONTENT_TYPE = "application/json";
+
+	public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+	public static final int DEFAULT_READ_TIMEOUT_MILLIS = 30000;
+
 	private String apiKey;
 	private String secret;
+	private RequestSigner signer;
+	private ResponseCompression compression = ResponseCompression.getDefault();
+	private HttpTransport transport;
+	private int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+	private int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
 
 	// ----------------
 	// - CONSTRUCTORS -
@@ -43,23 +62,51 @@ public class HttpJsonClient {
 	}
 
 	public String executePublicQuery(String baseUrl, String urlMethod, Map<String, String> params) throws IOException {
-		final StringBuilder url = new StringBuilder(baseUrl).append(urlMethod).append("?");
+		return getPublicJsonResponse(buildPublicUrl(baseUrl, urlMethod, params));
+	}
 
-		if (params != null && !params.isEmpty()) {
-			params.forEach((k, v) -> {
-				url.append(k).append("=").append(v).append("&");
-			});
+	/**
+	 * Execute public query, streaming the (decompressed) response body to a reader
+	 *
+	 * @param baseUrl   base url
+	 * @param urlMethod method url
+	 * @param params    method parameters, may be null
+	 * @param reader    reader of the response body
+	 * @param <R>       read value type
+	 * @return read value
+	 * @throws IOException
+	 */
+	public <R> R executePublicQuery(String baseUrl, String urlMethod, Map<String, String> params, ResponseReader<R> reader) throws IOException {
+		final URL url = buildPublicUrl(baseUrl, urlMethod, params);
+		if (transport != null) {
+			return send(new TransportRequest("GET", url), reader);
 		}
-
-		return getPublicJsonResponse(new URL(url.toString()));
+		return getPublicResponse(url, connection -> readResponse(connection, reader));
 	}
 
 	public String getPublicJsonResponse(URL url) throws IOException {
+		return getPublicResponse(url, this::getJsonResponse);
+	}
+
+	private URL buildPublicUrl(String baseUrl, String urlMethod, Map<String, String> params) throws IOException {
+		final ParameterWriter url = PARAMETER_WRITER.get().reset().raw(baseUrl).raw(urlMethod).startQuery();
+
+		if (params != null) {
+			params.forEach(url::parameter);
+		}
+
+		return new URL(url.toString());
+	}
+
+	private <R> R getPublicResponse(URL url, ConnectionReader<R> reader) throws IOException {
 		final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
 
 		try {
 			connection.setRequestMethod("GET");
-			return getJsonResponse(connection);
+			applyTimeouts(connection);
+			acceptCompression(connection, url);
+			connect(connection);
+			return reader.read(connection);
 		} finally {
 			connection.disconnect();
 		}
@@ -70,83 +117,222 @@ public class HttpJsonClient {
 	}
 
 	public String executePrivateQuery(String baseUrl, String urlMethod, Map<String, String> params) throws IOException, KrakenApiException {
+		return executePrivate(baseUrl, urlMethod, nonce -> buildPostData(params, nonce),
+				(url, postData, contentType, signature) -> getPrivateJsonResponse(url, postData, signature));
+	}
+
+	/**
+	 * Execute private query, streaming the (decompressed) response body to a reader
+	 *
+	 * @param baseUrl   base url
+	 * @param urlMethod method url
+	 * @param params    method parameters, may be null
+	 * @param reader    reader of the response body
+	 * @param <R>       read value type
+	 * @return read value
+	 * @throws IOException
+	 * @throws KrakenApiException if credentials are missing or invalid
+	 */
+	public <R> R executePrivateQuery(String baseUrl, String urlMethod, Map<String, String> params, ResponseReader<R> reader) throws IOException, KrakenApiException {
+		return executePrivate(baseUrl, urlMethod, nonce -> buildPostData(params, nonce), streamingSender(reader));
+	}
+
+	/**
+	 * Execute private query with a JSON body, for methods taking nested parameters (e.g. {@code AddOrderBatch}),
+	 * streaming the (decompressed) response body to a reader
+	 *
+	 * @param baseUrl   base url
+	 * @param urlMethod method url
+	 * @param params    method parameters, values mapped to JSON by Jackson, may be null
+	 * @param reader    reader of the response body
+	 * @param <R>       read value type
+	 * @return read value
+	 * @throws IOException
+	 * @throws KrakenApiException if credentials are missing or invalid
+	 */
+	public <R> R executePrivateJsonQuery(String baseUrl, String urlMethod, Map<String, ?> params, ResponseReader<R> reader) throws IOException, KrakenApiException {
+		return executePrivate(baseUrl, urlMethod, nonce -> buildJsonData(params, nonce), streamingSender(reader));
+	}
+
+	private <R> PrivateSender<R> streamingSender(ResponseReader<R> reader) {
+		if (transport != null) {
+			return (url, postData, contentType, signature) -> send(
+					new TransportRequest("POST", url)
+							.header("API-Key", apiKey)
+							.header("API-Sign", signature)
+							.header("Content-Type", contentType)
+							.body(postData),
+					reader);
+		}
+		return (url, postData, contentType, signature) ->
+				getPrivateResponse(url, postData, contentType, signature, connection -> readResponse(connection, reader));
+	}
+
+	private <R> R executePrivate(String baseUrl, String urlMethod, BodyEncoder encoder, PrivateSender<R> sender) throws IOException, KrakenApiException {
 		if (this.apiKey == null || this.secret == null) {
 			throw new KrakenApiException("must provide API key and secret");
 		}
 
+		final EndpointTemplate template = EndpointTemplate.forPath(urlMethod, true);
 		final String nonce = generateNonce();
-		final String postData = buildPostData(params, nonce);
-		final String signature = generateSignature(urlMethod, nonce, postData);
+		final EncodedBody body = encoder.encode(nonce);
+		final String signature = getSigner().sign(template.getPathBytes(), ByteUtils.stringToBytes(nonce), body.bytes);
 
-		return getPrivateJsonResponse(new URL(baseUrl + urlMethod), postData, signature);
+		return sender.send(new URL(baseUrl + template.getPath()), body.bytes, body.contentType, signature);
 	}
 
 	public String getPrivateJsonResponse(URL url, String postData, String signature) throws IOException {
+		return getPrivateJsonResponse(url, (postData != null) ? ByteUtils.stringToBytes(postData) : null, signature);
+	}
+
+	/**
+	 * Send private request, writing the already encoded body with a fixed Content-Length
+	 *
+	 * @param url       method url
+	 * @param postData  URL encoded POST body, exactly the bytes which were signed
+	 * @param signature signature of the request
+	 * @return json response
+	 * @throws IOException
+	 */
+	public String getPrivateJsonResponse(URL url, byte[] postData, String signature) throws IOException {
+		return getPrivateResponse(url, postData, FORM_CONTENT_TYPE, signature, this::getJsonResponse);
+	}
+
+	private <R> R getPrivateResponse(URL url, byte[] postData, String contentType, String signature, ConnectionReader<R> reader) throws IOException {
 		HttpsURLConnection connection = null;
 		try {
 			connection = (HttpsURLConnection) url.openConnection();
 			connection.setRequestMethod("POST");
 			connection.addRequestProperty("API-Key", apiKey);
 			connection.addRequestProperty("API-Sign", signature);
+			applyTimeouts(connection);
+			acceptCompression(connection, url);
 
-			if (postData != null && !postData.toString().isEmpty()) {
+			final boolean hasPostData = postData != null && postData.length > 0;
+			if (hasPostData) {
 				connection.setDoOutput(true);
-				try (OutputStreamWriter out = new OutputStreamWriter(connection.getOutputStream())) {
-					out.write(postData.toString());
+				connection.setFixedLengthStreamingMode(postData.length);
+				connection.setRequestProperty("Content-Type", contentType);
+			}
+
+			connect(connection);
+
+			if (hasPostData) {
+				try (OutputStream out = connection.getOutputStream()) {
+					out.write(postData);
+				}
+
+				RequestTrace trace = RequestTrace.current();
+				if (trace != null) {
+					trace.requestWritten();
 				}
 			}
 
-			return getJsonResponse(connection);
+			return reader.read(connection);
 		} finally {
 			connection.disconnect();
 		}
 	}
 
-	private String buildPostData(Map<String, String> params, String nonce) {
-		final StringBuilder postData = new StringBuilder();
-		if (params != null && !params.isEmpty()) {
-			params.forEach((k, v) -> {
-				postData.append(k).append("=").append(v).append("&");
-			});
+	/**
+	 * Encode POST body once, these bytes are both signed and sent
+	 *
+	 * @param params method parameters
+	 * @param nonce  nonce
+	 * @return URL encoded body
+	 */
+	private EncodedBody buildPostData(Map<String, String> params, String nonce) {
+		final ParameterWriter postData = PARAMETER_WRITER.get().reset();
+		if (params != null) {
+			params.forEach(postData::parameter);
+		}
+		postData.parameter("nonce", nonce);
+		return new EncodedBody(postData.toByteArray(), FORM_CONTENT_TYPE);
+	}
+
+	/**
+	 * Encode JSON body once, these bytes are both signed and sent
+	 *
+	 * @param params method parameters
+	 * @param nonce  nonce
+	 * @return JSON body
+	 * @throws IOException if a parameter can not be mapped to JSON
+	 */
+	private EncodedBody buildJsonData(Map<String, ?> params, String nonce) throws IOException {
+		final Map<String, Object> body = new LinkedHashMap<>();
+		body.put("nonce", Long.valueOf(nonce));
+		if (params != null) {
+			body.putAll(params);
 		}
-		postData.append("nonce=").append(nonce);
-		return postData.toString();
+		return new EncodedBody(JSON_WRITER.writeValueAsBytes(body), JSON_CONTENT_TYPE);
 	}
 
+	/**
+	 * Generate nonce, from the generator shared by all clients so that nonces of concurrent calls keep increasing
+	 *
+	 * @return nonce
+	 */
 	public String generateNonce() {
-		return String.valueOf(System.currentTimeMillis() * 1000);
+		return String.valueOf(NonceGenerator.getDefault().next());
 	}
 
 	/**
-	 * Generate signature
+	 * Get signer, decoding the secret on first private call
 	 *
-	 * @param path     URI path
-	 * @param nonce
-	 * @param postData POST data
-	 * @return generated signature
-	 * @throws KrakenApiException
+	 * @return signer
+	 * @throws KrakenApiException if secret is invalid
 	 */
-	private String generateSignature(String path, String nonce, String postData) throws KrakenApiException {
-		// Algorithm: HMAC-SHA512 of (URI path + SHA256(nonce + POST data)) and base64 decoded secret API key
+	private RequestSigner getSigner() throws KrakenApiException {
+		if (signer == null) {
+			signer = new RequestSigner(secret);
+		}
+		return signer;
+	}
 
-		String hmacDigest = null;
+	/**
+	 * Open connection eagerly when the call is traced, so that connection setup is measured apart from the
+	 * time to first byte
+	 *
+	 * @param connection connection to open
+	 * @throws IOException
+	 */
+	private void connect(HttpsURLConnection connection) throws IOException {
+		final RequestTrace trace = RequestTrace.current();
+		if (trace == null) {
+			return;
+		}
 
-		try {
-			byte[] bytePath = ByteUtils.stringToBytes(path);
-			byte[] sha256 = CryptoUtils.sha256(nonce + postData);
-			byte[] hmacMessage = ByteUtils.concatArrays(bytePath, sha256);
+		connection.setSSLSocketFactory(TimingSSLSocketFactory.getShared());
+		trace.mark();
+		connection.connect();
+		trace.connected();
+	}
 
-			byte[] hmacKey = Base64Utils.base64Decode(this.secret);
+	/**
+	 * Set connect and read timeouts, capped by the time left of the call deadline
+	 *
+	 * @param connection connection not yet opened
+	 */
+	private void applyTimeouts(HttpsURLConnection connection) {
+		connection.setConnectTimeout(Deadline.capTimeoutMillis(connectTimeoutMillis));
+		connection.setReadTimeout(Deadline.capTimeoutMillis(readTimeoutMillis));
+	}
 
-			hmacDigest = Base64Utils.base64Encode(CryptoUtils.hmacSha512(hmacKey, hmacMessage));
-		} catch (Throwable ex) {
-			throw new KrakenApiException("unable to generate signature");
+	/**
+	 * Request a compressed response if the endpoint is worth it
+	 *
+	 * @param connection connection not yet opened
+	 * @param url        method url
+	 */
+	private void acceptCompression(HttpsURLConnection connection, URL url) {
+		if (url != null && compression.shouldRequest(EndpointTemplate.forPath(url.getPath(), false))) {
+			connection.setRequestProperty("Accept-Encoding", ResponseCompression.ACCEPT_ENCODING);
 		}
-		return hmacDigest;
 	}
 
 	public String getJsonResponse(HttpsURLConnection connection) throws IOException {
-		try (BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
+		return readResponse(connection, body -> {
+			BufferedReader in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
 			StringBuilder response = new StringBuilder();
 			String line;
 
@@ -157,6 +343,173 @@ public class HttpJsonClient {
 			System.out.println(response);
 
 			return response.toString();
+		});
+	}
+
+	/**
+	 * Stream response body to a reader, decompressing it on the fly, and record its size both as transferred and
+	 * decoded. The body is read to its end once the reader returns, so that the connection can be reused.
+	 *
+	 * @param connection connection with the request sent
+	 * @param reader     reader of the response body
+	 * @param <R>        read value type
+	 * @return read value
+	 * @throws IOException
+	 */
+	private <R> R readResponse(HttpsURLConnection connection, ResponseReader<R> reader) throws IOException {
+		final RequestTrace trace = RequestTrace.current();
+		if (trace != null) {
+			trace.firstByte(connection.getResponseCode());
+		}
+
+		return readBody((connection.getURL() != null) ? connection.getURL().getPath() : null,
+				connection.getContentEncoding(), connection.getInputStream(), reader);
+	}
+
+	/**
+	 * Send request through the transport, negotiating compression like connections do
+	 *
+	 * @param request request to send
+	 * @param reader  reader of the response body
+	 * @param <R>     read value type
+	 * @return read value
+	 * @throws IOException if the request failed or the server returned an HTTP error
+	 */
+	private <R> R send(TransportRequest request, ResponseReader<R> reader) throws IOException {
+		final String path = request.getUrl().getPath();
+		if (compression.shouldRequest(EndpointTemplate.forPath(path, false))) {
+			request.header("Accept-Encoding", ResponseCompression.ACCEPT_ENCODING);
+		}
+
+		final RequestTrace trace = RequestTrace.current();
+		if (trace != null) {
+			trace.mark();
+		}
+
+		return transport.send(request, (statusCode, contentEncoding, body) -> {
+			if (trace != null) {
+				trace.firstByte(statusCode);
+			}
+
+			if (statusCode >= 400) {
+				throw new IOException("Server returned HTTP response code: " + statusCode + " for URL: " + request.getUrl());
+			}
+
+			return readBody(path, contentEncoding, body, reader);
+		});
+	}
+
+	/**
+	 * Stream response body to a reader, decompressing it on the fly, and record its size both as transferred and
+	 * decoded. The body is read to its end once the reader returns, so that the connection can be reused.
+	 *
+	 * @param path            URI path of the endpoint, may be null
+	 * @param contentEncoding content encoding of the response, may be null
+	 * @param in              raw response body
+	 * @param reader          reader of the response body
+	 * @param <R>             read value type
+	 * @return read value
+	 * @throws IOException
+	 */
+	private <R> R readBody(String path, String contentEncoding, InputStream in, ResponseReader<R> reader) throws IOException {
+		final RequestTrace trace = RequestTrace.current();
+		final CountingInputStream wire = new CountingInputStream(Deadline.guard(in));
+
+		try (CountingInputStream body = new CountingInputStream(compression.decode(wire, contentEncoding))) {
+			final R result = reader.read(body);
+			body.drain();
+
+			compression.record(path, contentEncoding, wire.getCount(), body.getCount());
+			if (trace != null) {
+				trace.downloaded(contentEncoding, wire.getCount(), body.getCount());
+			}
+
+			return result;
+		}
+	}
+
+	public int getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+
+	public int getReadTimeoutMillis() {
+		return readTimeoutMillis;
+	}
+
+	/**
+	 * Set timeouts of connections, further capped by the call deadline if any
+	 *
+	 * @param connectTimeoutMillis connect timeout in milliseconds, 0 for infinite
+	 * @param readTimeoutMillis    timeout of each socket read in milliseconds, 0 for infinite
+	 */
+	public void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+		if (connectTimeoutMillis < 0 || readTimeoutMillis < 0) {
+			throw new IllegalArgumentException("timeouts can not be negative");
+		}
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
+	public HttpTransport getTransport() {
+		return transport;
+	}
+
+	/**
+	 * Set transport of streamed calls (those made by {@link HttpApiClient})
+	 *
+	 * @param transport transport, null to use {@link HttpsURLConnection}
+	 */
+	public void setTransport(HttpTransport transport) {
+		this.transport = transport;
+	}
+
+	public ResponseCompression getResponseCompression() {
+		return compression;
+	}
+
+	/**
+	 * Set compression policy, collecting the compression metrics of this client
+	 *
+	 * @param compression compression policy
+	 */
+	public void setResponseCompression(ResponseCompression compression) {
+		this.compression = compression;
+	}
+
+	/**
+	 * Reader of a response from its connection
+	 */
+	@FunctionalInterface
+	private interface ConnectionReader<R> {
+		R read(HttpsURLConnection connection) throws IOException;
+	}
+
+	/**
+	 * Sender of a signed private request
+	 */
+	@FunctionalInterface
+	private interface PrivateSender<R> {
+		R send(URL url, byte[] postData, String contentType, String signature) throws IOException;
+	}
+
+	/**
+	 * Encoder of a private request body
+	 */
+	@FunctionalInterface
+	private interface BodyEncoder {
+		EncodedBody encode(String nonce) throws IOException;
+	}
+
+	/**
+	 * Encoded request body
+	 */
+	private static final class EncodedBody {
+		private final byte[] bytes;
+		private final String contentType;
+
+		EncodedBody(byte[] bytes, String contentType) {
+			this.bytes = bytes;
+			this.contentType = contentType;
 		}
 	}
 }
@@ -0,0 +1,49 @@
+package com.github.sbouclier;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pluggable HTTP transport of {@link HttpJsonClient}.
+ *
+ * Without a transport, calls go through {@link javax.net.ssl.HttpsURLConnection} (one connection per in-flight call).
+ * A transport may instead multiplex concurrent calls over a few connections, see {@link HttpTransports#http2OrDefault}. Request
+ * signing, compression negotiation, decompression and tracing stay in {@link HttpJsonClient}: a transport only moves
+ * bytes. Implementations must be thread-safe.
+ *
+ * @author synapticloop
+ */
+public interface HttpTransport extends Closeable {
+
+	/**
+	 * Send request and hand the response over to a handler as soon as its headers are received
+	 *
+	 * @param request request to send
+	 * @param handler handler of the response, reading its body
+	 * @param <R>     handled value type
+	 * @return handled value
+	 * @throws IOException if the request could not be sent or the response could not be read in time
+	 */
+	<R> R send(TransportRequest request, ResponseHandler<R> handler) throws IOException;
+
+	/**
+	 * Handler of a response
+	 *
+	 * @param <R> handled value type
+	 */
+	@FunctionalInterface
+	interface ResponseHandler<R> {
+
+		/**
+		 * Handle response
+		 *
+		 * @param statusCode      HTTP status code
+		 * @param contentEncoding value of {@code Content-Encoding}, may be null
+		 * @param body            raw (possibly compressed) body stream, closed by the transport
+		 * @return handled value
+		 * @throws IOException
+		 */
+		R handle(int statusCode, String contentEncoding, InputStream body) throws IOException;
+	}
+}
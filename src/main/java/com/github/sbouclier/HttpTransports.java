@@ -0,0 +1,55 @@
+package com.github.sbouclier;
+
+/**
+ * Factory of HTTP transports.
+ *
+ * This is the Java 8 implementation, falling back to {@link HttpURLConnectionTransport} (one
+ * {@link javax.net.ssl.HttpsURLConnection} per in-flight call). On Java 11+ the multi-release jar provides an
+ * implementation creating an HTTP/2 transport based on {@code java.net.http.HttpClient} (see {@code src/main/java11}).
+ *
+ * @author synapticloop
+ */
+public final class HttpTransports {
+
+	public static final int DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+	public static final long DEFAULT_STREAM_TIMEOUT_MILLIS = 10000;
+
+	/**
+	 * Private constructor
+	 */
+	private HttpTransports() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Whether HTTP/2 transport is supported by the running JVM
+	 *
+	 * @return true on Java 11+
+	 */
+	public static boolean isHttp2Supported() {
+		return false;
+	}
+
+	/**
+	 * Create HTTP/2 transport with default stream concurrency limit and timeout if supported
+	 *
+	 * @return HTTP/2 transport on Java 11+, {@link HttpURLConnectionTransport} otherwise
+	 */
+	public static HttpTransport http2OrDefault() {
+		return http2OrDefault(DEFAULT_MAX_CONCURRENT_STREAMS, DEFAULT_STREAM_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Create HTTP/2 transport if supported
+	 *
+	 * @param maxConcurrentStreams maximum number of requests in flight, further requests wait for a free stream
+	 * @param streamTimeoutMillis  maximum duration of a stream, from waiting for a free stream to reading the body
+	 * @return HTTP/2 transport on Java 11+, {@link HttpURLConnectionTransport} with default timeouts otherwise
+	 */
+	public static HttpTransport http2OrDefault(int maxConcurrentStreams, long streamTimeoutMillis) {
+		if (maxConcurrentStreams <= 0 || streamTimeoutMillis <= 0) {
+			throw new IllegalArgumentException("stream limit and timeout must be positive");
+		}
+		return new HttpURLConnectionTransport();
+	}
+}
@@ -0,0 +1,87 @@
+package com.github.sbouclier;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.Map;
+
+/**
+ * Transport over {@link HttpURLConnection}, for plain {@code http} endpoints such as a
+ * {@link com.github.sbouclier.simulator.KrakenSimulator} as well as {@code https} ones.
+ *
+ * Connections are kept alive: bodies are read to their end and connections are not disconnected. Thread-safe.
+ *
+ * @author synapticloop
+ */
+public class HttpURLConnectionTransport implements HttpTransport {
+
+	private final int connectTimeoutMillis;
+	private final int readTimeoutMillis;
+
+	/**
+	 * Create transport with default timeouts
+	 */
+	public HttpURLConnectionTransport() {
+		this(HttpJsonClient.DEFAULT_CONNECT_TIMEOUT_MILLIS, HttpJsonClient.DEFAULT_READ_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Create transport
+	 *
+	 * @param connectTimeoutMillis connect timeout in milliseconds, 0 for infinite
+	 * @param readTimeoutMillis    timeout of each socket read in milliseconds, 0 for infinite
+	 */
+	public HttpURLConnectionTransport(int connectTimeoutMillis, int readTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
+	@Override
+	public <R> R send(TransportRequest request, ResponseHandler<R> handler) throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) request.getUrl().openConnection();
+		connection.setRequestMethod(request.getMethod());
+		connection.setConnectTimeout(Deadline.capTimeoutMillis(connectTimeoutMillis));
+		connection.setReadTimeout(Deadline.capTimeoutMillis(readTimeoutMillis));
+		for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+			connection.setRequestProperty(header.getKey(), header.getValue());
+		}
+
+		final byte[] body = request.getBody();
+		if (body != null) {
+			connection.setDoOutput(true);
+			connection.setFixedLengthStreamingMode(body.length);
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(body);
+			}
+		}
+
+		final int statusCode = connection.getResponseCode();
+		final InputStream in = (statusCode >= 400) ? connection.getErrorStream() : connection.getInputStream();
+		if (in == null) {
+			return handler.handle(statusCode, connection.getContentEncoding(), new ByteArrayInputStream(new byte[0]));
+		}
+		try {
+			// the handler may close the stream, which would drop the connection before the body is drained
+			final R result = handler.handle(statusCode, connection.getContentEncoding(), new FilterInputStream(in) {
+				@Override
+				public void close() {
+				}
+			});
+			// read to the end so that the connection goes back to the keep-alive cache
+			final byte[] buffer = new byte[1024];
+			while (in.read(buffer) != -1) {
+				// discard
+			}
+			return result;
+		} finally {
+			in.close();
+		}
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -2,15 +2,21 @@ package com.github.sbouclier;
 
 import com.github.sbouclier.input.InfoInput;
 import com.github.sbouclier.input.Interval;
+import com.github.sbouclier.input.OrderInput;
 import com.github.sbouclier.result.*;
 import com.github.sbouclier.result.common.OrderDirection;
 import com.github.sbouclier.result.common.OrderType;
+import com.github.sbouclier.utils.CompositeMap;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 /**
  * Kraken API client
@@ -22,7 +28,42 @@ public class KrakenAPIClient {
 
 	public static String BASE_URL = "https://api.kraken.com";
 
+	/**
+	 * Maximum number of orders of an {@code AddOrderBatch} call
+	 */
+	public static final int MAX_ADD_ORDER_BATCH = 15;
+
+	/**
+	 * Maximum number of orders of a {@code CancelOrderBatch} call
+	 */
+	public static final int MAX_CANCEL_ORDER_BATCH = 50;
+
+	/**
+	 * Maximum number of txids of a {@code QueryOrders} call
+	 */
+	public static final int MAX_QUERY_ORDERS_IDS = 50;
+
+	/**
+	 * Maximum number of txids of a {@code QueryTrades} call
+	 */
+	public static final int MAX_QUERY_TRADES_IDS = 20;
+
+	/**
+	 * Maximum number of txids of an {@code OpenPositions} call
+	 */
+	public static final int MAX_OPEN_POSITIONS_IDS = 20;
+
+	/**
+	 * Maximum number of ledger ids of a {@code QueryLedgers} call
+	 */
+	public static final int MAX_QUERY_LEDGERS_IDS = 20;
+
 	private HttpApiClientFactory clientFactory;
+	private String baseUrl;
+
+	private RateLimiter rateLimiter;
+	private RequestScheduler scheduler;
+	private ExecutorService chunkExecutor;
 
 	private String apiKey;
 	private String apiSecret;
@@ -69,6 +110,94 @@ public class KrakenAPIClient {
 		this.clientFactory = clientFactory;
 	}
 
+	/**
+	 * Set listener notified with the phase timing (connect, TLS, time to first byte, download, decode) of every call
+	 *
+	 * @param requestListener listener, null to disable tracing
+	 */
+	public void setRequestListener(RequestListener requestListener) {
+		this.clientFactory.setRequestListener(requestListener);
+	}
+
+	/**
+	 * Set connect and read timeouts of all calls
+	 *
+	 * @param connectTimeoutMillis connect timeout in milliseconds, 0 for infinite
+	 * @param readTimeoutMillis    timeout of each socket read in milliseconds, 0 for infinite
+	 */
+	public void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+		this.clientFactory.setTimeouts(connectTimeoutMillis, readTimeoutMillis);
+	}
+
+	/**
+	 * Set limiter of the calls of queries split in chunks, none by default. Kraken counts calls per API key: the limiter
+	 * must be shared by all clients of the key, a limiter per client letting them together exceed the limit.
+	 *
+	 * @param rateLimiter limiter, shared by all clients of the same API key, null to query chunks at once
+	 */
+	public void setRateLimiter(RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Set scheduler of all calls, admitting them by priority class within the call counter budget. A scheduler replaces
+	 * the rate limiter of the queries split in chunks.
+	 *
+	 * @param scheduler scheduler, shared by all clients of the same API key, null to make calls at once
+	 */
+	public void setScheduler(RequestScheduler scheduler) {
+		this.scheduler = scheduler;
+		this.clientFactory.setScheduler(scheduler);
+	}
+
+	public RequestScheduler getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Set executor of the calls made in parallel for queries split in chunks, null by default to make them one after
+	 * the other. Parallel private calls may reach Kraken out of nonce order, which requires a nonce window on the API
+	 * key.
+	 *
+	 * @param chunkExecutor executor, null to query chunks one after the other
+	 */
+	public void setChunkExecutor(ExecutorService chunkExecutor) {
+		this.chunkExecutor = chunkExecutor;
+	}
+
+	/**
+	 * Set end-to-end timeout of all calls. Individual calls can be given a shorter deadline with
+	 * {@link Deadline#bind()}.
+	 *
+	 * @param callTimeoutMillis call timeout in milliseconds, 0 for none
+	 */
+	public void setCallTimeout(long callTimeoutMillis) {
+		this.clientFactory.setCallTimeout(callTimeoutMillis);
+	}
+
+	/**
+	 * Set base url of the calls of this client, e.g. of a {@link com.github.sbouclier.simulator.KrakenSimulator}
+	 *
+	 * @param baseUrl base url, null for {@link #BASE_URL}
+	 */
+	public void setBaseUrl(String baseUrl) {
+		this.baseUrl = baseUrl;
+	}
+
+	public String getBaseUrl() {
+		return (baseUrl != null) ? baseUrl : BASE_URL;
+	}
+
+	/**
+	 * Set transport of all calls, e.g. the HTTP/2 transport of {@link HttpTransports#http2OrDefault()} multiplexing
+	 * concurrent calls over a few connections
+	 *
+	 * @param transport transport, null to use one {@link javax.net.ssl.HttpsURLConnection} per call
+	 */
+	public void setTransport(HttpTransport transport) {
+		this.clientFactory.setTransport(transport);
+	}
+
 	// -----------
 	// - METHODS -
 	// -----------
@@ -82,7 +211,7 @@ public class KrakenAPIClient {
 	@SuppressWarnings("unchecked")
 	public ServerTimeResult getServerTime() throws KrakenApiException {
 		HttpApiClient<ServerTimeResult> client = (HttpApiClient<ServerTimeResult>) this.clientFactory.getHttpApiClient(KrakenApiMethod.SERVER_TIME);
-		return client.callPublic(BASE_URL, KrakenApiMethod.SERVER_TIME, ServerTimeResult.class);
+		return client.callPublic(getBaseUrl(), KrakenApiMethod.SERVER_TIME, ServerTimeResult.class);
 	}
 
 	/**
@@ -94,7 +223,7 @@ public class KrakenAPIClient {
 	@SuppressWarnings("unchecked")
 	public AssetsInformationResult getAssetsInformation() throws KrakenApiException {
 		HttpApiClient<AssetsInformationResult> client = (HttpApiClient<AssetsInformationResult>) this.clientFactory.getHttpApiClient(KrakenApiMethod.ASSET_INFORMATION);
-		return client.callPublic(BASE_URL, KrakenApiMethod.ASSET_INFORMATION, AssetsInformationResult.class);
+		return client.callPublic(getBaseUrl(), KrakenApiMethod.ASSET_INFORMATION, AssetsInformationResult.class);
 	}
 
 	/**
@@ -111,7 +240,7 @@ public class KrakenAPIClient {
 		Map<String, String> params = new HashMap<>();
 		params.put("asset", String.join(",", assets));
 
-		return client.callPublic(BASE_URL, KrakenApiMethod.ASSET_INFORMATION, AssetsInformationResult.class, params);
+		return client.callPublic(getBaseUrl(), KrakenApiMethod.ASSET_INFORMATION, AssetsInformationResult.class, params);
 	}
 
 	/**
@@ -123,7 +252,7 @@ public class KrakenAPIClient {
 	@SuppressWarnings("unchecked")
 	public AssetPairsResult getAssetPairs() throws KrakenApiException {
 		HttpApiClient<AssetPairsResult> client = (HttpApiClient<AssetPairsResult>) this.clientFactory.getHttpApiClient(KrakenApiMethod.ASSET_PAIRS);
-		return client.callPublic(BASE_URL, KrakenApiMethod.ASSET_PAIRS, AssetPairsResult.class);
+		return client.callPublic(getBaseUrl(), KrakenApiMethod.ASSET_PAIRS, AssetPairsResult.class);
 	}
 
 	/**
@@ -142,7 +271,7 @@ public class KrakenAPIClient {
 		params.put("info", info.getValue());
 		params.put("pair", String.join(",", assetPairs));
 
-		return client.callPublic(BASE_URL, KrakenApiMethod.ASSET_PAIRS, AssetPairsResult.class, params);
+		return client.callPublic(getBaseUrl(), KrakenApiMethod.ASSET_PAIRS, AssetPairsResult.class, params);
 	}
 
 	/**
@@ -159,7 +288,7 @@ public class KrakenAPIClient {
 		Map<String, String> params = new HashMap<>();
 		params.put("pair", String.join(",", pairs));
 
-		return client.callPublic(BASE_URL, KrakenApiMethod.TICKER_INFORMATION, TickerInformationResult.class, params);
+		return client.callPublic(getBaseUrl(), KrakenApiMethod.TICKER_INFORMATION, TickerInformationResult.class, params);
 	}
 
 
@@ -181,7 +310,7 @@ public class KrakenAPIClient {
 		params.put("interval", String.valueOf(interval.getMinutes()));
 		params.put("since", String.valueOf(since));
 
-		return client.callPublicWithLastId(BASE_URL, KrakenApiMethod.OHLC, OHLCResult.class, params);
+		return client.callPublicWithLastId(getBaseUrl(), KrakenApiMethod.OHLC, OHLCResult.class, params);
 	}
 
 	/**
@@ -200,7 +329,7 @@ public class KrakenAPIClient {
 		params.put("pair", pair);
 		params.put("interval", String.valueOf(interval.getMinutes()));
 
-		return client.callPublicWithLastId(BASE_URL, KrakenApiMethod.OHLC, OHLCResult.class, params);
+		return client.callPublicWithLastId(getBaseUrl(), KrakenApiMethod.OHLC, OHLCResult.class, params);
 	}
 
 	/**
@@ -219,7 +348,7 @@ public class KrakenAPIClient {
 		params.put("pair", pair);
 		params.put("count", String.valueOf(count));
 
-		return client.callPublic(BASE_URL, KrakenApiMethod.ORDER_BOOK, OrderBookResult.class, params);
+		return client.callPublic(getBaseUrl(), KrakenApiMethod.ORDER_BOOK, OrderBookResult.class, params);
 	}
 
 	/**
@@ -236,7 +365,7 @@ public class KrakenAPIClient {
 		Map<String, String> params = new HashMap<>();
 		params.put("pair", pair);
 
-		return client.callPublic(BASE_URL, KrakenApiMethod.ORDER_BOOK, OrderBookResult.class, params);
+		return client.callPublic(getBaseUrl(), KrakenApiMethod.ORDER_BOOK, OrderBookResult.class, params);
 	}
 
 	/**
@@ -253,7 +382,7 @@ public class KrakenAPIClient {
 		Map<String, String> params = new HashMap<>();
 		params.put("pair", pair);
 
-		return client.callPublicWithLastId(BASE_URL, KrakenApiMethod.RECENT_TRADES, RecentTradeResult.class, params);
+		return client.callPublicWithLastId(getBaseUrl(), KrakenApiMethod.RECENT_TRADES, RecentTradeResult.class, params);
 	}
 
 	/**
@@ -272,7 +401,27 @@ public class KrakenAPIClient {
 		params.put("pair", pair);
 		params.put("since", String.valueOf(since));
 
-		return client.callPublicWithLastId(BASE_URL, KrakenApiMethod.RECENT_TRADES, RecentTradeResult.class, params);
+		return client.callPublicWithLastId(getBaseUrl(), KrakenApiMethod.RECENT_TRADES, RecentTradeResult.class, params);
+	}
+
+	/**
+	 * Get recent trades
+	 *
+	 * @param pair  asset pair
+	 * @param since return trade data since given id, the time in nanoseconds of a trade as returned by
+	 *              {@link RecentTradeResult#getLastId()}
+	 * @return recent trades
+	 * @throws KrakenApiException
+	 */
+	@SuppressWarnings("unchecked")
+	public RecentTradeResult getRecentTrades(String pair, long since) throws KrakenApiException {
+		HttpApiClient<RecentTradeResult> client = (HttpApiClient<RecentTradeResult>) this.clientFactory.getHttpApiClient(KrakenApiMethod.RECENT_TRADES);
+
+		Map<String, String> params = new HashMap<>();
+		params.put("pair", pair);
+		params.put("since", String.valueOf(since));
+
+		return client.callPublicWithLastId(getBaseUrl(), KrakenApiMethod.RECENT_TRADES, RecentTradeResult.class, params);
 	}
 
 	/**
@@ -289,7 +438,7 @@ public class KrakenAPIClient {
 		Map<String, String> params = new HashMap<>();
 		params.put("pair", pair);
 
-		return client.callPublicWithLastId(BASE_URL, KrakenApiMethod.RECENT_SPREADS, RecentSpreadResult.class, params);
+		return client.callPublicWithLastId(getBaseUrl(), KrakenApiMethod.RECENT_SPREADS, RecentSpreadResult.class, params);
 	}
 
 	/**
@@ -308,7 +457,7 @@ public class KrakenAPIClient {
 		params.put("pair", pair);
 		params.put("since", String.valueOf(since));
 
-		return client.callPublicWithLastId(BASE_URL, KrakenApiMethod.RECENT_SPREADS, RecentSpreadResult.class, params);
+		return client.callPublicWithLastId(getBaseUrl(), KrakenApiMethod.RECENT_SPREADS, RecentSpreadResult.class, params);
 	}
 
 	/**
@@ -320,7 +469,7 @@ public class KrakenAPIClient {
 	@SuppressWarnings("unchecked")
 	public AccountBalanceResult getAccountBalance() throws KrakenApiException {
 		HttpApiClient<AccountBalanceResult> client = (HttpApiClient<AccountBalanceResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.ACCOUNT_BALANCE);
-		return client.callPrivate(BASE_URL, KrakenApiMethod.ACCOUNT_BALANCE, AccountBalanceResult.class);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.ACCOUNT_BALANCE, AccountBalanceResult.class);
 	}
 
 	/**
@@ -332,7 +481,7 @@ public class KrakenAPIClient {
 	@SuppressWarnings("unchecked")
 	public TradeBalanceResult getTradeBalance() throws KrakenApiException {
 		HttpApiClient<TradeBalanceResult> client = (HttpApiClient<TradeBalanceResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.TRADE_BALANCE);
-		return client.callPrivate(BASE_URL, KrakenApiMethod.TRADE_BALANCE, TradeBalanceResult.class);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.TRADE_BALANCE, TradeBalanceResult.class);
 	}
 
 	/**
@@ -344,7 +493,7 @@ public class KrakenAPIClient {
 	@SuppressWarnings("unchecked")
 	public OpenOrdersResult getOpenOrders() throws KrakenApiException {
 		HttpApiClient<OpenOrdersResult> client = (HttpApiClient<OpenOrdersResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.OPEN_ORDERS);
-		return client.callPrivate(BASE_URL, KrakenApiMethod.OPEN_ORDERS, OpenOrdersResult.class);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.OPEN_ORDERS, OpenOrdersResult.class);
 	}
 
 	/**
@@ -356,24 +505,18 @@ public class KrakenAPIClient {
 	@SuppressWarnings("unchecked")
 	public ClosedOrdersResult getClosedOrders() throws KrakenApiException {
 		HttpApiClient<ClosedOrdersResult> client = (HttpApiClient<ClosedOrdersResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.CLOSED_ORDERS);
-		return client.callPrivate(BASE_URL, KrakenApiMethod.CLOSED_ORDERS, ClosedOrdersResult.class);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.CLOSED_ORDERS, ClosedOrdersResult.class);
 	}
 
 	/**
 	 * Get orders information
 	 *
-	 * @param transactions list of transactions
+	 * @param transactions list of transactions, split in chunks of {@value #MAX_QUERY_ORDERS_IDS} queried in parallel
 	 * @return orders information
 	 * @throws KrakenApiException
 	 */
-	@SuppressWarnings("unchecked")
 	public OrdersInformationResult getOrdersInformation(List<String> transactions) throws KrakenApiException {
-		HttpApiClient<OrdersInformationResult> client = (HttpApiClient<OrdersInformationResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.ORDERS_INFORMATION);
-
-		Map<String, String> params = new HashMap<>();
-		params.put("txid", transactions.stream().collect(Collectors.joining(",")));
-
-		return client.callPrivate(BASE_URL, KrakenApiMethod.ORDERS_INFORMATION, OrdersInformationResult.class, params);
+		return queryByIds(KrakenApiMethod.ORDERS_INFORMATION, OrdersInformationResult.class, "txid", transactions, MAX_QUERY_ORDERS_IDS, 1, OrdersInformationResult::new);
 	}
 
 	/**
@@ -386,7 +529,7 @@ public class KrakenAPIClient {
 	public TradesHistoryResult getTradesHistory() throws KrakenApiException {
 		HttpApiClient<TradesHistoryResult> client = (HttpApiClient<TradesHistoryResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.TRADES_HISTORY);
 
-		return client.callPrivate(BASE_URL, KrakenApiMethod.TRADES_HISTORY, TradesHistoryResult.class);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.TRADES_HISTORY, TradesHistoryResult.class);
 	}
 
 	/**
@@ -403,41 +546,29 @@ public class KrakenAPIClient {
 		params.put("ofs", String.valueOf(offset));
 		params.put("start", start);
 
-		return client.callPrivate(BASE_URL, KrakenApiMethod.TRADES_HISTORY, TradesHistoryResult.class, params);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.TRADES_HISTORY, TradesHistoryResult.class, params);
 	}
 
 	/**
 	 * Get trades information
 	 *
-	 * @param transactions list of transactions
+	 * @param transactions list of transactions, split in chunks of {@value #MAX_QUERY_TRADES_IDS} queried in parallel
 	 * @return trades information
 	 * @throws KrakenApiException
 	 */
-	@SuppressWarnings("unchecked")
 	public TradesInformationResult getTradesInformation(List<String> transactions) throws KrakenApiException {
-		HttpApiClient<TradesInformationResult> client = (HttpApiClient<TradesInformationResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.TRADES_INFORMATION);
-
-		Map<String, String> params = new HashMap<>();
-		params.put("txid", transactions.stream().collect(Collectors.joining(",")));
-
-		return client.callPrivate(BASE_URL, KrakenApiMethod.TRADES_INFORMATION, TradesInformationResult.class, params);
+		return queryByIds(KrakenApiMethod.TRADES_INFORMATION, TradesInformationResult.class, "txid", transactions, MAX_QUERY_TRADES_IDS, 1, TradesInformationResult::new);
 	}
 
 	/**
 	 * Get open positions
 	 *
-	 * @param transactions list of transactions
+	 * @param transactions list of transactions, split in chunks of {@value #MAX_OPEN_POSITIONS_IDS} queried in parallel
 	 * @return open positions
 	 * @throws KrakenApiException
 	 */
-	@SuppressWarnings("unchecked")
 	public OpenPositionsResult getOpenPositions(List<String> transactions) throws KrakenApiException {
-		HttpApiClient<OpenPositionsResult> client = (HttpApiClient<OpenPositionsResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.OPEN_POSITIONS);
-
-		Map<String, String> params = new HashMap<>();
-		params.put("txid", transactions.stream().collect(Collectors.joining(",")));
-
-		return client.callPrivate(BASE_URL, KrakenApiMethod.OPEN_POSITIONS, OpenPositionsResult.class, params);
+		return queryByIds(KrakenApiMethod.OPEN_POSITIONS, OpenPositionsResult.class, "txid", transactions, MAX_OPEN_POSITIONS_IDS, 1, OpenPositionsResult::new);
 	}
 
 	/**
@@ -449,7 +580,7 @@ public class KrakenAPIClient {
 	@SuppressWarnings("unchecked")
 	public LedgersInformationResult getLedgersInformation() throws KrakenApiException {
 		HttpApiClient<LedgersInformationResult> client = (HttpApiClient<LedgersInformationResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.LEDGERS_INFORMATION);
-		return client.callPrivate(BASE_URL, KrakenApiMethod.LEDGERS_INFORMATION, LedgersInformationResult.class);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.LEDGERS_INFORMATION, LedgersInformationResult.class);
 	}
 
 	/**
@@ -466,7 +597,7 @@ public class KrakenAPIClient {
 		params.put("ofs", String.valueOf(offset));
 		params.put("start", start);
 
-		return client.callPrivate(BASE_URL, KrakenApiMethod.LEDGERS_INFORMATION, LedgersInformationResult.class, params);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.LEDGERS_INFORMATION, LedgersInformationResult.class, params);
 	}
 
 	/**
@@ -484,24 +615,18 @@ public class KrakenAPIClient {
 		params.put("ofs", String.valueOf(offset));
 		params.put("start", start);
 
-		return client.callPrivate(BASE_URL, KrakenApiMethod.LEDGERS_INFORMATION, LedgersInformationResult.class, params);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.LEDGERS_INFORMATION, LedgersInformationResult.class, params);
 	}
 
 	/**
 	 * Get ledgers
 	 *
-	 * @param ledgerIds list of ledger ids
+	 * @param ledgerIds list of ledger ids, split in chunks of {@value #MAX_QUERY_LEDGERS_IDS} queried in parallel
 	 * @return ledgers
 	 * @throws KrakenApiException
 	 */
-	@SuppressWarnings("unchecked")
 	public LedgersResult getLedgers(List<String> ledgerIds) throws KrakenApiException {
-		HttpApiClient<LedgersResult> client = (HttpApiClient<LedgersResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.QUERY_LEDGERS);
-
-		Map<String, String> params = new HashMap<>();
-		params.put("id", ledgerIds.stream().collect(Collectors.joining(",")));
-
-		return client.callPrivate(BASE_URL, KrakenApiMethod.QUERY_LEDGERS, LedgersResult.class, params);
+		return queryByIds(KrakenApiMethod.QUERY_LEDGERS, LedgersResult.class, "id", ledgerIds, MAX_QUERY_LEDGERS_IDS, 2, LedgersResult::new);
 	}
 
 	/**
@@ -513,7 +638,7 @@ public class KrakenAPIClient {
 	@SuppressWarnings("unchecked")
 	public TradeVolumeResult getTradeVolume() throws KrakenApiException {
 		HttpApiClient<TradeVolumeResult> client = (HttpApiClient<TradeVolumeResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.TRADE_VOLUME);
-		return client.callPrivate(BASE_URL, KrakenApiMethod.TRADE_VOLUME, TradeVolumeResult.class);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.TRADE_VOLUME, TradeVolumeResult.class);
 	}
 
 	/**
@@ -531,7 +656,7 @@ public class KrakenAPIClient {
 		params.put("key", key);
 		params.put("amount", amount);
 
-		return client.callPrivate(BASE_URL, KrakenApiMethod.WITHDRAW_INFO, WithdrawInfoResult.class, params);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.WITHDRAW_INFO, WithdrawInfoResult.class, params);
 	}
 
 	/**
@@ -547,7 +672,19 @@ public class KrakenAPIClient {
 		Map<String, String> params = new HashMap<>();
 		params.put("asset", asset);
 
-		return client.callPrivate(BASE_URL, KrakenApiMethod.WITHDRAW_STATUS, WithdrawStatusResult.class, params);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.WITHDRAW_STATUS, WithdrawStatusResult.class, params);
+	}
+
+	/**
+	 * Get token authenticating private WebSocket feeds
+	 *
+	 * @return token and its validity in seconds
+	 * @throws KrakenApiException
+	 */
+	@SuppressWarnings("unchecked")
+	public WebSocketsTokenResult getWebSocketsToken() throws KrakenApiException {
+		HttpApiClient<WebSocketsTokenResult> client = (HttpApiClient<WebSocketsTokenResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.WEBSOCKETS_TOKEN);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.WEBSOCKETS_TOKEN, WebSocketsTokenResult.class);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -560,6 +697,197 @@ public class KrakenAPIClient {
 		params.put("type", direction.getValue());
 		params.put("volume", volume.toString());
 
-		return client.callPrivate(BASE_URL, KrakenApiMethod.ADD_STANDARD_ORDER, AddStandardOrderResult.class, params);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.ADD_STANDARD_ORDER, AddStandardOrderResult.class, params);
+	}
+
+	/**
+	 * Add standard order with a price
+	 *
+	 * @param pair      asset pair
+	 * @param type      order type
+	 * @param direction order direction
+	 * @param volume    order volume in lots
+	 * @param price     limit price, null for orders without price
+	 * @return order description and txid
+	 * @throws KrakenApiException
+	 */
+	@SuppressWarnings("unchecked")
+	public AddStandardOrderResult addStandardOrder(String pair, OrderType type, OrderDirection direction, BigDecimal volume, BigDecimal price) throws KrakenApiException {
+		HttpApiClient<AddStandardOrderResult> client = (HttpApiClient<AddStandardOrderResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.ADD_STANDARD_ORDER);
+
+		Map<String, String> params = new HashMap<>(new OrderInput(type, direction, volume, price).toParameters());
+		params.put("pair", pair);
+
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.ADD_STANDARD_ORDER, AddStandardOrderResult.class, params);
+	}
+
+	/**
+	 * Add a batch of 2 to {@value #MAX_ADD_ORDER_BATCH} orders of a pair in one call
+	 *
+	 * @param pair   asset pair
+	 * @param orders orders, in submission order
+	 * @return description and txid (or error) of each order, in submission order
+	 * @throws KrakenApiException
+	 */
+	@SuppressWarnings("unchecked")
+	public AddOrderBatchResult addOrderBatch(String pair, List<OrderInput> orders) throws KrakenApiException {
+		HttpApiClient<AddOrderBatchResult> client = (HttpApiClient<AddOrderBatchResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.ADD_ORDER_BATCH);
+
+		List<Map<String, String>> batch = new ArrayList<>(orders.size());
+		orders.forEach(order -> batch.add(order.toParameters()));
+
+		Map<String, Object> params = new HashMap<>();
+		params.put("pair", pair);
+		params.put("orders", batch);
+
+		return client.callPrivateJson(getBaseUrl(), KrakenApiMethod.ADD_ORDER_BATCH, AddOrderBatchResult.class, params);
+	}
+
+	/**
+	 * Cancel open order
+	 *
+	 * @param txid transaction id or user reference of the order(s)
+	 * @return number of cancelled orders
+	 * @throws KrakenApiException
+	 */
+	@SuppressWarnings("unchecked")
+	public CancelOrderResult cancelOrder(String txid) throws KrakenApiException {
+		HttpApiClient<CancelOrderResult> client = (HttpApiClient<CancelOrderResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.CANCEL_ORDER);
+
+		Map<String, String> params = new HashMap<>();
+		params.put("txid", txid);
+
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.CANCEL_ORDER, CancelOrderResult.class, params);
+	}
+
+	/**
+	 * Cancel all open orders
+	 *
+	 * @return number of cancelled orders
+	 * @throws KrakenApiException
+	 */
+	@SuppressWarnings("unchecked")
+	public CancelOrderResult cancelAllOrders() throws KrakenApiException {
+		HttpApiClient<CancelOrderResult> client = (HttpApiClient<CancelOrderResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.CANCEL_ALL_ORDERS);
+		return client.callPrivate(getBaseUrl(), KrakenApiMethod.CANCEL_ALL_ORDERS, CancelOrderResult.class);
+	}
+
+	/**
+	 * Cancel up to {@value #MAX_CANCEL_ORDER_BATCH} open orders in one call
+	 *
+	 * @param txids transaction ids or user references of the orders
+	 * @return number of cancelled orders
+	 * @throws KrakenApiException
+	 */
+	@SuppressWarnings("unchecked")
+	public CancelOrderResult cancelOrderBatch(List<String> txids) throws KrakenApiException {
+		HttpApiClient<CancelOrderResult> client = (HttpApiClient<CancelOrderResult>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, KrakenApiMethod.CANCEL_ORDER_BATCH);
+
+		Map<String, Object> params = new HashMap<>();
+		params.put("orders", txids);
+
+		return client.callPrivateJson(getBaseUrl(), KrakenApiMethod.CANCEL_ORDER_BATCH, CancelOrderResult.class, params);
+	}
+
+	// -------------------
+	// - CHUNKED QUERIES -
+	// -------------------
+
+	/**
+	 * Query by ids, the ids being split in chunks of the maximum size of the method, each chunk within the rate limit if
+	 * a limiter is set. Ids fitting in one call are queried as any other call.
+	 * Chunks are queried one after the other, or in parallel on the chunk executor if one is set. The results are
+	 * merged in a view over the results of all chunks, fails if any chunk fails.
+	 */
+	private <V, R extends Result<Map<String, V>>> R queryByIds(KrakenApiMethod method, Class<R> resultClass, String idParam, List<String> ids,
+	                                                           int maxIds, double cost, Supplier<R> mergedResult) throws KrakenApiException {
+		if (ids.size() <= maxIds) {
+			return queryChunk(method, resultClass, idParam, ids, 0);
+		}
+
+		final List<List<String>> chunks = new ArrayList<>();
+		for (int from = 0; from < ids.size(); from += maxIds) {
+			chunks.add(ids.subList(from, Math.min(from + maxIds, ids.size())));
+		}
+
+		final List<R> results;
+		if (chunkExecutor != null) {
+			results = queryChunksInParallel(method, resultClass, idParam, chunks, cost);
+		} else {
+			results = new ArrayList<>(chunks.size());
+			for (List<String> chunk : chunks) {
+				results.add(queryLimitedChunk(method, resultClass, idParam, chunk, cost));
+			}
+		}
+
+		final R merged = mergedResult.get();
+		final List<Map<String, V>> maps = new ArrayList<>(results.size());
+		for (R result : results) {
+			merged.getError().addAll(result.getError());
+			maps.add(result.getResult());
+		}
+		merged.setResult(new CompositeMap<>(maps));
+		return merged;
+	}
+
+	/**
+	 * Query chunks in parallel on the chunk executor, the deadline of the caller applying to each chunk
+	 */
+	private <R extends Result<?>> List<R> queryChunksInParallel(KrakenApiMethod method, Class<R> resultClass, String idParam, List<List<String>> chunks,
+	                                                            double cost) throws KrakenApiException {
+		final Deadline deadline = Deadline.current();
+		final List<Future<R>> futures = new ArrayList<>(chunks.size());
+		for (List<String> chunk : chunks) {
+			futures.add(chunkExecutor.submit(() -> {
+				final Deadline.Scope scope = (deadline != null) ? deadline.bind() : null;
+				try {
+					return queryLimitedChunk(method, resultClass, idParam, chunk, cost);
+				} finally {
+					if (scope != null) {
+						scope.close();
+					}
+				}
+			}));
+		}
+
+		final List<R> results = new ArrayList<>(futures.size());
+		try {
+			for (Future<R> future : futures) {
+				results.add(future.get());
+			}
+		} catch (ExecutionException ex) {
+			throw (ex.getCause() instanceof KrakenApiException)
+					? (KrakenApiException) ex.getCause()
+					: new KrakenApiException("unable to query Kraken API", ex.getCause());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new KrakenApiException("interrupted while querying Kraken API", ex);
+		} finally {
+			futures.forEach(future -> future.cancel(true));
+		}
+		return results;
+	}
+
+	/**
+	 * Query chunk, within the rate limit if a limiter is set, unless calls are admitted by the scheduler
+	 */
+	private <R extends Result<?>> R queryLimitedChunk(KrakenApiMethod method, Class<R> resultClass, String idParam, List<String> ids,
+	                                                  double cost) throws KrakenApiException {
+		final long rateLimitWaitNanos = (scheduler == null && rateLimiter != null) ? rateLimiter.acquire(cost) : 0;
+		return queryChunk(method, resultClass, idParam, ids, rateLimitWaitNanos);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <R extends Result<?>> R queryChunk(KrakenApiMethod method, Class<R> resultClass, String idParam, List<String> ids,
+	                                           long rateLimitWaitNanos) throws KrakenApiException {
+		HttpApiClient<R> client = (HttpApiClient<R>) this.clientFactory.getHttpApiClient(apiKey, apiSecret, method);
+		if (rateLimitWaitNanos != 0) {
+			client.setRateLimitWait(rateLimitWaitNanos);
+		}
+
+		Map<String, String> params = new HashMap<>();
+		params.put(idParam, String.join(",", ids));
+
+		return client.callPrivate(getBaseUrl(), method, resultClass, params);
 	}
 }
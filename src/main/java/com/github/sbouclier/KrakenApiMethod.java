@@ -9,37 +9,66 @@ public enum KrakenApiMethod {
 
 	SERVER_TIME("Time", false),
 	ASSET_INFORMATION("Assets", false),
-	ASSET_PAIRS("AssetPairs", false),
+	ASSET_PAIRS("AssetPairs", false, true),
 	TICKER_INFORMATION("Ticker", false),
-	OHLC("OHLC", false),
-	ORDER_BOOK("Depth", false),
-	RECENT_TRADES("Trades", false),
-	RECENT_SPREADS("Spread", false),
+	OHLC("OHLC", false, true),
+	ORDER_BOOK("Depth", false, true),
+	RECENT_TRADES("Trades", false, true),
+	RECENT_SPREADS("Spread", false, true),
 
 	ACCOUNT_BALANCE("Balance", true),
 	TRADE_BALANCE("TradeBalance", true),
 	OPEN_ORDERS("OpenOrders", true),
-	CLOSED_ORDERS("ClosedOrders", true),
+	CLOSED_ORDERS("ClosedOrders", true, true),
 	ORDERS_INFORMATION("QueryOrders", true),
-	TRADES_HISTORY("TradesHistory", true),
+	TRADES_HISTORY("TradesHistory", true, true),
 	TRADES_INFORMATION("QueryTrades", true),
 	OPEN_POSITIONS("OpenPositions", true),
-	LEDGERS_INFORMATION("Ledgers", true),
+	LEDGERS_INFORMATION("Ledgers", true, true),
 	QUERY_LEDGERS("QueryLedgers", true),
 	TRADE_VOLUME("TradeVolume", true),
 	WITHDRAW_INFO("WithdrawInfo", true),
 	WITHDRAW_STATUS("WithdrawStatus", true),
-	ADD_STANDARD_ORDER("AddOrder", true);
+	ADD_STANDARD_ORDER("AddOrder", true),
+	ADD_ORDER_BATCH("AddOrderBatch", true),
+	CANCEL_ORDER("CancelOrder", true),
+	CANCEL_ALL_ORDERS("CancelAll", true),
+	CANCEL_ORDER_BATCH("CancelOrderBatch", true),
+	WEBSOCKETS_TOKEN("GetWebSocketsToken", true);
+
+	static final int DEFAULT_API_VERSION = 0;
 
 	private String url;
 	private boolean isPrivate;
+	private EndpointTemplate template;
 
 	KrakenApiMethod(String url, boolean isPrivate) {
+		this(url, isPrivate, false);
+	}
+
+	KrakenApiMethod(String url, boolean isPrivate, boolean largeResponse) {
 		this.url = url;
 		this.isPrivate = isPrivate;
+		this.template = new EndpointTemplate(DEFAULT_API_VERSION, url, isPrivate, largeResponse);
 	}
 
 	String getUrl(int apiVersion) {
+		if (apiVersion == DEFAULT_API_VERSION) {
+			return template.getPath();
+		}
 		return "/" + apiVersion + "/" + (isPrivate ? "private/" : "public/") + url;
 	}
+
+	/**
+	 * Get precomputed endpoint template of the default API version
+	 *
+	 * @return endpoint template
+	 */
+	public EndpointTemplate getTemplate() {
+		return template;
+	}
+
+	public boolean isPrivate() {
+		return isPrivate;
+	}
 }
@@ -0,0 +1,82 @@
+package com.github.sbouclier;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+
+import java.io.IOException;
+
+/**
+ * Parser extracting the {@code last} member of the {@code result} object while the response is streamed, hiding it
+ * from the deserializer which maps the result to pair keyed values.
+ *
+ * @author synapticloop
+ */
+class LastIdJsonParser extends JsonParserDelegate {
+
+	private static final String LAST_FIELD = "last";
+	private static final String RESULT_FIELD = "result";
+
+	private Long lastId;
+
+	LastIdJsonParser(JsonParser parser) {
+		super(parser);
+	}
+
+	@Override
+	public JsonToken nextToken() throws IOException {
+		JsonToken token = delegate.nextToken();
+
+		if (token == JsonToken.FIELD_NAME && isLastOfResult()) {
+			JsonToken value = delegate.nextToken();
+			if (value == JsonToken.VALUE_NUMBER_INT) {
+				lastId = delegate.getLongValue();
+			} else if (value == JsonToken.VALUE_STRING) {
+				lastId = parseLastId(delegate.getText());
+			} else {
+				delegate.skipChildren();
+			}
+			token = delegate.nextToken();
+		}
+
+		return token;
+	}
+
+	@Override
+	public JsonToken nextValue() throws IOException {
+		JsonToken token = nextToken();
+		if (token == JsonToken.FIELD_NAME) {
+			token = nextToken();
+		}
+		return token;
+	}
+
+	/**
+	 * Get extracted last id
+	 *
+	 * @return last id, null if the response has none
+	 */
+	Long getLastId() {
+		return lastId;
+	}
+
+	private boolean isLastOfResult() throws IOException {
+		if (!LAST_FIELD.equals(delegate.getCurrentName())) {
+			return false;
+		}
+
+		JsonStreamContext result = delegate.getParsingContext().getParent();
+		return result != null && RESULT_FIELD.equals(result.getCurrentName())
+				&& result.getParent() != null && result.getParent().inRoot();
+	}
+
+	private static Long parseLastId(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (!Character.isDigit(text.charAt(i))) {
+				return null;
+			}
+		}
+		return text.isEmpty() ? null : Long.valueOf(text);
+	}
+}
@@ -0,0 +1,369 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.result.OrderBookResult;
+import com.github.sbouclier.result.OrderBookResult.Market;
+import com.github.sbouclier.result.RecentSpreadResult;
+import com.github.sbouclier.result.RecentSpreadResult.Spread;
+import com.github.sbouclier.result.TickerInformationResult;
+import com.github.sbouclier.result.TickerInformationResult.TickerInformation;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Latest ticker, spread and top of book of each pair, shared between the threads of a process.
+ *
+ * Any poller or stream updates the cache, and readers get an immutable {@link Snapshot} of a pair: bid, ask and last
+ * trade always come from the same update, numbered by a per pair sequence and timestamped so that callers can decide
+ * whether it is fresh enough. Reads take no lock; a reader holding the {@link Slot} of a pair gets its snapshot with a
+ * single volatile read. Updates of a pair are merged with compare-and-set, the fields an update does not carry are
+ * kept from the previous snapshot. An update timed on Kraken before the newest timed update of the pair, e.g. the late
+ * response of an earlier poll, is skipped, even when untimed updates such as tickers came in between.
+ *
+ * <pre>
+ * MarketSnapshotCache cache = new MarketSnapshotCache();
+ * cache.update(client.getTickerInformation(pairs));
+ *
+ * MarketSnapshotCache.Slot xbteur = cache.slot("XXBTZEUR");
+ * MarketSnapshotCache.Snapshot snapshot = xbteur.get();
+ * if (snapshot != null &amp;&amp; snapshot.getAgeMillis() &lt; 2000) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class MarketSnapshotCache {
+
+	private final ConcurrentMap<String, Slot> slots = new ConcurrentHashMap<>();
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Get latest snapshot of a pair
+	 *
+	 * @param pair asset pair
+	 * @return snapshot, null if the pair was never updated
+	 */
+	public Snapshot get(String pair) {
+		final Slot slot = slots.get(pair);
+		return (slot != null) ? slot.snapshot : null;
+	}
+
+	/**
+	 * Get slot of a pair, created empty if needed, to be kept by readers polling the same pair
+	 *
+	 * @param pair asset pair
+	 * @return slot
+	 */
+	public Slot slot(String pair) {
+		return slots.computeIfAbsent(pair, Slot::new);
+	}
+
+	public Set<String> getPairs() {
+		return slots.keySet();
+	}
+
+	/**
+	 * Update pair
+	 *
+	 * @param pair             asset pair
+	 * @param bid              best bid price, null to keep the current one
+	 * @param bidVolume        best bid volume, null to keep the current one
+	 * @param ask              best ask price, null to keep the current one
+	 * @param askVolume        best ask volume, null to keep the current one
+	 * @param last             last trade price, null to keep the current one
+	 * @param lastVolume       last trade volume, null to keep the current one
+	 * @param sourceTimeMillis time of the data on Kraken in milliseconds, 0 if unknown
+	 * @return new snapshot, the current one if the update is older
+	 */
+	public Snapshot update(String pair, BigDecimal bid, BigDecimal bidVolume, BigDecimal ask, BigDecimal askVolume,
+	                       BigDecimal last, BigDecimal lastVolume, long sourceTimeMillis) {
+		return merge(pair, bid, bidVolume, ask, askVolume, last, lastVolume, sourceTimeMillis, false);
+	}
+
+	/**
+	 * Update pair from its ticker
+	 *
+	 * @param pair   asset pair
+	 * @param ticker ticker information
+	 * @return new snapshot
+	 */
+	public Snapshot update(String pair, TickerInformation ticker) {
+		return update(pair,
+				(ticker.bid != null) ? ticker.bid.price : null,
+				(ticker.bid != null) ? ticker.bid.lotVolume : null,
+				(ticker.ask != null) ? ticker.ask.price : null,
+				(ticker.ask != null) ? ticker.ask.lotVolume : null,
+				(ticker.lastTradeClosed != null) ? ticker.lastTradeClosed.price : null,
+				(ticker.lastTradeClosed != null) ? ticker.lastTradeClosed.lotVolume : null,
+				0);
+	}
+
+	/**
+	 * Update pair from a spread, the volumes of the previous snapshot being dropped as they no longer match the prices
+	 *
+	 * @param pair   asset pair
+	 * @param spread spread
+	 * @return new snapshot, the current one if the spread is older
+	 */
+	public Snapshot update(String pair, Spread spread) {
+		return merge(pair, spread.bid, null, spread.ask, null, null, null,
+				(spread.time != null) ? TimeUnit.SECONDS.toMillis(spread.time) : 0, true);
+	}
+
+	/**
+	 * Update pair from the top of its order book
+	 *
+	 * @param pair asset pair
+	 * @param book order book
+	 * @return new snapshot, the current one if the book is older
+	 */
+	public Snapshot update(String pair, OrderBookResult.OrderBook book) {
+		final Market bid = (book.bids != null && !book.bids.isEmpty()) ? book.bids.get(0) : null;
+		final Market ask = (book.asks != null && !book.asks.isEmpty()) ? book.asks.get(0) : null;
+		long sourceTimeMillis = 0;
+		if (bid != null && bid.timestamp != null) {
+			sourceTimeMillis = TimeUnit.SECONDS.toMillis(bid.timestamp);
+		}
+		if (ask != null && ask.timestamp != null) {
+			sourceTimeMillis = Math.max(sourceTimeMillis, TimeUnit.SECONDS.toMillis(ask.timestamp));
+		}
+		return update(pair,
+				(bid != null) ? bid.price : null,
+				(bid != null) ? bid.volume : null,
+				(ask != null) ? ask.price : null,
+				(ask != null) ? ask.volume : null,
+				null, null, sourceTimeMillis);
+	}
+
+	/**
+	 * Update the pairs of a ticker result
+	 *
+	 * @param result ticker information of one or more pairs
+	 */
+	public void update(TickerInformationResult result) {
+		for (Map.Entry<String, TickerInformation> entry : result.getResult().entrySet()) {
+			update(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Update the pairs of a spread result with their latest spread
+	 *
+	 * @param result recent spreads
+	 */
+	public void update(RecentSpreadResult result) {
+		for (Map.Entry<String, List<Spread>> entry : result.getResult().entrySet()) {
+			if (!entry.getValue().isEmpty()) {
+				update(entry.getKey(), entry.getValue().get(entry.getValue().size() - 1));
+			}
+		}
+	}
+
+	/**
+	 * Update the pairs of an order book result with their top of book
+	 *
+	 * @param result order books
+	 */
+	public void update(OrderBookResult result) {
+		for (Map.Entry<String, OrderBookResult.OrderBook> entry : result.getResult().entrySet()) {
+			update(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Merge update of a pair with its current snapshot
+	 *
+	 * @param replaceVolumes whether null volumes replace the current ones instead of keeping them
+	 */
+	private Snapshot merge(String pair, BigDecimal bid, BigDecimal bidVolume, BigDecimal ask, BigDecimal askVolume,
+	                       BigDecimal last, BigDecimal lastVolume, long sourceTimeMillis, boolean replaceVolumes) {
+		final Slot slot = slot(pair);
+		while (true) {
+			final Snapshot previous = slot.snapshot;
+			if (previous != null && sourceTimeMillis != 0 && sourceTimeMillis < previous.latestSourceTimeMillis) {
+				return previous;
+			}
+			final Snapshot next = (previous == null)
+					? new Snapshot(pair, 1, bid, bidVolume, ask, askVolume, last, lastVolume, sourceTimeMillis, sourceTimeMillis)
+					: new Snapshot(pair, previous.sequence + 1,
+							(bid != null) ? bid : previous.bid,
+							(bidVolume != null || replaceVolumes) ? bidVolume : previous.bidVolume,
+							(ask != null) ? ask : previous.ask,
+							(askVolume != null || replaceVolumes) ? askVolume : previous.askVolume,
+							(last != null) ? last : previous.last,
+							(lastVolume != null) ? lastVolume : previous.lastVolume,
+							sourceTimeMillis, Math.max(sourceTimeMillis, previous.latestSourceTimeMillis));
+			if (Slot.SNAPSHOT.compareAndSet(slot, previous, next)) {
+				return next;
+			}
+		}
+	}
+
+	/**
+	 * Latest snapshot holder of a pair
+	 */
+	public static final class Slot {
+		private static final AtomicReferenceFieldUpdater<Slot, Snapshot> SNAPSHOT =
+				AtomicReferenceFieldUpdater.newUpdater(Slot.class, Snapshot.class, "snapshot");
+
+		private final String pair;
+		private volatile Snapshot snapshot;
+
+		private Slot(String pair) {
+			this.pair = pair;
+		}
+
+		/**
+		 * Get latest snapshot
+		 *
+		 * @return snapshot, null if the pair was never updated
+		 */
+		public Snapshot get() {
+			return snapshot;
+		}
+
+		public String getPair() {
+			return pair;
+		}
+	}
+
+	/**
+	 * Immutable market state of a pair
+	 */
+	public static final class Snapshot {
+		private final String pair;
+		private final long sequence;
+		private final BigDecimal bid;
+		private final BigDecimal bidVolume;
+		private final BigDecimal ask;
+		private final BigDecimal askVolume;
+		private final BigDecimal last;
+		private final BigDecimal lastVolume;
+		private final long sourceTimeMillis;
+		// newest source time of the updates merged so far, older updates being skipped
+		private final long latestSourceTimeMillis;
+		private final long updatedMillis = System.currentTimeMillis();
+		private final long updatedNanos = System.nanoTime();
+
+		private Snapshot(String pair, long sequence, BigDecimal bid, BigDecimal bidVolume, BigDecimal ask, BigDecimal askVolume,
+		                 BigDecimal last, BigDecimal lastVolume, long sourceTimeMillis, long latestSourceTimeMillis) {
+			this.pair = pair;
+			this.sequence = sequence;
+			this.bid = bid;
+			this.bidVolume = bidVolume;
+			this.ask = ask;
+			this.askVolume = askVolume;
+			this.last = last;
+			this.lastVolume = lastVolume;
+			this.sourceTimeMillis = sourceTimeMillis;
+			this.latestSourceTimeMillis = latestSourceTimeMillis;
+		}
+
+		// -----------
+		// - GETTERS -
+		// -----------
+
+		public String getPair() {
+			return pair;
+		}
+
+		/**
+		 * Get number of the update of the pair, starting from 1
+		 *
+		 * @return sequence
+		 */
+		public long getSequence() {
+			return sequence;
+		}
+
+		public BigDecimal getBid() {
+			return bid;
+		}
+
+		public BigDecimal getBidVolume() {
+			return bidVolume;
+		}
+
+		public BigDecimal getAsk() {
+			return ask;
+		}
+
+		public BigDecimal getAskVolume() {
+			return askVolume;
+		}
+
+		public BigDecimal getLast() {
+			return last;
+		}
+
+		public BigDecimal getLastVolume() {
+			return lastVolume;
+		}
+
+		/**
+		 * Get time of the data of the update on Kraken, as carried by spreads and order books
+		 *
+		 * @return time in milliseconds, 0 if unknown, e.g. for a ticker update
+		 */
+		public long getSourceTimeMillis() {
+			return sourceTimeMillis;
+		}
+
+		/**
+		 * Get local time of the update
+		 *
+		 * @return time in milliseconds
+		 */
+		public long getUpdatedMillis() {
+			return updatedMillis;
+		}
+
+		/**
+		 * Get time elapsed since the update, measured on the monotonic clock
+		 *
+		 * @return age in milliseconds
+		 */
+		public long getAgeMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - updatedNanos);
+		}
+
+		/**
+		 * Whether the snapshot is older than a maximum age
+		 *
+		 * @param maxAge maximum age
+		 * @param unit   time unit
+		 * @return true if stale
+		 */
+		public boolean isStale(long maxAge, TimeUnit unit) {
+			return System.nanoTime() - updatedNanos > unit.toNanos(maxAge);
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+					.append("pair", pair)
+					.append("sequence", sequence)
+					.append("bid", bid)
+					.append("bidVolume", bidVolume)
+					.append("ask", ask)
+					.append("askVolume", askVolume)
+					.append("last", last)
+					.append("lastVolume", lastVolume)
+					.append("sourceTimeMillis", sourceTimeMillis)
+					.append("updatedMillis", updatedMillis)
+					.toString();
+		}
+	}
+}
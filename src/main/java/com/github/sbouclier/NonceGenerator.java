@@ -0,0 +1,61 @@
+package com.github.sbouclier;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator of strictly increasing nonces.
+ *
+ * Nonces are the wall clock in microseconds (milliseconds * 1000, as Kraken expects), bumped by one when calls are
+ * made within the same millisecond or the clock goes backwards, so that concurrent calls never reuse a nonce. The wall
+ * clock can be replaced by a {@link ServerClock} following the Kraken clock. Thread-safe.
+ *
+ * @author synapticloop
+ */
+public class NonceGenerator {
+
+	private static final NonceGenerator DEFAULT = new NonceGenerator();
+
+	private final AtomicLong last = new AtomicLong();
+	private volatile ServerClock clock;
+
+	/**
+	 * Get generator shared by all clients of the JVM, so that clients using the same API key stay in order
+	 *
+	 * @return default generator
+	 */
+	public static NonceGenerator getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Base nonces on the server clock instead of the wall clock. Nonces keep increasing if the server clock is behind.
+	 *
+	 * @param clock server clock, null for the wall clock
+	 */
+	public void setClock(ServerClock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Get next nonce
+	 *
+	 * @return nonce, greater than any nonce previously returned
+	 */
+	public long next() {
+		final long now = currentTimeMicros();
+		return last.accumulateAndGet(now, (previous, candidate) -> Math.max(previous + 1, candidate));
+	}
+
+	/**
+	 * Get current time the nonces are based on
+	 *
+	 * @return time in microseconds
+	 */
+	protected long currentTimeMicros() {
+		final ServerClock serverClock = clock;
+		if (serverClock != null) {
+			return serverClock.currentTimeMillis() * 1000;
+		}
+		return System.currentTimeMillis() * 1000;
+	}
+}
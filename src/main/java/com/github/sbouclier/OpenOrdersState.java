@@ -0,0 +1,356 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.input.OrderInput;
+import com.github.sbouclier.result.AddStandardOrderResult;
+import com.github.sbouclier.result.OpenOrdersResult;
+import com.github.sbouclier.result.OpenOrdersResult.OpenOrder;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local state of open orders, kept up to date incrementally instead of polling {@code OpenOrders}.
+ *
+ * The state is seeded from one {@link KrakenAPIClient#getOpenOrders()} snapshot, then updated from the responses of
+ * our own adds and cancels and from an order update feed, and reconciled with a new snapshot now and then to catch
+ * anything missed. Orders are indexed by txid, pair and user reference.
+ *
+ * Readers are lock-free: lookups read concurrent maps and never block writers. Orders are never modified in place, an
+ * update replaces the order by an updated copy, so that an order read is always consistent. Writers are serialized.
+ *
+ * @author synapticloop
+ */
+public class OpenOrdersState {
+
+	private final ConcurrentMap<String, OpenOrder> byTxid = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, ConcurrentMap<String, OpenOrder>> byPair = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, ConcurrentMap<String, OpenOrder>> byUserref = new ConcurrentHashMap<>();
+
+	/**
+	 * Version of the last change of each txid, including removed ones, guarded by the writer lock
+	 */
+	private final Map<String, Long> changes = new HashMap<>();
+	private volatile long version;
+
+	// ----------------
+	// - CONSTRUCTORS -
+	// ----------------
+
+	public OpenOrdersState() {
+	}
+
+	/**
+	 * Create state seeded from a snapshot
+	 *
+	 * @param snapshot open orders
+	 */
+	public OpenOrdersState(OpenOrdersResult snapshot) {
+		reconcile(snapshot, 0);
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	/**
+	 * Get open order
+	 *
+	 * @param txid transaction id
+	 * @return order, null if not open
+	 */
+	public OpenOrder get(String txid) {
+		return byTxid.get(txid);
+	}
+
+	/**
+	 * Get open orders of a pair
+	 *
+	 * @param pair asset pair, as named by the order descriptions
+	 * @return live read-only view of the orders, empty if none
+	 */
+	public Collection<OpenOrder> getByPair(String pair) {
+		return view(byPair.get(pair));
+	}
+
+	/**
+	 * Get open orders with a user reference
+	 *
+	 * @param userref user reference
+	 * @return live read-only view of the orders, empty if none
+	 */
+	public Collection<OpenOrder> getByUserref(String userref) {
+		return view(byUserref.get(userref));
+	}
+
+	/**
+	 * Get all open orders
+	 *
+	 * @return live read-only view of txid/order
+	 */
+	public Map<String, OpenOrder> getAll() {
+		return Collections.unmodifiableMap(byTxid);
+	}
+
+	public int size() {
+		return byTxid.size();
+	}
+
+	/**
+	 * Get version of the state, incremented by each change
+	 *
+	 * @return version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	private static Collection<OpenOrder> view(Map<String, OpenOrder> orders) {
+		return (orders == null) ? Collections.emptyList() : Collections.unmodifiableCollection(orders.values());
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Record orders added by an {@code AddOrder} call
+	 *
+	 * @param pair   asset pair, as named by the order descriptions
+	 * @param order  added order
+	 * @param result result of the call
+	 */
+	public void onOrderAdded(String pair, OrderInput order, AddStandardOrderResult result) {
+		if (result.getResult() == null || result.getResult().txid == null) {
+			return;
+		}
+		for (String txid : result.getResult().txid) {
+			onOrderAdded(txid, pair, order, null);
+		}
+	}
+
+	/**
+	 * Record an order we added
+	 *
+	 * @param txid    transaction id
+	 * @param pair    asset pair, as named by the order descriptions
+	 * @param order   added order
+	 * @param userref user reference, may be null
+	 */
+	public void onOrderAdded(String txid, String pair, OrderInput order, String userref) {
+		OpenOrder open = new OpenOrder();
+		open.status = OpenOrder.Status.OPEN;
+		open.userReferenceId = userref;
+		open.openTimestamp = System.currentTimeMillis() / 1000;
+		open.volumeOrder = order.getVolume();
+		open.volumeExecuted = BigDecimal.ZERO;
+		open.description = new OpenOrder.Description();
+		open.description.assetPair = pair;
+		open.description.orderType = order.getType();
+		open.description.orderDirection = order.getDirection();
+		open.description.price = order.getPrice();
+
+		onOrderUpdate(txid, open);
+	}
+
+	/**
+	 * Record a cancelled order
+	 *
+	 * @param txid transaction id
+	 */
+	public synchronized void onOrderCancelled(String txid) {
+		remove(txid);
+		changes.put(txid, ++version);
+	}
+
+	/**
+	 * Record a full order update, e.g. a new order of the feed. Closed, cancelled or expired orders are removed.
+	 *
+	 * @param txid  transaction id
+	 * @param order order
+	 */
+	public synchronized void onOrderUpdate(String txid, OpenOrder order) {
+		if (isDone(order.status)) {
+			remove(txid);
+		} else {
+			put(txid, order);
+		}
+		changes.put(txid, ++version);
+	}
+
+	/**
+	 * Record a partial order update of the feed, ignored for unknown orders
+	 *
+	 * @param txid           transaction id
+	 * @param status         new status, null if unchanged
+	 * @param volumeExecuted new executed volume, null if unchanged
+	 */
+	public synchronized void onOrderUpdate(String txid, OpenOrder.Status status, BigDecimal volumeExecuted) {
+		final OpenOrder current = byTxid.get(txid);
+		if (current == null) {
+			return;
+		}
+
+		if (isDone(status)) {
+			remove(txid);
+		} else {
+			final OpenOrder updated = copy(current);
+			if (status != null) {
+				updated.status = status;
+			}
+			if (volumeExecuted != null) {
+				updated.volumeExecuted = volumeExecuted;
+			}
+			put(txid, updated);
+		}
+		changes.put(txid, ++version);
+	}
+
+	/**
+	 * Reconcile with a snapshot of open orders. Orders changed locally since the snapshot was requested are kept as
+	 * they are, the snapshot may predate them.
+	 *
+	 * @param snapshot     open orders
+	 * @param sinceVersion version of the state when the snapshot was requested
+	 */
+	public void reconcile(OpenOrdersResult snapshot, long sinceVersion) {
+		reconcile((snapshot.getResult() != null && snapshot.getResult().open != null)
+				? snapshot.getResult().open : Collections.emptyMap(), sinceVersion);
+	}
+
+	/**
+	 * Reconcile with open orders, e.g. the snapshot of the private feed
+	 *
+	 * @param open         txid/order of all open orders
+	 * @param sinceVersion version of the state when the snapshot was requested
+	 */
+	public synchronized void reconcile(Map<String, OpenOrder> open, long sinceVersion) {
+		for (String txid : byTxid.keySet()) {
+			if (!open.containsKey(txid) && !changedSince(txid, sinceVersion)) {
+				remove(txid);
+			}
+		}
+
+		open.forEach((txid, order) -> {
+			if (!changedSince(txid, sinceVersion)) {
+				put(txid, order);
+			}
+		});
+
+		// older changes are covered by the snapshot
+		for (Iterator<Long> it = changes.values().iterator(); it.hasNext(); ) {
+			if (it.next() <= sinceVersion) {
+				it.remove();
+			}
+		}
+		version++;
+	}
+
+	/**
+	 * Reconcile with a new snapshot
+	 *
+	 * @param client client with the API key and secret
+	 * @throws KrakenApiException if the snapshot can not be fetched
+	 */
+	public void reconcile(KrakenAPIClient client) throws KrakenApiException {
+		final long sinceVersion = version;
+		reconcile(client.getOpenOrders(), sinceVersion);
+	}
+
+	/**
+	 * Reconcile periodically, failed reconciliations being retried at the next period
+	 *
+	 * @param executor executor running the reconciliations
+	 * @param client   client with the API key and secret
+	 * @param period   period between reconciliations
+	 * @param unit     period unit
+	 * @return scheduled reconciliation, to cancel to stop it
+	 */
+	public ScheduledFuture<?> scheduleReconciliation(ScheduledExecutorService executor, KrakenAPIClient client, long period, TimeUnit unit) {
+		return executor.scheduleWithFixedDelay(() -> {
+			try {
+				reconcile(client);
+			} catch (KrakenApiException ex) {
+				// the state keeps being updated incrementally, next reconciliation will catch up
+			}
+		}, period, period, unit);
+	}
+
+	private boolean changedSince(String txid, long sinceVersion) {
+		final Long changed = changes.get(txid);
+		return changed != null && changed > sinceVersion;
+	}
+
+	private void put(String txid, OpenOrder order) {
+		final OpenOrder previous = byTxid.put(txid, order);
+		if (previous != null) {
+			unindex(txid, previous);
+		}
+		index(byPair, pairOf(order), txid, order);
+		index(byUserref, order.userReferenceId, txid, order);
+	}
+
+	private void remove(String txid) {
+		final OpenOrder previous = byTxid.remove(txid);
+		if (previous != null) {
+			unindex(txid, previous);
+		}
+	}
+
+	private void unindex(String txid, OpenOrder order) {
+		unindex(byPair, pairOf(order), txid);
+		unindex(byUserref, order.userReferenceId, txid);
+	}
+
+	private static void index(ConcurrentMap<String, ConcurrentMap<String, OpenOrder>> index, String key, String txid, OpenOrder order) {
+		if (key != null) {
+			index.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(txid, order);
+		}
+	}
+
+	private static void unindex(ConcurrentMap<String, ConcurrentMap<String, OpenOrder>> index, String key, String txid) {
+		if (key == null) {
+			return;
+		}
+		final ConcurrentMap<String, OpenOrder> orders = index.get(key);
+		if (orders != null) {
+			orders.remove(txid);
+		}
+	}
+
+	private static String pairOf(OpenOrder order) {
+		return (order.description != null) ? order.description.assetPair : null;
+	}
+
+	private static boolean isDone(OpenOrder.Status status) {
+		return status == OpenOrder.Status.CLOSED || status == OpenOrder.Status.CANCELED || status == OpenOrder.Status.EXPIRED;
+	}
+
+	private static OpenOrder copy(OpenOrder order) {
+		OpenOrder copy = new OpenOrder();
+		copy.referralOrderTransactionId = order.referralOrderTransactionId;
+		copy.userReferenceId = order.userReferenceId;
+		copy.status = order.status;
+		copy.openTimestamp = order.openTimestamp;
+		copy.orderStartTimestamp = order.orderStartTimestamp;
+		copy.orderEndTimestamp = order.orderEndTimestamp;
+		copy.description = order.description;
+		copy.volumeOrder = order.volumeOrder;
+		copy.volumeExecuted = order.volumeExecuted;
+		copy.cost = order.cost;
+		copy.fee = order.fee;
+		copy.averagePrice = order.averagePrice;
+		copy.stopPrice = order.stopPrice;
+		copy.miscellaneous = order.miscellaneous;
+		copy.orderFlags = order.orderFlags;
+		return copy;
+	}
+}
@@ -0,0 +1,322 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.input.OrderInput;
+import com.github.sbouclier.result.AddOrderBatchResult;
+import com.github.sbouclier.result.AddStandardOrderResult;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pipeline grouping order actions into batch calls.
+ *
+ * Adds and cancels submitted for a pair within the batching window are sent together: consecutive cancels as one
+ * {@code CancelOrderBatch}, consecutive adds as {@code AddOrderBatch} calls of up to
+ * {@value KrakenAPIClient#MAX_ADD_ORDER_BATCH} orders, a lone action with its single order method. Re-quoting 50
+ * levels (50 cancels then 50 adds) thus takes 5 calls instead of 100. A batch is sent as soon as it is full, the
+ * actions submitted after it waiting for a window of their own.
+ *
+ * The actions of a pair are sent in submission order, a batch never reordering a cancel and an add. All calls are
+ * made one after the other by the pipeline thread, so that they reach Kraken in the order of their nonces. A failed
+ * call fails the actions of its batch only, later actions are still sent. Thread-safe.
+ *
+ * @author synapticloop
+ */
+public class OrderBatchPipeline implements AutoCloseable {
+
+	public static final long DEFAULT_WINDOW_MILLIS = 5;
+
+	private final KrakenAPIClient client;
+	private final long windowMillis;
+	private final ScheduledExecutorService executor;
+	private final ConcurrentMap<String, Lane> lanes = new ConcurrentHashMap<>();
+
+	private final LongAdder actions = new LongAdder();
+	private final LongAdder calls = new LongAdder();
+
+	// ----------------
+	// - CONSTRUCTORS -
+	// ----------------
+
+	public OrderBatchPipeline(KrakenAPIClient client) {
+		this(client, DEFAULT_WINDOW_MILLIS);
+	}
+
+	/**
+	 * Create pipeline
+	 *
+	 * @param client       client with the API key and secret
+	 * @param windowMillis time actions of a pair wait for others to be batched with, in milliseconds
+	 */
+	public OrderBatchPipeline(KrakenAPIClient client, long windowMillis) {
+		if (windowMillis < 0) {
+			throw new IllegalArgumentException("window can not be negative");
+		}
+
+		this.client = client;
+		this.windowMillis = windowMillis;
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "kraken-order-batch");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Add order
+	 *
+	 * @param pair  asset pair
+	 * @param order order
+	 * @return future txid of the order, failed with a {@link KrakenApiException} if Kraken rejected it
+	 */
+	public CompletableFuture<String> addOrder(String pair, OrderInput order) {
+		final Action<String> action = new Action<>(order, null);
+		submit(pair, action);
+		return action.future;
+	}
+
+	/**
+	 * Cancel order
+	 *
+	 * @param pair asset pair of the order, actions being ordered per pair
+	 * @param txid transaction id of the order
+	 * @return future completed once the cancel call succeeded
+	 */
+	public CompletableFuture<Void> cancelOrder(String pair, String txid) {
+		final Action<Void> action = new Action<>(null, txid);
+		submit(pair, action);
+		return action.future;
+	}
+
+	private void submit(String pair, Action<?> action) {
+		if (executor.isShutdown()) {
+			action.future.completeExceptionally(new KrakenApiException("order batch pipeline is closed"));
+			return;
+		}
+
+		final Lane lane = lanes.computeIfAbsent(pair, Lane::new);
+		actions.increment();
+
+		try {
+			synchronized (lane) {
+				lane.pending.add(action);
+				lane.runLength = (lane.runLength > 0 && lane.runCancel == action.isCancel()) ? lane.runLength + 1 : 1;
+				lane.runCancel = action.isCancel();
+
+				if (lane.runLength == maxBatch(action.isCancel())) {
+					lane.closeWindow();
+					executor.execute(() -> flush(lane));
+				} else if (!lane.scheduled) {
+					lane.scheduled = true;
+					final long window = lane.window;
+					executor.schedule(() -> flush(lane, window), windowMillis, TimeUnit.MILLISECONDS);
+				}
+			}
+		} catch (RejectedExecutionException ex) {
+			synchronized (lane) {
+				if (!lane.pending.remove(action)) {
+					lane.ready.remove(action);
+				}
+			}
+			action.future.completeExceptionally(new KrakenApiException("order batch pipeline is closed"));
+		}
+	}
+
+	/**
+	 * Close window of a pair once it is over, unless a full batch closed it already, and send its actions
+	 *
+	 * @param lane   actions of the pair
+	 * @param window window to close
+	 */
+	private void flush(Lane lane, long window) {
+		synchronized (lane) {
+			if (lane.window == window) {
+				lane.closeWindow();
+			}
+		}
+		flush(lane);
+	}
+
+	/**
+	 * Send actions of the closed windows of a pair, grouping consecutive actions of the same kind
+	 *
+	 * @param lane actions of the pair
+	 */
+	private void flush(Lane lane) {
+		final List<Action<?>> batch;
+		synchronized (lane) {
+			if (lane.ready.isEmpty()) {
+				return;
+			}
+			batch = new ArrayList<>(lane.ready);
+			lane.ready.clear();
+		}
+
+		int start = 0;
+		while (start < batch.size()) {
+			final boolean cancel = batch.get(start).isCancel();
+			final int max = maxBatch(cancel);
+
+			int end = start + 1;
+			while (end < batch.size() && end - start < max && batch.get(end).isCancel() == cancel) {
+				end++;
+			}
+
+			final List<Action<?>> run = batch.subList(start, end);
+			calls.increment();
+			if (cancel) {
+				sendCancels(run);
+			} else {
+				sendAdds(lane.pair, run);
+			}
+			start = end;
+		}
+	}
+
+	private static int maxBatch(boolean cancel) {
+		return cancel ? KrakenAPIClient.MAX_CANCEL_ORDER_BATCH : KrakenAPIClient.MAX_ADD_ORDER_BATCH;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void sendCancels(List<Action<?>> run) {
+		try {
+			if (run.size() == 1) {
+				client.cancelOrder(run.get(0).txid);
+			} else {
+				List<String> txids = new ArrayList<>(run.size());
+				run.forEach(action -> txids.add(action.txid));
+				client.cancelOrderBatch(txids);
+			}
+			run.forEach(action -> ((Action<Void>) action).future.complete(null));
+		} catch (KrakenApiException | RuntimeException ex) {
+			run.forEach(action -> action.future.completeExceptionally(ex));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void sendAdds(String pair, List<Action<?>> run) {
+		try {
+			if (run.size() == 1) {
+				final OrderInput order = run.get(0).order;
+				AddStandardOrderResult result = client.addStandardOrder(pair, order.getType(), order.getDirection(), order.getVolume(), order.getPrice());
+				((Action<String>) run.get(0)).future.complete(result.getResult().txid.get(0));
+				return;
+			}
+
+			List<OrderInput> orders = new ArrayList<>(run.size());
+			run.forEach(action -> orders.add(action.order));
+			List<AddOrderBatchResult.BatchOrder> results = client.addOrderBatch(pair, orders).getResult().orders;
+
+			for (int i = 0; i < run.size(); i++) {
+				final CompletableFuture<String> future = ((Action<String>) run.get(i)).future;
+				final AddOrderBatchResult.BatchOrder result = (i < results.size()) ? results.get(i) : null;
+
+				if (result == null || result.txid == null) {
+					future.completeExceptionally(new KrakenApiException((result != null && result.error != null) ? result.error : "unable to extract txid"));
+				} else {
+					future.complete(result.txid);
+				}
+			}
+		} catch (KrakenApiException | RuntimeException ex) {
+			run.forEach(action -> action.future.completeExceptionally(ex));
+		}
+	}
+
+	/**
+	 * Send pending actions and stop the pipeline once they are sent, later actions are failed
+	 */
+	@Override
+	public void close() {
+		if (executor.isShutdown()) {
+			return;
+		}
+		lanes.values().forEach(lane -> executor.execute(() -> {
+			synchronized (lane) {
+				lane.closeWindow();
+			}
+			flush(lane);
+		}));
+		executor.shutdown();
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	/**
+	 * Get number of actions submitted
+	 *
+	 * @return submitted actions
+	 */
+	public long getActionCount() {
+		return actions.sum();
+	}
+
+	/**
+	 * Get number of calls made to Kraken
+	 *
+	 * @return calls
+	 */
+	public long getCallCount() {
+		return calls.sum();
+	}
+
+	/**
+	 * Actions of a pair: those of the open window, waiting for others, and those of closed windows, to be sent
+	 */
+	private static class Lane {
+		private final String pair;
+		private final ArrayDeque<Action<?>> pending = new ArrayDeque<>();
+		private final ArrayDeque<Action<?>> ready = new ArrayDeque<>();
+		private boolean scheduled;
+		private long window;
+		private int runLength;
+		private boolean runCancel;
+
+		Lane(String pair) {
+			this.pair = pair;
+		}
+
+		/**
+		 * Move actions of the open window to the actions to send, the next action opening a new window
+		 */
+		void closeWindow() {
+			ready.addAll(pending);
+			pending.clear();
+			scheduled = false;
+			runLength = 0;
+			window++;
+		}
+	}
+
+	/**
+	 * Add (with an order) or cancel (with a txid) action
+	 */
+	private static class Action<V> {
+		private final OrderInput order;
+		private final String txid;
+		private final CompletableFuture<V> future = new CompletableFuture<>();
+
+		Action(OrderInput order, String txid) {
+			this.order = order;
+			this.txid = txid;
+		}
+
+		boolean isCancel() {
+			return order == null;
+		}
+	}
+}
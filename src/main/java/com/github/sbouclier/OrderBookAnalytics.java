@@ -0,0 +1,502 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.result.OrderBookResult.Market;
+import com.github.sbouclier.result.OrderBookResult.OrderBook;
+import com.github.sbouclier.result.common.OrderDirection;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Analytics view of an order book snapshot: cumulative depth, VWAP for a size, slippage and price buckets.
+ *
+ * Prices, cumulative volumes and cumulative notionals of each side are computed once, on first use of the side, into
+ * fixed-point arrays, so that each query is a binary search, O(log n), instead of a walk of the {@link BigDecimal}
+ * levels. Prices and volumes are kept exact at the largest scale of the book. Notionals are exact too, unless the book
+ * is so large that they would not fit a long, in which case they are rounded to the finest scale which fits.
+ *
+ * <pre>
+ * OrderBookAnalytics analytics = new OrderBookAnalytics(client.getOrderBook("XXBTZEUR").getResult().get("XXBTZEUR"));
+ * BigDecimal fill = analytics.getAsks().getVwap(new BigDecimal("2.5"));
+ * double slippage = analytics.forOrder(OrderDirection.BUY).getSlippageBps(new BigDecimal("2.5"));
+ * </pre>
+ *
+ * Immutable, thread-safe.
+ *
+ * @author synapticloop
+ */
+public class OrderBookAnalytics {
+
+	/**
+	 * Extra decimals of average prices over the price scale of the book
+	 */
+	private static final int AVERAGE_EXTRA_SCALE = 4;
+
+	private final List<Market> askLevels;
+	private final List<Market> bidLevels;
+	private final int priceScale;
+	private final int volumeScale;
+
+	// built on first use, a strategy often looking at one side only
+	private volatile Side asks;
+	private volatile Side bids;
+
+	/**
+	 * Create analytics of a snapshot
+	 *
+	 * @param book order book, asks by increasing price and bids by decreasing price as returned by Kraken, not to be
+	 *             modified afterwards
+	 * @throws IllegalArgumentException if a side is not sorted, when first used
+	 */
+	public OrderBookAnalytics(OrderBook book) {
+		this.askLevels = (book.asks != null) ? book.asks : Collections.emptyList();
+		this.bidLevels = (book.bids != null) ? book.bids : Collections.emptyList();
+		this.priceScale = Math.max(maxScale(askLevels, true), maxScale(bidLevels, true));
+		this.volumeScale = Math.max(maxScale(askLevels, false), maxScale(bidLevels, false));
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	public Side getAsks() {
+		Side side = asks;
+		if (side == null) {
+			// built at most a few times under contention, all equal
+			side = new Side(askLevels, true, priceScale, volumeScale);
+			asks = side;
+		}
+		return side;
+	}
+
+	public Side getBids() {
+		Side side = bids;
+		if (side == null) {
+			side = new Side(bidLevels, false, priceScale, volumeScale);
+			bids = side;
+		}
+		return side;
+	}
+
+	/**
+	 * Get side an order fills against
+	 *
+	 * @param direction order direction
+	 * @return asks for a buy, bids for a sell
+	 */
+	public Side forOrder(OrderDirection direction) {
+		return (direction == OrderDirection.BUY) ? getAsks() : getBids();
+	}
+
+	/**
+	 * Get middle of the best prices
+	 *
+	 * @return mid price, null if a side is empty
+	 */
+	public BigDecimal getMidPrice() {
+		if (askLevels.isEmpty() || bidLevels.isEmpty()) {
+			return null;
+		}
+		return getAsks().getBestPrice().add(getBids().getBestPrice()).divide(BigDecimal.valueOf(2), priceScale + 1, RoundingMode.HALF_EVEN);
+	}
+
+	/**
+	 * Get spread between the best prices
+	 *
+	 * @return spread, null if a side is empty
+	 */
+	public BigDecimal getSpread() {
+		if (askLevels.isEmpty() || bidLevels.isEmpty()) {
+			return null;
+		}
+		return getAsks().getBestPrice().subtract(getBids().getBestPrice());
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("asks", getAsks())
+				.append("bids", getBids())
+				.toString();
+	}
+
+	/**
+	 * Get unscaled value at a scale as a long. Allocates intermediate {@link BigDecimal}s, which only happens while
+	 * building a side and once per query argument, never per level.
+	 *
+	 * @param value    value
+	 * @param scale    scale
+	 * @param rounding rounding if the value has more decimals
+	 * @return unscaled value
+	 * @throws ArithmeticException if the value does not fit a long at the scale
+	 */
+	private static long unscaled(BigDecimal value, int scale, RoundingMode rounding) {
+		return value.setScale(scale, rounding).scaleByPowerOfTen(scale).longValueExact();
+	}
+
+	private static int maxScale(List<Market> levels, boolean price) {
+		int scale = 0;
+		for (Market level : levels) {
+			scale = Math.max(scale, (price ? level.price : level.volume).scale());
+		}
+		return scale;
+	}
+
+	/**
+	 * One side of the book, levels from the best price
+	 */
+	public static final class Side {
+		private final boolean ask;
+		private final int priceScale;
+		private final int volumeScale;
+		private final int notionalScale;
+
+		// prices and, for each level, volume and notional of the levels up to it included
+		private final long[] prices;
+		private final long[] cumulativeVolumes;
+		private final long[] cumulativeNotionals;
+
+		private Side(List<Market> levels, boolean ask, int priceScale, int volumeScale) {
+			this.ask = ask;
+			this.priceScale = priceScale;
+			this.volumeScale = volumeScale;
+
+			final int size = levels.size();
+			this.prices = new long[size];
+			this.cumulativeVolumes = new long[size];
+			final long[] volumes = new long[size];
+			for (int i = 0; i < size; i++) {
+				final Market level = levels.get(i);
+				prices[i] = unscaled(level.price, priceScale, RoundingMode.UNNECESSARY);
+				volumes[i] = unscaled(level.volume, volumeScale, RoundingMode.UNNECESSARY);
+				cumulativeVolumes[i] = Math.addExact((i > 0) ? cumulativeVolumes[i - 1] : 0, volumes[i]);
+				if (i > 0 && (ask ? prices[i] <= prices[i - 1] : prices[i] >= prices[i - 1])) {
+					throw new IllegalArgumentException((ask ? "asks" : "bids") + " not sorted from the best price at level " + i);
+				}
+			}
+
+			long[] notionals;
+			int scale = priceScale + volumeScale;
+			try {
+				notionals = new long[size];
+				for (int i = 0; i < size; i++) {
+					notionals[i] = Math.addExact((i > 0) ? notionals[i - 1] : 0, Math.multiplyExact(prices[i], volumes[i]));
+				}
+			} catch (ArithmeticException ex) {
+				// too large for a long at full scale: sum exactly, then round to the finest scale which fits
+				final BigInteger[] exact = new BigInteger[size];
+				BigInteger sum = BigInteger.ZERO;
+				for (int i = 0; i < size; i++) {
+					sum = sum.add(BigInteger.valueOf(prices[i]).multiply(BigInteger.valueOf(volumes[i])));
+					exact[i] = sum;
+				}
+				final int excess = sum.bitLength() - 62;
+				final int dropped = (int) Math.ceil(excess * Math.log10(2)) + 1;
+				scale -= dropped;
+				notionals = new long[size];
+				for (int i = 0; i < size; i++) {
+					notionals[i] = new BigDecimal(exact[i], dropped).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+				}
+			}
+			this.cumulativeNotionals = notionals;
+			this.notionalScale = scale;
+		}
+
+		// -----------
+		// - GETTERS -
+		// -----------
+
+		/**
+		 * Get number of price levels
+		 *
+		 * @return level count
+		 */
+		public int size() {
+			return prices.length;
+		}
+
+		/**
+		 * Get best price
+		 *
+		 * @return lowest ask or highest bid, null if the side is empty
+		 */
+		public BigDecimal getBestPrice() {
+			return (prices.length > 0) ? BigDecimal.valueOf(prices[0], priceScale) : null;
+		}
+
+		/**
+		 * Get volume of all levels
+		 *
+		 * @return total volume
+		 */
+		public BigDecimal getTotalVolume() {
+			return volume(prices.length);
+		}
+
+		/**
+		 * Get notional (price times volume) of all levels
+		 *
+		 * @return total notional
+		 */
+		public BigDecimal getTotalNotional() {
+			return notional(prices.length);
+		}
+
+		// -----------
+		// - METHODS -
+		// -----------
+
+		/**
+		 * Get volume available at a price or better
+		 *
+		 * @param price limit price
+		 * @return volume of the asks at or below the price, or of the bids at or above it
+		 */
+		public BigDecimal getDepthAtPrice(BigDecimal price) {
+			return volume(levelsAtOrBetter(price));
+		}
+
+		/**
+		 * Get notional available at a price or better
+		 *
+		 * @param price limit price
+		 * @return notional of the asks at or below the price, or of the bids at or above it
+		 */
+		public BigDecimal getNotionalAtPrice(BigDecimal price) {
+			return notional(levelsAtOrBetter(price));
+		}
+
+		/**
+		 * Get average price of filling a volume against this side, a volume finer than the book being rounded up to
+		 * the volume scale of the book
+		 *
+		 * @param volume volume to fill
+		 * @return volume weighted average price, null if the side is not deep enough
+		 */
+		public BigDecimal getVwap(BigDecimal volume) {
+			final long unscaled = unscaledVolume(volume);
+			if (unscaled <= 0) {
+				return getBestPrice();
+			}
+			final int level = levelFilling(unscaled);
+			if (level < 0) {
+				return null;
+			}
+			// divided by the volume filled, as rounded for the notional
+			return fillNotional(level, unscaled).divide(BigDecimal.valueOf(unscaled, volumeScale), priceScale + AVERAGE_EXTRA_SCALE, RoundingMode.HALF_EVEN);
+		}
+
+		/**
+		 * Get worst price reached filling a volume against this side, the limit price of an order filled at once
+		 *
+		 * @param volume volume to fill
+		 * @return price of the last level needed, null if the side is not deep enough
+		 */
+		public BigDecimal getWorstPrice(BigDecimal volume) {
+			final long unscaled = unscaledVolume(volume);
+			if (unscaled <= 0) {
+				return getBestPrice();
+			}
+			final int level = levelFilling(unscaled);
+			return (level < 0) ? null : BigDecimal.valueOf(prices[level], priceScale);
+		}
+
+		/**
+		 * Get slippage of filling a volume against this side: distance of the average price to the best price
+		 *
+		 * @param volume volume to fill
+		 * @return slippage in basis points of the best price, positive, NaN if the side is not deep enough
+		 */
+		public double getSlippageBps(BigDecimal volume) {
+			final BigDecimal vwap = getVwap(volume);
+			if (vwap == null) {
+				return Double.NaN;
+			}
+			final double best = prices[0] / Math.pow(10, priceScale);
+			return Math.abs(vwap.doubleValue() - best) / best * 10_000;
+		}
+
+		/**
+		 * Get volume bought or sold for a notional, e.g. the volume a quote currency amount buys
+		 *
+		 * @param notional notional to spend or receive
+		 * @return volume, null if the side is not deep enough
+		 */
+		public BigDecimal getVolumeForNotional(BigDecimal notional) {
+			final long unscaled = unscaled(notional, notionalScale, RoundingMode.DOWN);
+			if (unscaled <= 0) {
+				return BigDecimal.ZERO;
+			}
+			final int level = lowerBound(cumulativeNotionals, unscaled);
+			if (level >= prices.length) {
+				return null;
+			}
+			final BigDecimal remaining = notional.subtract(notional(level));
+			return volume(level).add(remaining.divide(BigDecimal.valueOf(prices[level], priceScale), volumeScale, RoundingMode.DOWN));
+		}
+
+		/**
+		 * Aggregate levels in price buckets, from the best price
+		 *
+		 * @param tick     price increment, e.g. {@code 0.1}
+		 * @param multiple number of ticks of a bucket
+		 * @return buckets holding volume, rounded away from the best price: an ask at 100.05 is in the 100.1 bucket of
+		 * 0.1 buckets, a bid in the 100.0 bucket
+		 */
+		public List<Bucket> getBuckets(BigDecimal tick, int multiple) {
+			if (multiple < 1 || tick.signum() <= 0) {
+				throw new IllegalArgumentException("tick and multiple must be positive: " + tick + ", " + multiple);
+			}
+			final BigDecimal width = tick.multiply(BigDecimal.valueOf(multiple));
+			final int scale = Math.max(priceScale, width.scale());
+			final long unscaledWidth = unscaled(width, scale, RoundingMode.UNNECESSARY);
+			final long factor = BigInteger.TEN.pow(scale - priceScale).longValueExact();
+
+			final List<Bucket> buckets = new ArrayList<>();
+			int start = 0;
+			while (start < prices.length) {
+				final long price = prices[start] * factor;
+				final long bucket = ask ? Math.floorDiv(price + unscaledWidth - 1, unscaledWidth) * unscaledWidth
+						: Math.floorDiv(price, unscaledWidth) * unscaledWidth;
+				// first level beyond the bucket
+				final int end = levelsAtOrBetter(bucket, factor);
+				buckets.add(new Bucket(BigDecimal.valueOf(bucket, scale), volume(end).subtract(volume(start)),
+						notional(end).subtract(notional(start)), end - start));
+				start = end;
+			}
+			return buckets;
+		}
+
+		/**
+		 * Aggregate levels in price buckets of multiples of the price unit of the book
+		 *
+		 * @param multiple number of price units of a bucket, e.g. 10 for 1.0 buckets of prices with one decimal
+		 * @return buckets
+		 */
+		public List<Bucket> getBuckets(int multiple) {
+			return getBuckets(BigDecimal.ONE.movePointLeft(priceScale), multiple);
+		}
+
+		/**
+		 * Number of levels at a price or better
+		 */
+		private int levelsAtOrBetter(BigDecimal price) {
+			return levelsAtOrBetter(unscaled(price, priceScale, ask ? RoundingMode.FLOOR : RoundingMode.CEILING), 1);
+		}
+
+		/**
+		 * Number of levels at a price or better, price at a scale finer than the book by a factor
+		 */
+		private int levelsAtOrBetter(long price, long factor) {
+			int low = 0;
+			int high = prices.length;
+			while (low < high) {
+				final int middle = (low + high) >>> 1;
+				final long level = prices[middle] * factor;
+				if (ask ? level <= price : level >= price) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Level at which a volume is filled
+		 *
+		 * @return level, -1 if the side is not deep enough
+		 */
+		private int levelFilling(long volume) {
+			final int level = lowerBound(cumulativeVolumes, volume);
+			return (level < prices.length) ? level : -1;
+		}
+
+		/**
+		 * First index of a sorted array holding a value greater than or equal to a key
+		 */
+		private static int lowerBound(long[] values, long key) {
+			int low = 0;
+			int high = values.length;
+			while (low < high) {
+				final int middle = (low + high) >>> 1;
+				if (values[middle] < key) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Notional of filling a volume ending at a level
+		 */
+		private BigDecimal fillNotional(int level, long volume) {
+			final long before = (level > 0) ? cumulativeVolumes[level - 1] : 0;
+			final BigDecimal remaining = BigDecimal.valueOf(volume - before, volumeScale).multiply(BigDecimal.valueOf(prices[level], priceScale));
+			return notional(level).add(remaining);
+		}
+
+		private long unscaledVolume(BigDecimal volume) {
+			// a volume finer than the book still needs the next unit of the book
+			return unscaled(volume, volumeScale, RoundingMode.UP);
+		}
+
+		/**
+		 * Volume of the first levels
+		 */
+		private BigDecimal volume(int levels) {
+			return BigDecimal.valueOf((levels > 0) ? cumulativeVolumes[levels - 1] : 0, volumeScale);
+		}
+
+		/**
+		 * Notional of the first levels
+		 */
+		private BigDecimal notional(int levels) {
+			return BigDecimal.valueOf((levels > 0) ? cumulativeNotionals[levels - 1] : 0, notionalScale);
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+					.append("levels", prices.length)
+					.append("bestPrice", getBestPrice())
+					.append("totalVolume", getTotalVolume())
+					.toString();
+		}
+	}
+
+	/**
+	 * Price bucket of a side
+	 */
+	public static class Bucket {
+		public final BigDecimal price;
+		public final BigDecimal volume;
+		public final BigDecimal notional;
+		public final int levels;
+
+		Bucket(BigDecimal price, BigDecimal volume, BigDecimal notional, int levels) {
+			this.price = price;
+			this.volume = volume;
+			this.notional = notional;
+			this.levels = levels;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+					.append("price", price)
+					.append("volume", volume)
+					.append("notional", notional)
+					.append("levels", levels)
+					.toString();
+		}
+	}
+}
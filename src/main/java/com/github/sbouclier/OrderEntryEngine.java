@@ -0,0 +1,388 @@
+package com.github.sbouclier;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.sbouclier.result.common.OrderDirection;
+import com.github.sbouclier.result.common.OrderType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Low-latency order entry.
+ *
+ * Unlike {@link KrakenAPIClient#addStandardOrder}, which builds a client, a signer and a parameter map per call and
+ * decodes the full result, the engine is built once and keeps everything ready for the next order:
+ * <ul>
+ * <li>one {@link RequestSigner} with the secret decoded and the MAC keyed,</li>
+ * <li>per-pair {@link OrderTemplate}s, only price, volume and nonce being appended to a per-thread body buffer,</li>
+ * <li>connections kept alive (responses are read to their end and connections are not disconnected), with
+ * {@link #warmUp()} opening one and completing the TLS handshake before the first order,</li>
+ * <li>a streaming decoder reading only the errors and the {@code txid} of the response.</li>
+ * </ul>
+ * Orders are admitted by the {@link RequestScheduler} of the API key, if one is set, as order entry calls of the
+ * other clients of the key, so that they take precedence over queued lower class calls and count against the order
+ * entry concurrency cap.
+ *
+ * Thread-safe.
+ *
+ * @author synapticloop
+ */
+public class OrderEntryEngine {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+	private static final byte[] PRICE = ascii("&price=");
+	private static final byte[] VOLUME = ascii("&volume=");
+	private static final byte[] NONCE = ascii("&nonce=");
+
+	// signed by warm-ups only, never sent
+	private static final long WARM_UP_NONCE = 1;
+
+	private final String apiKey;
+	private final RequestSigner signer;
+	private final NonceGenerator nonceGenerator;
+	private final byte[] pathBytes;
+	private final URL addOrderUrl;
+	private final URL warmUpUrl;
+
+	private final ConcurrentMap<String, OrderTemplate> templates = new ConcurrentHashMap<>();
+	private final ThreadLocal<PreparedOrder> preparedOrders = ThreadLocal.withInitial(PreparedOrder::new);
+
+	private volatile RequestScheduler scheduler;
+	private int connectTimeoutMillis = HttpJsonClient.DEFAULT_CONNECT_TIMEOUT_MILLIS;
+	private int readTimeoutMillis = HttpJsonClient.DEFAULT_READ_TIMEOUT_MILLIS;
+
+	// ----------------
+	// - CONSTRUCTORS -
+	// ----------------
+
+	/**
+	 * Create engine calling the base url of a client, admitted by its scheduler, with the default nonce generator
+	 *
+	 * @param client client, e.g. set to call a {@link com.github.sbouclier.simulator.KrakenSimulator}
+	 * @param apiKey API key
+	 * @param secret API secret
+	 * @throws KrakenApiException if credentials are missing or invalid
+	 */
+	public OrderEntryEngine(KrakenAPIClient client, String apiKey, String secret) throws KrakenApiException {
+		this(client.getBaseUrl(), apiKey, secret, NonceGenerator.getDefault());
+		this.scheduler = client.getScheduler();
+	}
+
+	/**
+	 * Create engine
+	 *
+	 * @param baseUrl        kraken base url
+	 * @param apiKey         API key
+	 * @param secret         API secret
+	 * @param nonceGenerator nonce generator, shared with the other clients of the API key
+	 * @throws KrakenApiException if credentials are missing or invalid
+	 */
+	public OrderEntryEngine(String baseUrl, String apiKey, String secret, NonceGenerator nonceGenerator) throws KrakenApiException {
+		if (apiKey == null || secret == null) {
+			throw new KrakenApiException("must provide API key and secret");
+		}
+
+		this.apiKey = apiKey;
+		this.signer = new RequestSigner(secret);
+		this.nonceGenerator = nonceGenerator;
+
+		final EndpointTemplate addOrder = KrakenApiMethod.ADD_STANDARD_ORDER.getTemplate();
+		this.pathBytes = addOrder.getPathBytes();
+		try {
+			this.addOrderUrl = new URL(baseUrl + addOrder.getPath());
+			this.warmUpUrl = new URL(baseUrl + KrakenApiMethod.SERVER_TIME.getTemplate().getPath());
+		} catch (IOException ex) {
+			throw new KrakenApiException("invalid base url " + baseUrl, ex);
+		}
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Get template of orders, rendered on first use
+	 *
+	 * @param pair      asset pair
+	 * @param type      order type
+	 * @param direction order direction
+	 * @return order template
+	 */
+	public OrderTemplate getTemplate(String pair, OrderType type, OrderDirection direction) {
+		return templates.computeIfAbsent(pair + '|' + type.name() + '|' + direction.name(),
+				key -> new OrderTemplate(pair, type, direction));
+	}
+
+	/**
+	 * Set scheduler admitting the orders, shared with the clients of the API key
+	 *
+	 * @param scheduler scheduler, null to send orders at once
+	 */
+	public void setScheduler(RequestScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Open a keep-alive connection to the API host and initialise the rendering and signing code paths of the calling
+	 * thread, with the templates got so far, so that the first order does not pay for the TCP and TLS handshakes.
+	 * Orders are signed with a dummy nonce: no nonce of the API key is taken.
+	 *
+	 * @throws KrakenApiException if the API host can not be reached
+	 */
+	public void warmUp() throws KrakenApiException {
+		render(new byte[0], BigDecimal.ONE, BigDecimal.ONE, WARM_UP_NONCE);
+		for (OrderTemplate template : templates.values()) {
+			render(template.getPrefix(), BigDecimal.ONE, BigDecimal.ONE, WARM_UP_NONCE);
+		}
+
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) warmUpUrl.openConnection();
+			connection.setRequestMethod("GET");
+			applyTimeouts(connection);
+			try (InputStream in = connection.getInputStream()) {
+				drain(in);
+			}
+		} catch (IOException ex) {
+			if (connection != null) {
+				connection.disconnect();
+			}
+			throw new KrakenApiException("unable to query Kraken API", ex);
+		}
+	}
+
+	/**
+	 * Add order
+	 *
+	 * @param template order template
+	 * @param volume   order volume in lots
+	 * @param price    limit price, null for orders without price
+	 * @return txid of the order(s)
+	 * @throws KrakenApiException if the call failed or Kraken rejected the order
+	 */
+	public List<String> addOrder(OrderTemplate template, BigDecimal volume, BigDecimal price) throws KrakenApiException {
+		final RequestScheduler current = scheduler;
+		if (current == null) {
+			return send(prepare(template, volume, price));
+		}
+
+		// admitted before the nonce is taken, so that a queued order does not hold back the nonces of the key
+		final RequestScheduler.Permit permit = current.acquire(KrakenApiMethod.ADD_STANDARD_ORDER);
+		try {
+			return send(prepare(template, volume, price));
+		} finally {
+			permit.release();
+		}
+	}
+
+	private List<String> send(PreparedOrder order) throws KrakenApiException {
+
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) addOrderUrl.openConnection();
+			connection.setRequestMethod("POST");
+			applyTimeouts(connection);
+			// no fixed length streaming: the small body is then sent along with the headers in a single write, instead
+			// of a second write which Nagle's algorithm holds until the headers are acknowledged
+			connection.setDoOutput(true);
+			connection.setRequestProperty("API-Key", apiKey);
+			connection.setRequestProperty("API-Sign", order.signature);
+			connection.setRequestProperty("Content-Type", HttpJsonClient.FORM_CONTENT_TYPE);
+
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(order.body, 0, order.length);
+			}
+
+			try (InputStream in = connection.getInputStream()) {
+				final List<String> txid = decodeTxid(in);
+				drain(in);
+				return txid;
+			}
+		} catch (IOException ex) {
+			if (connection != null) {
+				// do not return a connection in unknown state to the keep-alive cache
+				connection.disconnect();
+			}
+			throw new KrakenApiException("unable to query Kraken API", ex);
+		}
+	}
+
+	/**
+	 * Render and sign order body into the buffer of the calling thread
+	 *
+	 * @param template order template
+	 * @param volume   order volume
+	 * @param price    limit price, may be null
+	 * @return prepared order, valid until the next order of the thread
+	 */
+	PreparedOrder prepare(OrderTemplate template, BigDecimal volume, BigDecimal price) {
+		return render(template.getPrefix(), volume, price, nonceGenerator.next());
+	}
+
+	private PreparedOrder render(byte[] prefix, BigDecimal volume, BigDecimal price, long nonce) {
+		final PreparedOrder order = preparedOrders.get();
+		order.length = 0;
+
+		order.put(prefix);
+		if (price != null) {
+			order.put(PRICE);
+			order.putDecimal(price);
+		}
+		order.put(VOLUME);
+		order.putDecimal(volume);
+		order.put(NONCE);
+
+		final int nonceOffset = order.length;
+		order.putLong(nonce);
+
+		order.signature = signer.sign(pathBytes, order.body, nonceOffset, order.length - nonceOffset, order.body, 0, order.length);
+		return order;
+	}
+
+	/**
+	 * Decode {@code AddOrder} response, reading only errors and txid
+	 *
+	 * @param in response body
+	 * @return txid of the order(s)
+	 * @throws IOException        if the response is not valid JSON
+	 * @throws KrakenApiException if Kraken returned errors or no txid
+	 */
+	static List<String> decodeTxid(InputStream in) throws IOException, KrakenApiException {
+		final List<String> errors = new ArrayList<>(1);
+		List<String> txid = null;
+
+		try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new KrakenApiException("unable to extract txid");
+			}
+
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String field = parser.getCurrentName();
+				final JsonToken value = parser.nextToken();
+
+				if ("error".equals(field) && value == JsonToken.START_ARRAY) {
+					while (parser.nextToken() == JsonToken.VALUE_STRING) {
+						errors.add(parser.getText());
+					}
+				} else if ("result".equals(field) && value == JsonToken.START_OBJECT) {
+					while (parser.nextToken() == JsonToken.FIELD_NAME) {
+						final String resultField = parser.getCurrentName();
+						final JsonToken resultValue = parser.nextToken();
+
+						if ("txid".equals(resultField) && resultValue == JsonToken.START_ARRAY) {
+							txid = new ArrayList<>(1);
+							while (parser.nextToken() == JsonToken.VALUE_STRING) {
+								txid.add(parser.getText());
+							}
+						} else {
+							parser.skipChildren();
+						}
+					}
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+
+		if (!errors.isEmpty()) {
+			throw new KrakenApiException(errors);
+		}
+		if (txid == null) {
+			throw new KrakenApiException("unable to extract txid");
+		}
+		return txid;
+	}
+
+	/**
+	 * Set timeouts of connections, further capped by the call deadline if any
+	 *
+	 * @param connectTimeoutMillis connect timeout in milliseconds, 0 for infinite
+	 * @param readTimeoutMillis    timeout of each socket read in milliseconds, 0 for infinite
+	 */
+	public void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+		if (connectTimeoutMillis < 0 || readTimeoutMillis < 0) {
+			throw new IllegalArgumentException("timeouts can not be negative");
+		}
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
+	private void applyTimeouts(HttpURLConnection connection) {
+		connection.setConnectTimeout(Deadline.capTimeoutMillis(connectTimeoutMillis));
+		connection.setReadTimeout(Deadline.capTimeoutMillis(readTimeoutMillis));
+	}
+
+	private static void drain(InputStream in) throws IOException {
+		final byte[] buffer = new byte[256];
+		while (in.read(buffer) != -1) {
+			// read to the end so that the connection can be reused
+		}
+	}
+
+	private static byte[] ascii(String text) {
+		return text.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Order body rendered and signed, reused by its thread
+	 */
+	static final class PreparedOrder {
+		byte[] body = new byte[256];
+		int length;
+		String signature;
+
+		private void put(byte[] bytes) {
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, body, length, bytes.length);
+			length += bytes.length;
+		}
+
+		/**
+		 * Append decimal in plain notation, whose characters never need to be URL encoded
+		 */
+		private void putDecimal(BigDecimal value) {
+			final String text = value.toPlainString();
+			ensureCapacity(text.length());
+			for (int i = 0; i < text.length(); i++) {
+				body[length++] = (byte) text.charAt(i);
+			}
+		}
+
+		private void putLong(long value) {
+			int digits = 1;
+			for (long remaining = value; remaining >= 10; remaining /= 10) {
+				digits++;
+			}
+			ensureCapacity(digits);
+			for (int i = length + digits - 1; i >= length; i--) {
+				body[i] = (byte) ('0' + (value % 10));
+				value /= 10;
+			}
+			length += digits;
+		}
+
+		private void ensureCapacity(int extra) {
+			if (length + extra > body.length) {
+				body = Arrays.copyOf(body, Math.max(body.length * 2, length + extra));
+			}
+		}
+
+		@Override
+		public String toString() {
+			return new String(body, 0, length, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.result.common.OrderDirection;
+import com.github.sbouclier.result.common.OrderType;
+import com.github.sbouclier.utils.ParameterWriter;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Pre-rendered {@code AddOrder} body of a pair, order type and direction.
+ *
+ * The constant part of the body ({@code ordertype}, {@code pair}, {@code type}) is encoded once; only price, volume
+ * and nonce are appended when an order is sent by {@link OrderEntryEngine}. Immutable.
+ *
+ * @author synapticloop
+ */
+public final class OrderTemplate {
+
+	private final String pair;
+	private final OrderType type;
+	private final OrderDirection direction;
+	private final byte[] prefix;
+
+	OrderTemplate(String pair, OrderType type, OrderDirection direction) {
+		this.pair = pair;
+		this.type = type;
+		this.direction = direction;
+		this.prefix = new ParameterWriter(64)
+				.parameter("ordertype", type.getValue())
+				.parameter("pair", pair)
+				.parameter("type", direction.getValue())
+				.toByteArray();
+	}
+
+	public String getPair() {
+		return pair;
+	}
+
+	public OrderType getType() {
+		return type;
+	}
+
+	public OrderDirection getDirection() {
+		return direction;
+	}
+
+	/**
+	 * Get encoded constant part of the body, shared: must not be modified
+	 *
+	 * @return body prefix, without trailing separator
+	 */
+	byte[] getPrefix() {
+		return prefix;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("pair", pair)
+				.append("type", type)
+				.append("direction", direction)
+				.toString();
+	}
+}
@@ -0,0 +1,347 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.input.Interval;
+import com.github.sbouclier.result.OHLCResult;
+import com.github.sbouclier.result.OrderBookResult;
+import com.github.sbouclier.result.RecentSpreadResult;
+import com.github.sbouclier.result.RecentTradeResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetcher of the same public method for many pairs at once, e.g. the order books of all the pairs traded.
+ *
+ * The pairs are queried in parallel, at most {@link #setConcurrency concurrency} at a time, and their outcomes are
+ * handed over in completion order so that a slow pair does not hold up the others. A failed pair is reported with its
+ * error, the other pairs are still fetched. Public calls do not count against the call counter of the API key: calls
+ * are only rate limited if a {@link #setRateLimiter limiter} is set.
+ *
+ * <pre>
+ * PairFetcher fetcher = new PairFetcher(client);
+ * PairFetcher.Fetch&lt;OrderBookResult&gt; fetch = fetcher.fetch(pairs, PairFetcher.orderBook(10));
+ * for (PairFetcher.Outcome&lt;OrderBookResult&gt; outcome = fetch.next(); outcome != null; outcome = fetch.next()) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class PairFetcher {
+
+	/**
+	 * Default number of pairs queried at the same time
+	 */
+	public static final int DEFAULT_CONCURRENCY = 8;
+
+	private final KrakenAPIClient client;
+
+	private int concurrency = DEFAULT_CONCURRENCY;
+	private RateLimiter rateLimiter;
+	private ExecutorService executor;
+
+	/**
+	 * Query of one pair
+	 *
+	 * @param <R> result type
+	 */
+	@FunctionalInterface
+	public interface PairQuery<R> {
+		R query(KrakenAPIClient client, String pair) throws KrakenApiException;
+	}
+
+	// ----------------
+	// - CONSTRUCTORS -
+	// ----------------
+
+	/**
+	 * Create fetcher
+	 *
+	 * @param client client used to query the pairs
+	 */
+	public PairFetcher(KrakenAPIClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * Set number of pairs queried at the same time
+	 *
+	 * @param concurrency number of pairs, {@value #DEFAULT_CONCURRENCY} by default
+	 */
+	public void setConcurrency(int concurrency) {
+		if (concurrency <= 0) {
+			throw new IllegalArgumentException("concurrency must be positive");
+		}
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Set limiter of the calls, none by default
+	 *
+	 * @param rateLimiter limiter, each call costing 1, null for none
+	 */
+	public void setRateLimiter(RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Set executor of the calls, a shared pool of daemon threads by default
+	 *
+	 * @param executor executor, with at least as many threads as the concurrency for the calls to run in parallel
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	// -----------
+	// - QUERIES -
+	// -----------
+
+	/**
+	 * Query order book ({@code Depth})
+	 *
+	 * @param count maximum number of asks/bids, null for the default of Kraken
+	 * @return query
+	 */
+	public static PairQuery<OrderBookResult> orderBook(Integer count) {
+		return (client, pair) -> (count != null) ? client.getOrderBook(pair, count) : client.getOrderBook(pair);
+	}
+
+	/**
+	 * Query recent trades ({@code Trades})
+	 *
+	 * @return query
+	 */
+	public static PairQuery<RecentTradeResult> recentTrades() {
+		return KrakenAPIClient::getRecentTrades;
+	}
+
+	/**
+	 * Query recent spreads ({@code Spread})
+	 *
+	 * @return query
+	 */
+	public static PairQuery<RecentSpreadResult> recentSpreads() {
+		return KrakenAPIClient::getRecentSpreads;
+	}
+
+	/**
+	 * Query OHLC data ({@code OHLC})
+	 *
+	 * @param interval interval of time
+	 * @return query
+	 */
+	public static PairQuery<OHLCResult> ohlc(Interval interval) {
+		return (client, pair) -> client.getOHLC(pair, interval);
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Start fetching pairs, within the current {@link Deadline} if any
+	 *
+	 * @param pairs asset pairs
+	 * @param query query of each pair
+	 * @param <R>   result type
+	 * @return fetch in progress, handing over the outcomes in completion order
+	 */
+	public <R> Fetch<R> fetch(Collection<String> pairs, PairQuery<R> query) {
+		final Fetch<R> fetch = new Fetch<>(new ArrayList<>(pairs));
+		final Deadline deadline = Deadline.current();
+		final ExecutorService pool = (executor != null) ? executor : ExecutorHolder.EXECUTOR;
+		final int workers = Math.min(concurrency, fetch.pairs.size());
+
+		if (workers == 0) {
+			fetch.outcomes.add(Fetch.END);
+			return fetch;
+		}
+		fetch.activeWorkers.set(workers);
+		for (int i = 0; i < workers; i++) {
+			pool.execute(() -> {
+				final Deadline.Scope scope = (deadline != null) ? deadline.bind() : null;
+				try {
+					fetch.work(client, query, rateLimiter);
+				} finally {
+					if (scope != null) {
+						scope.close();
+					}
+				}
+			});
+		}
+		return fetch;
+	}
+
+	/**
+	 * Fetch of pairs in progress
+	 *
+	 * @param <R> result type
+	 */
+	public static final class Fetch<R> {
+		private static final Outcome<?> END = new Outcome<>(null, null, null, 0);
+
+		private final List<String> pairs;
+		private final BlockingQueue<Outcome<?>> outcomes = new LinkedBlockingQueue<>();
+		private final AtomicInteger nextPair = new AtomicInteger();
+		private final AtomicInteger activeWorkers = new AtomicInteger();
+		private volatile boolean cancelled;
+
+		private Fetch(List<String> pairs) {
+			this.pairs = pairs;
+		}
+
+		/**
+		 * Get outcome of the next pair to complete, waiting for it
+		 *
+		 * @return outcome, null once all the pairs have been handed over
+		 * @throws InterruptedException if interrupted while waiting
+		 */
+		public Outcome<R> next() throws InterruptedException {
+			return handOver(outcomes.take());
+		}
+
+		/**
+		 * Get outcome of the next pair to complete, waiting for it at most the given time
+		 *
+		 * @param timeout longest wait
+		 * @param unit    time unit
+		 * @return outcome, null if none completed in time or all the pairs have been handed over
+		 * @throws InterruptedException if interrupted while waiting
+		 */
+		public Outcome<R> next(long timeout, TimeUnit unit) throws InterruptedException {
+			return handOver(outcomes.poll(timeout, unit));
+		}
+
+		/**
+		 * Wait for all the pairs
+		 *
+		 * @return outcomes of the pairs not handed over yet, in completion order
+		 * @throws InterruptedException if interrupted while waiting
+		 */
+		public List<Outcome<R>> awaitAll() throws InterruptedException {
+			final List<Outcome<R>> all = new ArrayList<>();
+			for (Outcome<R> outcome = next(); outcome != null; outcome = next()) {
+				all.add(outcome);
+			}
+			return all;
+		}
+
+		/**
+		 * Stop querying the pairs not started yet, the calls in flight still complete
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		public int getPairCount() {
+			return pairs.size();
+		}
+
+		@SuppressWarnings("unchecked")
+		private Outcome<R> handOver(Outcome<?> outcome) {
+			if (outcome == END) {
+				// left for the next callers
+				outcomes.add(END);
+				return null;
+			}
+			return (Outcome<R>) outcome;
+		}
+
+		private void work(KrakenAPIClient client, PairQuery<R> query, RateLimiter rateLimiter) {
+			try {
+				int index;
+				while (!cancelled && (index = nextPair.getAndIncrement()) < pairs.size()) {
+					final String pair = pairs.get(index);
+					final long start = System.nanoTime();
+					try {
+						if (rateLimiter != null) {
+							rateLimiter.acquire(1);
+						}
+						outcomes.add(new Outcome<>(pair, query.query(client, pair), null, System.nanoTime() - start));
+					} catch (KrakenApiException ex) {
+						outcomes.add(new Outcome<>(pair, null, ex, System.nanoTime() - start));
+					} catch (RuntimeException ex) {
+						outcomes.add(new Outcome<>(pair, null, new KrakenApiException("unable to query Kraken API", ex), System.nanoTime() - start));
+					}
+				}
+			} finally {
+				if (activeWorkers.decrementAndGet() == 0) {
+					outcomes.add(END);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Result or error of one pair
+	 *
+	 * @param <R> result type
+	 */
+	public static final class Outcome<R> {
+		private final String pair;
+		private final R result;
+		private final KrakenApiException error;
+		private final long elapsedNanos;
+
+		private Outcome(String pair, R result, KrakenApiException error, long elapsedNanos) {
+			this.pair = pair;
+			this.result = result;
+			this.error = error;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public String getPair() {
+			return pair;
+		}
+
+		/**
+		 * Get result of the pair
+		 *
+		 * @return result, null if the pair failed
+		 */
+		public R getResult() {
+			return result;
+		}
+
+		/**
+		 * Get error of the pair
+		 *
+		 * @return error, null if the pair succeeded
+		 */
+		public KrakenApiException getError() {
+			return error;
+		}
+
+		public boolean isSuccess() {
+			return error == null;
+		}
+
+		/**
+		 * Get time spent on the pair, rate limit wait included
+		 *
+		 * @return elapsed time in nanoseconds
+		 */
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+	}
+
+	/**
+	 * Default executor of the calls, created on first use
+	 */
+	private static class ExecutorHolder {
+		private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "kraken-pair-fetch");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+}
@@ -0,0 +1,125 @@
+package com.github.sbouclier;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side limiter of private calls, mirroring the call counter of Kraken: each call adds its cost to the counter,
+ * which decays at a fixed rate and must stay under a maximum.
+ *
+ * Callers over the limit wait their turn in arrival order, bounded by the current {@link Deadline}: a call which would
+ * have to wait past its deadline fails at once with "call deadline exceeded" without using the limit.
+ *
+ * @author synapticloop
+ */
+public class RateLimiter {
+
+	/**
+	 * Counter maximum of a starter account
+	 */
+	public static final double STARTER_MAX_COUNTER = 15;
+
+	/**
+	 * Counter decay per second of a starter account
+	 */
+	public static final double STARTER_DECAY_PER_SECOND = 0.33;
+
+	private final double maxCounter;
+	private final double decayPerNano;
+
+	private double available;
+	private long lastDecayNanos;
+
+	/**
+	 * Create limiter, starting with an empty counter
+	 *
+	 * @param maxCounter      counter maximum
+	 * @param decayPerSecond  counter decay per second
+	 */
+	public RateLimiter(double maxCounter, double decayPerSecond) {
+		if (maxCounter <= 0 || decayPerSecond <= 0) {
+			throw new IllegalArgumentException("counter maximum and decay must be positive");
+		}
+		this.maxCounter = maxCounter;
+		this.decayPerNano = decayPerSecond / TimeUnit.SECONDS.toNanos(1);
+		this.available = maxCounter;
+		this.lastDecayNanos = System.nanoTime();
+	}
+
+	/**
+	 * Create limiter with the limits of a starter account
+	 *
+	 * @return limiter
+	 */
+	public static RateLimiter starter() {
+		return new RateLimiter(STARTER_MAX_COUNTER, STARTER_DECAY_PER_SECOND);
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Wait until a call can be made
+	 *
+	 * @param cost counter increment of the call
+	 * @return time waited in nanoseconds, to be reported by the call it admits
+	 * @throws KrakenApiException if the wait would exceed the current deadline or is interrupted
+	 */
+	public long acquire(double cost) throws KrakenApiException {
+		final Deadline deadline = Deadline.current();
+		final long waitNanos = reserve(cost, (deadline == null) ? Long.MAX_VALUE : deadline.remaining(TimeUnit.NANOSECONDS));
+		if (waitNanos < 0) {
+			throw new KrakenApiException("call deadline exceeded");
+		}
+		if (waitNanos == 0) {
+			return 0;
+		}
+
+		try {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			release(cost);
+			throw new KrakenApiException("interrupted while waiting for the rate limit", ex);
+		}
+		return waitNanos;
+	}
+
+	/**
+	 * Get counter room left, negative when callers are waiting
+	 *
+	 * @return room left
+	 */
+	public synchronized double getAvailable() {
+		decay();
+		return available;
+	}
+
+	/**
+	 * Reserve the cost of a call
+	 *
+	 * @param cost         counter increment of the call
+	 * @param maxWaitNanos longest acceptable wait
+	 * @return nanoseconds to wait before the call, -1 if longer than acceptable, nothing being reserved
+	 */
+	private synchronized long reserve(double cost, long maxWaitNanos) {
+		decay();
+		final double after = available - cost;
+		final long waitNanos = (after >= 0) ? 0 : (long) Math.ceil(-after / decayPerNano);
+		if (waitNanos > maxWaitNanos) {
+			return -1;
+		}
+		available = after;
+		return waitNanos;
+	}
+
+	private synchronized void release(double cost) {
+		available += cost;
+	}
+
+	private void decay() {
+		final long now = System.nanoTime();
+		available = Math.min(maxCounter, available + (now - lastDecayNanos) * decayPerNano);
+		lastDecayNanos = now;
+	}
+}
@@ -0,0 +1,215 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.utils.VarIntUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Transport decorator recording the exchanges of another transport to a file, to be served back by a
+ * {@link ReplayTransport}.
+ *
+ * Each exchange is recorded with its request (method, path and query, headers, body) and its response as received
+ * (status, content encoding, raw possibly compressed body), with its time to first byte and total duration. The
+ * {@code API-Key} and {@code API-Sign} headers are not recorded. File layout, all numbers unsigned var-ints:
+ *
+ * <pre>
+ * "KRT1"
+ * exchange*: 'X' startNanos firstByteNanos totalNanos method target headerCount (name value)* requestBody
+ *            status contentEncoding responseBody
+ * </pre>
+ *
+ * where strings and bodies are their length + 1 followed by their bytes, 0 for none.
+ * Response bodies are buffered while recorded, then handed to the handler. Thread-safe.
+ *
+ * @author synapticloop
+ */
+public class RecordingTransport implements HttpTransport {
+
+	static final byte[] MAGIC = {'K', 'R', 'T', '1'};
+	static final byte EXCHANGE = 'X';
+
+	private static final String[] REDACTED_HEADERS = {"API-Key", "API-Sign"};
+
+	private final HttpTransport delegate;
+	private final DataOutputStream out;
+	private final long startNanos = System.nanoTime();
+	private long count;
+
+	/**
+	 * Create recording transport
+	 *
+	 * @param delegate transport making the calls, e.g. {@link HttpURLConnectionTransport}
+	 * @param file     file to record to, overwritten
+	 * @throws IOException if the file can not be created
+	 */
+	public RecordingTransport(HttpTransport delegate, Path file) throws IOException {
+		this(delegate, Files.newOutputStream(file));
+	}
+
+	/**
+	 * Create recording transport
+	 *
+	 * @param delegate transport making the calls
+	 * @param out      stream to record to, closed with this transport
+	 * @throws IOException if the stream can not be written
+	 */
+	public RecordingTransport(HttpTransport delegate, OutputStream out) throws IOException {
+		this.delegate = delegate;
+		this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+		this.out.write(MAGIC);
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	/**
+	 * Get number of exchanges recorded
+	 *
+	 * @return exchange count
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	@Override
+	public <R> R send(TransportRequest request, ResponseHandler<R> handler) throws IOException {
+		final long start = System.nanoTime();
+		final long[] firstByte = new long[1];
+		final Recorded recorded = delegate.send(request, (statusCode, contentEncoding, body) -> {
+			firstByte[0] = System.nanoTime();
+			return new Recorded(statusCode, contentEncoding, readAll(body));
+		});
+		final long end = System.nanoTime();
+
+		record(request, recorded, start - startNanos, firstByte[0] - start, end - start);
+		return handler.handle(recorded.statusCode, recorded.contentEncoding, new ByteArrayInputStream(recorded.body));
+	}
+
+	private synchronized void record(TransportRequest request, Recorded recorded, long startOffset, long firstByte, long total) throws IOException {
+		out.writeByte(EXCHANGE);
+		VarIntUtils.writeUnsigned(out, Math.max(0, startOffset));
+		VarIntUtils.writeUnsigned(out, firstByte);
+		VarIntUtils.writeUnsigned(out, total);
+		writeString(out, request.getMethod());
+		writeString(out, target(request));
+
+		int headerCount = 0;
+		for (String name : request.getHeaders().keySet()) {
+			if (!isRedacted(name)) {
+				headerCount++;
+			}
+		}
+		VarIntUtils.writeUnsigned(out, headerCount);
+		for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+			if (!isRedacted(header.getKey())) {
+				writeString(out, header.getKey());
+				writeString(out, header.getValue());
+			}
+		}
+		writeBytes(out, request.getBody());
+
+		VarIntUtils.writeUnsigned(out, recorded.statusCode);
+		writeString(out, recorded.contentEncoding);
+		writeBytes(out, recorded.body);
+		count++;
+	}
+
+	/**
+	 * Write buffered exchanges to the file
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Close the recording, and the transport making the calls
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			synchronized (this) {
+				out.close();
+			}
+		} finally {
+			delegate.close();
+		}
+	}
+
+	/**
+	 * Get request target of a request: path and query, without scheme nor host so that recordings are independent of
+	 * the base url
+	 *
+	 * @param request request
+	 * @return target, e.g. {@code /0/public/OHLC?pair=XXBTZEUR&interval=1}
+	 */
+	static String target(TransportRequest request) {
+		final String query = request.getUrl().getQuery();
+		return (query != null) ? request.getUrl().getPath() + "?" + query : request.getUrl().getPath();
+	}
+
+	private static boolean isRedacted(String header) {
+		for (String redacted : REDACTED_HEADERS) {
+			if (redacted.equalsIgnoreCase(header)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		writeBytes(out, (value != null) ? value.getBytes(StandardCharsets.UTF_8) : null);
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		if (bytes == null) {
+			VarIntUtils.writeUnsigned(out, 0);
+		} else {
+			VarIntUtils.writeUnsigned(out, bytes.length + 1L);
+			out.write(bytes);
+		}
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final byte[] chunk = new byte[8192];
+		int read;
+		while ((read = in.read(chunk)) != -1) {
+			buffer.write(chunk, 0, read);
+		}
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Response as received
+	 */
+	private static class Recorded {
+		private final int statusCode;
+		private final String contentEncoding;
+		private final byte[] body;
+
+		Recorded(int statusCode, String contentEncoding, byte[] body) {
+			this.statusCode = statusCode;
+			this.contentEncoding = contentEncoding;
+			this.body = body;
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.utils.VarIntUtils;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transport serving back the exchanges recorded by a {@link RecordingTransport}, without network.
+ *
+ * A request is answered with the next recorded exchange of the same method and target (path and query), in recorded
+ * order, so that a sequence of calls gets the responses it got when recorded. Request bodies are not compared, their
+ * nonce changing on every call. Responses are served byte for byte, compressed as they were received, so that the
+ * full decompression and decoding path runs.
+ *
+ * <pre>
+ * ReplayTransport transport = new ReplayTransport(Paths.get("calls.krt"));
+ * transport.setSpeed(0);
+ * client.setTransport(transport);
+ * </pre>
+ *
+ * Thread-safe.
+ *
+ * @author synapticloop
+ */
+public class ReplayTransport implements HttpTransport {
+
+	private final List<Exchange> exchanges;
+	private final Map<String, Exchange[]> byRequest = new HashMap<>();
+	private final Map<String, AtomicLong> cursors = new HashMap<>();
+
+	private volatile double speed = 1.0;
+	private volatile boolean loop;
+
+	/**
+	 * Load recording
+	 *
+	 * @param file file written by a {@link RecordingTransport}
+	 * @throws IOException if the file can not be read or is not a recording
+	 */
+	public ReplayTransport(Path file) throws IOException {
+		this(Files.newInputStream(file));
+	}
+
+	/**
+	 * Load recording
+	 *
+	 * @param in stream written by a {@link RecordingTransport}, closed once read
+	 * @throws IOException if the stream can not be read or is not a recording
+	 */
+	public ReplayTransport(InputStream in) throws IOException {
+		this.exchanges = Collections.unmodifiableList(read(in));
+
+		final Map<String, List<Exchange>> grouped = new LinkedHashMap<>();
+		for (Exchange exchange : exchanges) {
+			grouped.computeIfAbsent(exchange.getKey(), key -> new ArrayList<>()).add(exchange);
+		}
+		grouped.forEach((key, list) -> {
+			byRequest.put(key, list.toArray(new Exchange[0]));
+			cursors.put(key, new AtomicLong());
+		});
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	/**
+	 * Get recorded exchanges, in recorded order
+	 *
+	 * @return exchanges
+	 */
+	public List<Exchange> getExchanges() {
+		return exchanges;
+	}
+
+	/**
+	 * Set replay speed
+	 *
+	 * @param speed 1 (by default) to answer with the recorded time to first byte and duration, 10 for ten times
+	 *              faster, 0 to answer without delay
+	 */
+	public void setSpeed(double speed) {
+		if (speed < 0) {
+			throw new IllegalArgumentException("speed must be positive: " + speed);
+		}
+		this.speed = speed;
+	}
+
+	/**
+	 * Set whether the exchanges of a request start over once all served, e.g. for benchmarks
+	 *
+	 * @param loop true to start over, false (by default) to fail requests once their exchanges are all served
+	 */
+	public void setLoop(boolean loop) {
+		this.loop = loop;
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	@Override
+	public <R> R send(TransportRequest request, ResponseHandler<R> handler) throws IOException {
+		final long start = System.nanoTime();
+		final String key = request.getMethod() + " " + RecordingTransport.target(request);
+		final Exchange[] recorded = byRequest.get(key);
+		if (recorded == null) {
+			throw new IOException("no recorded exchange for " + key);
+		}
+		final long index = cursors.get(key).getAndIncrement();
+		if (index >= recorded.length && !loop) {
+			throw new IOException("all " + recorded.length + " recorded exchanges served for " + key);
+		}
+		final Exchange exchange = recorded[(int) (index % recorded.length)];
+
+		final double currentSpeed = speed;
+		if (currentSpeed > 0) {
+			sleepUntil(start + (long) (exchange.firstByteNanos / currentSpeed));
+		}
+		final R result = handler.handle(exchange.statusCode, exchange.contentEncoding, new ByteArrayInputStream(exchange.responseBody));
+		if (currentSpeed > 0) {
+			sleepUntil(start + (long) (exchange.totalNanos / currentSpeed));
+		}
+		return result;
+	}
+
+	/**
+	 * Serve all exchanges again from the first one
+	 */
+	public void rewind() {
+		cursors.values().forEach(cursor -> cursor.set(0));
+	}
+
+	@Override
+	public void close() {
+	}
+
+	private static void sleepUntil(long nanos) throws InterruptedIOException {
+		final long remaining = nanos - System.nanoTime();
+		if (remaining > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(remaining);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted while replaying");
+			}
+		}
+	}
+
+	private static List<Exchange> read(InputStream stream) throws IOException {
+		final List<Exchange> exchanges = new ArrayList<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024))) {
+			final byte[] magic = new byte[RecordingTransport.MAGIC.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, RecordingTransport.MAGIC)) {
+				throw new IOException("not a transport recording");
+			}
+
+			int tag;
+			while ((tag = in.read()) != -1) {
+				if (tag != RecordingTransport.EXCHANGE) {
+					throw new IOException("corrupted transport recording, unexpected record " + tag);
+				}
+				final Exchange exchange = new Exchange();
+				exchange.startNanos = VarIntUtils.readUnsigned(in);
+				exchange.firstByteNanos = VarIntUtils.readUnsigned(in);
+				exchange.totalNanos = VarIntUtils.readUnsigned(in);
+				exchange.method = readString(in);
+				exchange.target = readString(in);
+				final long headerCount = VarIntUtils.readUnsigned(in);
+				final Map<String, String> headers = new LinkedHashMap<>();
+				for (long i = 0; i < headerCount; i++) {
+					headers.put(readString(in), readString(in));
+				}
+				exchange.headers = Collections.unmodifiableMap(headers);
+				exchange.requestBody = readBytes(in);
+				exchange.statusCode = (int) VarIntUtils.readUnsigned(in);
+				exchange.contentEncoding = readString(in);
+				exchange.responseBody = readBytes(in);
+				if (exchange.responseBody == null) {
+					exchange.responseBody = new byte[0];
+				}
+				exchanges.add(exchange);
+			}
+		} catch (EOFException ex) {
+			throw new IOException("truncated transport recording", ex);
+		}
+		return exchanges;
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		final byte[] bytes = readBytes(in);
+		return (bytes != null) ? new String(bytes, StandardCharsets.UTF_8) : null;
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		final long length = VarIntUtils.readUnsigned(in);
+		if (length == 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[(int) (length - 1)];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Recorded exchange
+	 */
+	public static class Exchange {
+		private long startNanos;
+		private long firstByteNanos;
+		private long totalNanos;
+		private String method;
+		private String target;
+		private Map<String, String> headers;
+		private byte[] requestBody;
+		private int statusCode;
+		private String contentEncoding;
+		private byte[] responseBody;
+
+		private Exchange() {
+		}
+
+		private String getKey() {
+			return method + " " + target;
+		}
+
+		/**
+		 * Get start time, from the start of the recording
+		 *
+		 * @return start time in nanoseconds
+		 */
+		public long getStartNanos() {
+			return startNanos;
+		}
+
+		public long getFirstByteNanos() {
+			return firstByteNanos;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public String getMethod() {
+			return method;
+		}
+
+		/**
+		 * Get request target
+		 *
+		 * @return path and query, e.g. {@code /0/public/OHLC?pair=XXBTZEUR&interval=1}
+		 */
+		public String getTarget() {
+			return target;
+		}
+
+		/**
+		 * Get request headers, without {@code API-Key} and {@code API-Sign}
+		 *
+		 * @return headers
+		 */
+		public Map<String, String> getHeaders() {
+			return headers;
+		}
+
+		/**
+		 * Get request body, shared: must not be modified
+		 *
+		 * @return body, null if none
+		 */
+		public byte[] getRequestBody() {
+			return requestBody;
+		}
+
+		public int getStatusCode() {
+			return statusCode;
+		}
+
+		public String getContentEncoding() {
+			return contentEncoding;
+		}
+
+		/**
+		 * Get response body as received, possibly compressed, shared: must not be modified
+		 *
+		 * @return body
+		 */
+		public byte[] getResponseBody() {
+			return responseBody;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+					.append("method", method)
+					.append("target", target)
+					.append("statusCode", statusCode)
+					.append("contentEncoding", contentEncoding)
+					.append("responseLength", responseBody.length)
+					.append("firstByteNanos", firstByteNanos)
+					.append("totalNanos", totalNanos)
+					.toString();
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package com.github.sbouclier;
+
+/**
+ * Listener notified with the phase timing of every Kraken API call
+ *
+ * @author synapticloop
+ */
+@FunctionalInterface
+public interface RequestListener {
+
+	/**
+	 * Called on the calling thread once a call completed, successfully or not
+	 *
+	 * @param trace phase timing of the call
+	 */
+	void onRequestCompleted(RequestTrace trace);
+}
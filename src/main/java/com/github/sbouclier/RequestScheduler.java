@@ -0,0 +1,385 @@
+package com.github.sbouclier;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler of the calls of one API key across request classes, so that a history backfill does not delay order entry.
+ *
+ * Each call is admitted within the concurrency cap of its class and, for private calls counted by Kraken, within the
+ * call counter budget (see {@link RateLimiter}). The budget is shared between the classes waiting for it in proportion
+ * of their weights (start-time fair queuing): the class with the earliest virtual finish time is served next, ties
+ * going to the class of higher priority. Queued calls hold no budget, so a call of a higher class overtakes the lower
+ * class calls queued before it instead of waiting behind them. Calls wait at most until their {@link Deadline}.
+ *
+ * <pre>
+ * RequestScheduler scheduler = RequestScheduler.starter();
+ * scheduler.setLimits(RequestScheduler.RequestClass.HISTORY, 1, 1);
+ * client.setScheduler(scheduler);
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class RequestScheduler {
+
+	/**
+	 * Request classes, from the highest priority to the lowest
+	 */
+	public enum RequestClass {
+		ORDER_ENTRY(8, 8),
+		ORDER_STATUS(4, 4),
+		MARKET_DATA(2, 4),
+		HISTORY(1, 2);
+
+		private final int defaultWeight;
+		private final int defaultMaxConcurrent;
+
+		RequestClass(int defaultWeight, int defaultMaxConcurrent) {
+			this.defaultWeight = defaultWeight;
+			this.defaultMaxConcurrent = defaultMaxConcurrent;
+		}
+
+		/**
+		 * Get class of a method
+		 *
+		 * @param method kraken method
+		 * @return request class
+		 */
+		public static RequestClass of(KrakenApiMethod method) {
+			switch (method) {
+			case ADD_STANDARD_ORDER:
+			case ADD_ORDER_BATCH:
+			case CANCEL_ORDER:
+			case CANCEL_ALL_ORDERS:
+			case CANCEL_ORDER_BATCH:
+				return ORDER_ENTRY;
+			case CLOSED_ORDERS:
+			case TRADES_HISTORY:
+			case LEDGERS_INFORMATION:
+			case QUERY_LEDGERS:
+				return HISTORY;
+			default:
+				return method.isPrivate() ? ORDER_STATUS : MARKET_DATA;
+			}
+		}
+	}
+
+	private final double maxCounter;
+	private final double decayPerNano;
+	private final Lane[] lanes = new Lane[RequestClass.values().length];
+
+	private double available;
+	private long lastDecayNanos;
+	private double virtualTime;
+
+	/**
+	 * Create scheduler, starting with an empty counter
+	 *
+	 * @param maxCounter     counter maximum
+	 * @param decayPerSecond counter decay per second
+	 */
+	public RequestScheduler(double maxCounter, double decayPerSecond) {
+		if (maxCounter <= 0 || decayPerSecond <= 0) {
+			throw new IllegalArgumentException("counter maximum and decay must be positive");
+		}
+		this.maxCounter = maxCounter;
+		this.decayPerNano = decayPerSecond / TimeUnit.SECONDS.toNanos(1);
+		this.available = maxCounter;
+		this.lastDecayNanos = System.nanoTime();
+		for (RequestClass requestClass : RequestClass.values()) {
+			lanes[requestClass.ordinal()] = new Lane(requestClass.defaultWeight, requestClass.defaultMaxConcurrent);
+		}
+	}
+
+	/**
+	 * Create scheduler with the limits of a starter account
+	 *
+	 * @return scheduler
+	 */
+	public static RequestScheduler starter() {
+		return new RequestScheduler(RateLimiter.STARTER_MAX_COUNTER, RateLimiter.STARTER_DECAY_PER_SECOND);
+	}
+
+	/**
+	 * Get counter increment of a method: ledger and trade history calls count 2, other private calls 1, order entry
+	 * calls are limited by the matching engine instead and public calls per IP address
+	 *
+	 * @param method kraken method
+	 * @return counter increment
+	 */
+	static double costOf(KrakenApiMethod method) {
+		switch (method) {
+		case TRADES_HISTORY:
+		case LEDGERS_INFORMATION:
+		case QUERY_LEDGERS:
+			return 2;
+		default:
+			return (method.isPrivate() && RequestClass.of(method) != RequestClass.ORDER_ENTRY) ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Set share of the budget and concurrency cap of a class
+	 *
+	 * @param requestClass  request class
+	 * @param weight        share of the budget relative to the other classes
+	 * @param maxConcurrent maximum number of calls of the class in flight
+	 */
+	public synchronized void setLimits(RequestClass requestClass, int weight, int maxConcurrent) {
+		if (weight <= 0 || maxConcurrent <= 0) {
+			throw new IllegalArgumentException("weight and concurrency cap must be positive");
+		}
+		final Lane lane = lanes[requestClass.ordinal()];
+		lane.weight = weight;
+		lane.maxConcurrent = maxConcurrent;
+		dispatch();
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Wait until a call of a method can be made
+	 *
+	 * @param method kraken method
+	 * @return permit, to be released once the call is over
+	 * @throws KrakenApiException if the wait would exceed the current deadline or is interrupted
+	 */
+	public Permit acquire(KrakenApiMethod method) throws KrakenApiException {
+		return acquire(RequestClass.of(method), costOf(method));
+	}
+
+	/**
+	 * Wait until a call can be made
+	 *
+	 * @param requestClass request class
+	 * @param cost         counter increment of the call
+	 * @return permit, to be released once the call is over
+	 * @throws KrakenApiException if the wait would exceed the current deadline or is interrupted
+	 */
+	public synchronized Permit acquire(RequestClass requestClass, double cost) throws KrakenApiException {
+		final Deadline deadline = Deadline.current();
+		final Lane lane = lanes[requestClass.ordinal()];
+		final Permit permit = new Permit(lane, cost);
+		lane.queue.add(permit);
+
+		long waitNanos = dispatch();
+		while (!permit.granted) {
+			final long remaining = (deadline == null) ? Long.MAX_VALUE : deadline.remaining(TimeUnit.NANOSECONDS);
+			if (remaining <= 0) {
+				abandon(permit);
+				throw new KrakenApiException("call deadline exceeded");
+			}
+
+			try {
+				TimeUnit.NANOSECONDS.timedWait(this, Math.min(remaining, waitNanos));
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				abandon(permit);
+				throw new KrakenApiException("interrupted while waiting for the request scheduler", ex);
+			}
+			waitNanos = dispatch();
+		}
+		return permit;
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	/**
+	 * Get counter room left
+	 *
+	 * @return room left
+	 */
+	public synchronized double getAvailable() {
+		decay();
+		return available;
+	}
+
+	/**
+	 * Get number of calls of a class waiting to be admitted
+	 *
+	 * @param requestClass request class
+	 * @return queue depth
+	 */
+	public synchronized int getQueueDepth(RequestClass requestClass) {
+		return lanes[requestClass.ordinal()].queue.size();
+	}
+
+	/**
+	 * Get number of calls of a class in flight
+	 *
+	 * @param requestClass request class
+	 * @return calls in flight
+	 */
+	public synchronized int getRunning(RequestClass requestClass) {
+		return lanes[requestClass.ordinal()].running;
+	}
+
+	/**
+	 * Get number of calls of a class admitted since the creation of the scheduler
+	 *
+	 * @param requestClass request class
+	 * @return admitted calls
+	 */
+	public synchronized long getAdmittedCount(RequestClass requestClass) {
+		return lanes[requestClass.ordinal()].admitted;
+	}
+
+	/**
+	 * Get number of calls of a class which gave up waiting, deadline exceeded or interrupted
+	 *
+	 * @param requestClass request class
+	 * @return abandoned calls
+	 */
+	public synchronized long getAbandonedCount(RequestClass requestClass) {
+		return lanes[requestClass.ordinal()].abandoned;
+	}
+
+	/**
+	 * Get average wait of the admitted calls of a class
+	 *
+	 * @param requestClass request class
+	 * @return average wait in milliseconds, 0 if none was admitted
+	 */
+	public synchronized double getAverageWaitMillis(RequestClass requestClass) {
+		final Lane lane = lanes[requestClass.ordinal()];
+		return (lane.admitted == 0) ? 0 : lane.totalWaitNanos / 1e6 / lane.admitted;
+	}
+
+	/**
+	 * Get longest wait of the admitted calls of a class
+	 *
+	 * @param requestClass request class
+	 * @return longest wait in milliseconds
+	 */
+	public synchronized double getMaxWaitMillis(RequestClass requestClass) {
+		return lanes[requestClass.ordinal()].maxWaitNanos / 1e6;
+	}
+
+	/**
+	 * Admit the calls which can be made, in fair order
+	 *
+	 * @return nanoseconds until the budget allows the next call waiting for it, Long.MAX_VALUE if none
+	 */
+	private long dispatch() {
+		decay();
+		final long now = System.nanoTime();
+		boolean admitted = false;
+		long waitNanos = Long.MAX_VALUE;
+
+		while (true) {
+			Lane next = null;
+			double nextFinish = Double.MAX_VALUE;
+			for (Lane lane : lanes) {
+				final Permit head = lane.queue.peek();
+				if (head == null || lane.running >= lane.maxConcurrent) {
+					continue;
+				}
+				// calls outside of the counter never wait for the budget
+				final double finish = (head.cost == 0) ? -1 : Math.max(lane.finish, virtualTime) + head.cost / lane.weight;
+				if (finish < nextFinish) {
+					next = lane;
+					nextFinish = finish;
+				}
+			}
+			if (next == null) {
+				break;
+			}
+
+			final Permit head = next.queue.peek();
+			final double needed = Math.min(head.cost, maxCounter);
+			if (needed > available) {
+				waitNanos = (long) Math.ceil((needed - available) / decayPerNano);
+				break;
+			}
+
+			next.queue.poll();
+			if (head.cost > 0) {
+				virtualTime = Math.max(next.finish, virtualTime);
+				next.finish = nextFinish;
+				available -= head.cost;
+			}
+			next.running++;
+			next.admitted++;
+			final long wait = now - head.createdNanos;
+			next.totalWaitNanos += wait;
+			next.maxWaitNanos = Math.max(next.maxWaitNanos, wait);
+			head.granted = true;
+			admitted = true;
+		}
+
+		if (admitted) {
+			notifyAll();
+		}
+		return waitNanos;
+	}
+
+	private void abandon(Permit permit) {
+		permit.lane.queue.remove(permit);
+		permit.lane.abandoned++;
+		dispatch();
+	}
+
+	private synchronized void release(Permit permit) {
+		permit.lane.running--;
+		dispatch();
+	}
+
+	private void decay() {
+		final long now = System.nanoTime();
+		available = Math.min(maxCounter, available + (now - lastDecayNanos) * decayPerNano);
+		lastDecayNanos = now;
+	}
+
+	/**
+	 * Queue and counters of a request class
+	 */
+	private static class Lane {
+		private final ArrayDeque<Permit> queue = new ArrayDeque<>();
+		private int weight;
+		private int maxConcurrent;
+		private int running;
+		private double finish;
+		private long admitted;
+		private long abandoned;
+		private long totalWaitNanos;
+		private long maxWaitNanos;
+
+		private Lane(int weight, int maxConcurrent) {
+			this.weight = weight;
+			this.maxConcurrent = maxConcurrent;
+		}
+	}
+
+	/**
+	 * Admission of a call, holding a slot of its class until released
+	 */
+	public final class Permit {
+		private final Lane lane;
+		private final double cost;
+		private final long createdNanos = System.nanoTime();
+		private boolean granted;
+		private boolean released;
+
+		private Permit(Lane lane, double cost) {
+			this.lane = lane;
+			this.cost = cost;
+		}
+
+		/**
+		 * Release slot of the call, at most once
+		 */
+		public void release() {
+			synchronized (RequestScheduler.this) {
+				if (released) {
+					return;
+				}
+				released = true;
+			}
+			RequestScheduler.this.release(this);
+		}
+	}
+}
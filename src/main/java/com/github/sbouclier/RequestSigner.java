@@ -0,0 +1,113 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.utils.Base64Utils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/**
+ * Signer of private requests, initialised once per API secret.
+ *
+ * Algorithm: HMAC-SHA512 of (URI path + SHA256(nonce + POST data)) and base64 decoded secret API key. The secret is
+ * decoded once and each thread keeps its own initialised {@link Mac} and {@link MessageDigest}, so signing does not
+ * look up providers nor re-key on every call. Thread-safe.
+ *
+ * @author synapticloop
+ */
+public final class RequestSigner {
+
+	private static final String HMAC_SHA512 = "HmacSHA512";
+
+	private final SecretKeySpec key;
+	private final ThreadLocal<Mac> mac;
+	private final ThreadLocal<MessageDigest> sha256;
+
+	/**
+	 * Create signer
+	 *
+	 * @param secret base64 encoded API secret
+	 * @throws KrakenApiException if the secret cannot be used as HMAC-SHA512 key
+	 */
+	public RequestSigner(String secret) throws KrakenApiException {
+		try {
+			this.key = new SecretKeySpec(Base64Utils.base64Decode(secret), HMAC_SHA512);
+			// fail fast on invalid key rather than on first signature
+			newMac(key);
+		} catch (IllegalArgumentException | GeneralSecurityException ex) {
+			throw new KrakenApiException("unable to generate signature", ex);
+		}
+
+		this.mac = ThreadLocal.withInitial(() -> {
+			try {
+				return newMac(key);
+			} catch (GeneralSecurityException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+		this.sha256 = ThreadLocal.withInitial(() -> {
+			try {
+				return MessageDigest.getInstance("SHA-256");
+			} catch (GeneralSecurityException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+	}
+
+	/**
+	 * Sign request
+	 *
+	 * @param pathBytes  URI path in UTF-8
+	 * @param nonceBytes nonce in UTF-8
+	 * @param body       buffer holding the exact POST body bytes sent
+	 * @param offset     offset of the body in buffer
+	 * @param length     length of the body
+	 * @return base64 encoded signature
+	 */
+	public String sign(byte[] pathBytes, byte[] nonceBytes, byte[] body, int offset, int length) {
+		return sign(pathBytes, nonceBytes, 0, nonceBytes.length, body, offset, length);
+	}
+
+	/**
+	 * Sign request whose nonce is read from a buffer, e.g. from the body itself
+	 *
+	 * @param pathBytes   URI path in UTF-8
+	 * @param nonce       buffer holding the nonce in UTF-8
+	 * @param nonceOffset offset of the nonce in its buffer
+	 * @param nonceLength length of the nonce
+	 * @param body        buffer holding the exact POST body bytes sent
+	 * @param offset      offset of the body in buffer
+	 * @param length      length of the body
+	 * @return base64 encoded signature
+	 */
+	public String sign(byte[] pathBytes, byte[] nonce, int nonceOffset, int nonceLength, byte[] body, int offset, int length) {
+		final MessageDigest digest = sha256.get();
+		digest.update(nonce, nonceOffset, nonceLength);
+		digest.update(body, offset, length);
+		final byte[] hash = digest.digest();
+
+		final Mac hmac = mac.get();
+		hmac.update(pathBytes);
+		hmac.update(hash);
+		return Base64Utils.base64Encode(hmac.doFinal());
+	}
+
+	/**
+	 * Sign request
+	 *
+	 * @param pathBytes  URI path in UTF-8
+	 * @param nonceBytes nonce in UTF-8
+	 * @param body       exact POST body bytes sent
+	 * @return base64 encoded signature
+	 */
+	public String sign(byte[] pathBytes, byte[] nonceBytes, byte[] body) {
+		return sign(pathBytes, nonceBytes, body, 0, body.length);
+	}
+
+	private static Mac newMac(SecretKeySpec key) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance(HMAC_SHA512);
+		mac.init(key);
+		return mac;
+	}
+}
@@ -0,0 +1,279 @@
+package com.github.sbouclier;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phase timing of a single Kraken API call.
+ *
+ * A trace is started by {@link HttpApiClient} when a {@link RequestListener} is registered, bound to the calling
+ * thread for the duration of the call, and filled in by the transport ({@link HttpJsonClient}) and decode layers.
+ * Phases which did not happen (e.g. connect and TLS on a reused keep-alive connection) are reported as zero.
+ *
+ * Responses are decoded as they are received: the transfer of the JSON document overlaps its decoding and is
+ * reported as decode time, download then only covers the rest of the body once the document was decoded. Calls
+ * reading the whole body as a string first report the full transfer as download.
+ *
+ * The wait for the rate limit, either for a {@link RequestScheduler} permit or for the {@link RateLimiter} which
+ * admitted the call, is reported apart from the phases.
+ *
+ * @author synapticloop
+ */
+public class RequestTrace {
+
+	private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+	private final KrakenApiMethod method;
+	private final String pair;
+	private final long startNanos;
+
+	private long lastMark;
+
+	private long connectNanos;
+	private long tlsNanos;
+	private long writeNanos;
+	private long timeToFirstByteNanos;
+	private long downloadNanos;
+	private long decodeNanos;
+	private long totalNanos;
+	private long rateLimitWaitNanos;
+
+	private int statusCode = -1;
+	private long responseBytes;
+	private long wireBytes;
+	private String contentEncoding;
+	private boolean success;
+	private Throwable failure;
+
+	RequestTrace(KrakenApiMethod method, String pair) {
+		this.method = method;
+		this.pair = pair;
+		this.startNanos = System.nanoTime();
+		this.lastMark = startNanos;
+	}
+
+	// ------------------
+	// - THREAD BINDING -
+	// ------------------
+
+	/**
+	 * Start a trace and bind it to the current thread
+	 *
+	 * @param method kraken method
+	 * @param pair   asset pair(s) of the call, may be null
+	 * @return started trace
+	 */
+	static RequestTrace start(KrakenApiMethod method, String pair) {
+		RequestTrace trace = new RequestTrace(method, pair);
+		CURRENT.set(trace);
+		return trace;
+	}
+
+	/**
+	 * Get trace bound to the current thread
+	 *
+	 * @return current trace or null if the call is not traced
+	 */
+	static RequestTrace current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Complete the trace and unbind it from the current thread
+	 */
+	void finish() {
+		this.totalNanos = System.nanoTime() - startNanos;
+		CURRENT.remove();
+	}
+
+	// -------------------
+	// - PHASE RECORDING -
+	// -------------------
+
+	/**
+	 * Restart phase measurement from now, e.g. after time spent outside of any phase
+	 */
+	void mark() {
+		lastMark = System.nanoTime();
+	}
+
+	/**
+	 * Record the wait for the rate limit, from the start of the call
+	 *
+	 * @param waitedNanos time waited for the rate limiter admitting the call before it started
+	 */
+	void admitted(long waitedNanos) {
+		long now = System.nanoTime();
+		rateLimitWaitNanos += waitedNanos + now - lastMark;
+		lastMark = now;
+	}
+
+	void tcpConnected() {
+		long now = System.nanoTime();
+		connectNanos += now - lastMark;
+		lastMark = now;
+	}
+
+	void connected() {
+		long now = System.nanoTime();
+		if (connectNanos > 0) {
+			// TCP phase already recorded by the socket factory, the remaining time was the TLS handshake
+			tlsNanos += now - lastMark;
+		} else {
+			connectNanos += now - lastMark;
+		}
+		lastMark = now;
+	}
+
+	void requestWritten() {
+		long now = System.nanoTime();
+		writeNanos += now - lastMark;
+		lastMark = now;
+	}
+
+	void firstByte(int statusCode) {
+		long now = System.nanoTime();
+		timeToFirstByteNanos += now - lastMark;
+		lastMark = now;
+		this.statusCode = statusCode;
+	}
+
+	void downloaded(String contentEncoding, long wireBytes, long bytes) {
+		long now = System.nanoTime();
+		downloadNanos += now - lastMark;
+		lastMark = now;
+		this.contentEncoding = contentEncoding;
+		this.wireBytes += wireBytes;
+		this.responseBytes += bytes;
+	}
+
+	void decoded() {
+		long now = System.nanoTime();
+		decodeNanos += now - lastMark;
+		lastMark = now;
+	}
+
+	void succeeded() {
+		this.success = true;
+	}
+
+	void failed(Throwable failure) {
+		this.failure = failure;
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	public KrakenApiMethod getMethod() {
+		return method;
+	}
+
+	public String getPair() {
+		return pair;
+	}
+
+	/**
+	 * Get TCP connection setup time, or the whole connection setup if TCP and TLS could not be told apart
+	 *
+	 * @return connect time in nanoseconds
+	 */
+	public long getConnectNanos() {
+		return connectNanos;
+	}
+
+	public long getTlsNanos() {
+		return tlsNanos;
+	}
+
+	public long getWriteNanos() {
+		return writeNanos;
+	}
+
+	public long getTimeToFirstByteNanos() {
+		return timeToFirstByteNanos;
+	}
+
+	public long getDownloadNanos() {
+		return downloadNanos;
+	}
+
+	public long getDecodeNanos() {
+		return decodeNanos;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/**
+	 * Get time waited for the rate limit, including the wait for a {@link RateLimiter} just before the call
+	 *
+	 * @return rate limit wait in nanoseconds
+	 */
+	public long getRateLimitWaitNanos() {
+		return rateLimitWaitNanos;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Get size of the decoded response body
+	 *
+	 * @return response size in bytes
+	 */
+	public long getResponseBytes() {
+		return responseBytes;
+	}
+
+	/**
+	 * Get size of the response body as transferred, smaller than the response size when compressed
+	 *
+	 * @return transferred size in bytes
+	 */
+	public long getWireBytes() {
+		return wireBytes;
+	}
+
+	/**
+	 * Get content encoding of the response
+	 *
+	 * @return content encoding (e.g. gzip), null if not compressed
+	 */
+	public String getContentEncoding() {
+		return contentEncoding;
+	}
+
+	public boolean isSuccess() {
+		return success;
+	}
+
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("method", method)
+				.append("pair", pair)
+				.append("statusCode", statusCode)
+				.append("success", success)
+				.append("rateLimitWaitMicros", TimeUnit.NANOSECONDS.toMicros(rateLimitWaitNanos))
+				.append("connectMicros", TimeUnit.NANOSECONDS.toMicros(connectNanos))
+				.append("tlsMicros", TimeUnit.NANOSECONDS.toMicros(tlsNanos))
+				.append("writeMicros", TimeUnit.NANOSECONDS.toMicros(writeNanos))
+				.append("timeToFirstByteMicros", TimeUnit.NANOSECONDS.toMicros(timeToFirstByteNanos))
+				.append("downloadMicros", TimeUnit.NANOSECONDS.toMicros(downloadNanos))
+				.append("decodeMicros", TimeUnit.NANOSECONDS.toMicros(decodeNanos))
+				.append("totalMicros", TimeUnit.NANOSECONDS.toMicros(totalNanos))
+				.append("responseBytes", responseBytes)
+				.append("wireBytes", wireBytes)
+				.append("contentEncoding", contentEncoding)
+				.toString();
+	}
+}
@@ -0,0 +1,223 @@
+package com.github.sbouclier;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Negotiation, decoding and metrics of compressed (gzip or deflate) responses.
+ *
+ * Compressing a small body costs more CPU on both ends than it saves on the wire, so compression is only requested
+ * for endpoints whose responses are large: at first those flagged by {@link EndpointTemplate#isLargeResponse()}, then
+ * those whose observed average decoded size reaches the threshold. Decoding is streamed, the decompressed body is
+ * never buffered. Thread-safe.
+ *
+ * @author synapticloop
+ */
+public class ResponseCompression {
+
+	public static final String ACCEPT_ENCODING = "gzip, deflate";
+	public static final int DEFAULT_THRESHOLD_BYTES = 1024;
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final ResponseCompression DEFAULT = new ResponseCompression(DEFAULT_THRESHOLD_BYTES);
+
+	private final int thresholdBytes;
+	private final ConcurrentMap<String, ResponseSize> sizesByPath = new ConcurrentHashMap<>();
+
+	private final LongAdder compressedResponses = new LongAdder();
+	private final LongAdder compressedWireBytes = new LongAdder();
+	private final LongAdder compressedDecodedBytes = new LongAdder();
+	private final LongAdder identityResponses = new LongAdder();
+	private final LongAdder identityBytes = new LongAdder();
+
+	/**
+	 * Create compression policy
+	 *
+	 * @param thresholdBytes average decoded response size from which compression is requested, 0 to always request it
+	 */
+	public ResponseCompression(int thresholdBytes) {
+		this.thresholdBytes = thresholdBytes;
+	}
+
+	/**
+	 * Get policy shared by clients which were not given their own
+	 *
+	 * @return default policy
+	 */
+	public static ResponseCompression getDefault() {
+		return DEFAULT;
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Whether compression should be requested for an endpoint
+	 *
+	 * @param template endpoint template
+	 * @return true to send {@code Accept-Encoding}
+	 */
+	public boolean shouldRequest(EndpointTemplate template) {
+		ResponseSize size = sizesByPath.get(template.getPath());
+		if (size == null) {
+			return template.isLargeResponse() || thresholdBytes == 0;
+		}
+		return size.average >= thresholdBytes;
+	}
+
+	/**
+	 * Wrap response stream to decode its content encoding
+	 *
+	 * @param body            raw response body
+	 * @param contentEncoding value of {@code Content-Encoding}, may be null
+	 * @return decoded body stream
+	 * @throws IOException if the gzip header is invalid
+	 */
+	public InputStream decode(InputStream body, String contentEncoding) throws IOException {
+		if (!isCompressed(contentEncoding)) {
+			return body;
+		}
+
+		if ("gzip".equalsIgnoreCase(contentEncoding) || "x-gzip".equalsIgnoreCase(contentEncoding)) {
+			return new GZIPInputStream(body, BUFFER_SIZE);
+		}
+
+		if ("deflate".equalsIgnoreCase(contentEncoding)) {
+			// RFC 7230 deflate is zlib wrapped, but some servers send raw deflate: tell them apart with the zlib header
+			BufferedInputStream buffered = new BufferedInputStream(body, BUFFER_SIZE);
+			buffered.mark(2);
+			int cmf = buffered.read();
+			int flg = buffered.read();
+			buffered.reset();
+
+			boolean zlib = cmf != -1 && flg != -1 && (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+			return new InflaterInputStream(buffered, new Inflater(!zlib), BUFFER_SIZE);
+		}
+
+		throw new IOException("unsupported content encoding: " + contentEncoding);
+	}
+
+	/**
+	 * Record a received response
+	 *
+	 * @param path            URI path of the endpoint
+	 * @param contentEncoding value of {@code Content-Encoding}, may be null
+	 * @param wireBytes       size of the body as transferred
+	 * @param decodedBytes    size of the decoded body
+	 */
+	public void record(String path, String contentEncoding, long wireBytes, long decodedBytes) {
+		if (isCompressed(contentEncoding)) {
+			compressedResponses.increment();
+			compressedWireBytes.add(wireBytes);
+			compressedDecodedBytes.add(decodedBytes);
+		} else {
+			identityResponses.increment();
+			identityBytes.add(decodedBytes);
+		}
+
+		if (path != null) {
+			sizesByPath.computeIfAbsent(path, key -> new ResponseSize(decodedBytes)).add(decodedBytes);
+		}
+	}
+
+	private static boolean isCompressed(String contentEncoding) {
+		return contentEncoding != null && !contentEncoding.isEmpty() && !"identity".equalsIgnoreCase(contentEncoding);
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	public int getThresholdBytes() {
+		return thresholdBytes;
+	}
+
+	public long getCompressedResponses() {
+		return compressedResponses.sum();
+	}
+
+	public long getCompressedWireBytes() {
+		return compressedWireBytes.sum();
+	}
+
+	public long getCompressedDecodedBytes() {
+		return compressedDecodedBytes.sum();
+	}
+
+	public long getIdentityResponses() {
+		return identityResponses.sum();
+	}
+
+	public long getIdentityBytes() {
+		return identityBytes.sum();
+	}
+
+	/**
+	 * Get compression ratio of compressed responses
+	 *
+	 * @return decoded bytes per transferred byte, 0 if no compressed response was received
+	 */
+	public double getCompressionRatio() {
+		long wire = compressedWireBytes.sum();
+		return (wire == 0) ? 0 : (double) compressedDecodedBytes.sum() / wire;
+	}
+
+	/**
+	 * Get bytes which were not transferred thanks to compression
+	 *
+	 * @return saved bytes
+	 */
+	public long getSavedBytes() {
+		return compressedDecodedBytes.sum() - compressedWireBytes.sum();
+	}
+
+	/**
+	 * Get moving average of decoded response size of an endpoint
+	 *
+	 * @param path URI path of the endpoint
+	 * @return average size in bytes, -1 if no response was received
+	 */
+	public long getAverageResponseBytes(String path) {
+		ResponseSize size = sizesByPath.get(path);
+		return (size == null) ? -1 : size.average;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("thresholdBytes", thresholdBytes)
+				.append("compressedResponses", getCompressedResponses())
+				.append("compressedWireBytes", getCompressedWireBytes())
+				.append("compressedDecodedBytes", getCompressedDecodedBytes())
+				.append("compressionRatio", getCompressionRatio())
+				.append("identityResponses", getIdentityResponses())
+				.append("identityBytes", getIdentityBytes())
+				.toString();
+	}
+
+	/**
+	 * Exponential moving average (1/8 weight) of decoded sizes, racy updates only lose samples
+	 */
+	private static class ResponseSize {
+		private volatile long average;
+
+		ResponseSize(long initial) {
+			this.average = initial;
+		}
+
+		void add(long bytes) {
+			average += (bytes - average) >> 3;
+		}
+	}
+}
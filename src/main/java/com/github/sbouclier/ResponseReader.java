@@ -0,0 +1,23 @@
+package com.github.sbouclier;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reader of a response body as it is received
+ *
+ * @param <R> read value type
+ * @author synapticloop
+ */
+@FunctionalInterface
+public interface ResponseReader<R> {
+
+	/**
+	 * Read response body, already decompressed
+	 *
+	 * @param body response body stream, closed by the caller
+	 * @return read value
+	 * @throws IOException
+	 */
+	R read(InputStream body) throws IOException;
+}
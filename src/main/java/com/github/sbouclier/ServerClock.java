@@ -0,0 +1,396 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.result.ServerTimeResult;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Clock following the Kraken server clock, estimated from {@code getServerTime()} samples.
+ *
+ * The local time base is {@link System#nanoTime()} anchored to the wall clock once, so that it is monotonic and immune
+ * to local clock steps. Each sample bounds the offset to the server clock: the server read its clock, truncated to
+ * the second, between the moment the request was sent and the moment the response was received. The offset is the
+ * middle of the intersection of the bounds of the last {@value #WINDOW} samples, which narrows well below a second as
+ * samples land at different phases of the server second; samples with a long round trip give wide bounds and barely
+ * count. When the bounds do not intersect (server clock stepped), the sample with the shortest round trip is used
+ * alone, as NTP does. After {@value #MIN_DRIFT_SPAN_MINUTES} minutes, the drift between the clocks is estimated from
+ * the change of the offset since an earlier estimate precise enough, and used to align the samples and extrapolate the clock.
+ *
+ * The corrected clock never goes backwards: a correction towards the past holds the clock until it catches up.
+ * Thread-safe, reading the clock does not block.
+ *
+ * <pre>
+ * ServerClock clock = new ServerClock();
+ * clock.scheduleSync(scheduler, client, 1, TimeUnit.MINUTES);
+ * NonceGenerator.getDefault().setClock(clock);
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class ServerClock {
+
+	/**
+	 * Number of samples the estimate is based on
+	 */
+	public static final int WINDOW = 16;
+
+	/**
+	 * Minimum time span of the samples to estimate drift
+	 */
+	public static final int MIN_DRIFT_SPAN_MINUTES = 10;
+
+	private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final long MIN_DRIFT_SPAN_NANOS = TimeUnit.MINUTES.toNanos(MIN_DRIFT_SPAN_MINUTES);
+	private static final double MAX_DRIFT = 500e-6;
+	private static final double MAX_DRIFT_ERROR = 20e-6;
+	private static final int HISTORY = 64;
+
+	private final LongSupplier nanoTime;
+	private final long anchorNanos;
+	private final long anchorEpochNanos;
+
+	// samples, in local time (nanoseconds since the epoch) and server seconds
+	private final long[] sent = new long[WINDOW];
+	private final long[] received = new long[WINDOW];
+	private final long[] server = new long[WINDOW];
+	private int count;
+	private long sampleCount;
+
+	// past estimates, the baseline of the drift
+	private final long[] historyTime = new long[HISTORY];
+	private final long[] historyOffset = new long[HISTORY];
+	private final long[] historyUncertainty = new long[HISTORY];
+	private long historyStart;
+
+	private volatile Estimate estimate = new Estimate(0, 0, 0, SECOND_NANOS, 0, 0, 0);
+	private final AtomicLong last = new AtomicLong(Long.MIN_VALUE);
+
+	/**
+	 * Create clock, following the local clock until synchronized
+	 */
+	public ServerClock() {
+		this(System::nanoTime, System.currentTimeMillis());
+	}
+
+	/**
+	 * Create clock
+	 *
+	 * @param nanoTime         monotonic time source in nanoseconds
+	 * @param anchorEpochMillis wall clock at the current value of the time source, in milliseconds since the epoch
+	 */
+	ServerClock(LongSupplier nanoTime, long anchorEpochMillis) {
+		this.nanoTime = nanoTime;
+		this.anchorNanos = nanoTime.getAsLong();
+		this.anchorEpochNanos = TimeUnit.MILLISECONDS.toNanos(anchorEpochMillis);
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	/**
+	 * Get estimated server time
+	 *
+	 * @return nanoseconds since the epoch, never lower than a previously returned time
+	 */
+	public long currentTimeNanos() {
+		final long local = localNanos();
+		final Estimate current = estimate;
+		final long corrected = local + current.offsetNanos + (long) (current.drift * (local - current.referenceNanos));
+		return last.accumulateAndGet(corrected, Math::max);
+	}
+
+	public long currentTimeMicros() {
+		return currentTimeNanos() / 1000;
+	}
+
+	public long currentTimeMillis() {
+		return currentTimeNanos() / 1_000_000;
+	}
+
+	/**
+	 * Get estimated offset of the server clock to the local clock
+	 *
+	 * @return offset in milliseconds, positive if the server is ahead
+	 */
+	public double getOffsetMillis() {
+		return estimate.offsetNanos / 1e6;
+	}
+
+	/**
+	 * Get uncertainty of the offset: the server clock is within this distance of the estimate
+	 *
+	 * @return uncertainty in milliseconds, 1000 until synchronized
+	 */
+	public double getUncertaintyMillis() {
+		return estimate.uncertaintyNanos / 1e6;
+	}
+
+	/**
+	 * Get estimated drift of the server clock to the local clock
+	 *
+	 * @return drift in parts per million, positive if the server clock runs faster, 0 until synchronized for
+	 * {@value #MIN_DRIFT_SPAN_MINUTES} minutes
+	 */
+	public double getDriftPpm() {
+		return estimate.drift * 1e6;
+	}
+
+	/**
+	 * Get shortest round trip of the samples
+	 *
+	 * @return round trip in milliseconds
+	 */
+	public double getMinRoundTripMillis() {
+		return estimate.minRoundTripNanos / 1e6;
+	}
+
+	/**
+	 * Get jitter: standard deviation of the round trips of the samples
+	 *
+	 * @return jitter in milliseconds
+	 */
+	public double getJitterMillis() {
+		return estimate.jitterNanos / 1e6;
+	}
+
+	/**
+	 * Get number of samples taken
+	 *
+	 * @return sample count
+	 */
+	public synchronized long getSampleCount() {
+		return sampleCount;
+	}
+
+	/**
+	 * Get view of this clock as a {@link Clock}, in UTC
+	 *
+	 * @return clock
+	 */
+	public Clock toClock() {
+		return new ServerTimeClock(ZoneOffset.UTC);
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Take a sample of the server clock
+	 *
+	 * @param client client
+	 * @throws KrakenApiException if the server time could not be fetched
+	 */
+	public void sample(KrakenAPIClient client) throws KrakenApiException {
+		final long sentNanos = nanoTime.getAsLong();
+		final ServerTimeResult result = client.getServerTime();
+		final long receivedNanos = nanoTime.getAsLong();
+		addSample(sentNanos, receivedNanos, result.getResult().unixtime);
+	}
+
+	/**
+	 * Sample the server clock periodically, failed samples being skipped whatever the failure. Samples are spread at
+	 * random within a second (or the period if shorter) after each period, so that they land at different phases of
+	 * the server second and narrow the offset.
+	 *
+	 * @param executor executor taking the samples
+	 * @param client   client
+	 * @param period   period between samples
+	 * @param unit     period unit
+	 * @return synchronization, to cancel to stop it
+	 */
+	public Future<?> scheduleSync(ScheduledExecutorService executor, KrakenAPIClient client, long period, TimeUnit unit) {
+		final CompletableFuture<Void> sync = new CompletableFuture<>();
+		final long periodNanos = unit.toNanos(period);
+		final long spreadNanos = Math.max(1, Math.min(periodNanos, SECOND_NANOS));
+		final Runnable[] task = new Runnable[1];
+		task[0] = () -> {
+			if (sync.isDone()) {
+				return;
+			}
+			try {
+				sample(client);
+			} catch (KrakenApiException | RuntimeException ex) {
+				// skipped, the estimate holds until the next sample; an unchecked failure must not end the sync
+			}
+			try {
+				executor.schedule(task[0], periodNanos + ThreadLocalRandom.current().nextLong(spreadNanos), TimeUnit.NANOSECONDS);
+			} catch (RejectedExecutionException ex) {
+				sync.cancel(false);
+			}
+		};
+		executor.execute(task[0]);
+		return sync;
+	}
+
+	/**
+	 * Add sample
+	 *
+	 * @param sentNanos     time source when the request was sent
+	 * @param receivedNanos time source when the response was received
+	 * @param serverSeconds server time of the response, in seconds since the epoch
+	 */
+	synchronized void addSample(long sentNanos, long receivedNanos, long serverSeconds) {
+		final int index = (int) (sampleCount % WINDOW);
+		sent[index] = anchorEpochNanos + (sentNanos - anchorNanos);
+		received[index] = anchorEpochNanos + (receivedNanos - anchorNanos);
+		server[index] = serverSeconds * SECOND_NANOS;
+		sampleCount++;
+		count = (int) Math.min(WINDOW, sampleCount);
+		estimate = estimate();
+	}
+
+	/**
+	 * Estimate offset from the samples, and drift from the offset estimated {@value #MIN_DRIFT_SPAN_MINUTES} minutes
+	 * ago or more
+	 *
+	 * @return estimate
+	 */
+	private Estimate estimate() {
+		long minRoundTrip = Long.MAX_VALUE;
+		int shortest = 0;
+		double meanRoundTrip = 0;
+		long reference = Long.MIN_VALUE;
+		for (int i = 0; i < count; i++) {
+			final long roundTrip = received[i] - sent[i];
+			meanRoundTrip += roundTrip / (double) count;
+			if (roundTrip < minRoundTrip) {
+				minRoundTrip = roundTrip;
+				shortest = i;
+			}
+			reference = Math.max(reference, received[i]);
+		}
+
+		double variance = 0;
+		for (int i = 0; i < count; i++) {
+			final double deviation = (received[i] - sent[i]) - meanRoundTrip;
+			variance += deviation * deviation / count;
+		}
+
+		// intersect the bounds of the offset (server - local) of the samples, moved to the reference time along the
+		// drift estimated so far
+		final double drift = estimate.drift;
+		long low = Long.MIN_VALUE;
+		long high = Long.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			final long correction = (long) (drift * (reference - sent[i]));
+			low = Math.max(low, server[i] - received[i] + correction);
+			high = Math.min(high, server[i] + SECOND_NANOS - sent[i] + correction);
+		}
+		double newDrift = drift;
+		if (low > high) {
+			final long correction = (long) (drift * (reference - sent[shortest]));
+			low = server[shortest] - received[shortest] + correction;
+			high = server[shortest] + SECOND_NANOS - sent[shortest] + correction;
+			// the clocks stepped or drifted apart: past estimates no longer tell the drift
+			historyStart = sampleCount - 1;
+			newDrift = 0;
+		}
+		final long offset = low + (high - low) / 2;
+
+		// drift from the oldest past estimate far enough in the past for the uncertainties of both estimates to
+		// bound the error of the drift
+		final long uncertainty = (high - low) / 2;
+		final int history = (int) Math.min(HISTORY, sampleCount - 1 - historyStart);
+		for (int i = 0; i < history; i++) {
+			final int index = (int) ((sampleCount - 1 - history + i) % HISTORY);
+			final long span = reference - historyTime[index];
+			if (span >= MIN_DRIFT_SPAN_NANOS && uncertainty + historyUncertainty[index] <= MAX_DRIFT_ERROR * span) {
+				newDrift = Math.max(-MAX_DRIFT, Math.min(MAX_DRIFT, (offset - historyOffset[index]) / (double) span));
+				break;
+			}
+		}
+		final int index = (int) ((sampleCount - 1) % HISTORY);
+		historyTime[index] = reference;
+		historyOffset[index] = offset;
+		historyUncertainty[index] = uncertainty;
+
+		return new Estimate(offset, reference, newDrift, uncertainty, minRoundTrip, (long) Math.sqrt(variance), sampleCount);
+	}
+
+	private long localNanos() {
+		return anchorEpochNanos + (nanoTime.getAsLong() - anchorNanos);
+	}
+
+	@Override
+	public String toString() {
+		final Estimate current = estimate;
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("offsetMillis", current.offsetNanos / 1e6)
+				.append("uncertaintyMillis", current.uncertaintyNanos / 1e6)
+				.append("driftPpm", current.drift * 1e6)
+				.append("minRoundTripMillis", current.minRoundTripNanos / 1e6)
+				.append("jitterMillis", current.jitterNanos / 1e6)
+				.append("samples", current.samples)
+				.toString();
+	}
+
+	/**
+	 * {@link Clock} view of the server clock
+	 */
+	private class ServerTimeClock extends Clock {
+		private final ZoneId zone;
+
+		ServerTimeClock(ZoneId zone) {
+			this.zone = zone;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return zone;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return new ServerTimeClock(zone);
+		}
+
+		@Override
+		public long millis() {
+			return currentTimeMillis();
+		}
+
+		@Override
+		public Instant instant() {
+			final long nanos = currentTimeNanos();
+			return Instant.ofEpochSecond(Math.floorDiv(nanos, SECOND_NANOS), Math.floorMod(nanos, SECOND_NANOS));
+		}
+	}
+
+	/**
+	 * Immutable estimate, swapped as a whole so that reads are consistent without locking
+	 */
+	private static class Estimate {
+		private final long offsetNanos;
+		private final long referenceNanos;
+		private final double drift;
+		private final long uncertaintyNanos;
+		private final long minRoundTripNanos;
+		private final long jitterNanos;
+		private final long samples;
+
+		Estimate(long offsetNanos, long referenceNanos, double drift, long uncertaintyNanos, long minRoundTripNanos, long jitterNanos, long samples) {
+			this.offsetNanos = offsetNanos;
+			this.referenceNanos = referenceNanos;
+			this.drift = drift;
+			this.uncertaintyNanos = uncertaintyNanos;
+			this.minRoundTripNanos = minRoundTripNanos;
+			this.jitterNanos = jitterNanos;
+			this.samples = samples;
+		}
+	}
+}
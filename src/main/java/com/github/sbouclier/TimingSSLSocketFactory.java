@@ -0,0 +1,82 @@
+package com.github.sbouclier;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * SSL socket factory splitting connection setup into TCP and TLS phases of the current {@link RequestTrace}.
+ *
+ * HttpsURLConnection first opens the plain TCP socket and then layers TLS over it through
+ * {@link #createSocket(Socket, String, int, boolean)}, so entering that method marks the end of the TCP phase.
+ * A single shared instance must be used: the keep-alive cache keys pooled connections on the factory instance.
+ *
+ * @author synapticloop
+ */
+class TimingSSLSocketFactory extends SSLSocketFactory {
+
+	private final SSLSocketFactory delegate;
+
+	TimingSSLSocketFactory(SSLSocketFactory delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Get the shared factory wrapping the default HTTPS socket factory, created on first traced call
+	 *
+	 * @return shared factory
+	 */
+	static SSLSocketFactory getShared() {
+		return Holder.INSTANCE;
+	}
+
+	private static class Holder {
+		private static final TimingSSLSocketFactory INSTANCE = new TimingSSLSocketFactory(HttpsURLConnection.getDefaultSSLSocketFactory());
+	}
+
+	@Override
+	public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+		RequestTrace trace = RequestTrace.current();
+		if (trace != null) {
+			trace.tcpConnected();
+		}
+		return delegate.createSocket(socket, host, port, autoClose);
+	}
+
+	@Override
+	public String[] getDefaultCipherSuites() {
+		return delegate.getDefaultCipherSuites();
+	}
+
+	@Override
+	public String[] getSupportedCipherSuites() {
+		return delegate.getSupportedCipherSuites();
+	}
+
+	@Override
+	public Socket createSocket() throws IOException {
+		return delegate.createSocket();
+	}
+
+	@Override
+	public Socket createSocket(String host, int port) throws IOException {
+		return delegate.createSocket(host, port);
+	}
+
+	@Override
+	public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+		return delegate.createSocket(host, port, localHost, localPort);
+	}
+
+	@Override
+	public Socket createSocket(InetAddress host, int port) throws IOException {
+		return delegate.createSocket(host, port);
+	}
+
+	@Override
+	public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+		return delegate.createSocket(address, port, localAddress, localPort);
+	}
+}
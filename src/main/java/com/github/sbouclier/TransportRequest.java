@@ -0,0 +1,80 @@
+package com.github.sbouclier;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HTTP request handed to a {@link HttpTransport}
+ *
+ * @author synapticloop
+ */
+public class TransportRequest {
+
+	private final String method;
+	private final URL url;
+	private final Map<String, String> headers = new LinkedHashMap<>();
+	private byte[] body;
+
+	public TransportRequest(String method, URL url) {
+		this.method = method;
+		this.url = url;
+	}
+
+	/**
+	 * Set request header
+	 *
+	 * @param name  header name
+	 * @param value header value
+	 * @return this request
+	 */
+	public TransportRequest header(String name, String value) {
+		headers.put(name, value);
+		return this;
+	}
+
+	/**
+	 * Set request body
+	 *
+	 * @param body body bytes, sent as is with a fixed length
+	 * @return this request
+	 */
+	public TransportRequest body(byte[] body) {
+		this.body = body;
+		return this;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public URL getUrl() {
+		return url;
+	}
+
+	public Map<String, String> getHeaders() {
+		return Collections.unmodifiableMap(headers);
+	}
+
+	/**
+	 * Get request body, shared: must not be modified
+	 *
+	 * @return body bytes, null if none
+	 */
+	public byte[] getBody() {
+		return body;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("method", method)
+				.append("url", url)
+				.append("bodyLength", (body != null) ? body.length : 0)
+				.toString();
+	}
+}
@@ -0,0 +1,21 @@
+package com.github.sbouclier.bus;
+
+/**
+ * Consumer of the events of a ring buffer
+ *
+ * @param <E> event type
+ * @author synapticloop
+ */
+@FunctionalInterface
+public interface EventHandler<E> {
+
+	/**
+	 * Handle an event. The event is overwritten once the consumer moves past it and must not be kept.
+	 *
+	 * @param event      event, read in place
+	 * @param sequence   sequence of the event
+	 * @param endOfBatch whether no further event is available at the moment, e.g. to flush
+	 * @throws Exception counted by the processor, which then moves on to the next event
+	 */
+	void onEvent(E event, long sequence, boolean endOfBatch) throws Exception;
+}
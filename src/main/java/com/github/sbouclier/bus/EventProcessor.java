@@ -0,0 +1,103 @@
+package com.github.sbouclier.bus;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consumer loop of a ring buffer: waits for the published events with its wait strategy, hands them over in batches to
+ * its handler and then moves its sequence past them, freeing their slots for the producers.
+ *
+ * The processor gates the producers as soon as it is created, so that no event published before its thread starts is
+ * missed: it must then be run, a processor never run holding the producers once the ring wraps around.
+ *
+ * @param <E> event type
+ * @author synapticloop
+ */
+public final class EventProcessor<E> implements Runnable {
+
+	private final RingBuffer<E> ringBuffer;
+	private final EventHandler<E> handler;
+	private final WaitStrategy waitStrategy;
+	private final Sequence sequence = new Sequence(-1);
+	private final AtomicLong errorCount = new AtomicLong();
+
+	private volatile boolean running = true;
+
+	/**
+	 * Create processor, gating the producers of the ring buffer from now on until it has run and been halted
+	 *
+	 * @param ringBuffer   ring buffer, the processor starting after its cursor
+	 * @param handler      handler of the events
+	 * @param waitStrategy wait for the next events
+	 */
+	public EventProcessor(RingBuffer<E> ringBuffer, EventHandler<E> handler, WaitStrategy waitStrategy) {
+		this.ringBuffer = ringBuffer;
+		this.handler = handler;
+		this.waitStrategy = waitStrategy;
+		ringBuffer.addGatingSequence(sequence);
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	@Override
+	public void run() {
+		long next = sequence.get() + 1;
+		int attempt = 0;
+		try {
+			while (running) {
+				final long highest = ringBuffer.getHighestPublished(next, ringBuffer.getCursor());
+				if (highest < next) {
+					attempt = waitStrategy.idle(attempt);
+					continue;
+				}
+				attempt = 0;
+
+				for (long current = next; current <= highest; current++) {
+					try {
+						handler.onEvent(ringBuffer.get(current), current, current == highest);
+					} catch (Exception ex) {
+						errorCount.incrementAndGet();
+					}
+				}
+				sequence.set(highest);
+				next = highest + 1;
+			}
+		} finally {
+			ringBuffer.removeGatingSequence(sequence);
+		}
+	}
+
+	/**
+	 * Stop the processor after its current batch, no longer gating the producers
+	 */
+	public void halt() {
+		running = false;
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	/**
+	 * Get sequence of the last event handled
+	 *
+	 * @return sequence
+	 */
+	public long getSequence() {
+		return sequence.get();
+	}
+
+	/**
+	 * Get number of events whose handler threw an exception
+	 *
+	 * @return error count
+	 */
+	public long getErrorCount() {
+		return errorCount.get();
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+}
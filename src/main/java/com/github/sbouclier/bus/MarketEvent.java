@@ -0,0 +1,94 @@
+package com.github.sbouclier.bus;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Mutable market data event of a {@link MarketEventBus}, written in place by producers that set all its fields, the
+ * event keeping the values of its previous use otherwise.
+ *
+ * Prices and volumes are fixed-point: unscaled values with the number of decimals of {@link #priceScale} and
+ * {@link #volumeScale}, e.g. 2500.1 with a price scale of 2 is 250010.
+ *
+ * @author synapticloop
+ */
+public final class MarketEvent {
+
+	public enum Type {
+		TICKER, TRADE, SPREAD
+	}
+
+	public Type type;
+	public int pairId;
+	public int priceScale;
+	public int volumeScale;
+
+	/**
+	 * Best bid of tickers and spreads
+	 */
+	public long bid;
+
+	/**
+	 * Best ask of tickers and spreads
+	 */
+	public long ask;
+
+	/**
+	 * Trade price or last trade price of tickers
+	 */
+	public long price;
+
+	/**
+	 * Trade volume or last trade volume of tickers
+	 */
+	public long volume;
+
+	/**
+	 * Time of the data on Kraken in nanoseconds, 0 if unknown
+	 */
+	public long timeNanos;
+
+	/**
+	 * Local {@link System#nanoTime()} at publication
+	 */
+	public long publishedNanos;
+
+	/**
+	 * Convert decimal value to fixed-point
+	 *
+	 * @param value decimal value
+	 * @param scale number of decimals
+	 * @return unscaled value, rounded half even
+	 * @throws ArithmeticException if the value does not fit a long
+	 */
+	public static long toFixed(BigDecimal value, int scale) {
+		return value.setScale(scale, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+	}
+
+	/**
+	 * Convert fixed-point value to decimal
+	 *
+	 * @param unscaled unscaled value
+	 * @param scale    number of decimals
+	 * @return decimal value
+	 */
+	public static BigDecimal toDecimal(long unscaled, int scale) {
+		return BigDecimal.valueOf(unscaled, scale);
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("type", type)
+				.append("pairId", pairId)
+				.append("bid", toDecimal(bid, priceScale))
+				.append("ask", toDecimal(ask, priceScale))
+				.append("price", toDecimal(price, priceScale))
+				.append("volume", toDecimal(volume, volumeScale))
+				.append("timeNanos", timeNanos)
+				.toString();
+	}
+}
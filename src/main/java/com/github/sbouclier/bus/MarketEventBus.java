@@ -0,0 +1,227 @@
+package com.github.sbouclier.bus;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Fan-out of tickers, trades and spreads from producers (pollers, WebSocket handlers) to many consumer threads over a
+ * pre-allocated {@link RingBuffer} of {@link MarketEvent}s.
+ *
+ * Every consumer sees every event, in publication order, on its own thread and at its own pace; the producers wait
+ * for the slowest consumer once the ring is full. Publishing allocates nothing, pairs being referred to by the ids
+ * given by {@link #getPairId(String)}.
+ *
+ * <pre>
+ * try (MarketEventBus bus = new MarketEventBus(1 &lt;&lt; 16, WaitStrategy.YIELD)) {
+ *     bus.subscribe("strategy", (event, sequence, endOfBatch) -&gt; strategy.onMarketEvent(event));
+ *     int xbteur = bus.getPairId("XXBTZEUR");
+ *     bus.publishSpread(xbteur, 1, 25001, 25002, timeNanos);
+ * }
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class MarketEventBus implements Closeable {
+
+	public static final int DEFAULT_SIZE = 1 << 16;
+
+	private final RingBuffer<MarketEvent> ringBuffer;
+	private final WaitStrategy waitStrategy;
+	private final List<EventProcessor<MarketEvent>> processors = new CopyOnWriteArrayList<>();
+	private final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+	private final ConcurrentMap<String, Integer> pairIds = new ConcurrentHashMap<>();
+	private final List<String> pairs = new CopyOnWriteArrayList<>();
+
+	// ----------------
+	// - CONSTRUCTORS -
+	// ----------------
+
+	/**
+	 * Create bus of {@value #DEFAULT_SIZE} events, consumers parking when idle
+	 */
+	public MarketEventBus() {
+		this(DEFAULT_SIZE, WaitStrategy.PARK);
+	}
+
+	/**
+	 * Create bus
+	 *
+	 * @param size         number of events of the ring, a power of two
+	 * @param waitStrategy wait of the consumers for the next events
+	 */
+	public MarketEventBus(int size, WaitStrategy waitStrategy) {
+		this.ringBuffer = new RingBuffer<>(size, MarketEvent::new);
+		this.waitStrategy = waitStrategy;
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Start consumer on a daemon thread of its own, receiving the events published from now on
+	 *
+	 * @param name    name of the consumer thread
+	 * @param handler handler of the events
+	 * @return processor of the consumer
+	 */
+	public EventProcessor<MarketEvent> subscribe(String name, EventHandler<MarketEvent> handler) {
+		final EventProcessor<MarketEvent> processor = new EventProcessor<>(ringBuffer, handler, waitStrategy);
+		final Thread thread = new Thread(processor, name);
+		thread.setDaemon(true);
+		processors.add(processor);
+		threads.add(thread);
+		thread.start();
+		return processor;
+	}
+
+	/**
+	 * Get id of a pair, assigned on first use
+	 *
+	 * @param pair asset pair
+	 * @return pair id
+	 */
+	public int getPairId(String pair) {
+		final Integer id = pairIds.get(pair);
+		if (id != null) {
+			return id;
+		}
+		synchronized (pairs) {
+			return pairIds.computeIfAbsent(pair, p -> {
+				pairs.add(p);
+				return pairs.size() - 1;
+			});
+		}
+	}
+
+	/**
+	 * Get pair of an id
+	 *
+	 * @param pairId pair id
+	 * @return asset pair
+	 */
+	public String getPair(int pairId) {
+		return pairs.get(pairId);
+	}
+
+	/**
+	 * Publish ticker
+	 *
+	 * @param pairId      pair id
+	 * @param priceScale  number of decimals of the prices
+	 * @param bid         best bid
+	 * @param ask         best ask
+	 * @param last        last trade price
+	 * @param volumeScale number of decimals of the volume
+	 * @param lastVolume  last trade volume
+	 * @param timeNanos   time of the ticker on Kraken, 0 if unknown
+	 * @return sequence of the event
+	 */
+	public long publishTicker(int pairId, int priceScale, long bid, long ask, long last, int volumeScale, long lastVolume, long timeNanos) {
+		final long sequence = ringBuffer.next();
+		final MarketEvent event = ringBuffer.get(sequence);
+		event.type = MarketEvent.Type.TICKER;
+		event.pairId = pairId;
+		event.priceScale = priceScale;
+		event.volumeScale = volumeScale;
+		event.bid = bid;
+		event.ask = ask;
+		event.price = last;
+		event.volume = lastVolume;
+		event.timeNanos = timeNanos;
+		event.publishedNanos = System.nanoTime();
+		ringBuffer.publish(sequence);
+		return sequence;
+	}
+
+	/**
+	 * Publish trade
+	 *
+	 * @param pairId      pair id
+	 * @param priceScale  number of decimals of the price
+	 * @param price       trade price
+	 * @param volumeScale number of decimals of the volume
+	 * @param volume      trade volume
+	 * @param timeNanos   time of the trade on Kraken
+	 * @return sequence of the event
+	 */
+	public long publishTrade(int pairId, int priceScale, long price, int volumeScale, long volume, long timeNanos) {
+		final long sequence = ringBuffer.next();
+		final MarketEvent event = ringBuffer.get(sequence);
+		event.type = MarketEvent.Type.TRADE;
+		event.pairId = pairId;
+		event.priceScale = priceScale;
+		event.volumeScale = volumeScale;
+		event.bid = 0;
+		event.ask = 0;
+		event.price = price;
+		event.volume = volume;
+		event.timeNanos = timeNanos;
+		event.publishedNanos = System.nanoTime();
+		ringBuffer.publish(sequence);
+		return sequence;
+	}
+
+	/**
+	 * Publish spread
+	 *
+	 * @param pairId     pair id
+	 * @param priceScale number of decimals of the prices
+	 * @param bid        best bid
+	 * @param ask        best ask
+	 * @param timeNanos  time of the spread on Kraken
+	 * @return sequence of the event
+	 */
+	public long publishSpread(int pairId, int priceScale, long bid, long ask, long timeNanos) {
+		final long sequence = ringBuffer.next();
+		final MarketEvent event = ringBuffer.get(sequence);
+		event.type = MarketEvent.Type.SPREAD;
+		event.pairId = pairId;
+		event.priceScale = priceScale;
+		event.volumeScale = 0;
+		event.bid = bid;
+		event.ask = ask;
+		event.price = 0;
+		event.volume = 0;
+		event.timeNanos = timeNanos;
+		event.publishedNanos = System.nanoTime();
+		ringBuffer.publish(sequence);
+		return sequence;
+	}
+
+	/**
+	 * Stop the consumers and wait for their threads to end
+	 */
+	@Override
+	public void close() {
+		processors.forEach(EventProcessor::halt);
+		try {
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	/**
+	 * Get ring buffer, for producers writing events in place
+	 *
+	 * @return ring buffer
+	 */
+	public RingBuffer<MarketEvent> getRingBuffer() {
+		return ringBuffer;
+	}
+
+	public List<EventProcessor<MarketEvent>> getProcessors() {
+		return processors;
+	}
+}
@@ -0,0 +1,199 @@
+package com.github.sbouclier.bus;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Pre-allocated ring of mutable events shared by many producers and consumers, in the style of the LMAX Disruptor.
+ *
+ * A producer claims the next sequence with {@link #next()}, writes the event of that slot in place and makes it
+ * visible with {@link #publish(long)}. Consumers read the published events in place and track their own
+ * {@link Sequence}; a producer never claims a slot which a consumer registered with {@link #addGatingSequence} has not
+ * gone past yet, waiting instead. Nothing is allocated or locked once the ring is created.
+ *
+ * @param <E> event type
+ * @author synapticloop
+ */
+public final class RingBuffer<E> {
+
+	private final Object[] entries;
+	private final int mask;
+	private final int indexShift;
+	private final AtomicIntegerArray available;
+
+	private final Sequence cursor = new Sequence(-1);
+	private final Sequence gatingCache = new Sequence(-1);
+	private volatile Sequence[] gatingSequences = new Sequence[0];
+
+	/**
+	 * Create ring buffer
+	 *
+	 * @param size    number of slots, a power of two
+	 * @param factory factory of the events pre-allocated in the slots
+	 */
+	public RingBuffer(int size, Supplier<E> factory) {
+		if (size < 1 || Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("size must be a power of two");
+		}
+		this.entries = new Object[size];
+		this.mask = size - 1;
+		this.indexShift = Integer.numberOfTrailingZeros(size);
+		this.available = new AtomicIntegerArray(size);
+		for (int i = 0; i < size; i++) {
+			entries[i] = factory.get();
+			available.set(i, -1);
+		}
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Claim the next slot, waiting for the slowest consumer to free it if the ring is full
+	 *
+	 * @return claimed sequence, to be published once the event is written
+	 */
+	public long next() {
+		while (true) {
+			final long current = cursor.get();
+			final long next = current + 1;
+			final long wrapPoint = next - entries.length;
+			final long cachedGating = gatingCache.get();
+
+			if (wrapPoint > cachedGating || cachedGating > current) {
+				final long gating = minimumGatingSequence(current);
+				if (wrapPoint > gating) {
+					LockSupport.parkNanos(1);
+					continue;
+				}
+				gatingCache.set(gating);
+			} else if (cursor.compareAndSet(current, next)) {
+				return next;
+			}
+		}
+	}
+
+	/**
+	 * Get event of a sequence
+	 *
+	 * @param sequence sequence
+	 * @return event of the slot of the sequence
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(long sequence) {
+		return (E) entries[(int) sequence & mask];
+	}
+
+	/**
+	 * Make the event of a claimed sequence visible to the consumers
+	 *
+	 * @param sequence claimed sequence
+	 */
+	public void publish(long sequence) {
+		available.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+	}
+
+	/**
+	 * Claim the next slot, write its event and publish it
+	 *
+	 * @param writer writer of the event in place
+	 * @return published sequence
+	 */
+	public long publishEvent(Consumer<E> writer) {
+		final long sequence = next();
+		try {
+			writer.accept(get(sequence));
+		} finally {
+			publish(sequence);
+		}
+		return sequence;
+	}
+
+	/**
+	 * Whether the event of a sequence is published
+	 *
+	 * @param sequence sequence
+	 * @return true if published
+	 */
+	public boolean isPublished(long sequence) {
+		return available.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+	}
+
+	/**
+	 * Get highest sequence published without gap from a lower bound, producers publishing out of order
+	 *
+	 * @param lowerBound first sequence to check
+	 * @param claimed    highest claimed sequence
+	 * @return highest published sequence, lowerBound - 1 if lowerBound is not published
+	 */
+	public long getHighestPublished(long lowerBound, long claimed) {
+		for (long sequence = lowerBound; sequence <= claimed; sequence++) {
+			if (!isPublished(sequence)) {
+				return sequence - 1;
+			}
+		}
+		return claimed;
+	}
+
+	/**
+	 * Register consumer sequence which producers must not overtake, starting from the current cursor
+	 *
+	 * @param sequence consumer sequence
+	 */
+	public synchronized void addGatingSequence(Sequence sequence) {
+		sequence.set(cursor.get());
+		final Sequence[] updated = Arrays.copyOf(gatingSequences, gatingSequences.length + 1);
+		updated[updated.length - 1] = sequence;
+		gatingSequences = updated;
+		// a producer may have claimed past the first read
+		sequence.set(cursor.get());
+	}
+
+	/**
+	 * Unregister consumer sequence
+	 *
+	 * @param sequence consumer sequence
+	 */
+	public synchronized void removeGatingSequence(Sequence sequence) {
+		gatingSequences = Arrays.stream(gatingSequences).filter(s -> s != sequence).toArray(Sequence[]::new);
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	public int getSize() {
+		return entries.length;
+	}
+
+	/**
+	 * Get highest claimed sequence, which may not be published yet
+	 *
+	 * @return cursor, -1 if none was claimed
+	 */
+	public long getCursor() {
+		return cursor.get();
+	}
+
+	/**
+	 * Get number of slots free for producers
+	 *
+	 * @return free slots
+	 */
+	public long getRemainingCapacity() {
+		final long current = cursor.get();
+		return entries.length - (current - minimumGatingSequence(current));
+	}
+
+	private long minimumGatingSequence(long current) {
+		long minimum = current;
+		for (Sequence sequence : gatingSequences) {
+			minimum = Math.min(minimum, sequence.get());
+		}
+		return minimum;
+	}
+}
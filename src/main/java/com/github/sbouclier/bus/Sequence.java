@@ -0,0 +1,49 @@
+package com.github.sbouclier.bus;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Sequence of a ring buffer cursor or consumer, padded so that two sequences updated by different threads never share a
+ * cache line.
+ *
+ * @author synapticloop
+ */
+public final class Sequence {
+
+	private static final AtomicLongFieldUpdater<Sequence> VALUE = AtomicLongFieldUpdater.newUpdater(Sequence.class, "value");
+
+	protected long p1, p2, p3, p4, p5, p6, p7;
+	private volatile long value;
+	protected long p9, p10, p11, p12, p13, p14, p15;
+
+	/**
+	 * Create sequence
+	 *
+	 * @param initialValue initial value
+	 */
+	public Sequence(long initialValue) {
+		this.value = initialValue;
+	}
+
+	public long get() {
+		return value;
+	}
+
+	/**
+	 * Set value with an ordered write, cheaper than a volatile write and enough for a single writer
+	 *
+	 * @param value new value
+	 */
+	public void set(long value) {
+		VALUE.lazySet(this, value);
+	}
+
+	public boolean compareAndSet(long expected, long value) {
+		return VALUE.compareAndSet(this, expected, value);
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(value);
+	}
+}
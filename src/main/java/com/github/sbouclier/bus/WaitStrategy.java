@@ -0,0 +1,61 @@
+package com.github.sbouclier.bus;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Strategy of a consumer waiting for the next event, trading latency against CPU usage
+ *
+ * @author synapticloop
+ */
+public enum WaitStrategy {
+
+	/**
+	 * Spin on the cursor: lowest latency, a core per consumer
+	 */
+	BUSY_SPIN {
+		@Override
+		int idle(int attempt) {
+			return attempt + 1;
+		}
+	},
+
+	/**
+	 * Spin a little then yield to other threads: low latency, a core per consumer unless other threads need it
+	 */
+	YIELD {
+		@Override
+		int idle(int attempt) {
+			if (attempt >= SPIN_TRIES) {
+				Thread.yield();
+			}
+			return attempt + 1;
+		}
+	},
+
+	/**
+	 * Spin, yield, then park for {@value #PARK_NANOS} ns at a time: idle consumers use next to no CPU, at the cost of
+	 * up to the park time of latency
+	 */
+	PARK {
+		@Override
+		int idle(int attempt) {
+			if (attempt >= 2 * SPIN_TRIES) {
+				LockSupport.parkNanos(PARK_NANOS);
+			} else if (attempt >= SPIN_TRIES) {
+				Thread.yield();
+			}
+			return attempt + 1;
+		}
+	};
+
+	static final int SPIN_TRIES = 100;
+	static final long PARK_NANOS = 50_000;
+
+	/**
+	 * Wait one round for the next event
+	 *
+	 * @param attempt number of rounds waited so far
+	 * @return number of rounds waited, this one included
+	 */
+	abstract int idle(int attempt);
+}
@@ -0,0 +1,71 @@
+package com.github.sbouclier.flow;
+
+/**
+ * Reactive streams interfaces for Java 8, with the same methods and rules as {@code java.util.concurrent.Flow} and
+ * {@code org.reactivestreams}, so that adapting a publisher to either is a matter of delegating each method.
+ *
+ * @author synapticloop
+ */
+public final class Flow {
+
+	private Flow() {
+	}
+
+	/**
+	 * Producer of items received by subscribers on demand
+	 *
+	 * @param <T> item type
+	 */
+	@FunctionalInterface
+	public interface Publisher<T> {
+
+		/**
+		 * Add subscriber, which receives {@link Subscriber#onSubscribe} then items as it requests them
+		 *
+		 * @param subscriber subscriber
+		 */
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	/**
+	 * Receiver of items. Calls to a subscriber are never concurrent.
+	 *
+	 * @param <T> item type
+	 */
+	public interface Subscriber<T> {
+
+		void onSubscribe(Subscription subscription);
+
+		void onNext(T item);
+
+		/**
+		 * Terminal failure, no further call follows
+		 *
+		 * @param throwable failure
+		 */
+		void onError(Throwable throwable);
+
+		/**
+		 * Terminal completion, no further call follows
+		 */
+		void onComplete();
+	}
+
+	/**
+	 * Link between a publisher and one of its subscribers
+	 */
+	public interface Subscription {
+
+		/**
+		 * Add demand for items
+		 *
+		 * @param n number of items, positive; {@link Long#MAX_VALUE} for unbounded demand
+		 */
+		void request(long n);
+
+		/**
+		 * Stop receiving items, eventually
+		 */
+		void cancel();
+	}
+}
@@ -0,0 +1,119 @@
+package com.github.sbouclier.flow;
+
+import com.github.sbouclier.KrakenAPIClient;
+import com.github.sbouclier.input.Interval;
+import com.github.sbouclier.result.OHLCResult;
+import com.github.sbouclier.result.OHLCResult.OHLC;
+import com.github.sbouclier.result.RecentSpreadResult;
+import com.github.sbouclier.result.RecentSpreadResult.Spread;
+import com.github.sbouclier.result.RecentTradeResult;
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+import com.github.sbouclier.result.TickerInformationResult;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Demand-driven publishers of the polled public endpoints: a call is only made when a subscriber has requested more
+ * items than the previous call returned.
+ *
+ * <pre>
+ * PollingPublisher&lt;RecentTrade&gt; trades = KrakenPublishers.recentTrades(client, "XBTEUR", null, 2, TimeUnit.SECONDS);
+ * trades.subscribe(subscriber);
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public final class KrakenPublishers {
+
+	/**
+	 * Maximum number of trades returned by a {@code Trades} call, a full page meaning that more trades are available
+	 */
+	public static final int TRADES_PAGE_SIZE = 1000;
+
+	private KrakenPublishers() {
+	}
+
+	/**
+	 * Publisher of the trades of a pair, followed with the {@code since} cursor
+	 *
+	 * @param client       client
+	 * @param pair         asset pair
+	 * @param since        trade id to start after, as returned by {@link RecentTradeResult#getLastId()}, null for the
+	 *                     latest trades
+	 * @param pollInterval wait between polls once caught up
+	 * @param unit         time unit
+	 * @return publisher
+	 */
+	public static PollingPublisher<RecentTrade> recentTrades(KrakenAPIClient client, String pair, Long since, long pollInterval, TimeUnit unit) {
+		return new PollingPublisher<>(cursor -> {
+			final RecentTradeResult result = (cursor != null) ? client.getRecentTrades(pair, cursor.longValue()) : client.getRecentTrades(pair);
+			final List<RecentTrade> trades = items(result.getResult());
+			return PollingPublisher.Page.of(trades, result.getLastId(), trades.size() >= TRADES_PAGE_SIZE);
+		}, since, pollInterval, unit);
+	}
+
+	/**
+	 * Publisher of the spreads of a pair, followed with the {@code since} cursor
+	 *
+	 * @param client       client
+	 * @param pair         asset pair
+	 * @param since        spread id to start after, as returned by {@link RecentSpreadResult#getLastId()}, null for
+	 *                     the latest spreads
+	 * @param pollInterval wait between polls
+	 * @param unit         time unit
+	 * @return publisher
+	 */
+	public static PollingPublisher<Spread> recentSpreads(KrakenAPIClient client, String pair, Long since, long pollInterval, TimeUnit unit) {
+		return new PollingPublisher<>(cursor -> {
+			final RecentSpreadResult result = (cursor != null) ? client.getRecentSpreads(pair, Math.toIntExact(cursor)) : client.getRecentSpreads(pair);
+			return PollingPublisher.Page.of(items(result.getResult()), result.getLastId(), false);
+		}, since, pollInterval, unit);
+	}
+
+	/**
+	 * Publisher of the OHLC bars of a pair, followed with the {@code since} cursor. The last bar of each call is the
+	 * bar in progress, published again with its update by the next call.
+	 *
+	 * @param client       client
+	 * @param pair         asset pair
+	 * @param interval     interval of the bars
+	 * @param since        bar id to start after, as returned by {@link OHLCResult#getLastId()}, null for the latest
+	 *                     bars
+	 * @param pollInterval wait between polls
+	 * @param unit         time unit
+	 * @return publisher
+	 */
+	public static PollingPublisher<OHLC> ohlc(KrakenAPIClient client, String pair, Interval interval, Long since, long pollInterval, TimeUnit unit) {
+		return new PollingPublisher<>(cursor -> {
+			final OHLCResult result = (cursor != null) ? client.getOHLC(pair, interval, Math.toIntExact(cursor)) : client.getOHLC(pair, interval);
+			return PollingPublisher.Page.of(items(result.getResult()), result.getLastId(), false);
+		}, since, pollInterval, unit);
+	}
+
+	/**
+	 * Publisher of the tickers of pairs, one item per poll
+	 *
+	 * @param client       client
+	 * @param pairs        asset pairs
+	 * @param pollInterval wait between polls
+	 * @param unit         time unit
+	 * @return publisher
+	 */
+	public static PollingPublisher<TickerInformationResult> ticker(KrakenAPIClient client, List<String> pairs, long pollInterval, TimeUnit unit) {
+		return new PollingPublisher<>(cursor -> PollingPublisher.Page.of(Collections.singletonList(client.getTickerInformation(pairs)), null, false),
+				null, pollInterval, unit);
+	}
+
+	/**
+	 * Get items of the single pair of a result, keyed by the name of the pair on Kraken
+	 */
+	private static <T> List<T> items(Map<String, List<T>> result) {
+		if (result == null || result.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return result.values().iterator().next();
+	}
+}
@@ -0,0 +1,332 @@
+package com.github.sbouclier.flow;
+
+import com.github.sbouclier.KrakenApiException;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of the items of a polled endpoint, driven by the demand of its subscribers.
+ *
+ * Each subscriber gets its own cursor, starting from the initial one. The next page is only polled once the items of
+ * the previous one have all been delivered and the subscriber still has outstanding demand, so a slow subscriber holds
+ * at most one page in memory and no call is spent on data nobody consumes. A page announcing more data is followed by
+ * the next poll at once, otherwise the next poll waits for the poll interval. A failed poll ends the subscription with
+ * {@link Flow.Subscriber#onError} once the items already polled have been delivered.
+ *
+ * The polls, blocked on their calls, run on their own executor so that they never hold up the deliveries.
+ *
+ * @param <T> item type
+ * @author synapticloop
+ */
+public class PollingPublisher<T> implements Flow.Publisher<T> {
+
+	/**
+	 * Poll of one page from a cursor
+	 *
+	 * @param <T> item type
+	 */
+	@FunctionalInterface
+	public interface Poller<T> {
+
+		/**
+		 * Poll page
+		 *
+		 * @param cursor cursor of the previous page, the initial cursor for the first page
+		 * @return page
+		 * @throws KrakenApiException if the poll fails, ending the subscription
+		 */
+		Page<T> poll(Long cursor) throws KrakenApiException;
+	}
+
+	/**
+	 * Page of items
+	 *
+	 * @param <T> item type
+	 */
+	public static final class Page<T> {
+		private final List<T> items;
+		private final Long nextCursor;
+		private final boolean more;
+
+		private Page(List<T> items, Long nextCursor, boolean more) {
+			this.items = items;
+			this.nextCursor = nextCursor;
+			this.more = more;
+		}
+
+		/**
+		 * Create page
+		 *
+		 * @param items      items of the page, possibly none
+		 * @param nextCursor cursor of the next page, null to keep the current one
+		 * @param more       whether more items are available right away
+		 * @param <T>        item type
+		 * @return page
+		 */
+		public static <T> Page<T> of(List<T> items, Long nextCursor, boolean more) {
+			return new Page<>((items != null) ? items : Collections.emptyList(), nextCursor, more);
+		}
+
+		public List<T> getItems() {
+			return items;
+		}
+
+		public Long getNextCursor() {
+			return nextCursor;
+		}
+
+		public boolean hasMore() {
+			return more;
+		}
+	}
+
+	private final Poller<T> poller;
+	private final Long initialCursor;
+	private final long intervalNanos;
+	private final AtomicLong pollCount = new AtomicLong();
+
+	private Executor executor;
+	private ScheduledExecutorService pollExecutor;
+
+	// ----------------
+	// - CONSTRUCTORS -
+	// ----------------
+
+	/**
+	 * Create publisher
+	 *
+	 * @param poller        poll of a page
+	 * @param initialCursor cursor of the first page, null for the latest data
+	 * @param interval      wait between polls once caught up
+	 * @param unit          time unit
+	 */
+	public PollingPublisher(Poller<T> poller, Long initialCursor, long interval, TimeUnit unit) {
+		if (interval < 0) {
+			throw new IllegalArgumentException("poll interval can not be negative");
+		}
+		this.poller = poller;
+		this.initialCursor = initialCursor;
+		this.intervalNanos = unit.toNanos(interval);
+	}
+
+	/**
+	 * Set executor of the deliveries, a shared pool of daemon threads by default
+	 *
+	 * @param executor executor
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Set executor of the polls, waiting for the poll interval, a shared pool of daemon threads by default
+	 *
+	 * @param pollExecutor executor, with as many threads as the polls blocked on their calls at the same time
+	 */
+	public void setPollExecutor(ScheduledExecutorService pollExecutor) {
+		this.pollExecutor = pollExecutor;
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		Objects.requireNonNull(subscriber, "subscriber");
+		new PollingSubscription(subscriber,
+				(executor != null) ? executor : ExecutorHolder.EXECUTOR,
+				(pollExecutor != null) ? pollExecutor : ExecutorHolder.POLL_EXECUTOR).drain();
+	}
+
+	/**
+	 * Get number of pages polled for all the subscribers
+	 *
+	 * @return poll count
+	 */
+	public long getPollCount() {
+		return pollCount.get();
+	}
+
+	/**
+	 * Subscription of one subscriber. Signals are delivered by a drain loop running on one thread at a time.
+	 */
+	private final class PollingSubscription implements Flow.Subscription {
+		private final Executor executor;
+		private final ScheduledExecutorService pollExecutor;
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicInteger wip = new AtomicInteger();
+
+		private volatile boolean cancelled;
+		private volatile Throwable requestError;
+		private volatile Page<T> polled;
+		private volatile Throwable pollError;
+		private volatile ScheduledFuture<?> scheduledPoll;
+
+		// drain loop only, the subscriber being dropped once terminated
+		private Flow.Subscriber<? super T> subscriber;
+		private final ArrayDeque<T> buffer = new ArrayDeque<>();
+		private Long cursor = initialCursor;
+		private boolean subscribed;
+		private boolean terminated;
+		private boolean pollPending;
+		private long nextPollNanos = System.nanoTime();
+
+		private PollingSubscription(Flow.Subscriber<? super T> subscriber, Executor executor, ScheduledExecutorService pollExecutor) {
+			this.subscriber = subscriber;
+			this.executor = executor;
+			this.pollExecutor = pollExecutor;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				requestError = new IllegalArgumentException("non-positive request: " + n);
+			} else {
+				requested.accumulateAndGet(n, (current, added) -> (current + added < 0) ? Long.MAX_VALUE : current + added);
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			final ScheduledFuture<?> poll = scheduledPoll;
+			if (poll != null) {
+				poll.cancel(false);
+			}
+			drain();
+		}
+
+		private void drain() {
+			if (wip.getAndIncrement() == 0) {
+				executor.execute(this::drainLoop);
+			}
+		}
+
+		private void drainLoop() {
+			int missed = 1;
+			do {
+				if (!terminated) {
+					if (!subscribed) {
+						subscribed = true;
+						subscriber.onSubscribe(this);
+					}
+					deliver();
+				}
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void deliver() {
+			if (cancelled) {
+				terminate();
+				return;
+			}
+			if (requestError != null) {
+				terminate().onError(requestError);
+				return;
+			}
+
+			final Page<T> page = polled;
+			if (page != null) {
+				polled = null;
+				pollPending = false;
+				buffer.addAll(page.items);
+				if (page.nextCursor != null) {
+					cursor = page.nextCursor;
+				}
+				nextPollNanos = page.more ? System.nanoTime() : System.nanoTime() + intervalNanos;
+			}
+
+			final long demand = requested.get();
+			long emitted = 0;
+			while (emitted != demand && !buffer.isEmpty()) {
+				try {
+					subscriber.onNext(buffer.poll());
+				} catch (RuntimeException ex) {
+					// a subscriber must not throw, its subscription is cancelled
+					cancelled = true;
+					terminate();
+					return;
+				}
+				emitted++;
+				if (cancelled) {
+					terminate();
+					return;
+				}
+			}
+			if (emitted != 0 && demand != Long.MAX_VALUE) {
+				requested.addAndGet(-emitted);
+			}
+
+			if (!buffer.isEmpty()) {
+				return;
+			}
+			if (pollError != null) {
+				terminate().onError(pollError);
+			} else if (!pollPending && requested.get() > 0) {
+				pollPending = true;
+				schedulePoll(cursor, Math.max(0, nextPollNanos - System.nanoTime()));
+			}
+		}
+
+		private void schedulePoll(Long from, long delayNanos) {
+			scheduledPoll = pollExecutor.schedule(() -> {
+				if (cancelled) {
+					return;
+				}
+				try {
+					polled = Objects.requireNonNull(poller.poll(from), "page");
+					pollCount.incrementAndGet();
+				} catch (KrakenApiException | RuntimeException ex) {
+					pollError = ex;
+				}
+				drain();
+			}, delayNanos, TimeUnit.NANOSECONDS);
+		}
+
+		/**
+		 * Terminate subscription, dropping its subscriber
+		 *
+		 * @return subscriber, to be signalled the error ending the subscription if any
+		 */
+		private Flow.Subscriber<? super T> terminate() {
+			final Flow.Subscriber<? super T> terminatedSubscriber = subscriber;
+			terminated = true;
+			subscriber = null;
+			buffer.clear();
+			final ScheduledFuture<?> poll = scheduledPoll;
+			if (poll != null) {
+				poll.cancel(false);
+			}
+			return terminatedSubscriber;
+		}
+	}
+
+	/**
+	 * Default executors of the deliveries and of the polls, created on first use
+	 */
+	private static class ExecutorHolder {
+		private static final Executor EXECUTOR = Executors.newFixedThreadPool(4, runnable -> {
+			Thread thread = new Thread(runnable, "kraken-polling-publisher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		private static final ScheduledExecutorService POLL_EXECUTOR = Executors.newScheduledThreadPool(4, runnable -> {
+			Thread thread = new Thread(runnable, "kraken-polling-publisher-poll");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+}
@@ -0,0 +1,527 @@
+package com.github.sbouclier.history;
+
+import com.github.sbouclier.result.RecentSpreadResult.Spread;
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Streaming reader of block stores written by {@link BlockStoreWriter}.
+ *
+ * Rows are decoded one at a time straight from the encoded columns of the current block, without building row
+ * objects, and {@link #seek(long)} finds the block of a time through the index.
+ *
+ * <pre>
+ * try (BlockStoreReader reader = new BlockStoreReader(file)) {
+ *     reader.seek(fromNanos);
+ *     while (reader.next() &amp;&amp; reader.getTimeNanos() &lt; toNanos) {
+ *         long price = reader.getUnscaledPrice();
+ *     }
+ * }
+ * </pre>
+ *
+ * Not thread-safe.
+ *
+ * @author synapticloop
+ */
+public class BlockStoreReader implements Closeable {
+
+	private static final int TIME = 0;
+	private static final long[] POWERS_OF_TEN = new long[BlockStoreWriter.MAX_EXPONENT + 1];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final FileChannel channel;
+	private final TapeKind kind;
+	private final String pair;
+	private final boolean deflated;
+	private final Inflater inflater;
+
+	private final long[] blockOffsets;
+	private final long[] blockFirstTimes;
+	private final long[] blockLastTimes;
+	private final int[] blockRows;
+	private final long indexOffset;
+
+	private byte[] raw = new byte[0];
+	private byte[] body = new byte[0];
+
+	private int block = -1;
+	private int rows;
+	private int row;
+	private boolean pending;
+
+	// column positions in the body: time, decimals, flags, miscellaneous
+	private final int[] positions;
+	private final int[] storedLengths;
+	private final int[] blockScales;
+	private final long[] units;
+	private long timeUnit;
+	private int flagsStart;
+	private int miscellaneousCursor;
+	private int miscellaneousEnd;
+	private int nextMiscellaneousRow;
+
+	private long time;
+	private final long[] values;
+	private int rowFlags;
+	private String miscellaneous;
+
+	/**
+	 * Open store
+	 *
+	 * @param file store file
+	 * @throws IOException if the file can not be read or is not a block store
+	 */
+	public BlockStoreReader(Path file) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			final long size = channel.size();
+			final ByteBuffer trailer = read(size - 12, 12);
+			final long index = trailer.getLong();
+			final byte[] magic = new byte[4];
+			trailer.get(magic);
+
+			final ByteBuffer head = read(0, (int) Math.min(size, 512));
+			final byte[] headMagic = new byte[4];
+			head.get(headMagic);
+			if (!Arrays.equals(magic, BlockStoreWriter.MAGIC) || !Arrays.equals(headMagic, BlockStoreWriter.MAGIC)) {
+				throw new IOException("not a block store");
+			}
+
+			final DataInputStream header = new DataInputStream(new ByteArrayInputStream(head.array(), 4, head.limit() - 4));
+			this.kind = TapeKind.values()[header.readUnsignedByte()];
+			this.deflated = (header.readUnsignedByte() & BlockStoreWriter.DEFLATED) != 0;
+			this.pair = header.readUTF();
+			this.inflater = deflated ? new Inflater() : null;
+
+			final ByteBuffer entries = read(index, (int) (size - 12 - index));
+			final int count = entries.getInt();
+			this.blockOffsets = new long[count];
+			this.blockFirstTimes = new long[count];
+			this.blockLastTimes = new long[count];
+			this.blockRows = new int[count];
+			for (int i = 0; i < count; i++) {
+				blockOffsets[i] = entries.getLong();
+				blockFirstTimes[i] = entries.getLong();
+				blockLastTimes[i] = entries.getLong();
+				blockRows[i] = entries.getInt();
+			}
+			this.indexOffset = index;
+		} catch (IOException | RuntimeException ex) {
+			channel.close();
+			throw (ex instanceof IOException) ? (IOException) ex : new IOException("not a block store", ex);
+		}
+
+		this.positions = new int[kind.getDecimalColumns() + 2];
+		this.storedLengths = new int[positions.length + 1];
+		this.blockScales = new int[kind.getDecimalColumns()];
+		this.units = new long[kind.getDecimalColumns()];
+		this.values = new long[kind.getDecimalColumns()];
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	public TapeKind getKind() {
+		return kind;
+	}
+
+	public String getPair() {
+		return pair;
+	}
+
+	public int getBlockCount() {
+		return blockOffsets.length;
+	}
+
+	/**
+	 * Get number of rows of the store
+	 *
+	 * @return row count
+	 */
+	public long getRowCount() {
+		long count = 0;
+		for (int rowCount : blockRows) {
+			count += rowCount;
+		}
+		return count;
+	}
+
+	/**
+	 * Get time of the first row
+	 *
+	 * @return time in nanoseconds, {@link Long#MIN_VALUE} if empty
+	 */
+	public long getFirstTimeNanos() {
+		return (blockOffsets.length > 0) ? blockFirstTimes[0] : Long.MIN_VALUE;
+	}
+
+	/**
+	 * Get time of the last row
+	 *
+	 * @return time in nanoseconds, {@link Long#MIN_VALUE} if empty
+	 */
+	public long getLastTimeNanos() {
+		return (blockOffsets.length > 0) ? blockLastTimes[blockOffsets.length - 1] : Long.MIN_VALUE;
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Move to the next row
+	 *
+	 * @return true if a row was read, false at the end of the store
+	 * @throws IOException if the read fails
+	 */
+	public boolean next() throws IOException {
+		if (pending) {
+			pending = false;
+			return true;
+		}
+		while (row == rows) {
+			if (block + 1 >= blockOffsets.length) {
+				return false;
+			}
+			load(block + 1);
+		}
+		decode();
+		return true;
+	}
+
+	/**
+	 * Position the reader so that the next row read is the first one at or after a time
+	 *
+	 * @param timeNanos time in nanoseconds since the epoch
+	 * @throws IOException if the read fails
+	 */
+	public void seek(long timeNanos) throws IOException {
+		pending = false;
+
+		// first block ending at or after the time
+		int low = 0;
+		int high = blockOffsets.length;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (blockLastTimes[middle] < timeNanos) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		if (low == blockOffsets.length) {
+			block = blockOffsets.length - 1;
+			rows = 0;
+			row = 0;
+			return;
+		}
+
+		load(low);
+		while (row < rows) {
+			decode();
+			if (time >= timeNanos) {
+				pending = true;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Get time of the current row
+	 *
+	 * @return time in nanoseconds since the epoch
+	 */
+	public long getTimeNanos() {
+		return time;
+	}
+
+	/**
+	 * Get fixed-point value of a decimal column of the current row, at the scale of the block
+	 *
+	 * @param column column: price and volume of trades, bid and ask of spreads
+	 * @return unscaled value
+	 */
+	public long getUnscaled(int column) {
+		return values[column];
+	}
+
+	/**
+	 * Get scale of a decimal column in the current block
+	 *
+	 * @param column column: price and volume of trades, bid and ask of spreads
+	 * @return scale
+	 */
+	public int getScale(int column) {
+		return blockScales[column];
+	}
+
+	public BigDecimal getDecimal(int column) {
+		return BigDecimal.valueOf(values[column], blockScales[column]);
+	}
+
+	public long getUnscaledPrice() {
+		return values[0];
+	}
+
+	public BigDecimal getPrice() {
+		return getDecimal(0);
+	}
+
+	public BigDecimal getVolume() {
+		return getDecimal(1);
+	}
+
+	public BigDecimal getBid() {
+		return getDecimal(0);
+	}
+
+	public BigDecimal getAsk() {
+		return getDecimal(1);
+	}
+
+	public boolean isSell() {
+		return (rowFlags & 1) != 0;
+	}
+
+	public boolean isMarket() {
+		return (rowFlags & 2) != 0;
+	}
+
+	/**
+	 * Get miscellaneous info
+	 *
+	 * @return miscellaneous info, empty if none
+	 */
+	public String getMiscellaneous() {
+		return (miscellaneous != null) ? miscellaneous : "";
+	}
+
+	/**
+	 * Get current row as a trade
+	 *
+	 * @return new trade
+	 */
+	public RecentTrade toRecentTrade() {
+		RecentTrade trade = new RecentTrade();
+		trade.price = getPrice();
+		trade.volume = getVolume();
+		trade.time = BigDecimal.valueOf(time, 9).stripTrailingZeros();
+		trade.buySell = isSell() ? "s" : "b";
+		trade.marketLimit = isMarket() ? "m" : "l";
+		trade.miscellaneous = getMiscellaneous();
+		return trade;
+	}
+
+	/**
+	 * Get current row as a spread
+	 *
+	 * @return new spread
+	 */
+	public Spread toSpread() {
+		return new Spread((int) (time / 1_000_000_000L), getBid(), getAsk());
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (inflater != null) {
+			inflater.end();
+		}
+		channel.close();
+	}
+
+	private void load(int index) throws IOException {
+		final long end = (index + 1 < blockOffsets.length) ? blockOffsets[index + 1] : indexOffset;
+		final int length = (int) (end - blockOffsets[index]);
+		if (raw.length < length) {
+			raw = new byte[length];
+		}
+		final ByteBuffer buffer = ByteBuffer.wrap(raw, 0, length);
+		long at = blockOffsets[index];
+		while (buffer.hasRemaining()) {
+			final int n = channel.read(buffer, at);
+			if (n < 0) {
+				throw new EOFException();
+			}
+			at += n;
+		}
+
+		// block header
+		final int[] cursor = {0};
+		rows = (int) readUnsigned(raw, cursor);
+		timeUnit = POWERS_OF_TEN[(int) readUnsigned(raw, cursor)];
+		for (int i = 0; i < blockScales.length; i++) {
+			blockScales[i] = (int) readUnsigned(raw, cursor);
+			units[i] = POWERS_OF_TEN[(int) readUnsigned(raw, cursor)];
+		}
+		int start = 0;
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = start;
+			start += (int) readUnsigned(raw, cursor);
+		}
+		flagsStart = positions[positions.length - 1];
+		final int bodyLength = (int) readUnsigned(raw, cursor);
+		final int miscellaneousStart = start;
+		miscellaneousEnd = bodyLength;
+
+		if (deflated) {
+			if (body.length < bodyLength) {
+				body = new byte[bodyLength];
+			}
+			for (int i = 0; i < storedLengths.length; i++) {
+				storedLengths[i] = (int) readUnsigned(raw, cursor);
+			}
+			int stored = cursor[0];
+			for (int i = 0; i < storedLengths.length; i++) {
+				final int from = (i < positions.length) ? positions[i] : miscellaneousStart;
+				final int to = (i + 1 < positions.length) ? positions[i + 1] : (i + 1 == positions.length) ? miscellaneousStart : bodyLength;
+				inflate(index, stored, storedLengths[i], from, to - from);
+				stored += storedLengths[i];
+			}
+		} else {
+			// read columns straight from the raw block
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] += cursor[0];
+			}
+			flagsStart += cursor[0];
+			miscellaneousEnd += cursor[0];
+			body = raw;
+		}
+
+		// sparse miscellaneous column, after the flags
+		miscellaneousCursor = deflated ? miscellaneousStart : miscellaneousStart + cursor[0];
+		nextMiscellaneousRow = nextMiscellaneousRow(-1);
+
+		block = index;
+		row = 0;
+		time = 0;
+		Arrays.fill(values, 0);
+	}
+
+	/**
+	 * Inflate column of a block from the raw block into the body
+	 */
+	private void inflate(int index, int offset, int length, int at, int size) throws IOException {
+		if (size == 0) {
+			return;
+		}
+		inflater.reset();
+		inflater.setInput(raw, offset, length);
+		try {
+			int inflated = 0;
+			while (inflated < size) {
+				final int n = inflater.inflate(body, at + inflated, size - inflated);
+				if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+					throw new IOException("block " + index + " is truncated");
+				}
+				inflated += n;
+			}
+		} catch (DataFormatException ex) {
+			throw new IOException("block " + index + " is corrupted", ex);
+		}
+	}
+
+	private int nextMiscellaneousRow(int previousRow) {
+		if (!kind.hasMiscellaneous() || miscellaneousCursor >= miscellaneousEnd) {
+			return -1;
+		}
+		final int[] cursor = {miscellaneousCursor};
+		final int nextRow = previousRow + (int) readUnsigned(body, cursor);
+		miscellaneousCursor = cursor[0];
+		return nextRow;
+	}
+
+	private void decode() {
+		final byte[] bytes = body;
+
+		time += readColumn(bytes, TIME) * timeUnit;
+		for (int column = 0; column < values.length; column++) {
+			if (kind.isDelta(column)) {
+				values[column] += unzigzag(readColumn(bytes, 1 + column)) * units[column];
+			} else {
+				final long value = readColumn(bytes, 1 + column);
+				values[column] = (value >>> 4) * POWERS_OF_TEN[(int) (value & 0xF)];
+			}
+		}
+
+		final int flagBits = kind.getFlagBits();
+		if (flagBits > 0) {
+			final int bit = row * flagBits;
+			rowFlags = (bytes[flagsStart + (bit >>> 3)] >>> (bit & 7)) & ((1 << flagBits) - 1);
+		}
+
+		miscellaneous = null;
+		if (row == nextMiscellaneousRow) {
+			final int[] cursor = {miscellaneousCursor};
+			final int length = (int) readUnsigned(bytes, cursor);
+			miscellaneous = new String(bytes, cursor[0], length, StandardCharsets.UTF_8);
+			miscellaneousCursor = cursor[0] + length;
+			nextMiscellaneousRow = nextMiscellaneousRow(row);
+		}
+
+		row++;
+	}
+
+	private long readColumn(byte[] bytes, int column) {
+		int position = positions[column];
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = bytes[position++];
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		positions[column] = position;
+		return value;
+	}
+
+	private static long readUnsigned(byte[] bytes, int[] cursor) {
+		int position = cursor[0];
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = bytes[position++];
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		cursor[0] = position;
+		return value;
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException();
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+}
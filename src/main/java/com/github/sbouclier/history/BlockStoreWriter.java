@@ -0,0 +1,463 @@
+package com.github.sbouclier.history;
+
+import com.github.sbouclier.result.RecentSpreadResult.Spread;
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+import com.github.sbouclier.utils.VarIntUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writer of block stores, a compressed columnar format of the trades or spreads of a pair.
+ *
+ * Rows are grouped in blocks of up to {@value #DEFAULT_BLOCK_ROWS} rows. Within a block each column is stored apart:
+ * <ul>
+ * <li>times in nanoseconds as variable length deltas, the first one absolute</li>
+ * <li>decimals as fixed-point values at the largest scale of the block, prices as signed variable length deltas and
+ * volumes as variable length values without their trailing zeros, followed by the number of zeros</li>
+ * <li>side and type flags bit-packed, 2 bits per trade</li>
+ * <li>miscellaneous info sparsely, as row delta, length and UTF-8 bytes of the rows having some</li>
+ * </ul>
+ * Times and price deltas are counted in units of the largest power of ten dividing all values of their block, e.g.
+ * 100 microseconds for trade times. The columns of a block can be deflated, each one apart. An index of the blocks,
+ * with their first and last times, follows the blocks so that readers can seek a time without scanning the store.
+ *
+ * Rows must be written in time order. Not thread-safe.
+ *
+ * @author synapticloop
+ */
+public class BlockStoreWriter implements Closeable {
+
+	public static final int DEFAULT_BLOCK_ROWS = 4096;
+
+	static final byte[] MAGIC = {'K', 'B', 'S', '1'};
+	static final int DEFLATED = 0x01;
+	static final int MAX_EXPONENT = 18;
+
+	private final FileChannel channel;
+	private final DataOutputStream out;
+	private final TapeKind kind;
+	private final boolean deflate;
+	private long position;
+
+	private final long[] times;
+	private final long[][] values;
+	private final int[][] scales;
+	private final int[] flags;
+	private final String[] miscellaneous;
+	private int rows;
+	private long lastTime = Long.MIN_VALUE;
+	private long rowCount;
+
+	private final ByteArrayOutputStream header = new ByteArrayOutputStream();
+	private final ByteArrayOutputStream[] columns;
+	private final Deflater deflater;
+	private byte[] deflated = new byte[0];
+
+	private long[] blockOffsets = new long[64];
+	private long[] blockFirstTimes = new long[64];
+	private long[] blockLastTimes = new long[64];
+	private int[] blockRows = new int[64];
+	private int blocks;
+
+	private BlockStoreWriter(FileChannel channel, TapeKind kind, int blockSize, boolean deflate) {
+		this.channel = channel;
+		this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+		this.kind = kind;
+		this.deflate = deflate;
+		this.deflater = deflate ? new Deflater(Deflater.BEST_SPEED) : null;
+
+		this.times = new long[blockSize];
+		this.values = new long[kind.getDecimalColumns()][blockSize];
+		this.scales = new int[kind.getDecimalColumns()][blockSize];
+		this.flags = new int[blockSize];
+		this.miscellaneous = new String[blockSize];
+
+		// time, decimals, flags, miscellaneous
+		this.columns = new ByteArrayOutputStream[kind.getDecimalColumns() + 3];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = new ByteArrayOutputStream(blockSize * 4);
+		}
+	}
+
+	/**
+	 * Create store with default blocks, replacing any existing file
+	 *
+	 * @param file store file
+	 * @param kind kind of rows
+	 * @param pair asset pair
+	 * @return writer
+	 * @throws IOException if the file can not be created
+	 */
+	public static BlockStoreWriter create(Path file, TapeKind kind, String pair) throws IOException {
+		return create(file, kind, pair, DEFAULT_BLOCK_ROWS, true);
+	}
+
+	/**
+	 * Create store, replacing any existing file
+	 *
+	 * @param file      store file
+	 * @param kind      kind of rows
+	 * @param pair      asset pair
+	 * @param blockRows maximum number of rows per block
+	 * @param deflate   true to deflate the blocks, smaller but slower to read
+	 * @return writer
+	 * @throws IOException if the file can not be created
+	 */
+	public static BlockStoreWriter create(Path file, TapeKind kind, String pair, int blockRows, boolean deflate) throws IOException {
+		BlockStoreWriter writer = new BlockStoreWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), kind, blockRows, deflate);
+		writer.out.write(MAGIC);
+		writer.out.writeByte(kind.ordinal());
+		writer.out.writeByte(deflate ? DEFLATED : 0);
+		writer.out.writeUTF(pair);
+		writer.position = writer.out.size();
+		return writer;
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Write trade
+	 *
+	 * @param trade trade
+	 * @throws IOException if the write fails
+	 */
+	public void write(RecentTrade trade) throws IOException {
+		writeTrade(TradeLogWriter.toNanos(trade.time), trade.price, trade.volume, "s".equals(trade.buySell), "m".equals(trade.marketLimit), trade.miscellaneous);
+	}
+
+	/**
+	 * Write trade
+	 *
+	 * @param timeNanos     time in nanoseconds since the epoch
+	 * @param price         price
+	 * @param volume        volume
+	 * @param sell          true for a sell, false for a buy
+	 * @param market        true for a market order, false for a limit order
+	 * @param miscellaneous miscellaneous info, may be null
+	 * @throws IOException if the write fails
+	 */
+	public void writeTrade(long timeNanos, BigDecimal price, BigDecimal volume, boolean sell, boolean market, String miscellaneous) throws IOException {
+		checkKind(TapeKind.TRADES);
+		add(timeNanos, price, volume, (sell ? 1 : 0) | (market ? 2 : 0), miscellaneous);
+	}
+
+	/**
+	 * Write spread
+	 *
+	 * @param spread spread
+	 * @throws IOException if the write fails
+	 */
+	public void write(Spread spread) throws IOException {
+		writeSpread(spread.time * 1_000_000_000L, spread.bid, spread.ask);
+	}
+
+	/**
+	 * Write spread
+	 *
+	 * @param timeNanos time in nanoseconds since the epoch
+	 * @param bid       best bid
+	 * @param ask       best ask
+	 * @throws IOException if the write fails
+	 */
+	public void writeSpread(long timeNanos, BigDecimal bid, BigDecimal ask) throws IOException {
+		checkKind(TapeKind.SPREADS);
+		add(timeNanos, bid, ask, 0, null);
+	}
+
+	/**
+	 * Write all trades of a trade log
+	 *
+	 * @param reader trade log
+	 * @throws IOException if the log can not be read or the store written
+	 */
+	public void writeAll(TradeLogReader reader) throws IOException {
+		while (reader.next()) {
+			writeTrade(reader.getTimeNanos(), reader.getPrice(), reader.getVolume(), reader.isSell(), reader.isMarket(), reader.getMiscellaneous());
+		}
+	}
+
+	/**
+	 * Get number of rows written
+	 *
+	 * @return row count
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	private void checkKind(TapeKind expected) {
+		if (kind != expected) {
+			throw new IllegalStateException("store of " + kind + " can not hold " + expected);
+		}
+	}
+
+	private void add(long timeNanos, BigDecimal first, BigDecimal second, int rowFlags, String rowMiscellaneous) throws IOException {
+		if (timeNanos < lastTime) {
+			throw new IllegalArgumentException("rows must be written in time order");
+		}
+		lastTime = timeNanos;
+
+		times[rows] = timeNanos;
+		values[0][rows] = first.unscaledValue().longValueExact();
+		scales[0][rows] = first.scale();
+		values[1][rows] = second.unscaledValue().longValueExact();
+		scales[1][rows] = second.scale();
+		flags[rows] = rowFlags;
+		miscellaneous[rows] = (rowMiscellaneous != null && !rowMiscellaneous.isEmpty()) ? rowMiscellaneous : null;
+		rows++;
+		rowCount++;
+
+		if (rows == times.length) {
+			flushBlock();
+		}
+	}
+
+	private void flushBlock() throws IOException {
+		if (rows == 0) {
+			return;
+		}
+		for (ByteArrayOutputStream column : columns) {
+			column.reset();
+		}
+		header.reset();
+
+		// decimals at the largest scale of the block
+		final int[] blockScales = new int[kind.getDecimalColumns()];
+		for (int column = 0; column < blockScales.length; column++) {
+			int scale = 0;
+			for (int row = 0; row < rows; row++) {
+				scale = Math.max(scale, scales[column][row]);
+			}
+			blockScales[column] = scale;
+			for (int row = 0; row < rows; row++) {
+				for (int s = scales[column][row]; s < scale; s++) {
+					values[column][row] = Math.multiplyExact(values[column][row], 10);
+				}
+			}
+		}
+
+		// times and delta columns in units of the largest power of ten dividing all their values
+		final int timeExponent = commonExponent(times);
+		writeDeltas(columns[0], times, timeExponent, false);
+
+		final int[] exponents = new int[kind.getDecimalColumns()];
+		for (int column = 0; column < exponents.length; column++) {
+			if (kind.isDelta(column)) {
+				exponents[column] = commonExponent(values[column]);
+				writeDeltas(columns[1 + column], values[column], exponents[column], true);
+			} else {
+				for (int row = 0; row < rows; row++) {
+					// trailing zeros of round volumes as a 4 bit exponent
+					long value = values[column][row];
+					int zeros = 0;
+					while (zeros < 15 && value != 0 && value % 10 == 0) {
+						value /= 10;
+						zeros++;
+					}
+					VarIntUtils.writeUnsigned(columns[1 + column], (value << 4) | zeros);
+				}
+			}
+		}
+
+		// flags
+		final int flagBits = kind.getFlagBits();
+		if (flagBits > 0) {
+			final ByteArrayOutputStream column = columns[columns.length - 2];
+			int packed = 0;
+			int bits = 0;
+			for (int row = 0; row < rows; row++) {
+				packed |= flags[row] << bits;
+				bits += flagBits;
+				if (bits == 8) {
+					column.write(packed);
+					packed = 0;
+					bits = 0;
+				}
+			}
+			if (bits > 0) {
+				column.write(packed);
+			}
+		}
+
+		// miscellaneous
+		if (kind.hasMiscellaneous()) {
+			final ByteArrayOutputStream column = columns[columns.length - 1];
+			int previousRow = -1;
+			for (int row = 0; row < rows; row++) {
+				if (miscellaneous[row] != null) {
+					final byte[] bytes = miscellaneous[row].getBytes(StandardCharsets.UTF_8);
+					VarIntUtils.writeUnsigned(column, row - previousRow);
+					VarIntUtils.writeUnsigned(column, bytes.length);
+					column.write(bytes);
+					previousRow = row;
+				}
+			}
+		}
+
+		int bodyLength = 0;
+		for (ByteArrayOutputStream column : columns) {
+			bodyLength += column.size();
+		}
+
+		VarIntUtils.writeUnsigned(header, rows);
+		VarIntUtils.writeUnsigned(header, timeExponent);
+		for (int column = 0; column < blockScales.length; column++) {
+			VarIntUtils.writeUnsigned(header, blockScales[column]);
+			VarIntUtils.writeUnsigned(header, exponents[column]);
+		}
+		for (int i = 0; i < columns.length - 1; i++) {
+			VarIntUtils.writeUnsigned(header, columns[i].size());
+		}
+		VarIntUtils.writeUnsigned(header, bodyLength);
+
+		final long offset = position;
+		if (deflate) {
+			// each column deflated apart, with the Huffman codes of its own values
+			if (deflated.length < bodyLength + 64 * columns.length) {
+				deflated = new byte[bodyLength + 64 * columns.length];
+			}
+			int deflatedLength = 0;
+			for (ByteArrayOutputStream column : columns) {
+				final int columnStart = deflatedLength;
+				deflatedLength = deflate(column, deflatedLength);
+				VarIntUtils.writeUnsigned(header, deflatedLength - columnStart);
+			}
+			header.writeTo(out);
+			out.write(deflated, 0, deflatedLength);
+			position += header.size() + deflatedLength;
+		} else {
+			header.writeTo(out);
+			for (ByteArrayOutputStream column : columns) {
+				column.writeTo(out);
+			}
+			position += header.size() + bodyLength;
+		}
+
+		index(offset, times[0], times[rows - 1], rows);
+		Arrays.fill(miscellaneous, 0, rows, null);
+		rows = 0;
+	}
+
+	/**
+	 * Deflate column into the deflated buffer, an empty column taking no bytes
+	 *
+	 * @return end of the deflated column in the buffer
+	 */
+	private int deflate(ByteArrayOutputStream column, int offset) {
+		if (column.size() == 0) {
+			return offset;
+		}
+		deflater.reset();
+		deflater.setInput(column.toByteArray());
+		deflater.finish();
+		while (!deflater.finished()) {
+			if (offset == deflated.length) {
+				deflated = Arrays.copyOf(deflated, deflated.length * 2);
+			}
+			offset += deflater.deflate(deflated, offset, deflated.length - offset);
+		}
+		return offset;
+	}
+
+	/**
+	 * Get exponent of the largest power of ten dividing all values of a block column
+	 */
+	private int commonExponent(long[] column) {
+		int exponent = MAX_EXPONENT;
+		for (int row = 0; row < rows && exponent > 0; row++) {
+			long value = column[row];
+			if (value == 0) {
+				continue;
+			}
+			int zeros = 0;
+			while (zeros < exponent && value % 10 == 0) {
+				value /= 10;
+				zeros++;
+			}
+			exponent = zeros;
+		}
+		return (exponent == MAX_EXPONENT) ? 0 : exponent;
+	}
+
+	/**
+	 * Write deltas of a block column as variable length values, signed unless the column never decreases
+	 */
+	private void writeDeltas(ByteArrayOutputStream out, long[] column, int exponent, boolean signed) {
+		long unit = 1;
+		for (int i = 0; i < exponent; i++) {
+			unit *= 10;
+		}
+		long previous = 0;
+		for (int row = 0; row < rows; row++) {
+			final long value = column[row] / unit;
+			try {
+				if (signed) {
+					VarIntUtils.writeSigned(out, value - previous);
+				} else {
+					VarIntUtils.writeUnsigned(out, value - previous);
+				}
+			} catch (IOException ex) {
+				// not thrown by byte array streams
+				throw new IllegalStateException(ex);
+			}
+			previous = value;
+		}
+	}
+
+	private void index(long offset, long firstTime, long lastTime, int count) {
+		if (blocks == blockOffsets.length) {
+			blockOffsets = Arrays.copyOf(blockOffsets, blocks * 2);
+			blockFirstTimes = Arrays.copyOf(blockFirstTimes, blocks * 2);
+			blockLastTimes = Arrays.copyOf(blockLastTimes, blocks * 2);
+			blockRows = Arrays.copyOf(blockRows, blocks * 2);
+		}
+		blockOffsets[blocks] = offset;
+		blockFirstTimes[blocks] = firstTime;
+		blockLastTimes[blocks] = lastTime;
+		blockRows[blocks] = count;
+		blocks++;
+	}
+
+	/**
+	 * Write the last block and the index
+	 *
+	 * @throws IOException if the write fails
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flushBlock();
+
+			final long indexOffset = position;
+			out.writeInt(blocks);
+			for (int i = 0; i < blocks; i++) {
+				out.writeLong(blockOffsets[i]);
+				out.writeLong(blockFirstTimes[i]);
+				out.writeLong(blockLastTimes[i]);
+				out.writeInt(blockRows[i]);
+			}
+			out.writeLong(indexOffset);
+			out.write(MAGIC);
+			out.flush();
+		} finally {
+			if (deflater != null) {
+				deflater.end();
+			}
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,373 @@
+package com.github.sbouclier.history;
+
+import com.github.sbouclier.result.OrderBookResult.Market;
+import com.github.sbouclier.result.OrderBookResult.OrderBook;
+import com.github.sbouclier.utils.CountingInputStream;
+import com.github.sbouclier.utils.VarIntUtils;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reader of order book journals written by {@link BookJournalWriter}.
+ *
+ * Snapshots are read in order with {@link #next()}, or the book at any time is rebuilt with {@link #bookAt(long)}
+ * from the last keyframe before it. Keyframes are indexed when the journal is opened, by scanning the record headers.
+ * A record cut short at the end of the journal, e.g. by a crash while writing it, is treated as the end of the
+ * journal. Not thread-safe.
+ *
+ * @author synapticloop
+ */
+public class BookJournalReader implements Closeable {
+
+	private final FileChannel channel;
+	private final String pair;
+	private final long dataOffset;
+
+	private final long[] keyframeOffsets;
+	private final long[] keyframeTimes;
+	private final long count;
+	private final long firstTime;
+	private final long lastTime;
+
+	private DataInputStream in;
+	private long time;
+	private int pendingType = -1;
+	private long pendingTime;
+	private final TreeMap<Long, long[]> asks = new TreeMap<>();
+	private final TreeMap<Long, long[]> bids = new TreeMap<>(Comparator.reverseOrder());
+	private int priceScale;
+	private int volumeScale;
+	private boolean positioned;
+
+	/**
+	 * Open journal
+	 *
+	 * @param file journal file
+	 * @throws IOException if the file can not be read or is not a journal
+	 */
+	public BookJournalReader(Path file) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+
+		final List<long[]> keyframes = new ArrayList<>();
+		long records = 0;
+		long first = Long.MIN_VALUE;
+		long recordTime = 0;
+		try {
+			final CountingInputStream counting = new CountingInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+			final DataInputStream scan = new DataInputStream(counting);
+			final byte[] magic = new byte[BookJournalWriter.MAGIC.length];
+			scan.readFully(magic);
+			if (!Arrays.equals(magic, BookJournalWriter.MAGIC)) {
+				throw new IOException("not an order book journal");
+			}
+			this.pair = scan.readUTF();
+			this.dataOffset = counting.getCount();
+
+			while (true) {
+				final long offset = counting.getCount();
+				final int type = scan.read();
+				if (type < 0) {
+					break;
+				}
+				final long nextTime;
+				final long length;
+				try {
+					nextTime = recordTime + VarIntUtils.readSigned(scan);
+					length = VarIntUtils.readUnsigned(scan);
+					skipFully(scan, length);
+				} catch (EOFException ex) {
+					// record cut short
+					break;
+				}
+				recordTime = nextTime;
+				if (type == BookJournalWriter.KEYFRAME) {
+					keyframes.add(new long[]{offset, recordTime});
+				}
+				if (records == 0) {
+					first = recordTime;
+				}
+				records++;
+			}
+		} catch (IOException ex) {
+			channel.close();
+			throw ex;
+		}
+
+		this.keyframeOffsets = new long[keyframes.size()];
+		this.keyframeTimes = new long[keyframes.size()];
+		for (int i = 0; i < keyframes.size(); i++) {
+			keyframeOffsets[i] = keyframes.get(i)[0];
+			keyframeTimes[i] = keyframes.get(i)[1];
+		}
+		this.count = records;
+		this.firstTime = first;
+		this.lastTime = (records > 0) ? recordTime : Long.MIN_VALUE;
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	public String getPair() {
+		return pair;
+	}
+
+	/**
+	 * Get number of snapshots of the journal
+	 *
+	 * @return snapshot count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	public int getKeyframeCount() {
+		return keyframeOffsets.length;
+	}
+
+	/**
+	 * Get time of the first snapshot
+	 *
+	 * @return time in nanoseconds, {@link Long#MIN_VALUE} if empty
+	 */
+	public long getFirstTimeNanos() {
+		return firstTime;
+	}
+
+	/**
+	 * Get time of the last snapshot
+	 *
+	 * @return time in nanoseconds, {@link Long#MIN_VALUE} if empty
+	 */
+	public long getLastTimeNanos() {
+		return lastTime;
+	}
+
+	/**
+	 * Get time of the current snapshot
+	 *
+	 * @return time in nanoseconds since the epoch
+	 */
+	public long getTimeNanos() {
+		return time;
+	}
+
+	/**
+	 * Get current book
+	 *
+	 * @return new order book, asks ascending and bids descending
+	 */
+	public OrderBook getBook() {
+		OrderBook book = new OrderBook();
+		book.asks = toMarkets(asks);
+		book.bids = toMarkets(bids);
+		return book;
+	}
+
+	/**
+	 * Get best ask price of the current book, at the price scale
+	 *
+	 * @return unscaled price, {@link Long#MAX_VALUE} if no ask
+	 */
+	public long getUnscaledBestAsk() {
+		return asks.isEmpty() ? Long.MAX_VALUE : asks.firstKey();
+	}
+
+	/**
+	 * Get best bid price of the current book, at the price scale
+	 *
+	 * @return unscaled price, {@link Long#MIN_VALUE} if no bid
+	 */
+	public long getUnscaledBestBid() {
+		return bids.isEmpty() ? Long.MIN_VALUE : bids.firstKey();
+	}
+
+	public int getPriceScale() {
+		return priceScale;
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Move to the next snapshot
+	 *
+	 * @return true if a snapshot was read, false at the end of the journal
+	 * @throws IOException if the read fails
+	 */
+	public boolean next() throws IOException {
+		if (!positioned) {
+			position(dataOffset, 0);
+		}
+		if (pendingType < 0 && !readHeader()) {
+			return false;
+		}
+		return readRecord();
+	}
+
+	/**
+	 * Rebuild the book at a time, from the last keyframe at or before it. Reading goes on with the next snapshot.
+	 *
+	 * @param timeNanos time in nanoseconds since the epoch
+	 * @return book of the last snapshot at or before the time, null if the time is before the first snapshot
+	 * @throws IOException if the read fails
+	 */
+	public OrderBook bookAt(long timeNanos) throws IOException {
+		int low = 0;
+		int high = keyframeTimes.length;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (keyframeTimes[middle] <= timeNanos) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		if (low == 0) {
+			return null;
+		}
+
+		// the time delta of a keyframe is relative to the previous record, take the indexed time instead
+		position(keyframeOffsets[low - 1], 0);
+		if (!readHeader()) {
+			return null;
+		}
+		pendingTime = keyframeTimes[low - 1];
+		readRecord();
+
+		while (readHeader()) {
+			if (pendingTime > timeNanos) {
+				break;
+			}
+			readRecord();
+		}
+		return getBook();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private void position(long offset, long previousTime) throws IOException {
+		channel.position(offset);
+		in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+		time = previousTime;
+		pendingType = -1;
+		positioned = true;
+	}
+
+	/**
+	 * Read the header of the next record into the pending header
+	 *
+	 * @return false at the end of the journal
+	 */
+	private boolean readHeader() throws IOException {
+		if (pendingType >= 0) {
+			return true;
+		}
+		final int type = in.read();
+		if (type < 0) {
+			return false;
+		}
+		try {
+			pendingTime = time + VarIntUtils.readSigned(in);
+		} catch (EOFException ex) {
+			return false;
+		}
+		pendingType = type;
+		return true;
+	}
+
+	private boolean readRecord() throws IOException {
+		try {
+			VarIntUtils.readUnsigned(in);
+			if (pendingType == BookJournalWriter.KEYFRAME) {
+				priceScale = (int) VarIntUtils.readUnsigned(in);
+				volumeScale = (int) VarIntUtils.readUnsigned(in);
+				asks.clear();
+				bids.clear();
+			} else {
+				removeLevels(asks);
+			}
+
+			final long seconds = Math.floorDiv(pendingTime, 1_000_000_000L);
+			if (pendingType == BookJournalWriter.KEYFRAME) {
+				readLevels(asks, seconds);
+				readLevels(bids, seconds);
+			} else {
+				readLevels(asks, seconds);
+				removeLevels(bids);
+				readLevels(bids, seconds);
+			}
+		} catch (EOFException ex) {
+			// record cut short
+			pendingType = -1;
+			return false;
+		}
+
+		time = pendingTime;
+		pendingType = -1;
+		return true;
+	}
+
+	private void removeLevels(TreeMap<Long, long[]> levels) throws IOException {
+		final long removed = VarIntUtils.readUnsigned(in);
+		long price = 0;
+		for (long i = 0; i < removed; i++) {
+			price += VarIntUtils.readSigned(in);
+			levels.remove(price);
+		}
+	}
+
+	private void readLevels(TreeMap<Long, long[]> levels, long seconds) throws IOException {
+		final long size = VarIntUtils.readUnsigned(in);
+		long price = 0;
+		for (long i = 0; i < size; i++) {
+			price += VarIntUtils.readSigned(in);
+			final long volume = VarIntUtils.readUnsigned(in);
+			final long timestamp = seconds + VarIntUtils.readSigned(in);
+			levels.put(price, new long[]{volume, timestamp});
+		}
+	}
+
+	private static void skipFully(InputStream in, long length) throws IOException {
+		long remaining = length;
+		while (remaining > 0) {
+			final long skipped = in.skip(remaining);
+			if (skipped <= 0) {
+				if (in.read() < 0) {
+					throw new EOFException();
+				}
+				remaining--;
+			} else {
+				remaining -= skipped;
+			}
+		}
+	}
+
+	private List<Market> toMarkets(TreeMap<Long, long[]> levels) {
+		final List<Market> markets = new ArrayList<>(levels.size());
+		for (Map.Entry<Long, long[]> level : levels.entrySet()) {
+			markets.add(new Market(BigDecimal.valueOf(level.getKey(), priceScale), BigDecimal.valueOf(level.getValue()[0], volumeScale), (int) level.getValue()[1]));
+		}
+		return markets;
+	}
+}
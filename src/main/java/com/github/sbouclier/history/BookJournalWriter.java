@@ -0,0 +1,236 @@
+package com.github.sbouclier.history;
+
+import com.github.sbouclier.result.OrderBookResult;
+import com.github.sbouclier.result.OrderBookResult.Market;
+import com.github.sbouclier.result.OrderBookResult.OrderBook;
+import com.github.sbouclier.utils.VarIntUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writer of order book journals: order book snapshots of a pair, stored as a full keyframe every
+ * {@value #DEFAULT_KEYFRAME_INTERVAL} snapshots and as level deltas in between.
+ *
+ * After a header with the pair, each snapshot is a record: a type byte (keyframe or delta), the time in nanoseconds
+ * as a signed variable length delta to the previous record, the payload length and the payload. Prices and volumes
+ * are fixed-point at the scales of the last keyframe, a snapshot with larger scales being written as a keyframe.
+ * <ul>
+ * <li>a keyframe holds the scales, then for asks and bids the level count and each level: price as a delta to the
+ * previous level, volume, and level timestamp as a delta to the snapshot time in seconds</li>
+ * <li>a delta holds for asks and bids the removed prices, then the added or changed levels, encoded the same way</li>
+ * </ul>
+ *
+ * Not thread-safe.
+ *
+ * @author synapticloop
+ */
+public class BookJournalWriter implements Closeable {
+
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+	static final byte[] MAGIC = {'K', 'B', 'J', '1'};
+	static final int KEYFRAME = 'K';
+	static final int DELTA = 'D';
+
+	private final DataOutputStream out;
+	private final int keyframeInterval;
+	private final ByteArrayOutputStream payload = new ByteArrayOutputStream(4096);
+
+	private final TreeMap<Long, long[]> asks = new TreeMap<>();
+	private final TreeMap<Long, long[]> bids = new TreeMap<>(Comparator.reverseOrder());
+	private int priceScale = -1;
+	private int volumeScale = -1;
+	private long lastTime;
+	private int sinceKeyframe;
+	private long count;
+
+	private BookJournalWriter(OutputStream out, int keyframeInterval) {
+		this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+		this.keyframeInterval = keyframeInterval;
+	}
+
+	/**
+	 * Create journal, replacing any existing file
+	 *
+	 * @param file journal file
+	 * @param pair asset pair
+	 * @return writer
+	 * @throws IOException if the file can not be created
+	 */
+	public static BookJournalWriter create(Path file, String pair) throws IOException {
+		return create(file, pair, DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * Create journal, replacing any existing file
+	 *
+	 * @param file             journal file
+	 * @param pair             asset pair
+	 * @param keyframeInterval number of snapshots between keyframes, the longer the smaller but the slower to seek
+	 * @return writer
+	 * @throws IOException if the file can not be created
+	 */
+	public static BookJournalWriter create(Path file, String pair, int keyframeInterval) throws IOException {
+		BookJournalWriter writer = new BookJournalWriter(Files.newOutputStream(file), keyframeInterval);
+		writer.out.write(MAGIC);
+		writer.out.writeUTF(pair);
+		return writer;
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Write the book of a snapshot
+	 *
+	 * @param timeNanos time of the snapshot in nanoseconds since the epoch
+	 * @param result    snapshot, holding the book of one pair
+	 * @throws IOException if the write fails
+	 */
+	public void write(long timeNanos, OrderBookResult result) throws IOException {
+		write(timeNanos, result.getResult().values().iterator().next());
+	}
+
+	/**
+	 * Write snapshot
+	 *
+	 * @param timeNanos time of the snapshot in nanoseconds since the epoch, not before the previous snapshot
+	 * @param book      order book
+	 * @throws IOException if the write fails
+	 */
+	public void write(long timeNanos, OrderBook book) throws IOException {
+		if (count > 0 && timeNanos < lastTime) {
+			throw new IllegalArgumentException("snapshots must be written in time order");
+		}
+
+		final List<Market> askLevels = (book.asks != null) ? book.asks : Collections.emptyList();
+		final List<Market> bidLevels = (book.bids != null) ? book.bids : Collections.emptyList();
+		final int bookPriceScale = Math.max(maxScale(askLevels, true), maxScale(bidLevels, true));
+		final int bookVolumeScale = Math.max(maxScale(askLevels, false), maxScale(bidLevels, false));
+		final long seconds = Math.floorDiv(timeNanos, 1_000_000_000L);
+
+		final boolean keyframe = count == 0 || sinceKeyframe >= keyframeInterval
+				|| bookPriceScale > priceScale || bookVolumeScale > volumeScale;
+		if (keyframe) {
+			priceScale = bookPriceScale;
+			volumeScale = bookVolumeScale;
+		}
+
+		final TreeMap<Long, long[]> newAsks = toLevels(askLevels, new TreeMap<>());
+		final TreeMap<Long, long[]> newBids = toLevels(bidLevels, new TreeMap<>(Comparator.reverseOrder()));
+
+		payload.reset();
+		if (keyframe) {
+			VarIntUtils.writeUnsigned(payload, priceScale);
+			VarIntUtils.writeUnsigned(payload, volumeScale);
+			writeLevels(newAsks, seconds);
+			writeLevels(newBids, seconds);
+			sinceKeyframe = 0;
+		} else {
+			writeDelta(asks, newAsks, seconds);
+			writeDelta(bids, newBids, seconds);
+		}
+
+		out.write(keyframe ? KEYFRAME : DELTA);
+		VarIntUtils.writeSigned(out, timeNanos - lastTime);
+		VarIntUtils.writeUnsigned(out, payload.size());
+		payload.writeTo(out);
+
+		asks.clear();
+		asks.putAll(newAsks);
+		bids.clear();
+		bids.putAll(newBids);
+		lastTime = timeNanos;
+		sinceKeyframe++;
+		count++;
+	}
+
+	/**
+	 * Get number of snapshots written
+	 *
+	 * @return snapshot count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private TreeMap<Long, long[]> toLevels(List<Market> levels, TreeMap<Long, long[]> map) {
+		for (Market level : levels) {
+			map.put(fixed(level.price, priceScale), new long[]{fixed(level.volume, volumeScale), (level.timestamp != null) ? level.timestamp : 0});
+		}
+		return map;
+	}
+
+	private void writeLevels(TreeMap<Long, long[]> levels, long seconds) throws IOException {
+		VarIntUtils.writeUnsigned(payload, levels.size());
+		long previous = 0;
+		for (Map.Entry<Long, long[]> level : levels.entrySet()) {
+			VarIntUtils.writeSigned(payload, level.getKey() - previous);
+			VarIntUtils.writeUnsigned(payload, level.getValue()[0]);
+			VarIntUtils.writeSigned(payload, level.getValue()[1] - seconds);
+			previous = level.getKey();
+		}
+	}
+
+	private void writeDelta(TreeMap<Long, long[]> previousLevels, TreeMap<Long, long[]> levels, long seconds) throws IOException {
+		final TreeMap<Long, long[]> changed = new TreeMap<>(levels.comparator());
+		for (Map.Entry<Long, long[]> level : levels.entrySet()) {
+			final long[] previous = previousLevels.get(level.getKey());
+			if (previous == null || previous[0] != level.getValue()[0] || previous[1] != level.getValue()[1]) {
+				changed.put(level.getKey(), level.getValue());
+			}
+		}
+
+		int removed = 0;
+		for (Long price : previousLevels.keySet()) {
+			if (!levels.containsKey(price)) {
+				removed++;
+			}
+		}
+		VarIntUtils.writeUnsigned(payload, removed);
+		long previous = 0;
+		for (Long price : previousLevels.keySet()) {
+			if (!levels.containsKey(price)) {
+				VarIntUtils.writeSigned(payload, price - previous);
+				previous = price;
+			}
+		}
+
+		writeLevels(changed, seconds);
+	}
+
+	private static int maxScale(List<Market> levels, boolean price) {
+		int scale = 0;
+		for (Market level : levels) {
+			scale = Math.max(scale, (price ? level.price : level.volume).scale());
+		}
+		return scale;
+	}
+
+	private static long fixed(BigDecimal value, int scale) {
+		return value.setScale(scale).unscaledValue().longValueExact();
+	}
+}
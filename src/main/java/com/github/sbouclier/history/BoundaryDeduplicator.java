@@ -0,0 +1,56 @@
+package com.github.sbouclier.history;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drop trades repeated at the boundary of consecutive segments of a trade stream, e.g. pages of a cursor walk whose
+ * cursor is the time of the last trade: the next page may start again with the trades of that time.
+ *
+ * Only the leading trades of a segment having the time of the last trades of the previous segment are compared, each
+ * previous trade matching at most once, so that identical trades within a segment are kept.
+ *
+ * @author synapticloop
+ */
+class BoundaryDeduplicator {
+
+	private long lastTime = Long.MIN_VALUE;
+	private final List<String> lastTimeKeys = new ArrayList<>();
+
+	private long boundaryTime = Long.MIN_VALUE;
+	private final List<String> boundaryKeys = new ArrayList<>();
+
+	/**
+	 * Start a new segment
+	 */
+	void startSegment() {
+		boundaryTime = lastTime;
+		boundaryKeys.clear();
+		boundaryKeys.addAll(lastTimeKeys);
+	}
+
+	/**
+	 * Check trade, in time order
+	 *
+	 * @return true if new, false if a repeat of the previous segment
+	 */
+	boolean accept(long time, BigDecimal price, BigDecimal volume, boolean sell, boolean market, String miscellaneous) {
+		final String key = price.toPlainString() + '|' + volume.toPlainString() + '|' + sell + '|' + market + '|'
+				+ ((miscellaneous != null) ? miscellaneous : "");
+
+		if (time == boundaryTime && boundaryKeys.remove(key)) {
+			return false;
+		}
+		if (time > boundaryTime) {
+			boundaryKeys.clear();
+		}
+
+		if (time != lastTime) {
+			lastTime = time;
+			lastTimeKeys.clear();
+		}
+		lastTimeKeys.add(key);
+		return true;
+	}
+}
@@ -0,0 +1,55 @@
+package com.github.sbouclier.history;
+
+/**
+ * Kind of rows of a block store, with their columns
+ *
+ * @author synapticloop
+ */
+public enum TapeKind {
+
+	/**
+	 * Trades: price, delta encoded, volume, side and type flags and sparse miscellaneous info
+	 */
+	TRADES(new boolean[]{true, false}, 2, true),
+
+	/**
+	 * Spreads: bid and ask, both delta encoded
+	 */
+	SPREADS(new boolean[]{true, true}, 0, false);
+
+	private final boolean[] deltaColumns;
+	private final int flagBits;
+	private final boolean miscellaneous;
+
+	TapeKind(boolean[] deltaColumns, int flagBits, boolean miscellaneous) {
+		this.deltaColumns = deltaColumns;
+		this.flagBits = flagBits;
+		this.miscellaneous = miscellaneous;
+	}
+
+	/**
+	 * Get number of decimal columns
+	 *
+	 * @return column count
+	 */
+	int getDecimalColumns() {
+		return deltaColumns.length;
+	}
+
+	boolean isDelta(int column) {
+		return deltaColumns[column];
+	}
+
+	/**
+	 * Get number of flag bits per row
+	 *
+	 * @return bit count
+	 */
+	int getFlagBits() {
+		return flagBits;
+	}
+
+	boolean hasMiscellaneous() {
+		return miscellaneous;
+	}
+}
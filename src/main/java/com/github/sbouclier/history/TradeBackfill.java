@@ -0,0 +1,377 @@
+package com.github.sbouclier.history;
+
+import com.github.sbouclier.KrakenAPIClient;
+import com.github.sbouclier.KrakenApiException;
+import com.github.sbouclier.RateLimiter;
+import com.github.sbouclier.result.RecentTradeResult;
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backfill of the full trade history of a pair into a trade log.
+ *
+ * Walking {@code Trades} pages is sequential, each cursor coming from the previous page. The backfill splits the time
+ * range into slices walked in parallel, each from its start until it reaches the start of the next slice, into a log
+ * file per slice. Trades repeated at page boundaries are dropped and each slice keeps only its own trades, then the
+ * slices are stitched in order into a single {@link TradeLogWriter trade log}.
+ *
+ * A backfill is resumable: each slice records its cursor and log length after every page, so that running the same
+ * backfill again after a crash or a failure continues where it stopped.
+ *
+ * <pre>
+ * TradeBackfill backfill = new TradeBackfill(client, "XBTEUR", Paths.get("tapes"));
+ * Path tape = backfill.run(fromNanos, toNanos, 16);
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class TradeBackfill {
+
+	public static final int DEFAULT_PARALLELISM = 4;
+
+	private final KrakenAPIClient client;
+	private final String pair;
+	private final Path directory;
+
+	private int parallelism = DEFAULT_PARALLELISM;
+	private RateLimiter rateLimiter;
+
+	private volatile List<Slice> slices = Collections.emptyList();
+	private final AtomicInteger completedSlices = new AtomicInteger();
+	private final AtomicLong pageCount = new AtomicLong();
+	private final AtomicLong tradeCount = new AtomicLong();
+	private final AtomicLong duplicateCount = new AtomicLong();
+
+	// ----------------
+	// - CONSTRUCTORS -
+	// ----------------
+
+	/**
+	 * Create backfill
+	 *
+	 * @param client    client used to fetch the trades
+	 * @param pair      asset pair
+	 * @param directory directory of the trade log and of the slice files
+	 */
+	public TradeBackfill(KrakenAPIClient client, String pair, Path directory) {
+		this.client = client;
+		this.pair = pair;
+		this.directory = directory;
+	}
+
+	/**
+	 * Set number of slices walked at the same time
+	 *
+	 * @param parallelism number of slices, {@value #DEFAULT_PARALLELISM} by default
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Set limiter of the page calls, none by default
+	 *
+	 * @param rateLimiter limiter, each page costing 1
+	 */
+	public void setRateLimiter(RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	public int getSliceCount() {
+		return slices.size();
+	}
+
+	public int getCompletedSlices() {
+		return completedSlices.get();
+	}
+
+	/**
+	 * Get number of pages fetched by this backfill
+	 *
+	 * @return page count
+	 */
+	public long getPageCount() {
+		return pageCount.get();
+	}
+
+	/**
+	 * Get number of trades written to the slices by this backfill
+	 *
+	 * @return trade count
+	 */
+	public long getTradeCount() {
+		return tradeCount.get();
+	}
+
+	/**
+	 * Get number of trades dropped as repeated at page or slice boundaries
+	 *
+	 * @return duplicate count
+	 */
+	public long getDuplicateCount() {
+		return duplicateCount.get();
+	}
+
+	/**
+	 * Get part of the time range covered so far, including the part covered before a resume
+	 *
+	 * @return completion, from 0 to 1
+	 */
+	public double getCompletion() {
+		final List<Slice> current = slices;
+		if (current.isEmpty()) {
+			return 0;
+		}
+		double covered = 0;
+		double total = 0;
+		for (Slice slice : current) {
+			final long length = slice.end - slice.start;
+			covered += slice.done ? length : Math.max(0, Math.min(length, slice.cursor - slice.start));
+			total += length;
+		}
+		return covered / total;
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Run backfill, resuming a previous run with the same range and slice count if any
+	 *
+	 * @param fromNanos  start of the range, inclusive, in nanoseconds since the epoch
+	 * @param toNanos    end of the range, exclusive, in nanoseconds since the epoch
+	 * @param sliceCount number of slices
+	 * @return trade log of the range
+	 * @throws KrakenApiException if a page can not be fetched, the backfill can be run again to resume
+	 * @throws IOException        if the files can not be written
+	 */
+	public Path run(long fromNanos, long toNanos, int sliceCount) throws KrakenApiException, IOException {
+		final String name = pair + "-" + fromNanos + "-" + toNanos;
+		final Path output = directory.resolve(name + ".trades");
+		if (Files.exists(output)) {
+			return output;
+		}
+		Files.createDirectories(directory);
+
+		final List<Slice> all = new ArrayList<>(sliceCount);
+		for (int i = 0; i < sliceCount; i++) {
+			final long start = fromNanos + (toNanos - fromNanos) * i / sliceCount;
+			final long end = fromNanos + (toNanos - fromNanos) * (i + 1) / sliceCount;
+			all.add(new Slice(directory.resolve(name + "." + i), start, end));
+		}
+		for (Slice slice : all) {
+			slice.load();
+		}
+		slices = all;
+		completedSlices.set((int) all.stream().filter(slice -> slice.done).count());
+
+		fetch(all);
+		stitch(all, output);
+		return output;
+	}
+
+	private void fetch(List<Slice> all) throws KrakenApiException, IOException {
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+			Thread thread = new Thread(runnable, "kraken-trade-backfill");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (Slice slice : all) {
+				if (!slice.done) {
+					futures.add(executor.submit(() -> {
+						slice.fetch();
+						return null;
+					}));
+				}
+			}
+
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException ex) {
+					futures.forEach(other -> other.cancel(true));
+					if (ex.getCause() instanceof KrakenApiException) {
+						throw (KrakenApiException) ex.getCause();
+					}
+					if (ex.getCause() instanceof IOException) {
+						throw (IOException) ex.getCause();
+					}
+					throw new KrakenApiException("unable to backfill trades", ex.getCause());
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					futures.forEach(other -> other.cancel(true));
+					throw new KrakenApiException("interrupted while backfilling trades", ex);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void stitch(List<Slice> all, Path output) throws IOException {
+		final Path temporary = output.resolveSibling(output.getFileName() + ".tmp");
+		final BoundaryDeduplicator deduplicator = new BoundaryDeduplicator();
+
+		try (TradeLogWriter writer = TradeLogWriter.create(temporary)) {
+			for (Slice slice : all) {
+				deduplicator.startSegment();
+				try (TradeLogReader reader = new TradeLogReader(slice.log)) {
+					while (reader.next()) {
+						if (deduplicator.accept(reader.getTimeNanos(), reader.getPrice(), reader.getVolume(), reader.isSell(), reader.isMarket(), reader.getMiscellaneous())) {
+							writer.write(reader.getTimeNanos(), reader.getPrice(), reader.getVolume(), reader.isSell(), reader.isMarket(), reader.getMiscellaneous());
+						} else {
+							duplicateCount.incrementAndGet();
+						}
+					}
+				}
+			}
+			writer.sync();
+		}
+		Files.move(temporary, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+		for (Slice slice : all) {
+			Files.deleteIfExists(slice.log);
+			Files.deleteIfExists(slice.checkpoint);
+		}
+	}
+
+	private static List<RecentTrade> tradesOf(RecentTradeResult result) {
+		if (result.getResult() == null || result.getResult().isEmpty()) {
+			return Collections.emptyList();
+		}
+		// keyed by the pair name of Kraken, which may differ from the requested one
+		final List<RecentTrade> trades = result.getResult().values().iterator().next();
+		return (trades != null) ? trades : Collections.emptyList();
+	}
+
+	/**
+	 * Time slice with its log and checkpoint
+	 */
+	private class Slice {
+		private final Path log;
+		private final Path checkpoint;
+		private final long start;
+		private final long end;
+
+		private volatile long cursor;
+		private volatile boolean done;
+		private long length;
+
+		Slice(Path prefix, long start, long end) {
+			this.log = prefix.resolveSibling(prefix.getFileName() + ".log");
+			this.checkpoint = prefix.resolveSibling(prefix.getFileName() + ".checkpoint");
+			this.start = start;
+			this.end = end;
+			// the cursor is exclusive
+			this.cursor = start - 1;
+		}
+
+		void load() throws IOException {
+			if (!Files.exists(checkpoint)) {
+				return;
+			}
+			final Properties properties = new Properties();
+			try (InputStream in = Files.newInputStream(checkpoint)) {
+				properties.load(in);
+			}
+			cursor = Long.parseLong(properties.getProperty("cursor"));
+			length = Long.parseLong(properties.getProperty("length"));
+			done = Boolean.parseBoolean(properties.getProperty("done"));
+		}
+
+		void fetch() throws KrakenApiException, IOException {
+			final BoundaryDeduplicator deduplicator = new BoundaryDeduplicator();
+
+			try (TradeLogWriter writer = TradeLogWriter.append(log, length)) {
+				if (writer.getCount() > 0) {
+					restoreBoundary(deduplicator);
+				}
+
+				while (!done) {
+					if (rateLimiter != null) {
+						rateLimiter.acquire(1);
+					}
+					final RecentTradeResult result = client.getRecentTrades(pair, cursor);
+					pageCount.incrementAndGet();
+
+					final List<RecentTrade> trades = tradesOf(result);
+					final long next = (result.getLastId() != null) ? result.getLastId() : cursor;
+					boolean reachedEnd = trades.isEmpty() || next <= cursor;
+
+					deduplicator.startSegment();
+					for (RecentTrade trade : trades) {
+						final long time = TradeLogWriter.toNanos(trade.time);
+						if (time >= end) {
+							reachedEnd = true;
+							break;
+						}
+						if (time < start) {
+							continue;
+						}
+						if (deduplicator.accept(time, trade.price, trade.volume, "s".equals(trade.buySell), "m".equals(trade.marketLimit), trade.miscellaneous)) {
+							writer.write(trade);
+							tradeCount.incrementAndGet();
+						} else {
+							duplicateCount.incrementAndGet();
+						}
+					}
+
+					writer.sync();
+					cursor = Math.max(cursor, next);
+					done = reachedEnd;
+					save(writer.getLength());
+				}
+			}
+			completedSlices.incrementAndGet();
+		}
+
+		/**
+		 * Feed the deduplicator with the trades written before a resume
+		 */
+		private void restoreBoundary(BoundaryDeduplicator deduplicator) throws IOException {
+			try (TradeLogReader reader = new TradeLogReader(log)) {
+				while (reader.next()) {
+					deduplicator.accept(reader.getTimeNanos(), reader.getPrice(), reader.getVolume(), reader.isSell(), reader.isMarket(), reader.getMiscellaneous());
+				}
+			}
+		}
+
+		private void save(long logLength) throws IOException {
+			final Properties properties = new Properties();
+			properties.setProperty("cursor", String.valueOf(cursor));
+			properties.setProperty("length", String.valueOf(logLength));
+			properties.setProperty("done", String.valueOf(done));
+
+			final Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+			try (OutputStream out = Files.newOutputStream(temporary)) {
+				properties.store(out, null);
+			}
+			Files.move(temporary, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			length = logLength;
+		}
+	}
+}
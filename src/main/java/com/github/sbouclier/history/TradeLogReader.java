@@ -0,0 +1,197 @@
+package com.github.sbouclier.history;
+
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+import com.github.sbouclier.utils.CountingInputStream;
+import com.github.sbouclier.utils.VarIntUtils;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Streaming reader of trade logs written by {@link TradeLogWriter}, one record at a time.
+ *
+ * <pre>
+ * try (TradeLogReader reader = new TradeLogReader(file)) {
+ *     while (reader.next()) {
+ *         long time = reader.getTimeNanos();
+ *         BigDecimal price = reader.getPrice();
+ *     }
+ * }
+ * </pre>
+ *
+ * A record cut short at the end of the log, e.g. by a crash while writing it, is treated as the end of the log.
+ * Not thread-safe.
+ *
+ * @author synapticloop
+ */
+public class TradeLogReader implements Closeable {
+
+	private final CountingInputStream in;
+	private long position;
+
+	private int flags;
+	private long time;
+	private long price;
+	private int priceScale;
+	private long volume;
+	private int volumeScale;
+	private String miscellaneous;
+
+	/**
+	 * Open log
+	 *
+	 * @param file log file
+	 * @throws IOException if the file can not be read or is not a trade log
+	 */
+	public TradeLogReader(Path file) throws IOException {
+		this(Files.newInputStream(file));
+	}
+
+	/**
+	 * Read log from a stream
+	 *
+	 * @param in log content, closed with the reader
+	 * @throws IOException if the stream can not be read or is not a trade log
+	 */
+	public TradeLogReader(InputStream in) throws IOException {
+		this.in = new CountingInputStream(new BufferedInputStream(in, 64 * 1024));
+
+		final byte[] magic = new byte[TradeLogWriter.MAGIC.length];
+		if (this.in.read(magic) != magic.length || !Arrays.equals(magic, TradeLogWriter.MAGIC)) {
+			this.in.close();
+			throw new IOException("not a trade log");
+		}
+		this.position = magic.length;
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Move to the next record
+	 *
+	 * @return true if a record was read, false at the end of the log
+	 * @throws IOException if the read fails
+	 */
+	public boolean next() throws IOException {
+		final int nextFlags = in.read();
+		if (nextFlags < 0) {
+			return false;
+		}
+
+		try {
+			flags = nextFlags;
+			time += VarIntUtils.readSigned(in);
+			if ((flags & TradeLogWriter.PRICE_SCALE) != 0) {
+				priceScale = (int) VarIntUtils.readSigned(in);
+			}
+			price += VarIntUtils.readSigned(in);
+			if ((flags & TradeLogWriter.VOLUME_SCALE) != 0) {
+				volumeScale = (int) VarIntUtils.readSigned(in);
+			}
+			volume = VarIntUtils.readUnsigned(in);
+			miscellaneous = null;
+			if ((flags & TradeLogWriter.MISCELLANEOUS) != 0) {
+				final byte[] bytes = new byte[(int) VarIntUtils.readUnsigned(in)];
+				for (int read = 0; read < bytes.length; ) {
+					final int n = in.read(bytes, read, bytes.length - read);
+					if (n < 0) {
+						throw new EOFException();
+					}
+					read += n;
+				}
+				miscellaneous = new String(bytes, StandardCharsets.UTF_8);
+			}
+		} catch (EOFException ex) {
+			// record cut short
+			return false;
+		}
+
+		position = in.getCount();
+		return true;
+	}
+
+	/**
+	 * Get position after the last record read
+	 *
+	 * @return length in bytes of the log read so far
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	public long getTimeNanos() {
+		return time;
+	}
+
+	public BigDecimal getPrice() {
+		return BigDecimal.valueOf(price, priceScale);
+	}
+
+	public long getUnscaledPrice() {
+		return price;
+	}
+
+	public int getPriceScale() {
+		return priceScale;
+	}
+
+	public BigDecimal getVolume() {
+		return BigDecimal.valueOf(volume, volumeScale);
+	}
+
+	public long getUnscaledVolume() {
+		return volume;
+	}
+
+	public int getVolumeScale() {
+		return volumeScale;
+	}
+
+	public boolean isSell() {
+		return (flags & TradeLogWriter.SELL) != 0;
+	}
+
+	public boolean isMarket() {
+		return (flags & TradeLogWriter.MARKET) != 0;
+	}
+
+	/**
+	 * Get miscellaneous info
+	 *
+	 * @return miscellaneous info, empty if none
+	 */
+	public String getMiscellaneous() {
+		return (miscellaneous != null) ? miscellaneous : "";
+	}
+
+	/**
+	 * Get current record as a trade
+	 *
+	 * @return new trade
+	 */
+	public RecentTrade toRecentTrade() {
+		RecentTrade trade = new RecentTrade();
+		trade.price = getPrice();
+		trade.volume = getVolume();
+		trade.time = BigDecimal.valueOf(time, 9).stripTrailingZeros();
+		trade.buySell = isSell() ? "s" : "b";
+		trade.marketLimit = isMarket() ? "m" : "l";
+		trade.miscellaneous = getMiscellaneous();
+		return trade;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
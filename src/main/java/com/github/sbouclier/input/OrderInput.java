@@ -0,0 +1,80 @@
+package com.github.sbouclier.input;
+
+import com.github.sbouclier.result.common.OrderDirection;
+import com.github.sbouclier.result.common.OrderType;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Order input of a batch, the pair being given by the batch
+ *
+ * @author synapticloop
+ */
+public class OrderInput {
+
+	private final OrderType type;
+	private final OrderDirection direction;
+	private final BigDecimal volume;
+	private final BigDecimal price;
+
+	/**
+	 * Create order input
+	 *
+	 * @param type      order type
+	 * @param direction order direction
+	 * @param volume    order volume in lots
+	 * @param price     limit price, null for orders without price
+	 */
+	public OrderInput(OrderType type, OrderDirection direction, BigDecimal volume, BigDecimal price) {
+		this.type = type;
+		this.direction = direction;
+		this.volume = volume;
+		this.price = price;
+	}
+
+	public OrderType getType() {
+		return type;
+	}
+
+	public OrderDirection getDirection() {
+		return direction;
+	}
+
+	public BigDecimal getVolume() {
+		return volume;
+	}
+
+	public BigDecimal getPrice() {
+		return price;
+	}
+
+	/**
+	 * Get parameters of the order as expected in the {@code orders} array of {@code AddOrderBatch}
+	 *
+	 * @return order parameters
+	 */
+	public Map<String, String> toParameters() {
+		Map<String, String> params = new LinkedHashMap<>();
+		params.put("ordertype", type.getValue());
+		params.put("type", direction.getValue());
+		params.put("volume", volume.toPlainString());
+		if (price != null) {
+			params.put("price", price.toPlainString());
+		}
+		return params;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("type", type)
+				.append("direction", direction)
+				.append("volume", volume)
+				.append("price", price)
+				.toString();
+	}
+}
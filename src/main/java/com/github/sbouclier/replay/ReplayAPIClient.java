@@ -0,0 +1,555 @@
+package com.github.sbouclier.replay;
+
+import com.github.sbouclier.HttpApiClient;
+import com.github.sbouclier.HttpApiClientFactory;
+import com.github.sbouclier.KrakenAPIClient;
+import com.github.sbouclier.KrakenApiException;
+import com.github.sbouclier.KrakenApiMethod;
+import com.github.sbouclier.input.InfoInput;
+import com.github.sbouclier.input.Interval;
+import com.github.sbouclier.result.AssetPairsResult;
+import com.github.sbouclier.result.AssetPairsResult.AssetPair;
+import com.github.sbouclier.result.AssetsInformationResult;
+import com.github.sbouclier.result.AssetsInformationResult.AssetInformation;
+import com.github.sbouclier.result.OHLCResult;
+import com.github.sbouclier.result.OHLCResult.OHLC;
+import com.github.sbouclier.result.OrderBookResult;
+import com.github.sbouclier.result.OrderBookResult.OrderBook;
+import com.github.sbouclier.result.RecentSpreadResult;
+import com.github.sbouclier.result.RecentSpreadResult.Spread;
+import com.github.sbouclier.result.RecentTradeResult;
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+import com.github.sbouclier.result.Result;
+import com.github.sbouclier.result.ServerTimeResult;
+import com.github.sbouclier.result.TickerInformationResult;
+import com.github.sbouclier.result.TickerInformationResult.TickerInformation;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Client answering the public market data calls from the state of a replay, so that a strategy written against
+ * {@link KrakenAPIClient} runs unchanged in a backtest.
+ *
+ * The client listens to the engine and keeps, per pair, the last {@value #MAX_RECENT} trades and spreads, the last
+ * book and the last {@value #MAX_OHLC} bars of each interval. Trades and spreads are kept fixed-point and only turned
+ * into results when asked for, so that replaying them does not allocate. Results are keyed by the pair of the streams
+ * and {@code since} ids follow Kraken: the time in nanoseconds of a trade, in seconds of a spread or of a bar.
+ *
+ * Tickers are built from the last book and trades, their daily and 24 hour statistics being kept per minute of
+ * replay time, in double precision. Asset pairs and assets are answered from metadata recorded with the data, set
+ * with {@link #setAssetPairs(AssetPairsResult)} and {@link #setAssetsInformation(AssetsInformationResult)}.
+ *
+ * Every other call fails with an {@link UnsupportedOperationException} rather than reaching Kraken. Not thread-safe:
+ * calls are to be made from the listeners or between runs of the engine.
+ *
+ * @author synapticloop
+ */
+public class ReplayAPIClient extends KrakenAPIClient implements ReplayListener {
+
+	/**
+	 * Number of trades or spreads kept per pair, the most returned by Kraken
+	 */
+	public static final int MAX_RECENT = 1000;
+
+	/**
+	 * Number of bars kept per pair and interval, the most returned by Kraken
+	 */
+	public static final int MAX_OHLC = 720;
+
+	private static final String UNKNOWN_PAIR = "EQuery:Unknown asset pair";
+	private static final String UNKNOWN_ASSET = "EQuery:Unknown asset";
+
+	private final ReplayEngine engine;
+	private final Map<String, PairState> pairs = new HashMap<>();
+	private AssetPairsResult assetPairs;
+	private AssetsInformationResult assetsInformation;
+
+	/**
+	 * Create client listening to a replay
+	 *
+	 * @param engine replay engine, with its streams added
+	 */
+	public ReplayAPIClient(ReplayEngine engine) {
+		super(new UnsupportedClientFactory());
+		this.engine = engine;
+		engine.addListener(this);
+	}
+
+	@Override
+	public void onEvent(ReplayStream stream) {
+		final PairState state = pairs.computeIfAbsent(stream.getPair(), pair -> new PairState());
+		switch (stream.getEvent()) {
+		case TRADE:
+			state.trades.add(stream);
+			state.statistics.add(stream);
+			break;
+		case SPREAD:
+			state.spreads.add(stream);
+			break;
+		case BOOK:
+			state.book = stream.getBook();
+			break;
+		case OHLC:
+			final ArrayDeque<OHLC> bars = state.bars.computeIfAbsent(stream.getInterval(), interval -> new ArrayDeque<>());
+			if (bars.size() == MAX_OHLC) {
+				bars.removeFirst();
+			}
+			bars.addLast(stream.getOHLC());
+			break;
+		}
+	}
+
+	/**
+	 * Set asset pairs recorded with the replayed data
+	 *
+	 * @param assetPairs asset pairs, as returned by {@link KrakenAPIClient#getAssetPairs()}
+	 */
+	public void setAssetPairs(AssetPairsResult assetPairs) {
+		this.assetPairs = assetPairs;
+	}
+
+	/**
+	 * Set assets recorded with the replayed data
+	 *
+	 * @param assetsInformation assets, as returned by {@link KrakenAPIClient#getAssetsInformation()}
+	 */
+	public void setAssetsInformation(AssetsInformationResult assetsInformation) {
+		this.assetsInformation = assetsInformation;
+	}
+
+	// ---------------
+	// - MARKET DATA -
+	// ---------------
+
+	@Override
+	public ServerTimeResult getServerTime() {
+		final ServerTimeResult.ServerTime time = new ServerTimeResult.ServerTime();
+		time.unixtime = engine.getClock().getTimeSeconds();
+		time.rfc1123 = DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochSecond(time.unixtime).atOffset(ZoneOffset.UTC));
+
+		final ServerTimeResult result = new ServerTimeResult();
+		result.setResult(time);
+		return result;
+	}
+
+	@Override
+	public AssetsInformationResult getAssetsInformation() {
+		return recorded(assetsInformation, KrakenApiMethod.ASSET_INFORMATION);
+	}
+
+	@Override
+	public AssetsInformationResult getAssetsInformation(String... assets) throws KrakenApiException {
+		final Map<String, AssetInformation> all = getAssetsInformation().getResult();
+		final Map<String, AssetInformation> selected = new LinkedHashMap<>();
+		for (String asset : assets) {
+			final Map.Entry<String, AssetInformation> entry = find(all, asset, UNKNOWN_ASSET, information -> information.alternateName);
+			selected.put(entry.getKey(), entry.getValue());
+		}
+
+		final AssetsInformationResult result = new AssetsInformationResult();
+		result.setResult(selected);
+		return result;
+	}
+
+	@Override
+	public AssetPairsResult getAssetPairs() {
+		return recorded(assetPairs, KrakenApiMethod.ASSET_PAIRS);
+	}
+
+	/**
+	 * Get recorded asset pairs, whatever the info asked for
+	 */
+	@Override
+	public AssetPairsResult getAssetPairs(InfoInput info, String... assetPairs) throws KrakenApiException {
+		final Map<String, AssetPair> all = getAssetPairs().getResult();
+		final Map<String, AssetPair> selected = new LinkedHashMap<>();
+		for (String pair : assetPairs) {
+			final Map.Entry<String, AssetPair> entry = find(all, pair, UNKNOWN_PAIR, assetPair -> assetPair.alternatePairName);
+			selected.put(entry.getKey(), entry.getValue());
+		}
+
+		final AssetPairsResult result = new AssetPairsResult();
+		result.setResult(selected);
+		return result;
+	}
+
+	@Override
+	public TickerInformationResult getTickerInformation(List<String> pairs) throws KrakenApiException {
+		final long nowNanos = engine.getClock().getTimeNanos();
+		final Map<String, TickerInformation> tickers = new LinkedHashMap<>();
+		for (String pair : pairs) {
+			tickers.put(pair, state(pair).toTicker(nowNanos));
+		}
+
+		final TickerInformationResult result = new TickerInformationResult();
+		result.setResult(tickers);
+		return result;
+	}
+
+	@Override
+	public OHLCResult getOHLC(String pair, Interval interval, Integer since) throws KrakenApiException {
+		final ArrayDeque<OHLC> bars = state(pair).bars.get(interval);
+		final List<OHLC> selected = new ArrayList<>();
+		long lastId = (since != null) ? since : 0;
+		if (bars != null) {
+			for (OHLC bar : bars) {
+				if (since == null || bar.time > since) {
+					selected.add(bar);
+					lastId = bar.time;
+				}
+			}
+		}
+
+		final OHLCResult result = new OHLCResult();
+		result.setResult(Collections.singletonMap(pair, selected));
+		result.setLastId(lastId);
+		return result;
+	}
+
+	@Override
+	public OHLCResult getOHLC(String pair, Interval interval) throws KrakenApiException {
+		return getOHLC(pair, interval, null);
+	}
+
+	@Override
+	public OrderBookResult getOrderBook(String pair, Integer count) throws KrakenApiException {
+		final OrderBook last = state(pair).book;
+		final OrderBook book = new OrderBook();
+		book.asks = (last != null) ? head(last.asks, count) : Collections.emptyList();
+		book.bids = (last != null) ? head(last.bids, count) : Collections.emptyList();
+
+		final OrderBookResult result = new OrderBookResult();
+		result.setResult(Collections.singletonMap(pair, book));
+		return result;
+	}
+
+	@Override
+	public OrderBookResult getOrderBook(String pair) throws KrakenApiException {
+		return getOrderBook(pair, null);
+	}
+
+	@Override
+	public RecentTradeResult getRecentTrades(String pair) throws KrakenApiException {
+		return getRecentTrades(pair, Long.MIN_VALUE);
+	}
+
+	@Override
+	public RecentTradeResult getRecentTrades(String pair, Integer since) throws KrakenApiException {
+		return getRecentTrades(pair, (since != null) ? (long) since : Long.MIN_VALUE);
+	}
+
+	@Override
+	public RecentTradeResult getRecentTrades(String pair, long since) throws KrakenApiException {
+		final Tape tape = state(pair).trades;
+		final List<RecentTrade> trades = new ArrayList<>();
+		long lastId = Math.max(since, 0);
+		for (int i = 0; i < tape.size; i++) {
+			final int slot = tape.slot(i);
+			if (tape.times[slot] > since) {
+				trades.add(tape.toRecentTrade(slot));
+				lastId = tape.times[slot];
+			}
+		}
+
+		final RecentTradeResult result = new RecentTradeResult();
+		result.setResult(Collections.singletonMap(pair, trades));
+		result.setLastId(lastId);
+		return result;
+	}
+
+	@Override
+	public RecentSpreadResult getRecentSpreads(String pair) throws KrakenApiException {
+		return getRecentSpreads(pair, null);
+	}
+
+	@Override
+	public RecentSpreadResult getRecentSpreads(String pair, Integer since) throws KrakenApiException {
+		final Tape tape = state(pair).spreads;
+		final List<Spread> spreads = new ArrayList<>();
+		long lastId = (since != null) ? since : 0;
+		for (int i = 0; i < tape.size; i++) {
+			final int slot = tape.slot(i);
+			final long seconds = Math.floorDiv(tape.times[slot], 1_000_000_000L);
+			if (since == null || seconds > since) {
+				spreads.add(tape.toSpread(slot));
+				lastId = seconds;
+			}
+		}
+
+		final RecentSpreadResult result = new RecentSpreadResult();
+		result.setResult(Collections.singletonMap(pair, spreads));
+		result.setLastId(lastId);
+		return result;
+	}
+
+	private PairState state(String pair) throws KrakenApiException {
+		final PairState state = pairs.get(pair);
+		if (state != null) {
+			return state;
+		}
+		final Set<String> known = engine.getPairs();
+		if (!known.contains(pair)) {
+			throw new KrakenApiException(UNKNOWN_PAIR);
+		}
+		// nothing replayed yet for the pair
+		return pairs.computeIfAbsent(pair, key -> new PairState());
+	}
+
+	private static <R extends Result<?>> R recorded(R result, KrakenApiMethod method) {
+		if (result == null) {
+			throw new UnsupportedOperationException(method + " is not available in a replay without recorded metadata");
+		}
+		return result;
+	}
+
+	/**
+	 * Find entry of recorded metadata by its key or its alternate name
+	 */
+	private static <V> Map.Entry<String, V> find(Map<String, V> all, String name, String unknown, Function<V, String> alternateName) throws KrakenApiException {
+		for (Map.Entry<String, V> entry : all.entrySet()) {
+			if (entry.getKey().equals(name) || name.equals(alternateName.apply(entry.getValue()))) {
+				return entry;
+			}
+		}
+		throw new KrakenApiException(unknown);
+	}
+
+	private static <T> List<T> head(List<T> levels, Integer count) {
+		if (levels == null) {
+			return Collections.emptyList();
+		}
+		return (count != null && count < levels.size()) ? new ArrayList<>(levels.subList(0, count)) : new ArrayList<>(levels);
+	}
+
+	/**
+	 * Replayed state of a pair
+	 */
+	private static class PairState {
+		private final Tape trades = new Tape();
+		private final Tape spreads = new Tape();
+		private final TradeStatistics statistics = new TradeStatistics();
+		private final Map<Interval, ArrayDeque<OHLC>> bars = new EnumMap<>(Interval.class);
+		private OrderBook book;
+
+		TickerInformation toTicker(long nowNanos) {
+			final TickerInformation ticker = new TickerInformation();
+			if (book != null && book.asks != null && !book.asks.isEmpty()) {
+				ticker.ask = priceWholeLotVolume(book.asks.get(0));
+			}
+			if (book != null && book.bids != null && !book.bids.isEmpty()) {
+				ticker.bid = priceWholeLotVolume(book.bids.get(0));
+			}
+			if (trades.size > 0) {
+				final RecentTrade last = trades.toRecentTrade(trades.slot(trades.size - 1));
+				ticker.lastTradeClosed = new TickerInformation.PriceLotVolume();
+				ticker.lastTradeClosed.price = last.price;
+				ticker.lastTradeClosed.lotVolume = last.volume;
+			}
+			statistics.fill(ticker, nowNanos);
+			return ticker;
+		}
+
+		private static TickerInformation.PriceWholeLotVolume priceWholeLotVolume(OrderBookResult.Market level) {
+			final TickerInformation.PriceWholeLotVolume price = new TickerInformation.PriceWholeLotVolume();
+			price.price = level.price;
+			price.wholeLotVolume = level.volume.intValue();
+			price.lotVolume = level.volume;
+			return price;
+		}
+	}
+
+	/**
+	 * Statistics of the trades of a pair over the last 24 hours, per minute of replay time, fixed-size so that
+	 * replaying trades does not allocate
+	 */
+	private static class TradeStatistics {
+		private static final int MINUTES = 24 * 60;
+		private static final long MINUTE_NANOS = 60_000_000_000L;
+		private static final int VOLUME_SCALE = 8;
+		private static final long[] POWERS_OF_TEN = new long[19];
+
+		static {
+			POWERS_OF_TEN[0] = 1;
+			for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+				POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+			}
+		}
+
+		private final long[] minutes = new long[MINUTES];
+		private final long[] volumes = new long[MINUTES];
+		private final double[] notionals = new double[MINUTES];
+		private final int[] counts = new int[MINUTES];
+		private final double[] lows = new double[MINUTES];
+		private final double[] highs = new double[MINUTES];
+		private final double[] opens = new double[MINUTES];
+
+		TradeStatistics() {
+			Arrays.fill(minutes, Long.MIN_VALUE);
+		}
+
+		void add(ReplayStream stream) {
+			final long minute = Math.floorDiv(stream.getTimeNanos(), MINUTE_NANOS);
+			final int slot = (int) Math.floorMod(minute, MINUTES);
+			final double price = (double) stream.getUnscaled(0) / POWERS_OF_TEN[stream.getScale(0)];
+			if (minutes[slot] != minute) {
+				minutes[slot] = minute;
+				volumes[slot] = 0;
+				notionals[slot] = 0;
+				counts[slot] = 0;
+				lows[slot] = price;
+				highs[slot] = price;
+				opens[slot] = price;
+			}
+
+			final int scale = stream.getScale(1);
+			final long volume = (scale <= VOLUME_SCALE)
+					? stream.getUnscaled(1) * POWERS_OF_TEN[VOLUME_SCALE - scale]
+					: stream.getUnscaled(1) / POWERS_OF_TEN[scale - VOLUME_SCALE];
+			volumes[slot] += volume;
+			notionals[slot] += price * volume;
+			counts[slot]++;
+			lows[slot] = Math.min(lows[slot], price);
+			highs[slot] = Math.max(highs[slot], price);
+		}
+
+		/**
+		 * Fill statistics of a ticker for today, from 00:00 UTC, and for the last 24 hours
+		 */
+		void fill(TickerInformation ticker, long nowNanos) {
+			final long now = Math.floorDiv(nowNanos, MINUTE_NANOS);
+			final long today = Math.floorDiv(now, MINUTES) * MINUTES;
+
+			final long[] volume = new long[2];
+			final double[] notional = new double[2];
+			final int[] count = new int[2];
+			final double[] low = {Double.NaN, Double.NaN};
+			final double[] high = {Double.NaN, Double.NaN};
+			long firstMinute = Long.MAX_VALUE;
+			double open = Double.NaN;
+			for (int slot = 0; slot < MINUTES; slot++) {
+				final long minute = minutes[slot];
+				if (minute > now || minute <= now - MINUTES) {
+					continue;
+				}
+				// 0 for today, 1 for the last 24 hours
+				for (int period = (minute >= today) ? 0 : 1; period < 2; period++) {
+					volume[period] += volumes[slot];
+					notional[period] += notionals[slot];
+					count[period] += counts[slot];
+					low[period] = Double.isNaN(low[period]) ? lows[slot] : Math.min(low[period], lows[slot]);
+					high[period] = Double.isNaN(high[period]) ? highs[slot] : Math.max(high[period], highs[slot]);
+				}
+				if (minute >= today && minute < firstMinute) {
+					firstMinute = minute;
+					open = opens[slot];
+				}
+			}
+
+			ticker.volume = new TickerInformation.TodayLast24h();
+			ticker.volume.today = BigDecimal.valueOf(volume[0], VOLUME_SCALE);
+			ticker.volume.last24hours = BigDecimal.valueOf(volume[1], VOLUME_SCALE);
+			ticker.volumeWeightAverage = new TickerInformation.TodayLast24h();
+			ticker.volumeWeightAverage.today = (volume[0] != 0) ? BigDecimal.valueOf(notional[0] / volume[0]) : BigDecimal.ZERO;
+			ticker.volumeWeightAverage.last24hours = (volume[1] != 0) ? BigDecimal.valueOf(notional[1] / volume[1]) : BigDecimal.ZERO;
+			ticker.numberOfTrades = new TickerInformation.NumberOfTrade();
+			ticker.numberOfTrades.today = count[0];
+			ticker.numberOfTrades.last24hours = count[1];
+			ticker.low = new TickerInformation.TodayLast24h();
+			ticker.low.today = decimal(low[0]);
+			ticker.low.last24hours = decimal(low[1]);
+			ticker.high = new TickerInformation.TodayLast24h();
+			ticker.high.today = decimal(high[0]);
+			ticker.high.last24hours = decimal(high[1]);
+			ticker.todayOpenPrice = decimal(open);
+		}
+
+		private static BigDecimal decimal(double value) {
+			return Double.isNaN(value) ? null : BigDecimal.valueOf(value);
+		}
+	}
+
+	/**
+	 * Ring of the last trades or spreads of a pair, fixed-point
+	 */
+	private static class Tape {
+		private final long[] times = new long[MAX_RECENT];
+		private final long[] values = new long[2 * MAX_RECENT];
+		private final int[] scales = new int[2 * MAX_RECENT];
+		private final boolean[] sells = new boolean[MAX_RECENT];
+		private final boolean[] markets = new boolean[MAX_RECENT];
+		private final String[] miscellaneous = new String[MAX_RECENT];
+		private int start;
+		private int size;
+
+		void add(ReplayStream stream) {
+			final int slot;
+			if (size < MAX_RECENT) {
+				slot = slot(size++);
+			} else {
+				slot = start;
+				start = (start + 1) % MAX_RECENT;
+			}
+			times[slot] = stream.getTimeNanos();
+			values[2 * slot] = stream.getUnscaled(0);
+			values[2 * slot + 1] = stream.getUnscaled(1);
+			scales[2 * slot] = stream.getScale(0);
+			scales[2 * slot + 1] = stream.getScale(1);
+			if (stream.getEvent() == ReplayEvent.TRADE) {
+				sells[slot] = stream.isSell();
+				markets[slot] = stream.isMarket();
+				miscellaneous[slot] = stream.getMiscellaneous();
+			}
+		}
+
+		int slot(int index) {
+			return (start + index) % MAX_RECENT;
+		}
+
+		RecentTrade toRecentTrade(int slot) {
+			RecentTrade trade = new RecentTrade();
+			trade.price = BigDecimal.valueOf(values[2 * slot], scales[2 * slot]);
+			trade.volume = BigDecimal.valueOf(values[2 * slot + 1], scales[2 * slot + 1]);
+			trade.time = BigDecimal.valueOf(times[slot], 9).stripTrailingZeros();
+			trade.buySell = sells[slot] ? "s" : "b";
+			trade.marketLimit = markets[slot] ? "m" : "l";
+			trade.miscellaneous = miscellaneous[slot];
+			return trade;
+		}
+
+		Spread toSpread(int slot) {
+			return new Spread((int) Math.floorDiv(times[slot], 1_000_000_000L), BigDecimal.valueOf(values[2 * slot], scales[2 * slot]), BigDecimal.valueOf(values[2 * slot + 1], scales[2 * slot + 1]));
+		}
+	}
+
+	/**
+	 * Factory failing every call not answered from the replay
+	 */
+	private static class UnsupportedClientFactory extends HttpApiClientFactory {
+
+		@Override
+		@SuppressWarnings("rawtypes")
+		public HttpApiClient<? extends Result> getHttpApiClient(KrakenApiMethod method) {
+			throw new UnsupportedOperationException(method + " is not available in a replay");
+		}
+
+		@Override
+		@SuppressWarnings("rawtypes")
+		public HttpApiClient<? extends Result> getHttpApiClient(String apiKey, String apiSecret, KrakenApiMethod method) {
+			throw new UnsupportedOperationException(method + " is not available in a replay");
+		}
+	}
+}
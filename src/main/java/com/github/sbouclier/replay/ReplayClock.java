@@ -0,0 +1,90 @@
+package com.github.sbouclier.replay;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulated clock of a replay, moved forward by the {@link ReplayEngine} to the time of each event.
+ *
+ * By default the clock jumps from event to event as fast as they are processed. With a speed, the replay is paced so
+ * that replayed time runs that many times faster than real time.
+ *
+ * @author synapticloop
+ */
+public class ReplayClock {
+
+	private volatile long timeNanos = Long.MIN_VALUE;
+	private double speed;
+
+	private long replayStart;
+	private long wallStart;
+
+	/**
+	 * Set pace of the replay
+	 *
+	 * @param speed replayed time per real time, e.g. 60 for a minute per second, 0 for no pacing (by default)
+	 */
+	public void setSpeed(double speed) {
+		if (speed < 0) {
+			throw new IllegalArgumentException("speed must not be negative");
+		}
+		this.speed = speed;
+		this.wallStart = 0;
+	}
+
+	public double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Get current replayed time
+	 *
+	 * @return time in nanoseconds since the epoch, {@link Long#MIN_VALUE} before the first event
+	 */
+	public long getTimeNanos() {
+		return timeNanos;
+	}
+
+	/**
+	 * Get current replayed time
+	 *
+	 * @return time in seconds since the epoch
+	 */
+	public long getTimeSeconds() {
+		return Math.floorDiv(timeNanos, 1_000_000_000L);
+	}
+
+	/**
+	 * Move the clock forward, waiting when paced. A time before the current one leaves the clock unchanged.
+	 *
+	 * @param timeNanos time in nanoseconds since the epoch
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	void advanceTo(long timeNanos) throws InterruptedIOException {
+		if (timeNanos <= this.timeNanos) {
+			return;
+		}
+		if (speed > 0) {
+			pace(timeNanos);
+		}
+		this.timeNanos = timeNanos;
+	}
+
+	private void pace(long timeNanos) throws InterruptedIOException {
+		final long now = System.nanoTime();
+		if (wallStart == 0) {
+			wallStart = now;
+			replayStart = timeNanos;
+			return;
+		}
+		final long wait = wallStart + (long) ((timeNanos - replayStart) / speed) - now;
+		if (wait > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(wait);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted while pacing the replay");
+			}
+		}
+	}
+}
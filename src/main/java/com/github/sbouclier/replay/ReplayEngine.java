@@ -0,0 +1,252 @@
+package com.github.sbouclier.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Replay of recorded market data: the events of all streams are merged in time order, the clock is moved to the time
+ * of each event and the event is handed to the listeners.
+ *
+ * The merge is a binary heap of the streams keyed by the time of their current event, so that each event costs one
+ * sift of the heap, logarithmic in the number of streams. Events at the same time are replayed in the order the
+ * streams were added. Not thread-safe: listeners are called by the thread running the replay.
+ *
+ * <pre>
+ * ReplayEngine engine = new ReplayEngine();
+ * engine.add(ReplayStream.books(new BookJournalReader(books)));
+ * engine.add(ReplayStream.of(new BlockStoreReader(trades)));
+ * engine.addListener(stream -&gt; strategy.onEvent(stream));
+ * engine.run();
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class ReplayEngine implements Closeable {
+
+	private final ReplayClock clock;
+	private final List<ReplayStream> streams = new ArrayList<>();
+	private ReplayListener[] listeners = new ReplayListener[0];
+
+	private ReplayStream[] heap = new ReplayStream[8];
+	private long[] times = new long[8];
+	private int[] orders = new int[8];
+	private int size;
+
+	private long eventCount;
+
+	// ----------------
+	// - CONSTRUCTORS -
+	// ----------------
+
+	public ReplayEngine() {
+		this(new ReplayClock());
+	}
+
+	public ReplayEngine(ReplayClock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Add stream, read from its first event. The engine closes the stream when closed.
+	 *
+	 * @param stream stream of events
+	 * @throws IOException if the first event can not be read
+	 */
+	public void add(ReplayStream stream) throws IOException {
+		final int order = streams.size();
+		streams.add(stream);
+		if (!stream.next()) {
+			return;
+		}
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+			times = Arrays.copyOf(times, size * 2);
+			orders = Arrays.copyOf(orders, size * 2);
+		}
+		heap[size] = stream;
+		times[size] = stream.getTimeNanos();
+		orders[size] = order;
+		siftUp(size++);
+	}
+
+	public void addListener(ReplayListener listener) {
+		listeners = Arrays.copyOf(listeners, listeners.length + 1);
+		listeners[listeners.length - 1] = listener;
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	public ReplayClock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Get number of events replayed so far
+	 *
+	 * @return event count
+	 */
+	public long getEventCount() {
+		return eventCount;
+	}
+
+	/**
+	 * Get time of the next event
+	 *
+	 * @return time in nanoseconds since the epoch, {@link Long#MAX_VALUE} if all the streams are replayed
+	 */
+	public long getNextTimeNanos() {
+		return (size > 0) ? times[0] : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Get pairs of the streams
+	 *
+	 * @return pairs, in the order the streams were added
+	 */
+	public Set<String> getPairs() {
+		final Set<String> pairs = new LinkedHashSet<>();
+		for (ReplayStream stream : streams) {
+			pairs.add(stream.getPair());
+		}
+		return pairs;
+	}
+
+	public boolean isFinished() {
+		return size == 0;
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Replay the next event
+	 *
+	 * @return false if all the streams are replayed
+	 * @throws IOException if a stream can not be read
+	 */
+	public boolean step() throws IOException {
+		if (size == 0) {
+			return false;
+		}
+
+		final ReplayStream stream = heap[0];
+		clock.advanceTo(times[0]);
+		for (ReplayListener listener : listeners) {
+			listener.onEvent(stream);
+		}
+		eventCount++;
+
+		if (stream.next()) {
+			times[0] = stream.getTimeNanos();
+		} else {
+			size--;
+			heap[0] = heap[size];
+			times[0] = times[size];
+			orders[0] = orders[size];
+			heap[size] = null;
+		}
+		if (size > 1) {
+			siftDown(0);
+		}
+		return true;
+	}
+
+	/**
+	 * Replay the events up to a time, then move the clock to it
+	 *
+	 * @param timeNanos time in nanoseconds since the epoch, inclusive
+	 * @return number of events replayed
+	 * @throws IOException if a stream can not be read
+	 */
+	public long runUntil(long timeNanos) throws IOException {
+		final long start = eventCount;
+		while (size > 0 && times[0] <= timeNanos) {
+			step();
+		}
+		clock.advanceTo(timeNanos);
+		return eventCount - start;
+	}
+
+	/**
+	 * Replay all the events
+	 *
+	 * @return number of events replayed
+	 * @throws IOException if a stream can not be read
+	 */
+	public long run() throws IOException {
+		final long start = eventCount;
+		while (step()) {
+			// listeners do the work
+		}
+		return eventCount - start;
+	}
+
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for (ReplayStream stream : streams) {
+			try {
+				stream.close();
+			} catch (IOException ex) {
+				if (failure == null) {
+					failure = ex;
+				}
+			}
+		}
+		size = 0;
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private boolean before(int i, int j) {
+		return times[i] < times[j] || (times[i] == times[j] && orders[i] < orders[j]);
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			final int parent = (i - 1) >>> 1;
+			if (!before(i, parent)) {
+				break;
+			}
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+		while (true) {
+			final int left = 2 * i + 1;
+			if (left >= size) {
+				break;
+			}
+			final int right = left + 1;
+			final int child = (right < size && before(right, left)) ? right : left;
+			if (!before(child, i)) {
+				break;
+			}
+			swap(i, child);
+			i = child;
+		}
+	}
+
+	private void swap(int i, int j) {
+		final ReplayStream stream = heap[i];
+		heap[i] = heap[j];
+		heap[j] = stream;
+		final long time = times[i];
+		times[i] = times[j];
+		times[j] = time;
+		final int order = orders[i];
+		orders[i] = orders[j];
+		orders[j] = order;
+	}
+}
@@ -0,0 +1,14 @@
+package com.github.sbouclier.replay;
+
+/**
+ * Kind of the events of a replay stream
+ *
+ * @author synapticloop
+ */
+public enum ReplayEvent {
+
+	TRADE,
+	SPREAD,
+	BOOK,
+	OHLC
+}
@@ -0,0 +1,18 @@
+package com.github.sbouclier.replay;
+
+/**
+ * Listener of replayed events
+ *
+ * @author synapticloop
+ */
+@FunctionalInterface
+public interface ReplayListener {
+
+	/**
+	 * Called for each event, in time order. The stream is positioned on the event only during the call: values needed
+	 * later must be read or copied, e.g. with {@link ReplayStream#toRecentTrade()}.
+	 *
+	 * @param stream stream of the event
+	 */
+	void onEvent(ReplayStream stream);
+}
@@ -0,0 +1,361 @@
+package com.github.sbouclier.replay;
+
+import com.github.sbouclier.history.BlockStoreReader;
+import com.github.sbouclier.history.BookJournalReader;
+import com.github.sbouclier.history.TapeKind;
+import com.github.sbouclier.history.TradeLogReader;
+import com.github.sbouclier.input.Interval;
+import com.github.sbouclier.result.OHLCResult.OHLC;
+import com.github.sbouclier.result.OrderBookResult.OrderBook;
+import com.github.sbouclier.result.RecentSpreadResult.Spread;
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Iterator;
+
+/**
+ * Time-ordered stream of the events of one kind for one pair, read one event at a time by the {@link ReplayEngine}.
+ *
+ * Trades and spreads are exposed as fixed-point values, so that they can be processed without allocation: column 0 is
+ * the price of a trade or the bid of a spread, column 1 the volume of a trade or the ask of a spread.
+ *
+ * @author synapticloop
+ */
+public abstract class ReplayStream implements Closeable {
+
+	private final String pair;
+	private final ReplayEvent event;
+
+	protected ReplayStream(String pair, ReplayEvent event) {
+		this.pair = pair;
+		this.event = event;
+	}
+
+	/**
+	 * Stream of the trades of a trade log
+	 *
+	 * @param pair   asset pair of the trades
+	 * @param reader trade log
+	 * @return stream
+	 */
+	public static ReplayStream trades(String pair, TradeLogReader reader) {
+		return new TradeLogStream(pair, reader);
+	}
+
+	/**
+	 * Stream of the trades or spreads of a block store
+	 *
+	 * @param reader block store
+	 * @return stream
+	 */
+	public static ReplayStream of(BlockStoreReader reader) {
+		return new BlockStoreStream(reader);
+	}
+
+	/**
+	 * Stream of the snapshots of an order book journal
+	 *
+	 * @param reader order book journal
+	 * @return stream
+	 */
+	public static ReplayStream books(BookJournalReader reader) {
+		return new BookJournalStream(reader);
+	}
+
+	/**
+	 * Stream of OHLC bars, each replayed when it closes
+	 *
+	 * @param pair     asset pair of the bars
+	 * @param interval interval of the bars
+	 * @param bars     bars in time order
+	 * @return stream
+	 */
+	public static ReplayStream ohlc(String pair, Interval interval, Iterable<OHLC> bars) {
+		return new OHLCStream(pair, interval, bars.iterator());
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	public String getPair() {
+		return pair;
+	}
+
+	public ReplayEvent getEvent() {
+		return event;
+	}
+
+	/**
+	 * Get time of the current event
+	 *
+	 * @return time in nanoseconds since the epoch
+	 */
+	public abstract long getTimeNanos();
+
+	/**
+	 * Get fixed-point value of the current trade or spread
+	 *
+	 * @param column 0 for the price or bid, 1 for the volume or ask
+	 * @return unscaled value
+	 */
+	public long getUnscaled(int column) {
+		throw new IllegalStateException("no decimal columns in a " + event + " stream");
+	}
+
+	/**
+	 * Get scale of a value of the current trade or spread
+	 *
+	 * @param column 0 for the price or bid, 1 for the volume or ask
+	 * @return scale
+	 */
+	public int getScale(int column) {
+		throw new IllegalStateException("no decimal columns in a " + event + " stream");
+	}
+
+	public boolean isSell() {
+		throw new IllegalStateException("not a trade stream");
+	}
+
+	public boolean isMarket() {
+		throw new IllegalStateException("not a trade stream");
+	}
+
+	public String getMiscellaneous() {
+		throw new IllegalStateException("not a trade stream");
+	}
+
+	/**
+	 * Get current book
+	 *
+	 * @return new order book
+	 */
+	public OrderBook getBook() {
+		throw new IllegalStateException("not a book stream");
+	}
+
+	/**
+	 * Get current bar
+	 *
+	 * @return bar
+	 */
+	public OHLC getOHLC() {
+		throw new IllegalStateException("not an OHLC stream");
+	}
+
+	public Interval getInterval() {
+		throw new IllegalStateException("not an OHLC stream");
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Move to the next event
+	 *
+	 * @return true if an event was read, false at the end of the stream
+	 * @throws IOException if the read fails
+	 */
+	public abstract boolean next() throws IOException;
+
+	/**
+	 * Get current event as a trade
+	 *
+	 * @return new trade
+	 */
+	public RecentTrade toRecentTrade() {
+		RecentTrade trade = new RecentTrade();
+		trade.price = BigDecimal.valueOf(getUnscaled(0), getScale(0));
+		trade.volume = BigDecimal.valueOf(getUnscaled(1), getScale(1));
+		trade.time = BigDecimal.valueOf(getTimeNanos(), 9).stripTrailingZeros();
+		trade.buySell = isSell() ? "s" : "b";
+		trade.marketLimit = isMarket() ? "m" : "l";
+		trade.miscellaneous = getMiscellaneous();
+		return trade;
+	}
+
+	/**
+	 * Get current event as a spread
+	 *
+	 * @return new spread
+	 */
+	public Spread toSpread() {
+		if (event != ReplayEvent.SPREAD) {
+			throw new IllegalStateException("not a spread stream");
+		}
+		return new Spread((int) Math.floorDiv(getTimeNanos(), 1_000_000_000L), BigDecimal.valueOf(getUnscaled(0), getScale(0)), BigDecimal.valueOf(getUnscaled(1), getScale(1)));
+	}
+
+	@Override
+	public void close() throws IOException {
+	}
+
+	private static class TradeLogStream extends ReplayStream {
+		private final TradeLogReader reader;
+
+		TradeLogStream(String pair, TradeLogReader reader) {
+			super(pair, ReplayEvent.TRADE);
+			this.reader = reader;
+		}
+
+		@Override
+		public long getTimeNanos() {
+			return reader.getTimeNanos();
+		}
+
+		@Override
+		public long getUnscaled(int column) {
+			return (column == 0) ? reader.getUnscaledPrice() : reader.getUnscaledVolume();
+		}
+
+		@Override
+		public int getScale(int column) {
+			return (column == 0) ? reader.getPriceScale() : reader.getVolumeScale();
+		}
+
+		@Override
+		public boolean isSell() {
+			return reader.isSell();
+		}
+
+		@Override
+		public boolean isMarket() {
+			return reader.isMarket();
+		}
+
+		@Override
+		public String getMiscellaneous() {
+			return reader.getMiscellaneous();
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			return reader.next();
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+	private static class BlockStoreStream extends ReplayStream {
+		private final BlockStoreReader reader;
+
+		BlockStoreStream(BlockStoreReader reader) {
+			super(reader.getPair(), (reader.getKind() == TapeKind.TRADES) ? ReplayEvent.TRADE : ReplayEvent.SPREAD);
+			this.reader = reader;
+		}
+
+		@Override
+		public long getTimeNanos() {
+			return reader.getTimeNanos();
+		}
+
+		@Override
+		public long getUnscaled(int column) {
+			return reader.getUnscaled(column);
+		}
+
+		@Override
+		public int getScale(int column) {
+			return reader.getScale(column);
+		}
+
+		@Override
+		public boolean isSell() {
+			return reader.isSell();
+		}
+
+		@Override
+		public boolean isMarket() {
+			return reader.isMarket();
+		}
+
+		@Override
+		public String getMiscellaneous() {
+			return reader.getMiscellaneous();
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			return reader.next();
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+	private static class BookJournalStream extends ReplayStream {
+		private final BookJournalReader reader;
+
+		BookJournalStream(BookJournalReader reader) {
+			super(reader.getPair(), ReplayEvent.BOOK);
+			this.reader = reader;
+		}
+
+		@Override
+		public long getTimeNanos() {
+			return reader.getTimeNanos();
+		}
+
+		@Override
+		public OrderBook getBook() {
+			return reader.getBook();
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			return reader.next();
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+	private static class OHLCStream extends ReplayStream {
+		private final Interval interval;
+		private final Iterator<OHLC> bars;
+		private OHLC bar;
+		private long time;
+
+		OHLCStream(String pair, Interval interval, Iterator<OHLC> bars) {
+			super(pair, ReplayEvent.OHLC);
+			this.interval = interval;
+			this.bars = bars;
+		}
+
+		@Override
+		public long getTimeNanos() {
+			return time;
+		}
+
+		@Override
+		public OHLC getOHLC() {
+			return bar;
+		}
+
+		@Override
+		public Interval getInterval() {
+			return interval;
+		}
+
+		@Override
+		public boolean next() {
+			if (!bars.hasNext()) {
+				return false;
+			}
+			bar = bars.next();
+			// replayed when the bar closes, not before its last trade
+			time = (bar.time + interval.getMinutes() * 60L) * 1_000_000_000L;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.github.sbouclier.result;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.List;
+
+/**
+ * Result of {@code AddOrderBatch}, one entry per submitted order in submission order
+ *
+ * @author synapticloop
+ */
+public class AddOrderBatchResult extends Result<AddOrderBatchResult.OrderBatch> {
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class OrderDescr {
+		public String order;
+		public String close;
+
+		@Override
+		public String toString() {
+			return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+					.append("order", order)
+					.append("close", close)
+					.toString();
+		}
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class BatchOrder {
+		public OrderDescr descr;
+		public String txid;
+		public String error;
+
+		@Override
+		public String toString() {
+			return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+					.append("descr", descr)
+					.append("txid", txid)
+					.append("error", error)
+					.toString();
+		}
+	}
+
+	public static class OrderBatch {
+		public List<BatchOrder> orders;
+
+		@Override
+		public String toString() {
+			return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+					.append("orders", orders)
+					.toString();
+		}
+	}
+}
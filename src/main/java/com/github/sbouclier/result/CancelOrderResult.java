@@ -0,0 +1,25 @@
+package com.github.sbouclier.result;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Result of {@code CancelOrder}, {@code CancelAll} and {@code CancelOrderBatch}
+ *
+ * @author synapticloop
+ */
+public class CancelOrderResult extends Result<CancelOrderResult.CancelOrder> {
+
+	public static class CancelOrder {
+		public Integer count;
+		public Boolean pending;
+
+		@Override
+		public String toString() {
+			return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+					.append("count", count)
+					.append("pending", pending)
+					.toString();
+		}
+	}
+}
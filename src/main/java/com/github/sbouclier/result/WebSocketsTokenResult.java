@@ -0,0 +1,29 @@
+package com.github.sbouclier.result;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Result from getWebSocketsToken
+ *
+ * @author synapticloop
+ */
+public class WebSocketsTokenResult extends Result<WebSocketsTokenResult.WebSocketsToken> {
+
+	public static class WebSocketsToken {
+		public String token;
+
+		/**
+		 * Time left to connect with the token, in seconds
+		 */
+		public Long expires;
+
+		@Override
+		public String toString() {
+			return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+					.append("token", "***")
+					.append("expires", expires)
+					.toString();
+		}
+	}
+}
@@ -0,0 +1,463 @@
+package com.github.sbouclier.simulator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.sbouclier.KrakenApiException;
+import com.github.sbouclier.KrakenApiMethod;
+import com.github.sbouclier.RequestSigner;
+import com.github.sbouclier.utils.ByteUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-process Kraken REST API, for load and latency testing of the client without reaching Kraken.
+ *
+ * The simulator serves plain {@code http} on the loopback interface all the methods of {@link KrakenApiMethod}, from
+ * fixtures set with {@link #setFixture} or else from generated data sized like the responses of Kraken. Private
+ * methods are authenticated like Kraken does: known API key, {@code API-Sign} signature and increasing nonce. Latency,
+ * Kraken errors and dropped connections can be injected to see how the client behaves under adverse conditions.
+ *
+ * <pre>
+ * try (KrakenSimulator simulator = KrakenSimulator.start()) {
+ *     simulator.addAccount("key", secret);
+ *     simulator.setLatency(LatencyModel.logNormal(20, 0.5));
+ *     simulator.injectError(KrakenSimulator.RATE_LIMIT_EXCEEDED, 0.01);
+ *
+ *     KrakenAPIClient client = new KrakenAPIClient("key", secret);
+ *     client.setBaseUrl(simulator.getBaseUrl());
+ *     client.setTransport(new HttpURLConnectionTransport());
+ * }
+ * </pre>
+ *
+ * Thread-safe: configuration can be changed while requests are served.
+ *
+ * @author synapticloop
+ */
+public class KrakenSimulator implements Closeable {
+
+	public static final String RATE_LIMIT_EXCEEDED = "EAPI:Rate limit exceeded";
+	public static final String SERVICE_UNAVAILABLE = "EService:Unavailable";
+	public static final String INVALID_KEY = "EAPI:Invalid key";
+	public static final String INVALID_SIGNATURE = "EAPI:Invalid signature";
+	public static final String INVALID_NONCE = "EAPI:Invalid nonce";
+	public static final String UNKNOWN_METHOD = "EGeneral:Unknown method";
+
+	public static final int DEFAULT_THREADS = 16;
+
+	private static final ObjectMapper JSON_READER = new ObjectMapper();
+	private static final int COMPRESSION_THRESHOLD = 1024;
+	private static final int MAX_COMPRESSED = 256;
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Map<String, KrakenApiMethod> methods = new HashMap<>();
+	private final SimulatedMarket market = new SimulatedMarket(42);
+
+	private final ConcurrentMap<String, Account> accounts = new ConcurrentHashMap<>();
+	private final Map<KrakenApiMethod, byte[]> fixtures = Collections.synchronizedMap(new EnumMap<>(KrakenApiMethod.class));
+	private final Map<KrakenApiMethod, LatencyModel> methodLatencies = Collections.synchronizedMap(new EnumMap<>(KrakenApiMethod.class));
+	private final List<InjectedError> errors = new CopyOnWriteArrayList<>();
+	private final ConcurrentMap<ByteBuffer, byte[]> compressed = new ConcurrentHashMap<>();
+
+	private volatile LatencyModel latency = LatencyModel.none();
+	private volatile double resetProbability;
+	private volatile long nonceWindow;
+
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong injectedErrorCount = new AtomicLong();
+	private final AtomicLong resetCount = new AtomicLong();
+
+	private KrakenSimulator(HttpServer server, int threads) {
+		this.server = server;
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "kraken-simulator");
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (KrakenApiMethod method : KrakenApiMethod.values()) {
+			methods.put(method.getTemplate().getPath(), method);
+		}
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+	}
+
+	/**
+	 * Start simulator on a free port, with {@value #DEFAULT_THREADS} threads
+	 *
+	 * @return started simulator
+	 * @throws IOException if the server can not be started
+	 */
+	public static KrakenSimulator start() throws IOException {
+		return start(0, DEFAULT_THREADS);
+	}
+
+	/**
+	 * Start simulator
+	 *
+	 * @param port    port on the loopback interface, 0 for a free port
+	 * @param threads number of threads serving requests
+	 * @return started simulator
+	 * @throws IOException if the server can not be started
+	 */
+	public static KrakenSimulator start(int port, int threads) throws IOException {
+		final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		final KrakenSimulator simulator = new KrakenSimulator(server, threads);
+		server.start();
+		return simulator;
+	}
+
+	// -----------------
+	// - CONFIGURATION -
+	// -----------------
+
+	/**
+	 * Add account allowed to call private methods
+	 *
+	 * @param apiKey API key
+	 * @param secret base64 encoded API secret
+	 * @throws KrakenApiException if the secret is invalid
+	 */
+	public void addAccount(String apiKey, String secret) throws KrakenApiException {
+		accounts.put(apiKey, new Account(new RequestSigner(secret)));
+	}
+
+	/**
+	 * Serve a fixture instead of generated data
+	 *
+	 * @param method method
+	 * @param json   full response, e.g. {@code {"error":[],"result":{...}}}, null to serve generated data again
+	 */
+	public void setFixture(KrakenApiMethod method, String json) {
+		if (json == null) {
+			fixtures.remove(method);
+		} else {
+			fixtures.put(method, ByteUtils.stringToBytes(json));
+		}
+	}
+
+	/**
+	 * Set latency added to all methods
+	 *
+	 * @param latency latency model
+	 */
+	public void setLatency(LatencyModel latency) {
+		this.latency = latency;
+	}
+
+	/**
+	 * Set latency added to a method, instead of the latency of all methods
+	 *
+	 * @param method  method
+	 * @param latency latency model, null for the latency of all methods
+	 */
+	public void setLatency(KrakenApiMethod method, LatencyModel latency) {
+		if (latency == null) {
+			methodLatencies.remove(method);
+		} else {
+			methodLatencies.put(method, latency);
+		}
+	}
+
+	/**
+	 * Answer requests with a Kraken error
+	 *
+	 * @param error       error, e.g. {@link #RATE_LIMIT_EXCEEDED} or {@link #SERVICE_UNAVAILABLE}
+	 * @param probability probability of a request to be answered with the error
+	 */
+	public void injectError(String error, double probability) {
+		errors.add(new InjectedError(error, probability));
+	}
+
+	public void clearErrors() {
+		errors.clear();
+	}
+
+	/**
+	 * Drop connections without answering
+	 *
+	 * @param probability probability of a request to have its connection closed instead of answered
+	 */
+	public void setResetProbability(double probability) {
+		this.resetProbability = probability;
+	}
+
+	/**
+	 * Accept nonces lower than the last one of the account, like the nonce window setting of Kraken API keys, for
+	 * concurrent calls reaching the server out of order. Each nonce is still accepted once.
+	 *
+	 * @param nonceWindow accepted distance below the last nonce, 0 (by default) for strictly increasing nonces
+	 */
+	public void setNonceWindow(long nonceWindow) {
+		this.nonceWindow = nonceWindow;
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	/**
+	 * Get base url, to be set on the clients
+	 *
+	 * @return base url, e.g. {@code http://127.0.0.1:12345}
+	 */
+	public String getBaseUrl() {
+		return "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort();
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Get number of private requests rejected for an invalid key, signature or nonce
+	 *
+	 * @return rejected request count
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	public long getInjectedErrorCount() {
+		return injectedErrorCount.get();
+	}
+
+	public long getResetCount() {
+		return resetCount.get();
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			final byte[] body = readAll(exchange.getRequestBody());
+			requestCount.incrementAndGet();
+
+			final String path = exchange.getRequestURI().getPath();
+			final KrakenApiMethod method = methods.get(path);
+			if (method == null) {
+				send(exchange, 404, SimulatedMarket.error(UNKNOWN_METHOD));
+				return;
+			}
+
+			final ThreadLocalRandom random = ThreadLocalRandom.current();
+			final LatencyModel model = methodLatencies.getOrDefault(method, latency);
+			final long delay = model.nextNanos(random);
+			if (delay > 0) {
+				TimeUnit.NANOSECONDS.sleep(delay);
+			}
+
+			if (resetProbability > 0 && random.nextDouble() < resetProbability) {
+				resetCount.incrementAndGet();
+				// closing the exchange before the response headers closes the connection
+				exchange.close();
+				return;
+			}
+
+			final Map<String, Object> params;
+			if (method.isPrivate()) {
+				params = parseBody(exchange, body);
+				final String failure = authenticate(exchange, path, body, params);
+				if (failure != null) {
+					rejectedCount.incrementAndGet();
+					send(exchange, 200, SimulatedMarket.error(failure));
+					return;
+				}
+			} else {
+				params = parseForm(exchange.getRequestURI().getRawQuery());
+			}
+
+			for (InjectedError error : errors) {
+				if (random.nextDouble() < error.probability) {
+					injectedErrorCount.incrementAndGet();
+					send(exchange, 200, SimulatedMarket.error(error.error));
+					return;
+				}
+			}
+
+			byte[] response = fixtures.get(method);
+			if (response == null) {
+				response = market.respond(method, params, System.currentTimeMillis() / 1000);
+			}
+			send(exchange, 200, (response != null) ? response : SimulatedMarket.error(UNKNOWN_METHOD));
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			exchange.close();
+		} catch (RuntimeException ex) {
+			send(exchange, 500, SimulatedMarket.error("EGeneral:Internal error"));
+		}
+	}
+
+	/**
+	 * Check key, signature and nonce of a private request
+	 *
+	 * @return Kraken error, null if authenticated
+	 */
+	private String authenticate(HttpExchange exchange, String path, byte[] body, Map<String, Object> params) {
+		final String apiKey = exchange.getRequestHeaders().getFirst("API-Key");
+		final Account account = (apiKey != null) ? accounts.get(apiKey) : null;
+		if (account == null) {
+			return INVALID_KEY;
+		}
+
+		final Object nonceParam = params.get("nonce");
+		final String signature = exchange.getRequestHeaders().getFirst("API-Sign");
+		if (nonceParam == null || signature == null) {
+			return INVALID_SIGNATURE;
+		}
+		final String nonce = String.valueOf(nonceParam);
+		final String expected = account.signer.sign(ByteUtils.stringToBytes(path), ByteUtils.stringToBytes(nonce), body);
+		if (!MessageDigest.isEqual(ByteUtils.stringToBytes(expected), ByteUtils.stringToBytes(signature))) {
+			return INVALID_SIGNATURE;
+		}
+
+		try {
+			return account.acceptNonce(Long.parseLong(nonce), nonceWindow) ? null : INVALID_NONCE;
+		} catch (NumberFormatException ex) {
+			return INVALID_NONCE;
+		}
+	}
+
+	private void send(HttpExchange exchange, int status, byte[] response) throws IOException {
+		byte[] bytes = response;
+		final String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		if (accepted != null && accepted.contains("gzip") && response.length >= COMPRESSION_THRESHOLD) {
+			if (compressed.size() > MAX_COMPRESSED) {
+				// fixtures replaced over time would otherwise be kept forever
+				compressed.clear();
+			}
+			// keyed by content, generated responses being new arrays
+			bytes = compressed.computeIfAbsent(ByteBuffer.wrap(response), key -> gzip(response));
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		}
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> parseBody(HttpExchange exchange, byte[] body) throws IOException {
+		final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+		if (contentType != null && contentType.startsWith("application/json")) {
+			return (body.length > 0) ? JSON_READER.readValue(body, Map.class) : Collections.emptyMap();
+		}
+		return parseForm(new String(body, StandardCharsets.UTF_8));
+	}
+
+	private static Map<String, Object> parseForm(String form) throws UnsupportedEncodingException {
+		final Map<String, Object> params = new HashMap<>();
+		if (form == null || form.isEmpty()) {
+			return params;
+		}
+		for (String parameter : form.split("&")) {
+			final int equals = parameter.indexOf('=');
+			if (equals > 0) {
+				params.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"), URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+			}
+		}
+		return params;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] gzip(byte[] response) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(response.length / 4);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(response);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Account of an API key
+	 */
+	private static class Account {
+		private final RequestSigner signer;
+		private final NavigableSet<Long> windowNonces = new TreeSet<>();
+		private long lastNonce;
+
+		Account(RequestSigner signer) {
+			this.signer = signer;
+		}
+
+		/**
+		 * Accept nonce greater than the last one less the window, once: nonces within the window are remembered so
+		 * that a replayed request is rejected
+		 */
+		synchronized boolean acceptNonce(long nonce, long window) {
+			if (nonce <= lastNonce - window || !windowNonces.add(nonce)) {
+				return false;
+			}
+			if (nonce > lastNonce) {
+				lastNonce = nonce;
+				windowNonces.headSet(lastNonce - window, true).clear();
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Error injected with a probability
+	 */
+	private static class InjectedError {
+		private final String error;
+		private final double probability;
+
+		InjectedError(String error, double probability) {
+			this.error = error;
+			this.probability = probability;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.github.sbouclier.simulator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distribution of the latency added by the {@link KrakenSimulator} before answering a request
+ *
+ * @author synapticloop
+ */
+@FunctionalInterface
+public interface LatencyModel {
+
+	/**
+	 * Draw latency of a request
+	 *
+	 * @param random source of randomness
+	 * @return latency in nanoseconds
+	 */
+	long nextNanos(Random random);
+
+	/**
+	 * No added latency
+	 *
+	 * @return model
+	 */
+	static LatencyModel none() {
+		return random -> 0;
+	}
+
+	/**
+	 * Constant latency
+	 *
+	 * @param millis latency in milliseconds
+	 * @return model
+	 */
+	static LatencyModel fixed(long millis) {
+		final long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+		return random -> nanos;
+	}
+
+	/**
+	 * Latency uniformly distributed in a range
+	 *
+	 * @param minMillis minimum latency in milliseconds
+	 * @param maxMillis maximum latency in milliseconds
+	 * @return model
+	 */
+	static LatencyModel uniform(long minMillis, long maxMillis) {
+		final long min = TimeUnit.MILLISECONDS.toNanos(minMillis);
+		final long range = TimeUnit.MILLISECONDS.toNanos(maxMillis) - min;
+		return random -> min + (long) (random.nextDouble() * range);
+	}
+
+	/**
+	 * Log-normal latency, the usual shape of network and server latencies: most requests close to the median and a long
+	 * tail of slow ones
+	 *
+	 * @param medianMillis median latency in milliseconds
+	 * @param sigma        standard deviation of the log of the latency, e.g. 0.5 for a 99th percentile about 3 times
+	 *                     the median
+	 * @return model
+	 */
+	static LatencyModel logNormal(double medianMillis, double sigma) {
+		final double median = medianMillis * 1e6;
+		return random -> (long) (median * Math.exp(sigma * random.nextGaussian()));
+	}
+}
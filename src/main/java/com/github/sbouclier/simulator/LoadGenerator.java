@@ -0,0 +1,167 @@
+package com.github.sbouclier.simulator;
+
+import com.github.sbouclier.KrakenApiException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator: calls made in a loop by concurrent threads, each call timed, e.g. against a {@link KrakenSimulator}
+ *
+ * <pre>
+ * LoadReport report = new LoadGenerator(32).runFor(() -&gt; client.getTicker(pairs), 10_000);
+ * System.out.println(report);
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class LoadGenerator {
+
+	/**
+	 * Call made by the load generator
+	 */
+	@FunctionalInterface
+	public interface Call {
+		void call() throws Exception;
+	}
+
+	private final int threads;
+
+	/**
+	 * Create load generator
+	 *
+	 * @param threads number of threads making calls concurrently
+	 */
+	public LoadGenerator(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be positive: " + threads);
+		}
+		this.threads = threads;
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Make calls for a duration
+	 *
+	 * @param call           call
+	 * @param durationMillis duration in milliseconds
+	 * @return report
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	public LoadReport runFor(Call call, long durationMillis) throws InterruptedException {
+		return run(call, Long.MAX_VALUE, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis));
+	}
+
+	/**
+	 * Make a number of calls on each thread
+	 *
+	 * @param call           call
+	 * @param callsPerThread number of calls of each thread
+	 * @return report
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	public LoadReport runCount(Call call, long callsPerThread) throws InterruptedException {
+		return run(call, callsPerThread, Long.MAX_VALUE);
+	}
+
+	private LoadReport run(Call call, long callsPerThread, long endNanos) throws InterruptedException {
+		final Worker[] workers = new Worker[threads];
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> started = new ArrayList<>(threads);
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Worker(call, callsPerThread, endNanos, start);
+			final Thread thread = new Thread(workers[i], "load-generator-" + i);
+			thread.setDaemon(true);
+			thread.start();
+			started.add(thread);
+		}
+
+		final long startNanos = System.nanoTime();
+		start.countDown();
+		try {
+			for (Thread thread : started) {
+				thread.join();
+			}
+		} catch (InterruptedException ex) {
+			started.forEach(Thread::interrupt);
+			throw ex;
+		}
+		final long elapsedNanos = System.nanoTime() - startNanos;
+
+		int count = 0;
+		for (Worker worker : workers) {
+			count += worker.count;
+		}
+		final long[] latencies = new long[count];
+		final Map<String, Long> errors = new HashMap<>();
+		int offset = 0;
+		for (Worker worker : workers) {
+			System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+			offset += worker.count;
+			worker.errors.forEach((error, errorCount) -> errors.merge(error, errorCount, Long::sum));
+		}
+		Arrays.sort(latencies);
+		return new LoadReport(elapsedNanos, latencies, errors);
+	}
+
+	private static String describe(Exception ex) {
+		if (ex instanceof KrakenApiException) {
+			return ex.getMessage();
+		}
+		return ex.getClass().getSimpleName();
+	}
+
+	/**
+	 * Thread making calls, latencies recorded in a growing primitive array so that recording allocates nothing on
+	 * the call path
+	 */
+	private static class Worker implements Runnable {
+		private final Call call;
+		private final long calls;
+		private final long endNanos;
+		private final CountDownLatch start;
+
+		private long[] latencies = new long[1024];
+		private int count;
+		private final Map<String, Long> errors = new HashMap<>();
+
+		Worker(Call call, long calls, long endNanos, CountDownLatch start) {
+			this.call = call;
+			this.calls = calls;
+			this.endNanos = endNanos;
+			this.start = start;
+		}
+
+		@Override
+		public void run() {
+			try {
+				start.await();
+			} catch (InterruptedException ex) {
+				return;
+			}
+			for (long i = 0; i < calls && !Thread.currentThread().isInterrupted(); i++) {
+				final long begin = System.nanoTime();
+				if (begin - endNanos >= 0) {
+					break;
+				}
+				try {
+					call.call();
+				} catch (Exception ex) {
+					errors.merge(describe(ex), 1L, Long::sum);
+				}
+				if (count == latencies.length) {
+					latencies = Arrays.copyOf(latencies, count * 2);
+				}
+				latencies[count++] = System.nanoTime() - begin;
+			}
+		}
+	}
+}
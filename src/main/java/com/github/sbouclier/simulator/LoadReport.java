@@ -0,0 +1,117 @@
+package com.github.sbouclier.simulator;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Report of a {@link LoadGenerator} run: throughput, latency percentiles and errors
+ *
+ * @author synapticloop
+ */
+public class LoadReport {
+
+	private final long elapsedNanos;
+	private final long[] latencies;
+	private final Map<String, Long> errors;
+
+	/**
+	 * Create report
+	 *
+	 * @param elapsedNanos duration of the run in nanoseconds
+	 * @param latencies    sorted latencies of all calls in nanoseconds
+	 * @param errors       number of failed calls by error
+	 */
+	LoadReport(long elapsedNanos, long[] latencies, Map<String, Long> errors) {
+		this.elapsedNanos = elapsedNanos;
+		this.latencies = latencies;
+		this.errors = Collections.unmodifiableMap(new TreeMap<>(errors));
+	}
+
+	// -----------
+	// - GETTERS -
+	// -----------
+
+	/**
+	 * Get number of calls, failed or not
+	 *
+	 * @return call count
+	 */
+	public long getCount() {
+		return latencies.length;
+	}
+
+	public long getErrorCount() {
+		long count = 0;
+		for (long errorCount : errors.values()) {
+			count += errorCount;
+		}
+		return count;
+	}
+
+	/**
+	 * Get number of failed calls by error, e.g. {@code [EAPI:Rate limit exceeded]} for a Kraken error or the exception
+	 * class name for other failures
+	 *
+	 * @return failed call count by error
+	 */
+	public Map<String, Long> getErrors() {
+		return errors;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Get throughput
+	 *
+	 * @return calls per second
+	 */
+	public double getThroughput() {
+		return (elapsedNanos > 0) ? latencies.length * 1e9 / elapsedNanos : 0;
+	}
+
+	/**
+	 * Get latency percentile, nearest rank
+	 *
+	 * @param percentile percentile between 0 and 100, e.g. 99.9
+	 * @return latency in nanoseconds, 0 if no call was made
+	 */
+	public long getLatencyNanos(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+		}
+		if (latencies.length == 0) {
+			return 0;
+		}
+		final int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+		return latencies[Math.max(0, rank - 1)];
+	}
+
+	public long getMaxLatencyNanos() {
+		return (latencies.length == 0) ? 0 : latencies[latencies.length - 1];
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("count", getCount())
+				.append("throughput", String.format("%.1f/s", getThroughput()))
+				.append("p50", millis(getLatencyNanos(50)))
+				.append("p90", millis(getLatencyNanos(90)))
+				.append("p99", millis(getLatencyNanos(99)))
+				.append("p99.9", millis(getLatencyNanos(99.9)))
+				.append("max", millis(getMaxLatencyNanos()))
+				.append("errors", errors)
+				.toString();
+	}
+
+	private static String millis(long nanos) {
+		return String.format("%.3fms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+	}
+}
@@ -0,0 +1,330 @@
+package com.github.sbouclier.simulator;
+
+import com.github.sbouclier.KrakenApiMethod;
+import com.github.sbouclier.utils.ByteUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Generated responses of the {@link KrakenSimulator}, sized like the responses of Kraken: 720 OHLC bars, 1000 trades,
+ * books of up to 500 levels. Market data is generated once per pair and parameters, from a seed derived from the pair,
+ * and then served from cache. Thread-safe.
+ *
+ * @author synapticloop
+ */
+final class SimulatedMarket {
+
+	static final int OHLC_BARS = 720;
+	static final int TRADES = 1000;
+	static final int SPREADS = 200;
+	static final int DEFAULT_BOOK_LEVELS = 100;
+	static final int MAX_BOOK_LEVELS = 500;
+
+	private static final String[] PAIRS = {"XXBTZEUR", "XXBTZUSD", "XETHZEUR", "XETHZUSD"};
+
+	private final long seed;
+	private final ConcurrentMap<String, byte[]> cache = new ConcurrentHashMap<>();
+	private final AtomicLong txids = new AtomicLong();
+
+	SimulatedMarket(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Get generated response
+	 *
+	 * @param method     method
+	 * @param params     query or body parameters
+	 * @param nowSeconds current time in seconds
+	 * @return JSON response, null if the method has no generated response
+	 */
+	byte[] respond(KrakenApiMethod method, Map<String, Object> params, long nowSeconds) {
+		final String pair = String.valueOf(params.getOrDefault("pair", PAIRS[0]));
+		switch (method) {
+		case SERVER_TIME:
+			return ok("{\"unixtime\":" + nowSeconds + ",\"rfc1123\":\""
+					+ DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochSecond(nowSeconds).atOffset(ZoneOffset.UTC)) + "\"}");
+		case ASSET_INFORMATION:
+			return cached("assets", () -> assets());
+		case ASSET_PAIRS:
+			return cached("pairs", () -> assetPairs());
+		case TICKER_INFORMATION:
+			return cached("ticker|" + pair, () -> ticker(pair.split(",")));
+		case OHLC:
+			final int interval = Integer.parseInt(String.valueOf(params.getOrDefault("interval", "1")));
+			return cached("ohlc|" + pair + "|" + interval, () -> ohlc(pair, interval, nowSeconds));
+		case ORDER_BOOK:
+			final int levels = Math.min(MAX_BOOK_LEVELS, Integer.parseInt(String.valueOf(params.getOrDefault("count", DEFAULT_BOOK_LEVELS))));
+			return cached("depth|" + pair + "|" + levels, () -> book(pair, levels, nowSeconds));
+		case RECENT_TRADES:
+			return cached("trades|" + pair, () -> trades(pair, nowSeconds));
+		case RECENT_SPREADS:
+			return cached("spreads|" + pair, () -> spreads(pair, nowSeconds));
+
+		case ACCOUNT_BALANCE:
+			return ok("{\"ZEUR\":\"100000.0000\",\"XXBT\":\"10.0000000000\",\"XETH\":\"100.0000000000\"}");
+		case TRADE_BALANCE:
+			return ok("{\"eb\":\"350000.0000\",\"tb\":\"350000.0000\",\"m\":\"0.0000\",\"n\":\"0.0000\",\"c\":\"0.0000\","
+					+ "\"v\":\"0.0000\",\"e\":\"350000.0000\",\"mf\":\"350000.0000\"}");
+		case OPEN_ORDERS:
+			return ok("{\"open\":{}}");
+		case CLOSED_ORDERS:
+			return ok("{\"closed\":{},\"count\":0}");
+		case TRADES_HISTORY:
+			return ok("{\"trades\":{},\"count\":0}");
+		case LEDGERS_INFORMATION:
+			return ok("{\"ledger\":{},\"count\":0}");
+		case ORDERS_INFORMATION:
+		case TRADES_INFORMATION:
+		case OPEN_POSITIONS:
+		case QUERY_LEDGERS:
+		case WITHDRAW_INFO:
+			return ok("{}");
+		case TRADE_VOLUME:
+			return ok("{\"currency\":\"ZUSD\",\"volume\":\"0.0000\"}");
+		case WITHDRAW_STATUS:
+			return ok("[]");
+		case ADD_STANDARD_ORDER:
+			return ok("{\"descr\":{\"order\":\"" + describe(params) + "\"},\"txid\":[\"" + nextTxid() + "\"]}");
+		case ADD_ORDER_BATCH:
+			return addOrderBatch(params);
+		case CANCEL_ORDER:
+			return ok("{\"count\":1,\"pending\":false}");
+		case CANCEL_ALL_ORDERS:
+			return ok("{\"count\":0}");
+		case CANCEL_ORDER_BATCH:
+			final Object orders = params.get("orders");
+			return ok("{\"count\":" + ((orders instanceof List) ? ((List<?>) orders).size() : 0) + "}");
+		case WEBSOCKETS_TOKEN:
+			return ok("{\"token\":\"" + Long.toHexString(seed) + Long.toHexString(txids.incrementAndGet()) + "\",\"expires\":900}");
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Wrap result in a Kraken response
+	 *
+	 * @param result JSON result
+	 * @return response
+	 */
+	static byte[] ok(String result) {
+		return ByteUtils.stringToBytes("{\"error\":[],\"result\":" + result + "}");
+	}
+
+	/**
+	 * Kraken error response
+	 *
+	 * @param error error, e.g. {@code EAPI:Invalid nonce}
+	 * @return response
+	 */
+	static byte[] error(String error) {
+		return ByteUtils.stringToBytes("{\"error\":[\"" + error + "\"]}");
+	}
+
+	private byte[] cached(String key, Supplier<byte[]> generator) {
+		byte[] response = cache.get(key);
+		if (response == null) {
+			response = generator.get();
+			final byte[] previous = cache.putIfAbsent(key, response);
+			if (previous != null) {
+				response = previous;
+			}
+		}
+		return response;
+	}
+
+	private Random random(String pair) {
+		return new Random(seed ^ pair.hashCode());
+	}
+
+	private static long midPrice(String pair) {
+		// in tenths of the quote currency
+		return pair.contains("XBT") ? 250_000 : 20_000;
+	}
+
+	private byte[] assets() {
+		final StringBuilder json = new StringBuilder("{");
+		final String[] assets = {"XXBT", "XETH", "ZEUR", "ZUSD"};
+		for (int i = 0; i < assets.length; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			final boolean fiat = assets[i].startsWith("Z");
+			json.append('"').append(assets[i]).append("\":{\"aclass\":\"currency\",\"altname\":\"").append(assets[i].substring(1))
+					.append("\",\"decimals\":").append(fiat ? 4 : 10).append(",\"display_decimals\":").append(fiat ? 2 : 5).append('}');
+		}
+		return ok(json.append('}').toString());
+	}
+
+	private byte[] assetPairs() {
+		final StringBuilder json = new StringBuilder("{");
+		for (int i = 0; i < PAIRS.length; i++) {
+			final String base = PAIRS[i].substring(0, 4);
+			final String quote = PAIRS[i].substring(4);
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append('"').append(PAIRS[i]).append("\":{\"altname\":\"").append(base.substring(1)).append(quote.substring(1))
+					.append("\",\"wsname\":\"").append(base.substring(1)).append('/').append(quote.substring(1))
+					.append("\",\"aclass_base\":\"currency\",\"base\":\"").append(base)
+					.append("\",\"aclass_quote\":\"currency\",\"quote\":\"").append(quote)
+					.append("\",\"lot\":\"unit\",\"pair_decimals\":1,\"lot_decimals\":8,\"lot_multiplier\":1,")
+					.append("\"leverage_buy\":[],\"leverage_sell\":[],\"fee_volume_currency\":\"ZUSD\",")
+					.append("\"margin_call\":80,\"margin_stop\":40}");
+		}
+		return ok(json.append('}').toString());
+	}
+
+	private byte[] ticker(String[] pairs) {
+		final StringBuilder json = new StringBuilder("{");
+		for (int i = 0; i < pairs.length; i++) {
+			final BigDecimal mid = BigDecimal.valueOf(midPrice(pairs[i]), 1);
+			final String ask = mid.add(new BigDecimal("0.1")).toPlainString();
+			final String bid = mid.subtract(new BigDecimal("0.1")).toPlainString();
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append('"').append(pairs[i]).append("\":{")
+					.append("\"a\":[\"").append(ask).append("\",\"1\",\"1.000\"],")
+					.append("\"b\":[\"").append(bid).append("\",\"2\",\"2.000\"],")
+					.append("\"c\":[\"").append(mid.toPlainString()).append("\",\"0.50000000\"],")
+					.append("\"v\":[\"1500.00000000\",\"9000.00000000\"],")
+					.append("\"p\":[\"").append(mid.toPlainString()).append("\",\"").append(mid.toPlainString()).append("\"],")
+					.append("\"t\":[3000,21000],")
+					.append("\"l\":[\"").append(bid).append("\",\"").append(bid).append("\"],")
+					.append("\"h\":[\"").append(ask).append("\",\"").append(ask).append("\"],")
+					.append("\"o\":\"").append(mid.toPlainString()).append("\"}");
+		}
+		return ok(json.append('}').toString());
+	}
+
+	private byte[] ohlc(String pair, int interval, long nowSeconds) {
+		final Random random = random(pair);
+		final long step = interval * 60L;
+		final long last = nowSeconds / step * step;
+		long close = midPrice(pair);
+		final StringBuilder json = new StringBuilder(OHLC_BARS * 80).append('{').append('"').append(pair).append("\":[");
+		for (int i = 0; i < OHLC_BARS; i++) {
+			final long open = close;
+			close = Math.max(10, open + random.nextInt(201) - 100);
+			final long high = Math.max(open, close) + random.nextInt(50);
+			final long low = Math.min(open, close) - random.nextInt(50);
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append('[').append(last - (OHLC_BARS - 1 - i) * step)
+					.append(",\"").append(BigDecimal.valueOf(open, 1).toPlainString())
+					.append("\",\"").append(BigDecimal.valueOf(high, 1).toPlainString())
+					.append("\",\"").append(BigDecimal.valueOf(low, 1).toPlainString())
+					.append("\",\"").append(BigDecimal.valueOf(close, 1).toPlainString())
+					.append("\",\"").append(BigDecimal.valueOf((open + close) / 2, 1).toPlainString())
+					.append("\",\"").append(BigDecimal.valueOf(random.nextInt(1_000_000_000), 8).toPlainString())
+					.append("\",").append(1 + random.nextInt(500)).append(']');
+		}
+		return ok(json.append("],\"last\":").append(last - step).append('}').toString());
+	}
+
+	private byte[] book(String pair, int levels, long nowSeconds) {
+		final Random random = random(pair);
+		final long mid = midPrice(pair);
+		final StringBuilder json = new StringBuilder(levels * 100).append('{').append('"').append(pair).append("\":{\"asks\":[");
+		levels(json, random, mid + 1, 1, levels, nowSeconds);
+		json.append("],\"bids\":[");
+		levels(json, random, mid - 1, -1, levels, nowSeconds);
+		return ok(json.append("]}}").toString());
+	}
+
+	private static void levels(StringBuilder json, Random random, long start, int direction, int levels, long nowSeconds) {
+		long price = start;
+		for (int i = 0; i < levels; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("[\"").append(BigDecimal.valueOf(price, 1).toPlainString())
+					.append("\",\"").append(BigDecimal.valueOf(1 + random.nextInt(500_000), 5).toPlainString())
+					.append("\",").append(nowSeconds - random.nextInt(600)).append(']');
+			price += direction * (1 + random.nextInt(5));
+		}
+	}
+
+	private byte[] trades(String pair, long nowSeconds) {
+		final Random random = random(pair);
+		long price = midPrice(pair);
+		long time = (nowSeconds - TRADES) * 1_000_000_000L;
+		final StringBuilder json = new StringBuilder(TRADES * 60).append('{').append('"').append(pair).append("\":[");
+		for (int i = 0; i < TRADES; i++) {
+			price = Math.max(10, price + random.nextInt(11) - 5);
+			time += random.nextInt(2_000_000_000);
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("[\"").append(BigDecimal.valueOf(price, 1).toPlainString())
+					.append("\",\"").append(BigDecimal.valueOf(1 + random.nextInt(100_000_000), 8).toPlainString())
+					.append("\",").append(BigDecimal.valueOf(time / 100_000, 4).toPlainString())
+					.append(",\"").append(random.nextBoolean() ? 'b' : 's')
+					.append("\",\"").append(random.nextInt(4) == 0 ? 'm' : 'l').append("\",\"\"]");
+		}
+		return ok(json.append("],\"last\":\"").append(time).append("\"}").toString());
+	}
+
+	private byte[] spreads(String pair, long nowSeconds) {
+		final Random random = random(pair);
+		long bid = midPrice(pair) - 1;
+		long time = nowSeconds - SPREADS * 2;
+		final StringBuilder json = new StringBuilder(SPREADS * 40).append('{').append('"').append(pair).append("\":[");
+		for (int i = 0; i < SPREADS; i++) {
+			bid = Math.max(10, bid + random.nextInt(5) - 2);
+			time += random.nextInt(4);
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append('[').append(time)
+					.append(",\"").append(BigDecimal.valueOf(bid, 1).toPlainString())
+					.append("\",\"").append(BigDecimal.valueOf(bid + 1 + random.nextInt(3), 1).toPlainString()).append("\"]");
+		}
+		return ok(json.append("],\"last\":").append(time).append('}').toString());
+	}
+
+	private byte[] addOrderBatch(Map<String, Object> params) {
+		final Object orders = params.get("orders");
+		final StringBuilder json = new StringBuilder("{\"orders\":[");
+		if (orders instanceof List) {
+			boolean first = true;
+			for (Object order : (List<?>) orders) {
+				if (!first) {
+					json.append(',');
+				}
+				first = false;
+				@SuppressWarnings("unchecked")
+				final Map<String, Object> orderParams = (order instanceof Map) ? (Map<String, Object>) order : Collections.emptyMap();
+				final Map<String, Object> described = new HashMap<>(orderParams);
+				described.putIfAbsent("pair", params.get("pair"));
+				json.append("{\"txid\":\"").append(nextTxid()).append("\",\"descr\":{\"order\":\"").append(describe(described)).append("\"}}");
+			}
+		}
+		return ok(json.append("]}").toString());
+	}
+
+	private static String describe(Map<String, Object> params) {
+		return params.get("type") + " " + params.get("volume") + " " + params.get("pair") + " @ " + params.get("ordertype")
+				+ (params.containsKey("price") ? " " + params.get("price") : "");
+	}
+
+	private String nextTxid() {
+		final String id = String.format("%018X", (seed & 0xFFFFFF) << 36 | txids.incrementAndGet());
+		return "O" + id.substring(0, 5) + "-" + id.substring(5, 10) + "-" + id.substring(10, 16);
+	}
+}
@@ -0,0 +1,115 @@
+package com.github.sbouclier.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only map view over several maps with disjoint keys, e.g. the results of a query split in chunks.
+ *
+ * Entries are not copied: lookups go through the maps in order and iteration chains their entries. The size is
+ * computed once, the maps must not be modified afterwards.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @author synapticloop
+ */
+public final class CompositeMap<K, V> extends AbstractMap<K, V> {
+
+	private final List<? extends Map<K, V>> maps;
+	private final int size;
+	private final Set<Entry<K, V>> entrySet = new EntrySet();
+
+	/**
+	 * Create view
+	 *
+	 * @param maps maps with disjoint keys, null maps being skipped
+	 */
+	public CompositeMap(List<? extends Map<K, V>> maps) {
+		this.maps = maps;
+
+		int total = 0;
+		for (Map<K, V> map : maps) {
+			if (map != null) {
+				total += map.size();
+			}
+		}
+		this.size = total;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		for (Map<K, V> map : maps) {
+			if (map != null && map.containsKey(key)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V get(Object key) {
+		for (Map<K, V> map : maps) {
+			if (map != null) {
+				final V value = map.get(key);
+				if (value != null || map.containsKey(key)) {
+					return value;
+				}
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		return entrySet;
+	}
+
+	private class EntrySet extends AbstractSet<Entry<K, V>> {
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Iterator<Entry<K, V>> iterator() {
+			return new Iterator<Entry<K, V>>() {
+				private final Iterator<? extends Map<K, V>> mapIterator = maps.iterator();
+				private Iterator<Entry<K, V>> current = Collections.emptyIterator();
+
+				@Override
+				public boolean hasNext() {
+					while (!current.hasNext()) {
+						if (!mapIterator.hasNext()) {
+							return false;
+						}
+						final Map<K, V> map = mapIterator.next();
+						if (map != null) {
+							current = Collections.unmodifiableMap(map).entrySet().iterator();
+						}
+					}
+					return true;
+				}
+
+				@Override
+				public Entry<K, V> next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return current.next();
+				}
+			};
+		}
+	}
+}
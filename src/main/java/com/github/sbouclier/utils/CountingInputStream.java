@@ -0,0 +1,74 @@
+package com.github.sbouclier.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream counting the bytes read through it
+ *
+ * @author synapticloop
+ */
+public class CountingInputStream extends FilterInputStream {
+
+	private long count;
+
+	public CountingInputStream(InputStream in) {
+		super(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b != -1) {
+			count++;
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int read = super.read(b, off, len);
+		if (read > 0) {
+			count += read;
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		count += skipped;
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * Read and discard the rest of the stream
+	 *
+	 * @return number of bytes discarded
+	 * @throws IOException
+	 */
+	public long drain() throws IOException {
+		final byte[] buffer = new byte[1024];
+		long drained = 0;
+		int read;
+		while ((read = read(buffer, 0, buffer.length)) != -1) {
+			drained += read;
+		}
+		return drained;
+	}
+
+	/**
+	 * Get number of bytes read so far
+	 *
+	 * @return byte count
+	 */
+	public long getCount() {
+		return count;
+	}
+}
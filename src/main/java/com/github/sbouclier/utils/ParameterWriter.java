@@ -0,0 +1,221 @@
+package com.github.sbouclier.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable writer of {@code application/x-www-form-urlencoded} parameters, used for both GET query strings and POST
+ * bodies.
+ *
+ * Names and values are percent-encoded as UTF-8 straight into an internal byte buffer which grows as needed and is
+ * kept across {@link #reset()}, so that a writer reused by a thread builds requests without intermediate strings.
+ * Encoding follows {@link java.net.URLEncoder}: {@code A-Z a-z 0-9 . - * _} are kept, space becomes {@code +} and
+ * every other byte is written as {@code %XX}. Parameters with a null value are skipped.
+ *
+ * Not thread-safe.
+ *
+ * @author synapticloop
+ */
+public final class ParameterWriter {
+
+	private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+	private static final boolean[] UNRESERVED = new boolean[128];
+
+	static {
+		for (char c = 'a'; c <= 'z'; c++) {
+			UNRESERVED[c] = true;
+		}
+		for (char c = 'A'; c <= 'Z'; c++) {
+			UNRESERVED[c] = true;
+		}
+		for (char c = '0'; c <= '9'; c++) {
+			UNRESERVED[c] = true;
+		}
+		UNRESERVED['.'] = true;
+		UNRESERVED['-'] = true;
+		UNRESERVED['*'] = true;
+		UNRESERVED['_'] = true;
+	}
+
+	private byte[] buffer;
+	private int length;
+	private byte separator;
+
+	public ParameterWriter() {
+		this(256);
+	}
+
+	public ParameterWriter(int initialCapacity) {
+		this.buffer = new byte[initialCapacity];
+	}
+
+	/**
+	 * Clear content, keeping the allocated buffer
+	 *
+	 * @return this writer
+	 */
+	public ParameterWriter reset() {
+		this.length = 0;
+		this.separator = 0;
+		return this;
+	}
+
+	/**
+	 * Append text as is (UTF-8), e.g. base url and path
+	 *
+	 * @param text text to append
+	 * @return this writer
+	 */
+	public ParameterWriter raw(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				put((byte) c);
+			} else {
+				i = putUtf8(text, i, false);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Start a query string: the next parameter is preceded by {@code ?}, nothing is written if there is none
+	 *
+	 * @return this writer
+	 */
+	public ParameterWriter startQuery() {
+		this.separator = '?';
+		return this;
+	}
+
+	/**
+	 * Append an encoded {@code name=value} parameter, preceded by the pending separator
+	 *
+	 * @param name  parameter name
+	 * @param value parameter value, parameter is skipped if null
+	 * @return this writer
+	 */
+	public ParameterWriter parameter(String name, String value) {
+		if (value == null) {
+			return this;
+		}
+
+		if (separator != 0) {
+			put(separator);
+		}
+		separator = '&';
+
+		encode(name);
+		put((byte) '=');
+		encode(value);
+		return this;
+	}
+
+	/**
+	 * Get written length in bytes
+	 *
+	 * @return length
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Copy content
+	 *
+	 * @return content bytes
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, length);
+	}
+
+	/**
+	 * Write content to a stream without copying it
+	 *
+	 * @param out output stream
+	 * @throws IOException
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(buffer, 0, length);
+	}
+
+	@Override
+	public String toString() {
+		return new String(buffer, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private void encode(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c < 0x80 && UNRESERVED[c]) {
+				put((byte) c);
+			} else if (c == ' ') {
+				put((byte) '+');
+			} else if (c < 0x80) {
+				putEscaped(c);
+			} else {
+				i = putUtf8(text, i, true);
+			}
+		}
+	}
+
+	/**
+	 * Append non ASCII character (or surrogate pair) at index as UTF-8
+	 *
+	 * @return index of the last char consumed
+	 */
+	private int putUtf8(String text, int index, boolean escape) {
+		int codePoint = text.codePointAt(index);
+		int consumed = Character.charCount(codePoint);
+
+		if (Character.isSurrogate(text.charAt(index)) && consumed == 1) {
+			// unpaired surrogate, encoded as '?' like String.getBytes
+			codePoint = '?';
+		}
+
+		if (codePoint < 0x80) {
+			putByte(codePoint, escape);
+		} else if (codePoint < 0x800) {
+			putByte(0xC0 | (codePoint >> 6), escape);
+			putByte(0x80 | (codePoint & 0x3F), escape);
+		} else if (codePoint < 0x10000) {
+			putByte(0xE0 | (codePoint >> 12), escape);
+			putByte(0x80 | ((codePoint >> 6) & 0x3F), escape);
+			putByte(0x80 | (codePoint & 0x3F), escape);
+		} else {
+			putByte(0xF0 | (codePoint >> 18), escape);
+			putByte(0x80 | ((codePoint >> 12) & 0x3F), escape);
+			putByte(0x80 | ((codePoint >> 6) & 0x3F), escape);
+			putByte(0x80 | (codePoint & 0x3F), escape);
+		}
+		return index + consumed - 1;
+	}
+
+	private void putByte(int b, boolean escape) {
+		if (escape) {
+			putEscaped(b);
+		} else {
+			put((byte) b);
+		}
+	}
+
+	private void putEscaped(int b) {
+		ensureCapacity(3);
+		buffer[length++] = '%';
+		buffer[length++] = HEX[(b >> 4) & 0x0F];
+		buffer[length++] = HEX[b & 0x0F];
+	}
+
+	private void put(byte b) {
+		ensureCapacity(1);
+		buffer[length++] = b;
+	}
+
+	private void ensureCapacity(int extra) {
+		if (length + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+		}
+	}
+}
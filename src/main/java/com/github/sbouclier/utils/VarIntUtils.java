@@ -0,0 +1,96 @@
+package com.github.sbouclier.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Variable length encoding of longs, 7 bits per byte, least significant group first, the high bit of each byte
+ * telling whether more bytes follow. Signed values are zigzag encoded first so that small negative values stay short.
+ *
+ * @author synapticloop
+ */
+public class VarIntUtils {
+
+	/**
+	 * Private constructor
+	 */
+	private VarIntUtils() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Write unsigned value
+	 *
+	 * @param out   output
+	 * @param value value, as unsigned
+	 * @return number of bytes written
+	 * @throws IOException if the write fails
+	 */
+	public static int writeUnsigned(OutputStream out, long value) throws IOException {
+		int length = 1;
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+			length++;
+		}
+		out.write((int) value);
+		return length;
+	}
+
+	/**
+	 * Write signed value
+	 *
+	 * @param out   output
+	 * @param value value
+	 * @return number of bytes written
+	 * @throws IOException if the write fails
+	 */
+	public static int writeSigned(OutputStream out, long value) throws IOException {
+		return writeUnsigned(out, zigzag(value));
+	}
+
+	/**
+	 * Read unsigned value
+	 *
+	 * @param in input
+	 * @return value
+	 * @throws EOFException if the input ends, even within the value
+	 * @throws IOException  if the read fails
+	 */
+	public static long readUnsigned(InputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = in.read();
+			if (b < 0) {
+				throw new EOFException();
+			}
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("malformed variable length value");
+	}
+
+	/**
+	 * Read signed value
+	 *
+	 * @param in input
+	 * @return value
+	 * @throws EOFException if the input ends, even within the value
+	 * @throws IOException  if the read fails
+	 */
+	public static long readSigned(InputStream in) throws IOException {
+		return unzigzag(readUnsigned(in));
+	}
+
+	public static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	public static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
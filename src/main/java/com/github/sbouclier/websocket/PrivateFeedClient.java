@@ -0,0 +1,597 @@
+package com.github.sbouclier.websocket;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.sbouclier.KrakenAPIClient;
+import com.github.sbouclier.KrakenApiException;
+import com.github.sbouclier.result.OpenOrdersResult;
+import com.github.sbouclier.result.OpenOrdersResult.OpenOrder;
+import com.github.sbouclier.result.TradesHistoryResult.TradeHistory;
+import com.github.sbouclier.result.TradesHistoryResult.TradesHistory;
+import com.github.sbouclier.result.WebSocketsTokenResult;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client of the private WebSocket feed, streaming our own trades ({@code ownTrades}) and open order updates
+ * ({@code openOrders}) instead of polling {@code OpenOrders}, {@code ClosedOrders} and {@code TradesHistory}.
+ *
+ * The client authenticates with a {@code GetWebSocketsToken} token, fetched through the REST client and fetched again
+ * when it is about to expire or is rejected. When the connection drops it reconnects with an exponential backoff and
+ * fills the gap: trades missed while disconnected are fetched with {@code TradesHistory}, paging from the time of the
+ * last trade seen, open orders are resent as a snapshot by the feed. A sequence gap on a live connection is filled the
+ * same way. Trades are deduplicated, each trade is notified once.
+ *
+ * Messages are decoded and the listener called on a single feed thread, so that updates are notified in feed order.
+ * Tokens and backfills are fetched through the REST client on a thread of their own, the trades and order updates of
+ * the feed received meanwhile being held until the missed trades, oldest first, or the open orders snapshot are
+ * notified.
+ *
+ * @author synapticloop
+ */
+public class PrivateFeedClient implements Closeable {
+
+	public static final URI DEFAULT_URI = URI.create("wss://ws-auth.kraken.com");
+
+	static final String OWN_TRADES = "ownTrades";
+	static final String OPEN_ORDERS = "openOrders";
+
+	private static final long TOKEN_REFRESH_MARGIN_SECONDS = 60;
+	private static final long MAX_RECONNECT_DELAY_MILLIS = 30000;
+	private static final int SEEN_TRADES = 1024;
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	private final URI uri;
+	private final KrakenAPIClient client;
+	private final PrivateFeedListener listener;
+	private final ScheduledExecutorService executor;
+	private final ExecutorService backfillExecutor;
+
+	private volatile Connection connection;
+	private volatile boolean closed;
+	private long initialReconnectDelayMillis = 500;
+
+	// state of the feed thread
+	private String token;
+	private long tokenExpiresNanos;
+	private int reconnectAttempts;
+	private boolean reconnecting;
+	private int subscribed;
+	private final Map<String, Long> sequences = new LinkedHashMap<>();
+	private final Set<String> seenTrades = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > SEEN_TRADES;
+		}
+	});
+	private BigDecimal lastTradeTime;
+	private BigDecimal connectTime;
+	private List<Map.Entry<String, TradeHistory>> heldTrades;
+	private boolean backfillAgain;
+	private List<Map.Entry<String, JsonNode>> heldOrders;
+	private boolean backfillOrdersAgain;
+	private int openOrdersSnapshots;
+
+	// ----------------
+	// - CONSTRUCTORS -
+	// ----------------
+
+	public PrivateFeedClient(KrakenAPIClient client, PrivateFeedListener listener) {
+		this(DEFAULT_URI, client, listener);
+	}
+
+	/**
+	 * Create feed client
+	 *
+	 * @param uri      URI of the private WebSocket API
+	 * @param client   REST client with the API key and secret, used for tokens and backfills
+	 * @param listener listener of the feed
+	 */
+	public PrivateFeedClient(URI uri, KrakenAPIClient client, PrivateFeedListener listener) {
+		this.uri = uri;
+		this.client = client;
+		this.listener = listener;
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "kraken-private-feed");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "kraken-private-feed-backfill");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	// -----------
+	// - METHODS -
+	// -----------
+
+	/**
+	 * Connect and subscribe to the feeds, asynchronously: {@link PrivateFeedListener#onConnected()} is called once
+	 * subscribed
+	 */
+	public void connect() {
+		final BigDecimal now = BigDecimal.valueOf(System.currentTimeMillis(), 3);
+		executor.execute(() -> {
+			if (connectTime == null) {
+				connectTime = now;
+			}
+			open();
+		});
+	}
+
+	/**
+	 * Close the feed, it does not reconnect
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		final Connection current = connection;
+		if (current != null) {
+			current.close();
+		}
+		executor.shutdown();
+		backfillExecutor.shutdownNow();
+	}
+
+	public boolean isConnected() {
+		final Connection current = connection;
+		return current != null && current.isOpen();
+	}
+
+	/**
+	 * Set delay before the first reconnection attempt, doubled at each failed attempt
+	 *
+	 * @param initialReconnectDelayMillis delay in milliseconds
+	 */
+	void setInitialReconnectDelayMillis(long initialReconnectDelayMillis) {
+		this.initialReconnectDelayMillis = initialReconnectDelayMillis;
+	}
+
+	/**
+	 * Open a connection with the current token, fetching a new one first if there is none or it is about to expire
+	 */
+	private void open() {
+		if (closed) {
+			return;
+		}
+
+		if (token != null && System.nanoTime() - tokenExpiresNanos < 0) {
+			openConnection(token);
+			return;
+		}
+
+		if (backfillExecutor.isShutdown()) {
+			return;
+		}
+		backfillExecutor.execute(() -> {
+			final WebSocketsTokenResult.WebSocketsToken fetched = fetchToken();
+			if (!executor.isShutdown()) {
+				executor.execute(() -> tokenFetched(fetched));
+			}
+		});
+	}
+
+	private void openConnection(String token) {
+		if (closed) {
+			return;
+		}
+
+		final Connection opening = new Connection(uri, token);
+		connection = opening;
+		sequences.clear();
+		subscribed = 0;
+		opening.connect();
+	}
+
+	/**
+	 * Fetch token
+	 *
+	 * @return token, null if it could not be fetched
+	 */
+	private WebSocketsTokenResult.WebSocketsToken fetchToken() {
+		try {
+			return client.getWebSocketsToken().getResult();
+		} catch (KrakenApiException | RuntimeException ex) {
+			return null;
+		}
+	}
+
+	private void tokenFetched(WebSocketsTokenResult.WebSocketsToken fetched) {
+		if (fetched == null) {
+			scheduleReconnect();
+			return;
+		}
+
+		final long validSeconds = Math.max(0, ((fetched.expires != null) ? fetched.expires : 0) - TOKEN_REFRESH_MARGIN_SECONDS);
+		token = fetched.token;
+		tokenExpiresNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(validSeconds);
+		openConnection(token);
+	}
+
+	private void scheduleReconnect() {
+		if (closed) {
+			return;
+		}
+		final long delay = Math.min(MAX_RECONNECT_DELAY_MILLIS, initialReconnectDelayMillis << Math.min(reconnectAttempts, 16));
+		reconnectAttempts++;
+		reconnecting = true;
+		executor.schedule(this::open, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void disconnected(Connection closing, String reason) {
+		if (closing != connection) {
+			return;
+		}
+		connection = null;
+		listener.onDisconnected(reason);
+		scheduleReconnect();
+	}
+
+	/**
+	 * Handle a message of the feed
+	 *
+	 * @param from    connection which received the message
+	 * @param message JSON message
+	 */
+	private void handle(Connection from, String message) {
+		if (from != connection) {
+			return;
+		}
+
+		try {
+			final JsonNode node = OBJECT_MAPPER.readTree(message);
+			if (node.isObject()) {
+				handleEvent(from, node);
+			} else if (node.isArray() && node.size() >= 3) {
+				handleUpdate(node.get(1).asText(), node.get(0), node.get(2).path("sequence").asLong());
+			}
+		} catch (IOException ex) {
+			// not a message of the feed
+		}
+	}
+
+	private void handleEvent(Connection from, JsonNode event) {
+		if (!"subscriptionStatus".equals(event.path("event").asText())) {
+			return;
+		}
+
+		if ("error".equals(event.path("status").asText())) {
+			// most likely a rejected token: get a new one and reconnect
+			token = null;
+			from.close();
+			return;
+		}
+
+		if ("subscribed".equals(event.path("status").asText()) && ++subscribed == 2) {
+			reconnectAttempts = 0;
+			listener.onConnected();
+		}
+	}
+
+	private void handleUpdate(String channel, JsonNode payload, long sequence) throws IOException {
+		final Long previous = sequences.put(channel, sequence);
+		final boolean first = previous == null;
+		final boolean gap = previous != null && sequence != previous + 1;
+
+		if (OWN_TRADES.equals(channel)) {
+			if ((first && reconnecting) || gap) {
+				backfillTrades();
+			}
+			if (first) {
+				reconnecting = false;
+			}
+			for (Map.Entry<String, JsonNode> trade : entries(payload)) {
+				final TradeHistory value = OBJECT_MAPPER.treeToValue(trade.getValue(), TradeHistory.class);
+				if (heldTrades != null) {
+					heldTrades.add(new AbstractMap.SimpleImmutableEntry<>(trade.getKey(), value));
+				} else {
+					onOwnTrade(trade.getKey(), value);
+				}
+			}
+		} else if (OPEN_ORDERS.equals(channel)) {
+			if (first) {
+				if (heldOrders != null) {
+					// backfill overtaken by the snapshot of the new connection
+					backfillOrdersAgain = false;
+					releaseHeldOrders();
+				}
+				openOrdersSnapshots++;
+
+				final Map<String, OpenOrder> open = new LinkedHashMap<>();
+				for (Map.Entry<String, JsonNode> order : entries(payload)) {
+					open.put(order.getKey(), toOpenOrder(order.getValue()));
+				}
+				listener.onOpenOrdersSnapshot(open);
+				return;
+			}
+
+			if (gap) {
+				backfillOpenOrders();
+			}
+			for (Map.Entry<String, JsonNode> order : entries(payload)) {
+				if (heldOrders != null) {
+					heldOrders.add(order);
+				} else {
+					onOrder(order);
+				}
+			}
+		}
+	}
+
+	private void onOrder(Map.Entry<String, JsonNode> order) throws IOException {
+		if (order.getValue().has("descr")) {
+			listener.onOpenOrder(order.getKey(), toOpenOrder(order.getValue()));
+		} else {
+			final JsonNode status = order.getValue().get("status");
+			final JsonNode volumeExecuted = order.getValue().get("vol_exec");
+			listener.onOrderUpdate(order.getKey(),
+					(status != null) ? OBJECT_MAPPER.treeToValue(status, OpenOrder.Status.class) : null,
+					(volumeExecuted != null) ? new BigDecimal(volumeExecuted.asText()) : null);
+		}
+	}
+
+	/**
+	 * Fetch trades missed by the feed since the last trade seen, holding the trades of the feed until they are
+	 * notified. A backfill requested while one is running follows it.
+	 */
+	private void backfillTrades() {
+		if (heldTrades != null) {
+			backfillAgain = true;
+			return;
+		}
+
+		final BigDecimal since = (lastTradeTime != null) ? lastTradeTime : connectTime;
+		if (since == null || backfillExecutor.isShutdown()) {
+			return;
+		}
+
+		heldTrades = new ArrayList<>();
+		backfillExecutor.execute(() -> {
+			final List<Map.Entry<String, TradeHistory>> missed = fetchTrades(since);
+			if (!executor.isShutdown()) {
+				executor.execute(() -> backfilled(since, missed));
+			}
+		});
+	}
+
+	/**
+	 * Fetch all pages of the trades after a time, the newest first. Trades moving to the next page as new trades come
+	 * in are fetched twice rather than missed.
+	 *
+	 * @param since time of the trades to fetch after, in seconds
+	 * @return trades, null if a page could not be fetched
+	 */
+	private List<Map.Entry<String, TradeHistory>> fetchTrades(BigDecimal since) {
+		final Map<String, TradeHistory> trades = new LinkedHashMap<>();
+		try {
+			int offset = 0;
+			while (true) {
+				final TradesHistory page = client.getTradesHistory(offset, since.toPlainString()).getResult();
+				if (page == null || page.trades == null || page.trades.isEmpty()) {
+					break;
+				}
+
+				trades.putAll(page.trades);
+				offset += page.trades.size();
+				if (page.count == null || offset >= page.count) {
+					break;
+				}
+			}
+		} catch (KrakenApiException | RuntimeException ex) {
+			return null;
+		}
+		return new ArrayList<>(trades.entrySet());
+	}
+
+	/**
+	 * Notify missed trades oldest first, then the trades of the feed held meanwhile
+	 *
+	 * @param since  time the trades were fetched after
+	 * @param missed missed trades, null if the backfill failed, the trades missed then being lost
+	 */
+	private void backfilled(BigDecimal since, List<Map.Entry<String, TradeHistory>> missed) {
+		if (missed != null) {
+			missed.sort((a, b) -> time(a.getValue()).compareTo(time(b.getValue())));
+			for (Map.Entry<String, TradeHistory> trade : missed) {
+				if (time(trade.getValue()).compareTo(since) > 0) {
+					onOwnTrade(trade.getKey(), trade.getValue());
+				}
+			}
+		}
+
+		final List<Map.Entry<String, TradeHistory>> held = heldTrades;
+		heldTrades = null;
+		held.forEach(trade -> onOwnTrade(trade.getKey(), trade.getValue()));
+
+		if (backfillAgain) {
+			backfillAgain = false;
+			backfillTrades();
+		}
+	}
+
+	/**
+	 * Fetch snapshot of open orders after updates were missed, holding the order updates of the feed until it is
+	 * notified. A backfill requested while one is running follows it.
+	 */
+	private void backfillOpenOrders() {
+		if (heldOrders != null) {
+			backfillOrdersAgain = true;
+			return;
+		}
+
+		if (backfillExecutor.isShutdown()) {
+			return;
+		}
+
+		final int snapshot = openOrdersSnapshots;
+		heldOrders = new ArrayList<>();
+		backfillExecutor.execute(() -> {
+			final Map<String, OpenOrder> open = fetchOpenOrders();
+			if (!executor.isShutdown()) {
+				executor.execute(() -> backfilledOpenOrders(snapshot, open));
+			}
+		});
+	}
+
+	/**
+	 * Fetch open orders
+	 *
+	 * @return open orders, null if they could not be fetched, open orders then being resent as a snapshot at the next
+	 * connection
+	 */
+	private Map<String, OpenOrder> fetchOpenOrders() {
+		try {
+			final OpenOrdersResult open = client.getOpenOrders();
+			return (open.getResult() != null) ? open.getResult().open : null;
+		} catch (KrakenApiException | RuntimeException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Notify snapshot of open orders, then the order updates of the feed held meanwhile
+	 *
+	 * @param snapshot count of feed snapshots when the backfill was requested
+	 * @param open     open orders, null if the backfill failed
+	 */
+	private void backfilledOpenOrders(int snapshot, Map<String, OpenOrder> open) {
+		if (snapshot != openOrdersSnapshots) {
+			// older than the snapshot of the new connection, already notified
+			return;
+		}
+
+		if (open != null) {
+			listener.onOpenOrdersSnapshot(open);
+		}
+		releaseHeldOrders();
+
+		if (backfillOrdersAgain) {
+			backfillOrdersAgain = false;
+			backfillOpenOrders();
+		}
+	}
+
+	private void releaseHeldOrders() {
+		final List<Map.Entry<String, JsonNode>> held = heldOrders;
+		heldOrders = null;
+		for (Map.Entry<String, JsonNode> order : held) {
+			try {
+				onOrder(order);
+			} catch (IOException ex) {
+				// not an order of the feed
+			}
+		}
+	}
+
+	private void onOwnTrade(String tradeId, TradeHistory trade) {
+		if (!seenTrades.add(tradeId)) {
+			return;
+		}
+
+		trade.tradeId = tradeId;
+		final BigDecimal time = time(trade);
+		if (lastTradeTime == null || time.compareTo(lastTradeTime) > 0) {
+			lastTradeTime = time;
+		}
+		listener.onOwnTrade(tradeId, trade);
+	}
+
+	private static BigDecimal time(TradeHistory trade) {
+		return (trade.tradeTimestamp != null) ? new BigDecimal(trade.tradeTimestamp) : BigDecimal.ZERO;
+	}
+
+	/**
+	 * Map order of the feed, whose timestamps are decimal strings unlike those of the REST API
+	 */
+	private static OpenOrder toOpenOrder(JsonNode order) throws IOException {
+		if (order.isObject()) {
+			for (String field : new String[]{"opentm", "starttm", "expiretm"}) {
+				final JsonNode time = order.get(field);
+				if (time != null && time.isTextual()) {
+					((ObjectNode) order).put(field, new BigDecimal(time.asText()).longValue());
+				}
+			}
+		}
+		return OBJECT_MAPPER.treeToValue(order, OpenOrder.class);
+	}
+
+	/**
+	 * Get id/value entries of a payload, an array of single entry objects
+	 */
+	private static List<Map.Entry<String, JsonNode>> entries(JsonNode payload) {
+		final List<Map.Entry<String, JsonNode>> entries = new ArrayList<>();
+		for (JsonNode item : payload) {
+			for (Iterator<Map.Entry<String, JsonNode>> fields = item.fields(); fields.hasNext(); ) {
+				entries.add(fields.next());
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * WebSocket connection, handing its messages over to the feed thread
+	 */
+	private class Connection extends WebSocketClient {
+		private final String token;
+
+		Connection(URI uri, String token) {
+			super(uri);
+			this.token = token;
+		}
+
+		@Override
+		public void onOpen(ServerHandshake handshake) {
+			send(subscription(OWN_TRADES));
+			send(subscription(OPEN_ORDERS));
+		}
+
+		private String subscription(String name) {
+			final ObjectNode message = OBJECT_MAPPER.createObjectNode();
+			message.put("event", "subscribe");
+			message.putObject("subscription").put("name", name).put("token", token);
+			return message.toString();
+		}
+
+		@Override
+		public void onMessage(String message) {
+			if (!executor.isShutdown()) {
+				executor.execute(() -> handle(this, message));
+			}
+		}
+
+		@Override
+		public void onClose(int code, String reason, boolean remote) {
+			if (!executor.isShutdown()) {
+				executor.execute(() -> disconnected(this, reason));
+			}
+		}
+
+		@Override
+		public void onError(Exception ex) {
+			// followed by onClose
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.github.sbouclier.websocket;
+
+import com.github.sbouclier.result.OpenOrdersResult.OpenOrder;
+import com.github.sbouclier.result.TradesHistoryResult.TradeHistory;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Listener of the private feed, always called from the feed thread, one update at a time and in feed order
+ *
+ * @author synapticloop
+ */
+public interface PrivateFeedListener {
+
+	/**
+	 * Own trade, streamed or backfilled, each trade being notified once
+	 *
+	 * @param tradeId trade id
+	 * @param trade   trade
+	 */
+	void onOwnTrade(String tradeId, TradeHistory trade);
+
+	/**
+	 * Open orders, sent when the {@code openOrders} feed is subscribed and after a gap
+	 *
+	 * @param open txid/order of all open orders
+	 */
+	void onOpenOrdersSnapshot(Map<String, OpenOrder> open);
+
+	/**
+	 * New order, with all its fields
+	 *
+	 * @param txid  transaction id
+	 * @param order order
+	 */
+	void onOpenOrder(String txid, OpenOrder order);
+
+	/**
+	 * Order status or execution update
+	 *
+	 * @param txid           transaction id
+	 * @param status         new status, null if unchanged
+	 * @param volumeExecuted new executed volume, null if unchanged
+	 */
+	void onOrderUpdate(String txid, OpenOrder.Status status, BigDecimal volumeExecuted);
+
+	/**
+	 * Feed subscribed, after a connection or a reconnection
+	 */
+	default void onConnected() {
+	}
+
+	/**
+	 * Feed disconnected, it reconnects unless closed
+	 *
+	 * @param reason reason of the disconnection
+	 */
+	default void onDisconnected(String reason) {
+	}
+}
@@ -0,0 +1,77 @@
+package com.github.sbouclier;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of a single Kraken API call
+ *
+ * @author synapticloop
+ */
+@Name("com.github.sbouclier.ApiCall")
+@Label("Kraken API Call")
+@Category({"Kraken", "API"})
+@Description("Kraken REST API call with its phase timing")
+@StackTrace(false)
+class ApiCallEvent extends Event {
+
+	@Label("Method")
+	String method;
+
+	@Label("Pair")
+	String pair;
+
+	@Label("HTTP Status")
+	int statusCode;
+
+	@Label("Success")
+	boolean success;
+
+	@Label("Error")
+	String error;
+
+	@Label("Rate Limit Wait")
+	@Timespan
+	long rateLimitWait;
+
+	@Label("Response Size")
+	@DataAmount
+	long responseBytes;
+
+	@Label("Transferred Size")
+	@DataAmount
+	long wireBytes;
+
+	@Label("Content Encoding")
+	String contentEncoding;
+
+	@Label("Connect")
+	@Timespan
+	long connect;
+
+	@Label("TLS Handshake")
+	@Timespan
+	long tls;
+
+	@Label("Request Write")
+	@Timespan
+	long write;
+
+	@Label("Time To First Byte")
+	@Timespan
+	long timeToFirstByte;
+
+	@Label("Download")
+	@Timespan
+	long download;
+
+	@Label("Decode")
+	@Timespan
+	long decode;
+}
@@ -0,0 +1,72 @@
+package com.github.sbouclier;
+
+import jdk.jfr.EventType;
+
+/**
+ * Java Flight Recorder events of Kraken API calls (Java 11+ implementation).
+ *
+ * Checking whether the event is enabled is a single volatile read, so calls are neither traced nor recorded unless a
+ * recording enables {@code com.github.sbouclier.ApiCall}.
+ *
+ * @author synapticloop
+ */
+final class ApiCallEvents {
+
+	private static final EventType EVENT_TYPE = EventType.getEventType(ApiCallEvent.class);
+
+	/**
+	 * Private constructor
+	 */
+	private ApiCallEvents() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Begin an API call event
+	 *
+	 * @return event handle to commit, null when not recording
+	 */
+	static Object begin() {
+		if (!EVENT_TYPE.isEnabled()) {
+			return null;
+		}
+
+		ApiCallEvent event = new ApiCallEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Commit an API call event with the phase timing of the call
+	 *
+	 * @param event handle returned by {@link #begin()}
+	 * @param trace completed trace of the call
+	 */
+	static void commit(Object event, RequestTrace trace) {
+		if (event == null) {
+			return;
+		}
+
+		ApiCallEvent apiCallEvent = (ApiCallEvent) event;
+		apiCallEvent.end();
+
+		if (apiCallEvent.shouldCommit()) {
+			apiCallEvent.method = trace.getMethod().name();
+			apiCallEvent.pair = trace.getPair();
+			apiCallEvent.statusCode = trace.getStatusCode();
+			apiCallEvent.success = trace.isSuccess();
+			apiCallEvent.error = (trace.getFailure() != null) ? trace.getFailure().getMessage() : null;
+			apiCallEvent.rateLimitWait = trace.getRateLimitWaitNanos();
+			apiCallEvent.responseBytes = trace.getResponseBytes();
+			apiCallEvent.wireBytes = trace.getWireBytes();
+			apiCallEvent.contentEncoding = trace.getContentEncoding();
+			apiCallEvent.connect = trace.getConnectNanos();
+			apiCallEvent.tls = trace.getTlsNanos();
+			apiCallEvent.write = trace.getWriteNanos();
+			apiCallEvent.timeToFirstByte = trace.getTimeToFirstByteNanos();
+			apiCallEvent.download = trace.getDownloadNanos();
+			apiCallEvent.decode = trace.getDecodeNanos();
+			apiCallEvent.commit();
+		}
+	}
+}
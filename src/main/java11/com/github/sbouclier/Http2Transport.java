@@ -0,0 +1,165 @@
+package com.github.sbouclier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP/2 transport multiplexing concurrent calls over a few connections (Java 11+ implementation).
+ *
+ * Requests are sent through a single {@link HttpClient} negotiating HTTP/2, so that concurrent calls to the same host
+ * become streams of one connection instead of one socket each. The number of streams in flight is capped by a
+ * semaphore, below the server limit, and every stream is bounded by a timeout covering the wait for a free stream, the
+ * response headers and the body: a body still being read at the deadline is closed, failing the read. The timeout is
+ * shortened to the time left of the call {@link Deadline}, if any.
+ *
+ * Private calls sent concurrently may reach Kraken out of nonce order, which requires a nonce window on the API key.
+ *
+ * Only available on Java 11+: code also running on Java 8 creates it with {@link HttpTransports#http2OrDefault}.
+ *
+ * @author synapticloop
+ */
+public class Http2Transport implements HttpTransport {
+
+	public static final int DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+	public static final long DEFAULT_STREAM_TIMEOUT_MILLIS = 10000;
+
+	private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "kraken-http2-watchdog");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final HttpClient httpClient;
+	private final Semaphore streams;
+	private final int maxConcurrentStreams;
+	private final long streamTimeoutMillis;
+
+	/**
+	 * Create transport with default stream concurrency limit and timeout
+	 */
+	public Http2Transport() {
+		this(DEFAULT_MAX_CONCURRENT_STREAMS, DEFAULT_STREAM_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Create transport
+	 *
+	 * @param maxConcurrentStreams maximum number of requests in flight, further requests wait for a free stream
+	 * @param streamTimeoutMillis  maximum duration of a stream, from waiting for a free stream to reading the body
+	 */
+	public Http2Transport(int maxConcurrentStreams, long streamTimeoutMillis) {
+		if (maxConcurrentStreams <= 0 || streamTimeoutMillis <= 0) {
+			throw new IllegalArgumentException("stream limit and timeout must be positive");
+		}
+
+		this.maxConcurrentStreams = maxConcurrentStreams;
+		this.streamTimeoutMillis = streamTimeoutMillis;
+		this.streams = new Semaphore(maxConcurrentStreams, true);
+		this.httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.connectTimeout(Duration.ofMillis(streamTimeoutMillis))
+				.build();
+	}
+
+	@Override
+	public <R> R send(TransportRequest request, ResponseHandler<R> handler) throws IOException {
+		final Deadline callDeadline = Deadline.current();
+		final long timeoutMillis = (callDeadline != null)
+				? Math.min(streamTimeoutMillis, callDeadline.remaining(TimeUnit.MILLISECONDS))
+				: streamTimeoutMillis;
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		try {
+			if (!streams.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new HttpTimeoutException("no free HTTP/2 stream within " + timeoutMillis + " ms");
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for a free HTTP/2 stream");
+		}
+
+		try {
+			final HttpResponse<InputStream> response = httpClient.send(toHttpRequest(request, remainingMillis(deadline)),
+					HttpResponse.BodyHandlers.ofInputStream());
+
+			try (InputStream body = response.body()) {
+				final ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> closeQuietly(body), remainingMillis(deadline), TimeUnit.MILLISECONDS);
+				try {
+					return handler.handle(response.statusCode(), response.headers().firstValue("Content-Encoding").orElse(null), body);
+				} finally {
+					watchdog.cancel(false);
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for " + request.getUrl());
+		} finally {
+			streams.release();
+		}
+	}
+
+	/**
+	 * Get number of requests in flight
+	 *
+	 * @return active streams
+	 */
+	public int getActiveStreams() {
+		return maxConcurrentStreams - streams.availablePermits();
+	}
+
+	public int getMaxConcurrentStreams() {
+		return maxConcurrentStreams;
+	}
+
+	public long getStreamTimeoutMillis() {
+		return streamTimeoutMillis;
+	}
+
+	@Override
+	public void close() {
+		// connections of the HttpClient are released once it is no longer referenced
+	}
+
+	private HttpRequest toHttpRequest(TransportRequest request, long timeoutMillis) throws IOException {
+		final HttpRequest.Builder builder;
+		try {
+			builder = HttpRequest.newBuilder(request.getUrl().toURI());
+		} catch (URISyntaxException ex) {
+			throw new IOException("invalid url " + request.getUrl(), ex);
+		}
+
+		builder.timeout(Duration.ofMillis(Math.max(1, timeoutMillis)));
+		request.getHeaders().forEach(builder::header);
+
+		final byte[] body = request.getBody();
+		builder.method(request.getMethod(), (body != null && body.length > 0)
+				? HttpRequest.BodyPublishers.ofByteArray(body)
+				: HttpRequest.BodyPublishers.noBody());
+
+		return builder.build();
+	}
+
+	private static long remainingMillis(long deadline) {
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+	}
+
+	private static void closeQuietly(InputStream body) {
+		try {
+			body.close();
+		} catch (IOException ex) {
+			// stream is aborted anyway
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.github.sbouclier;
+
+/**
+ * Factory of HTTP transports (Java 11+ implementation), creating {@link Http2Transport}s.
+ *
+ * @author synapticloop
+ */
+public final class HttpTransports {
+
+	public static final int DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+	public static final long DEFAULT_STREAM_TIMEOUT_MILLIS = 10000;
+
+	/**
+	 * Private constructor
+	 */
+	private HttpTransports() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Whether HTTP/2 transport is supported by the running JVM
+	 *
+	 * @return true on Java 11+
+	 */
+	public static boolean isHttp2Supported() {
+		return true;
+	}
+
+	/**
+	 * Create HTTP/2 transport with default stream concurrency limit and timeout if supported
+	 *
+	 * @return HTTP/2 transport on Java 11+, {@link HttpURLConnectionTransport} otherwise
+	 */
+	public static HttpTransport http2OrDefault() {
+		return http2OrDefault(DEFAULT_MAX_CONCURRENT_STREAMS, DEFAULT_STREAM_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Create HTTP/2 transport if supported
+	 *
+	 * @param maxConcurrentStreams maximum number of requests in flight, further requests wait for a free stream
+	 * @param streamTimeoutMillis  maximum duration of a stream, from waiting for a free stream to reading the body
+	 * @return HTTP/2 transport on Java 11+, {@link HttpURLConnectionTransport} with default timeouts otherwise
+	 */
+	public static HttpTransport http2OrDefault(int maxConcurrentStreams, long streamTimeoutMillis) {
+		return new Http2Transport(maxConcurrentStreams, streamTimeoutMillis);
+	}
+}
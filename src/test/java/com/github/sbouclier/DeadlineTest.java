@@ -0,0 +1,99 @@
+package com.github.sbouclier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsSame.sameInstance;
+
+/**
+ * Deadline test
+ *
+ * @author synapticloop
+ */
+public class DeadlineTest {
+
+    @After
+    public void tearDown() {
+        assertThat(Deadline.current(), nullValue());
+    }
+
+    @Test
+    public void should_bind_earliest_deadline_and_restore_previous() {
+        Deadline outer = Deadline.after(1, TimeUnit.SECONDS);
+        Deadline inner = Deadline.after(1, TimeUnit.HOURS);
+
+        Deadline.Scope outerScope = outer.bind();
+        try {
+            Deadline.Scope innerScope = inner.bind();
+            try {
+                assertThat(Deadline.current(), sameInstance(outer));
+            } finally {
+                innerScope.close();
+            }
+            assertThat(Deadline.current(), sameInstance(outer));
+        } finally {
+            outerScope.close();
+        }
+    }
+
+    @Test
+    public void should_shorten_call_deadline_to_timeout() {
+        assertThat(Deadline.forCall(0), nullValue());
+
+        Deadline.Scope scope = Deadline.after(1, TimeUnit.HOURS).bind();
+        try {
+            assertThat(Deadline.forCall(1000).remaining(TimeUnit.MILLISECONDS), lessThanOrEqualTo(1000L));
+            assertThat(Deadline.forCall(0), sameInstance(Deadline.current()));
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Test
+    public void should_cap_connection_timeouts() {
+        assertThat(Deadline.capTimeoutMillis(0), equalTo(0));
+        assertThat(Deadline.capTimeoutMillis(30000), equalTo(30000));
+
+        Deadline.Scope scope = Deadline.after(200, TimeUnit.MILLISECONDS).bind();
+        try {
+            assertThat(Deadline.capTimeoutMillis(0), lessThanOrEqualTo(200));
+            assertThat(Deadline.capTimeoutMillis(30000), lessThanOrEqualTo(200));
+            assertThat(Deadline.capTimeoutMillis(10), equalTo(10));
+        } finally {
+            scope.close();
+        }
+
+        Deadline.Scope expiredScope = Deadline.after(-1, TimeUnit.MILLISECONDS).bind();
+        try {
+            assertThat(Deadline.capTimeoutMillis(0), equalTo(1));
+        } finally {
+            expiredScope.close();
+        }
+    }
+
+    @Test(expected = KrakenApiException.class)
+    public void should_fail_check_when_expired() throws KrakenApiException {
+        Deadline.after(0, TimeUnit.MILLISECONDS).check();
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void should_fail_reads_after_deadline() throws IOException {
+        Deadline.Scope scope = Deadline.after(-1, TimeUnit.MILLISECONDS).bind();
+        try {
+            InputStream in = Deadline.guard(new ByteArrayInputStream(new byte[10]));
+            in.read();
+        } finally {
+            scope.close();
+        }
+    }
+}
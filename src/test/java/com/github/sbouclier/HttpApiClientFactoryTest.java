@@ -47,6 +47,11 @@ public class HttpApiClientFactoryTest {
         assertThat(factory.getHttpApiClient("key", "secret",KrakenApiMethod.LEDGERS_INFORMATION), instanceOf(HttpApiClient.class));
         assertThat(factory.getHttpApiClient("key", "secret",KrakenApiMethod.QUERY_LEDGERS), instanceOf(HttpApiClient.class));
         assertThat(factory.getHttpApiClient("key", "secret",KrakenApiMethod.TRADE_VOLUME), instanceOf(HttpApiClient.class));
+        assertThat(factory.getHttpApiClient("key", "secret",KrakenApiMethod.ADD_ORDER_BATCH), instanceOf(HttpApiClient.class));
+        assertThat(factory.getHttpApiClient("key", "secret",KrakenApiMethod.CANCEL_ORDER), instanceOf(HttpApiClient.class));
+        assertThat(factory.getHttpApiClient("key", "secret",KrakenApiMethod.CANCEL_ALL_ORDERS), instanceOf(HttpApiClient.class));
+        assertThat(factory.getHttpApiClient("key", "secret",KrakenApiMethod.CANCEL_ORDER_BATCH), instanceOf(HttpApiClient.class));
+        assertThat(factory.getHttpApiClient("key", "secret",KrakenApiMethod.WEBSOCKETS_TOKEN), instanceOf(HttpApiClient.class));
     }
 
     @Test(expected = IllegalArgumentException.class)
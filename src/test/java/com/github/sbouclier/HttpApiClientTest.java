@@ -1,16 +1,22 @@
 package com.github.sbouclier;
 
 import com.github.sbouclier.result.*;
+import com.github.sbouclier.utils.ByteUtils;
 import com.github.sbouclier.utils.StreamUtils;
 import org.hamcrest.Matchers;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.stubbing.Answer;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
@@ -38,6 +44,10 @@ public class HttpApiClientTest {
         verifyNoMoreInteractions(mockHttpJsonClient);
     }
 
+    private static Answer<Object> respondWith(String body) {
+        return invocation -> invocation.<ResponseReader<?>>getArgument(3).read(new ByteArrayInputStream(ByteUtils.stringToBytes(body)));
+    }
+
     @Test
     public void should_call_valid_public_method() throws IOException, KrakenApiException {
 
@@ -47,8 +57,10 @@ public class HttpApiClientTest {
 
         when(mockHttpJsonClient.executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
-                eq(KrakenApiMethod.SERVER_TIME.getUrl(0)))
-        ).thenReturn(mockResponseBody);
+                eq(KrakenApiMethod.SERVER_TIME.getUrl(0)),
+                isNull(),
+                any())
+        ).thenAnswer(respondWith(mockResponseBody));
 
         // When
         ServerTimeResult result = client.callPublic(KrakenAPIClient.BASE_URL, KrakenApiMethod.SERVER_TIME, ServerTimeResult.class);
@@ -57,7 +69,7 @@ public class HttpApiClientTest {
         assertThat(result.getResult().unixtime, equalTo(1501271914L));
         assertThat(result.getResult().rfc1123, equalTo("Fri, 28 Jul 17 19:58:34 +0000"));
 
-        verify(mockHttpJsonClient).executePublicQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.SERVER_TIME.getUrl(0)));
+        verify(mockHttpJsonClient).executePublicQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.SERVER_TIME.getUrl(0)), isNull(), any());
     }
 
     @Test
@@ -69,8 +81,10 @@ public class HttpApiClientTest {
 
         when(mockHttpJsonClient.executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
-                eq(KrakenApiMethod.SERVER_TIME.getUrl(0)))
-        ).thenReturn(mockResponseBody);
+                eq(KrakenApiMethod.SERVER_TIME.getUrl(0)),
+                isNull(),
+                any())
+        ).thenAnswer(respondWith(mockResponseBody));
 
         // When
         try {
@@ -81,7 +95,7 @@ public class HttpApiClientTest {
             assertThat(ex.getMessage(), equalTo("[EGeneral:Invalid arguments]"));
         }
 
-        verify(mockHttpJsonClient).executePublicQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.SERVER_TIME.getUrl(0)));
+        verify(mockHttpJsonClient).executePublicQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.SERVER_TIME.getUrl(0)), isNull(), any());
     }
 
     @Test
@@ -93,8 +107,10 @@ public class HttpApiClientTest {
 
         when(mockHttpJsonClient.executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
-                eq(KrakenApiMethod.SERVER_TIME.getUrl(0)))
-        ).thenReturn(mockResponseBody);
+                eq(KrakenApiMethod.SERVER_TIME.getUrl(0)),
+                isNull(),
+                any())
+        ).thenAnswer(respondWith(mockResponseBody));
 
         // When
         try {
@@ -105,7 +121,7 @@ public class HttpApiClientTest {
             assertThat(ex.getMessage(), equalTo("[unable to query Kraken API]"));
         }
 
-        verify(mockHttpJsonClient).executePublicQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.SERVER_TIME.getUrl(0)));
+        verify(mockHttpJsonClient).executePublicQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.SERVER_TIME.getUrl(0)), isNull(), any());
     }
 
     @Test
@@ -118,8 +134,9 @@ public class HttpApiClientTest {
         when(mockHttpJsonClient.executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.TICKER_INFORMATION.getUrl(0)),
+                any(),
                 any())
-        ).thenReturn(mockResponseBody.toString());
+        ).thenAnswer(respondWith(mockResponseBody));
 
         Map<String, String> params = new HashMap<>();
         params.put("pair", "BTCEUR,ETHEUR");
@@ -138,6 +155,7 @@ public class HttpApiClientTest {
         verify(mockHttpJsonClient).executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.TICKER_INFORMATION.getUrl(0)),
+                any(),
                 any());
     }
 
@@ -151,8 +169,9 @@ public class HttpApiClientTest {
         when(mockHttpJsonClient.executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.TICKER_INFORMATION.getUrl(0)),
+                any(),
                 any())
-        ).thenReturn(mockResponseBody.toString());
+        ).thenAnswer(respondWith(mockResponseBody));
 
         Map<String, String> params = new HashMap<>();
         params.put("pair", "BTCEUR,ETHEUR");
@@ -169,6 +188,7 @@ public class HttpApiClientTest {
         verify(mockHttpJsonClient).executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.TICKER_INFORMATION.getUrl(0)),
+                any(),
                 any());
     }
 
@@ -182,8 +202,9 @@ public class HttpApiClientTest {
         when(mockHttpJsonClient.executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.TICKER_INFORMATION.getUrl(0)),
+                any(),
                 any())
-        ).thenReturn(mockResponseBody.toString());
+        ).thenAnswer(respondWith(mockResponseBody));
 
         Map<String, String> params = new HashMap<>();
         params.put("pair", "BTCEUR,ETHEUR");
@@ -200,6 +221,7 @@ public class HttpApiClientTest {
         verify(mockHttpJsonClient).executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.TICKER_INFORMATION.getUrl(0)),
+                any(),
                 any());
     }
 
@@ -213,8 +235,9 @@ public class HttpApiClientTest {
         when(mockHttpJsonClient.executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.OHLC.getUrl(0)),
+                any(),
                 any())
-        ).thenReturn(mockResponseBody.toString());
+        ).thenAnswer(respondWith(mockResponseBody));
 
         Map<String, String> params = new HashMap<>();
         params.put("pair", "BTCEUR");
@@ -233,6 +256,7 @@ public class HttpApiClientTest {
         verify(mockHttpJsonClient).executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.OHLC.getUrl(0)),
+                any(),
                 any());
     }
 
@@ -246,8 +270,9 @@ public class HttpApiClientTest {
         when(mockHttpJsonClient.executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.OHLC.getUrl(0)),
+                any(),
                 any())
-        ).thenReturn(mockResponseBody.toString());
+        ).thenAnswer(respondWith(mockResponseBody));
 
         Map<String, String> params = new HashMap<>();
         params.put("pair", "BTCEUR");
@@ -265,6 +290,7 @@ public class HttpApiClientTest {
         verify(mockHttpJsonClient).executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.OHLC.getUrl(0)),
+                any(),
                 any());
     }
 
@@ -278,8 +304,9 @@ public class HttpApiClientTest {
         when(mockHttpJsonClient.executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.OHLC.getUrl(0)),
+                any(),
                 any())
-        ).thenReturn(mockResponseBody.toString());
+        ).thenAnswer(respondWith(mockResponseBody));
 
         Map<String, String> params = new HashMap<>();
         params.put("pair", "BTCEUR");
@@ -297,6 +324,7 @@ public class HttpApiClientTest {
         verify(mockHttpJsonClient).executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.OHLC.getUrl(0)),
+                any(),
                 any());
     }
 
@@ -310,8 +338,9 @@ public class HttpApiClientTest {
         when(mockHttpJsonClient.executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.OHLC.getUrl(0)),
+                any(),
                 any())
-        ).thenReturn(mockResponseBody.toString());
+        ).thenAnswer(respondWith(mockResponseBody));
 
         Map<String, String> params = new HashMap<>();
         params.put("pair", "BTCEUR");
@@ -329,6 +358,7 @@ public class HttpApiClientTest {
         verify(mockHttpJsonClient).executePublicQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.OHLC.getUrl(0)),
+                any(),
                 any());
     }
 
@@ -341,8 +371,10 @@ public class HttpApiClientTest {
 
         when(mockHttpJsonClient.executePrivateQuery(
                 eq(KrakenAPIClient.BASE_URL),
-                eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)))
-        ).thenReturn(mockResponseBody);
+                eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)),
+                isNull(),
+                any())
+        ).thenAnswer(respondWith(mockResponseBody));
 
         // When
         AccountBalanceResult result = client.callPrivate(KrakenAPIClient.BASE_URL, KrakenApiMethod.ACCOUNT_BALANCE, AccountBalanceResult.class);
@@ -353,7 +385,7 @@ public class HttpApiClientTest {
         assertThat(result.getResult().get("XXRP"), Matchers.comparesEqualTo(BigDecimal.valueOf(100)));
         assertThat(result.getResult().get("BCH"), Matchers.comparesEqualTo(BigDecimal.valueOf(0.0472043520)));
 
-        verify(mockHttpJsonClient).executePrivateQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)));
+        verify(mockHttpJsonClient).executePrivateQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)), isNull(), any());
     }
 
     @Test
@@ -365,8 +397,10 @@ public class HttpApiClientTest {
 
         when(mockHttpJsonClient.executePrivateQuery(
                 eq(KrakenAPIClient.BASE_URL),
-                eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)))
-        ).thenReturn(mockResponseBody);
+                eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)),
+                isNull(),
+                any())
+        ).thenAnswer(respondWith(mockResponseBody));
 
         // When
         try {
@@ -377,7 +411,7 @@ public class HttpApiClientTest {
             assertThat(ex.getMessage(), equalTo("[EGeneral:Invalid arguments]"));
         }
 
-        verify(mockHttpJsonClient).executePrivateQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)));
+        verify(mockHttpJsonClient).executePrivateQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)), isNull(), any());
     }
 
     @Test
@@ -389,8 +423,10 @@ public class HttpApiClientTest {
 
         when(mockHttpJsonClient.executePrivateQuery(
                 eq(KrakenAPIClient.BASE_URL),
-                eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)))
-        ).thenReturn(mockResponseBody);
+                eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)),
+                isNull(),
+                any())
+        ).thenAnswer(respondWith(mockResponseBody));
 
         // When
         try {
@@ -401,7 +437,7 @@ public class HttpApiClientTest {
             assertThat(ex.getMessage(), equalTo("[unable to query Kraken API]"));
         }
 
-        verify(mockHttpJsonClient).executePrivateQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)));
+        verify(mockHttpJsonClient).executePrivateQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)), isNull(), any());
     }
 
     @Test
@@ -414,8 +450,9 @@ public class HttpApiClientTest {
         when(mockHttpJsonClient.executePrivateQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.ORDERS_INFORMATION.getUrl(0)),
+                any(),
                 any())
-        ).thenReturn(mockResponseBody.toString());
+        ).thenAnswer(respondWith(mockResponseBody));
 
         Map<String, String> params = new HashMap<>();
         params.put("txid", "OGRQC4-Q5C5N-2EYZDZ");
@@ -433,6 +470,7 @@ public class HttpApiClientTest {
         verify(mockHttpJsonClient).executePrivateQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.ORDERS_INFORMATION.getUrl(0)),
+                any(),
                 any());
     }
 
@@ -446,8 +484,9 @@ public class HttpApiClientTest {
         when(mockHttpJsonClient.executePrivateQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.ORDERS_INFORMATION.getUrl(0)),
+                any(),
                 any())
-        ).thenReturn(mockResponseBody.toString());
+        ).thenAnswer(respondWith(mockResponseBody));
 
         Map<String, String> params = new HashMap<>();
         params.put("txid", "OGRQC4-Q5C5N-2EYZDZ");
@@ -464,6 +503,7 @@ public class HttpApiClientTest {
         verify(mockHttpJsonClient).executePrivateQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.ORDERS_INFORMATION.getUrl(0)),
+                any(),
                 any());
     }
 
@@ -477,8 +517,9 @@ public class HttpApiClientTest {
         when(mockHttpJsonClient.executePrivateQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.ORDERS_INFORMATION.getUrl(0)),
+                any(),
                 any())
-        ).thenReturn(mockResponseBody.toString());
+        ).thenAnswer(respondWith(mockResponseBody));
 
         Map<String, String> params = new HashMap<>();
         params.put("txid", "OGRQC4-Q5C5N-2EYZDZ");
@@ -495,6 +536,197 @@ public class HttpApiClientTest {
         verify(mockHttpJsonClient).executePrivateQuery(
                 eq(KrakenAPIClient.BASE_URL),
                 eq(KrakenApiMethod.ORDERS_INFORMATION.getUrl(0)),
+                any(),
+                any());
+    }
+
+    @Test
+    public void should_notify_request_listener_with_trace() throws IOException, KrakenApiException {
+
+        // Given
+        final String mockResponseBody = StreamUtils.getResourceAsString(this.getClass(), "json/ticker_information.mock.json");
+        HttpApiClient<TickerInformationResult> client = new HttpApiClient<>(mockHttpJsonClient);
+
+        final List<RequestTrace> traces = new ArrayList<>();
+        client.setRequestListener(traces::add);
+
+        when(mockHttpJsonClient.executePublicQuery(
+                eq(KrakenAPIClient.BASE_URL),
+                eq(KrakenApiMethod.TICKER_INFORMATION.getUrl(0)),
+                any(),
+                any())
+        ).thenAnswer(respondWith(mockResponseBody));
+
+        Map<String, String> params = new HashMap<>();
+        params.put("pair", "BTCEUR,ETHEUR");
+
+        // When
+        client.callPublic(KrakenAPIClient.BASE_URL, KrakenApiMethod.TICKER_INFORMATION, TickerInformationResult.class, params);
+
+        // Then
+        assertEquals(1, traces.size());
+        assertThat(traces.get(0).getMethod(), equalTo(KrakenApiMethod.TICKER_INFORMATION));
+        assertThat(traces.get(0).getPair(), equalTo("BTCEUR,ETHEUR"));
+        assertThat(traces.get(0).isSuccess(), equalTo(true));
+        assertThat(traces.get(0).getDecodeNanos(), Matchers.greaterThan(0L));
+        assertThat(traces.get(0).getTotalNanos(), Matchers.greaterThanOrEqualTo(traces.get(0).getDecodeNanos()));
+        assertThat(RequestTrace.current(), Matchers.nullValue());
+
+        verify(mockHttpJsonClient).executePublicQuery(
+                eq(KrakenAPIClient.BASE_URL),
+                eq(KrakenApiMethod.TICKER_INFORMATION.getUrl(0)),
+                any(),
                 any());
     }
+
+    @Test
+    public void should_notify_request_listener_with_failed_trace() throws IOException, KrakenApiException {
+
+        // Given
+        final String mockResponseBody = StreamUtils.getResourceAsString(this.getClass(), "json/invalid_arguments.mock.json");
+        HttpApiClient<ServerTimeResult> client = new HttpApiClient<>(mockHttpJsonClient);
+
+        final List<RequestTrace> traces = new ArrayList<>();
+        client.setRequestListener(traces::add);
+
+        when(mockHttpJsonClient.executePublicQuery(
+                eq(KrakenAPIClient.BASE_URL),
+                eq(KrakenApiMethod.SERVER_TIME.getUrl(0)),
+                isNull(),
+                any())
+        ).thenAnswer(respondWith(mockResponseBody));
+
+        // When
+        try {
+            client.callPublic(KrakenAPIClient.BASE_URL, KrakenApiMethod.SERVER_TIME, ServerTimeResult.class);
+
+            fail();
+        } catch (KrakenApiException ex) {
+            // Then
+            assertEquals(1, traces.size());
+            assertThat(traces.get(0).isSuccess(), equalTo(false));
+            assertThat(traces.get(0).getFailure(), equalTo(ex));
+        }
+
+        verify(mockHttpJsonClient).executePublicQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.SERVER_TIME.getUrl(0)), isNull(), any());
+    }
+
+    @Test
+    public void should_fail_fast_when_call_deadline_is_over() throws IOException, KrakenApiException {
+
+        // Given
+        HttpApiClient<ServerTimeResult> client = new HttpApiClient<>(mockHttpJsonClient);
+
+        // When
+        Deadline.Scope scope = Deadline.after(-1, TimeUnit.MILLISECONDS).bind();
+        try {
+            client.callPublic(KrakenAPIClient.BASE_URL, KrakenApiMethod.SERVER_TIME, ServerTimeResult.class);
+
+            fail();
+        } catch (KrakenApiException ex) {
+            // Then
+            assertThat(ex.getMessage(), equalTo("[call deadline exceeded]"));
+        } finally {
+            scope.close();
+        }
+
+        assertThat(Deadline.current(), Matchers.nullValue());
+    }
+
+    @Test
+    public void should_bind_call_timeout_as_deadline() throws IOException, KrakenApiException {
+
+        // Given
+        final String mockResponseBody = StreamUtils.getResourceAsString(this.getClass(), "json/server_time.mock.json");
+        HttpApiClient<ServerTimeResult> client = new HttpApiClient<>(mockHttpJsonClient);
+        client.setCallTimeout(5000);
+
+        final List<Deadline> deadlines = new ArrayList<>();
+        when(mockHttpJsonClient.executePublicQuery(
+                eq(KrakenAPIClient.BASE_URL),
+                eq(KrakenApiMethod.SERVER_TIME.getUrl(0)),
+                isNull(),
+                any())
+        ).thenAnswer(invocation -> {
+            deadlines.add(Deadline.current());
+            return respondWith(mockResponseBody).answer(invocation);
+        });
+
+        // When
+        client.callPublic(KrakenAPIClient.BASE_URL, KrakenApiMethod.SERVER_TIME, ServerTimeResult.class);
+
+        // Then
+        assertThat(deadlines.get(0).remaining(TimeUnit.MILLISECONDS), Matchers.lessThanOrEqualTo(5000L));
+        assertThat(Deadline.current(), Matchers.nullValue());
+
+        verify(mockHttpJsonClient).executePublicQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.SERVER_TIME.getUrl(0)), isNull(), any());
+    }
+
+    @Test
+    public void should_record_scheduler_wait_in_trace() throws IOException, KrakenApiException {
+
+        // Given
+        final String mockResponseBody = StreamUtils.getResourceAsString(this.getClass(), "json/account_balance.mock.json");
+        HttpApiClient<AccountBalanceResult> client = new HttpApiClient<>(mockHttpJsonClient);
+        RequestScheduler scheduler = new RequestScheduler(1, 10);
+        client.setScheduler(scheduler);
+
+        final List<RequestTrace> traces = new ArrayList<>();
+        client.setRequestListener(traces::add);
+
+        when(mockHttpJsonClient.executePrivateQuery(
+                eq(KrakenAPIClient.BASE_URL),
+                eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)),
+                isNull(),
+                any())
+        ).thenAnswer(respondWith(mockResponseBody));
+
+        // When, the budget being used up the call waits 100 ms
+        scheduler.acquire(RequestScheduler.RequestClass.ORDER_STATUS, 1).release();
+        client.callPrivate(KrakenAPIClient.BASE_URL, KrakenApiMethod.ACCOUNT_BALANCE, AccountBalanceResult.class);
+
+        // Then
+        assertEquals(1, traces.size());
+        assertThat(traces.get(0).getRateLimitWaitNanos(), Matchers.greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50)));
+        assertThat(traces.get(0).getConnectNanos(), Matchers.lessThan(traces.get(0).getRateLimitWaitNanos()));
+
+        verify(mockHttpJsonClient).executePrivateQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0)), isNull(), any());
+    }
+
+    @Test
+    public void should_record_rate_limiter_wait_of_admitted_call_only() throws IOException, KrakenApiException {
+
+        // Given
+        final String mockResponseBody = StreamUtils.getResourceAsString(this.getClass(), "json/server_time.mock.json");
+        HttpApiClient<ServerTimeResult> admitted = new HttpApiClient<>(mockHttpJsonClient);
+        HttpApiClient<ServerTimeResult> other = new HttpApiClient<>(mockHttpJsonClient);
+        RateLimiter rateLimiter = new RateLimiter(1, 10);
+
+        final List<RequestTrace> traces = new ArrayList<>();
+        admitted.setRequestListener(traces::add);
+        other.setRequestListener(traces::add);
+
+        when(mockHttpJsonClient.executePublicQuery(
+                eq(KrakenAPIClient.BASE_URL),
+                eq(KrakenApiMethod.SERVER_TIME.getUrl(0)),
+                isNull(),
+                any())
+        ).thenAnswer(respondWith(mockResponseBody));
+
+        // When, the second acquire waiting 100 ms for the admitted call and an unrelated wait made before the other call
+        rateLimiter.acquire(1);
+        admitted.setRateLimitWait(rateLimiter.acquire(1));
+        rateLimiter.acquire(1);
+        other.callPublic(KrakenAPIClient.BASE_URL, KrakenApiMethod.SERVER_TIME, ServerTimeResult.class);
+        admitted.callPublic(KrakenAPIClient.BASE_URL, KrakenApiMethod.SERVER_TIME, ServerTimeResult.class);
+        admitted.callPublic(KrakenAPIClient.BASE_URL, KrakenApiMethod.SERVER_TIME, ServerTimeResult.class);
+
+        // Then the wait is reported by the admitted call only, once
+        assertEquals(3, traces.size());
+        assertThat(traces.get(0).getRateLimitWaitNanos(), Matchers.lessThan(TimeUnit.MILLISECONDS.toNanos(50)));
+        assertThat(traces.get(1).getRateLimitWaitNanos(), Matchers.greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50)));
+        assertThat(traces.get(2).getRateLimitWaitNanos(), Matchers.lessThan(TimeUnit.MILLISECONDS.toNanos(50)));
+
+        verify(mockHttpJsonClient, times(3)).executePublicQuery(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.SERVER_TIME.getUrl(0)), isNull(), any());
+    }
 }
@@ -1,21 +1,33 @@
 package com.github.sbouclier;
 
 import com.github.sbouclier.mock.MockHttpsURLConnection;
+import com.github.sbouclier.utils.ByteUtils;
+import com.github.sbouclier.utils.StreamUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.mockito.ArgumentMatchers.any;
 
@@ -31,7 +43,7 @@ public class HttpJsonClientTest {
 
         // Given
         HttpJsonClient spyClient = Mockito.spy(HttpJsonClient.class);
-        Mockito.doReturn("response").when(spyClient).getPublicJsonResponse(new URL("https://baseUrl/urlMethod?"));
+        Mockito.doReturn("response").when(spyClient).getPublicJsonResponse(new URL("https://baseUrl/urlMethod"));
 
         // When
         String result = spyClient.executePublicQuery("https://baseUrl", "/urlMethod");
@@ -51,7 +63,7 @@ public class HttpJsonClientTest {
         params.put("b", "B");
         params.put("c", "C");
 
-        Mockito.doReturn("response").when(spyClient).getPublicJsonResponse(new URL("https://baseUrl/urlMethod?a=A&b=B&c=C&"));
+        Mockito.doReturn("response").when(spyClient).getPublicJsonResponse(new URL("https://baseUrl/urlMethod?a=A&b=B&c=C"));
 
         // When
         String result = spyClient.executePublicQuery("https://baseUrl", "/urlMethod", params);
@@ -65,7 +77,7 @@ public class HttpJsonClientTest {
 
         // Given
         HttpJsonClient spyClient = Mockito.spy(HttpJsonClient.class);
-        Mockito.doReturn("response").when(spyClient).getPublicJsonResponse(new URL("https://baseUrl/urlMethod?"));
+        Mockito.doReturn("response").when(spyClient).getPublicJsonResponse(new URL("https://baseUrl/urlMethod"));
 
         // When
         String result = spyClient.executePublicQuery("https://baseUrl", "/urlMethod", new HashMap<>());
@@ -108,7 +120,7 @@ public class HttpJsonClientTest {
         final String signature = "pmK1HtzTC8XQxUYJRgZ+Ae5aLdvH1cx6eJssELGVlWbt+pbFE96CYUzAujeqeDPijYTOEN5b/vrreWnURZij+w==";
 
         Mockito.doReturn("123456").when(spyClient).generateNonce();
-        Mockito.doReturn("response").when(spyClient).getPrivateJsonResponse(new URL("https://baseUrl/urlMethod"), postData, signature);
+        Mockito.doReturn("response").when(spyClient).getPrivateJsonResponse(new URL("https://baseUrl/urlMethod"), ByteUtils.stringToBytes(postData), signature);
 
         // When
         String result = spyClient.executePrivateQuery("https://baseUrl", "/urlMethod");
@@ -133,7 +145,7 @@ public class HttpJsonClientTest {
         final String signature = "roSiYVygbc6rEyZHxmAx0tv5aftiZsm2v97g2n5tttsEleJ3wsShHK8Y4ewjCPs8YgaHsGMAwmwT/9aHC02UYQ==";
 
         Mockito.doReturn("123456").when(spyClient).generateNonce();
-        Mockito.doReturn("response").when(spyClient).getPrivateJsonResponse(new URL("https://baseUrl/urlMethod"), postData, signature);
+        Mockito.doReturn("response").when(spyClient).getPrivateJsonResponse(new URL("https://baseUrl/urlMethod"), ByteUtils.stringToBytes(postData), signature);
 
         // When
         String result = spyClient.executePrivateQuery("https://baseUrl", "/urlMethod", params);
@@ -153,7 +165,7 @@ public class HttpJsonClientTest {
         final String signature = "pmK1HtzTC8XQxUYJRgZ+Ae5aLdvH1cx6eJssELGVlWbt+pbFE96CYUzAujeqeDPijYTOEN5b/vrreWnURZij+w==";
 
         Mockito.doReturn("123456").when(spyClient).generateNonce();
-        Mockito.doReturn("response").when(spyClient).getPrivateJsonResponse(new URL("https://baseUrl/urlMethod"), postData, signature);
+        Mockito.doReturn("response").when(spyClient).getPrivateJsonResponse(new URL("https://baseUrl/urlMethod"), ByteUtils.stringToBytes(postData), signature);
 
         // When
         String result = spyClient.executePrivateQuery("https://baseUrl", "/urlMethod", new HashMap<>());
@@ -235,7 +247,7 @@ public class HttpJsonClientTest {
         Mockito.doReturn("response").when(spyClient).getJsonResponse(any());
 
         // When
-        String result = spyClient.getPrivateJsonResponse(url, null, "signature");
+        String result = spyClient.getPrivateJsonResponse(url, (String) null, "signature");
 
         // Then
         assertThat(result, equalTo("response"));
@@ -269,4 +281,239 @@ public class HttpJsonClientTest {
         // Then
         assertThat(result, equalTo("response"));
     }
+
+    @Test
+    public void should_record_transport_phases_in_current_trace() throws IOException, KrakenApiException {
+
+        // Given
+        URL url = null;
+        final MockHttpsURLConnection mockHttpURLConnection = new MockHttpsURLConnection(url);
+
+        final URLStreamHandler handler = new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(final URL arg0)
+                    throws IOException {
+                return mockHttpURLConnection;
+            }
+        };
+
+        url = new URL("https", "baseUrl", 80, "", handler);
+
+        HttpJsonClient client = new HttpJsonClient();
+        RequestTrace trace = RequestTrace.start(KrakenApiMethod.SERVER_TIME, null);
+
+        // When
+        try {
+            client.getPublicJsonResponse(url);
+        } finally {
+            trace.finish();
+        }
+
+        // Then
+        assertThat(trace.getResponseBytes(), equalTo(16L));
+        assertThat(trace.getStatusCode(), equalTo(-1));
+        assertThat(mockHttpURLConnection.getSSLSocketFactory(), equalTo(TimingSSLSocketFactory.getShared()));
+    }
+
+    @Test
+    public void should_write_signed_post_data_with_fixed_length() throws IOException, KrakenApiException {
+
+        // Given
+        URL url = null;
+        final MockHttpsURLConnection mockHttpURLConnection = new MockHttpsURLConnection(url);
+
+        final URLStreamHandler handler = new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(final URL arg0)
+                    throws IOException {
+                return mockHttpURLConnection;
+            }
+        };
+
+        url = new URL("https", "baseUrl", 80, "", handler);
+
+        HttpJsonClient client = new HttpJsonClient("apiKey", "secret");
+        final byte[] postData = ByteUtils.stringToBytes("pair=XXBTZEUR&nonce=123456");
+
+        // When
+        String result = client.getPrivateJsonResponse(url, postData, "signature");
+
+        // Then
+        assertThat(result, equalTo("read inputstream"));
+        assertThat(mockHttpURLConnection.getRequestBody(), equalTo(postData));
+        assertThat(mockHttpURLConnection.getFixedContentLength(), equalTo((long) postData.length));
+        assertThat(mockHttpURLConnection.getRequestProperty("Content-Type"), equalTo("application/x-www-form-urlencoded; charset=utf-8"));
+    }
+
+    @Test
+    public void should_decompress_gzip_response_and_record_compression() throws IOException, KrakenApiException {
+
+        // Given
+        final String json = StreamUtils.getResourceAsString(this.getClass(), "json/ohlc.mock.json").replaceAll("\\s", "");
+        final ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(ByteUtils.stringToBytes(json));
+        }
+
+        final MockHttpsURLConnection mockHttpURLConnection = new MockHttpsURLConnection(null);
+        mockHttpURLConnection.setResponse(gzip.toByteArray(), "gzip");
+
+        final URLStreamHandler handler = new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(final URL arg0)
+                    throws IOException {
+                return mockHttpURLConnection;
+            }
+        };
+
+        HttpJsonClient client = new HttpJsonClient();
+        ResponseCompression compression = new ResponseCompression(ResponseCompression.DEFAULT_THRESHOLD_BYTES);
+        client.setResponseCompression(compression);
+
+        URL url = new URL("https", "baseUrl", 80, KrakenApiMethod.OHLC.getUrl(0), handler);
+        RequestTrace trace = RequestTrace.start(KrakenApiMethod.OHLC, null);
+
+        // When
+        String result;
+        try {
+            result = client.getPublicJsonResponse(url);
+        } finally {
+            trace.finish();
+        }
+
+        // Then
+        assertThat(result, equalTo(json));
+        assertThat(mockHttpURLConnection.getRequestProperty("Accept-Encoding"), equalTo("gzip, deflate"));
+        assertThat(trace.getContentEncoding(), equalTo("gzip"));
+        assertThat(trace.getWireBytes(), equalTo((long) gzip.size()));
+        assertThat(trace.getResponseBytes(), equalTo((long) ByteUtils.stringToBytes(json).length));
+        assertThat(compression.getCompressedResponses(), equalTo(1L));
+        assertThat(compression.getCompressionRatio(), greaterThan(1.0));
+    }
+
+    @Test
+    public void should_send_streamed_private_query_through_transport() throws IOException, KrakenApiException {
+
+        // Given
+        HttpJsonClient spyClient = Mockito.spy(new HttpJsonClient("apiKey", "secret"));
+        Mockito.doReturn("123456").when(spyClient).generateNonce();
+
+        final List<TransportRequest> requests = new ArrayList<>();
+        spyClient.setTransport(new HttpTransport() {
+            @Override
+            public <R> R send(TransportRequest request, ResponseHandler<R> handler) throws IOException {
+                requests.add(request);
+                return handler.handle(200, null, new ByteArrayInputStream(ByteUtils.stringToBytes("response")));
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        Map<String, String> params = new HashMap<>();
+        params.put("a", "A");
+
+        // When
+        String result = spyClient.executePrivateQuery("https://baseUrl", "/urlMethod", params, StreamUtils::convert);
+
+        // Then
+        assertThat(result, equalTo("response"));
+        assertThat(requests.size(), equalTo(1));
+        assertThat(requests.get(0).getMethod(), equalTo("POST"));
+        assertThat(requests.get(0).getUrl(), equalTo(new URL("https://baseUrl/urlMethod")));
+        assertThat(requests.get(0).getBody(), equalTo(ByteUtils.stringToBytes("a=A&nonce=123456")));
+        assertThat(requests.get(0).getHeaders().get("API-Key"), equalTo("apiKey"));
+        assertThat(requests.get(0).getHeaders().get("API-Sign"), equalTo(new RequestSigner("secret").sign(
+                ByteUtils.stringToBytes("/urlMethod"), ByteUtils.stringToBytes("123456"), ByteUtils.stringToBytes("a=A&nonce=123456"))));
+    }
+
+    @Test
+    public void should_send_signed_json_body_for_nested_params() throws IOException, KrakenApiException {
+
+        // Given
+        HttpJsonClient spyClient = Mockito.spy(new HttpJsonClient("apiKey", "secret"));
+        Mockito.doReturn("123456").when(spyClient).generateNonce();
+
+        final List<TransportRequest> requests = new ArrayList<>();
+        spyClient.setTransport(new HttpTransport() {
+            @Override
+            public <R> R send(TransportRequest request, ResponseHandler<R> handler) throws IOException {
+                requests.add(request);
+                return handler.handle(200, null, new ByteArrayInputStream(ByteUtils.stringToBytes("response")));
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("orders", Arrays.asList("TX1", "TX2"));
+
+        // When
+        String result = spyClient.executePrivateJsonQuery("https://baseUrl", "/urlMethod", params, StreamUtils::convert);
+
+        // Then
+        final byte[] body = ByteUtils.stringToBytes("{\"nonce\":123456,\"orders\":[\"TX1\",\"TX2\"]}");
+        assertThat(result, equalTo("response"));
+        assertThat(requests.get(0).getBody(), equalTo(body));
+        assertThat(requests.get(0).getHeaders().get("Content-Type"), equalTo("application/json"));
+        assertThat(requests.get(0).getHeaders().get("API-Sign"), equalTo(new RequestSigner("secret").sign(
+                ByteUtils.stringToBytes("/urlMethod"), ByteUtils.stringToBytes("123456"), body)));
+    }
+
+    @Test(expected = IOException.class)
+    public void should_fail_on_http_error_from_transport() throws IOException, KrakenApiException {
+
+        // Given
+        HttpJsonClient client = new HttpJsonClient();
+        client.setTransport(new HttpTransport() {
+            @Override
+            public <R> R send(TransportRequest request, ResponseHandler<R> handler) throws IOException {
+                return handler.handle(503, null, new ByteArrayInputStream(new byte[0]));
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        // When
+        client.executePublicQuery("https://baseUrl", "/urlMethod", null, StreamUtils::convert);
+
+        // Then exception
+    }
+
+    @Test
+    public void should_cap_connection_timeouts_to_call_deadline() throws IOException, KrakenApiException {
+
+        // Given
+        final MockHttpsURLConnection mockHttpURLConnection = new MockHttpsURLConnection(null);
+
+        final URLStreamHandler handler = new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(final URL arg0)
+                    throws IOException {
+                return mockHttpURLConnection;
+            }
+        };
+
+        URL url = new URL("https", "baseUrl", 80, "", handler);
+
+        HttpJsonClient client = new HttpJsonClient();
+        client.setTimeouts(2000, 60000);
+
+        // When
+        Deadline.Scope scope = Deadline.after(5, TimeUnit.SECONDS).bind();
+        try {
+            client.getPublicJsonResponse(url);
+        } finally {
+            scope.close();
+        }
+
+        // Then
+        assertThat(mockHttpURLConnection.getConnectTimeout(), equalTo(2000));
+        assertThat(mockHttpURLConnection.getReadTimeout(), lessThanOrEqualTo(5000));
+    }
 }
@@ -0,0 +1,27 @@
+package com.github.sbouclier;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+
+/**
+ * HTTP transport factory test, run against the Java 8 classes (see {@code Http2TransportTest} for Java 11+)
+ *
+ * @author synapticloop
+ */
+public class HttpTransportsTest {
+
+    @Test
+    public void should_fall_back_to_url_connection_transport_without_http2() {
+        Assume.assumeFalse(HttpTransports.isHttp2Supported());
+
+        assertThat(HttpTransports.http2OrDefault(), instanceOf(HttpURLConnectionTransport.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_non_positive_stream_timeout() {
+        HttpTransports.http2OrDefault(10, 0);
+    }
+}
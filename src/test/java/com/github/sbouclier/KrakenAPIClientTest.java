@@ -3,23 +3,30 @@ package com.github.sbouclier;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.sbouclier.input.InfoInput;
 import com.github.sbouclier.input.Interval;
+import com.github.sbouclier.input.OrderInput;
 import com.github.sbouclier.mock.MockInitHelper;
 import com.github.sbouclier.result.*;
+import com.github.sbouclier.result.common.OrderDirection;
+import com.github.sbouclier.result.common.OrderType;
 import com.github.sbouclier.utils.StreamUtils;
 import org.hamcrest.Matchers;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.samePropertyValuesAs;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
 /**
@@ -628,6 +635,165 @@ public class KrakenAPIClientTest {
         verify(mockClient).callPrivate(KrakenAPIClient.BASE_URL, KrakenApiMethod.ORDERS_INFORMATION, OrdersInformationResult.class, params);
     }
 
+    @SuppressWarnings("unchecked")
+    private void answerOrdersInformationChunks(List<String> threads) throws KrakenApiException {
+        when(mockClientFactory.getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.ORDERS_INFORMATION)).thenReturn(mockClient);
+        when(mockClient.callPrivate(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.ORDERS_INFORMATION), eq(OrdersInformationResult.class), anyMap())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            OrdersInformationResult chunk = new OrdersInformationResult();
+            chunk.setResult(new HashMap<>());
+            for (String txid : ((Map<String, String>) invocation.getArgument(3)).get("txid").split(",")) {
+                chunk.getResult().put(txid, new OrdersInformationResult.OrderInfo());
+            }
+            return chunk;
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void should_split_orders_information_in_chunks_queried_in_order() throws KrakenApiException {
+
+        // Given
+        List<String> txids = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            txids.add("TX" + i);
+        }
+        List<String> threads = new ArrayList<>();
+
+        // When
+        answerOrdersInformationChunks(threads);
+
+        KrakenAPIClient client = new KrakenAPIClient("apiKey", "apiSecret", mockClientFactory);
+        OrdersInformationResult result = client.getOrdersInformation(txids);
+
+        // Then
+        assertThat(result.getResult().size(), equalTo(120));
+        assertThat(result.getResult().keySet(), equalTo(new HashSet<>(txids)));
+        assertThat(threads, equalTo(Collections.nCopies(3, Thread.currentThread().getName())));
+
+        ArgumentCaptor<Map> params = ArgumentCaptor.forClass(Map.class);
+        verify(mockClientFactory, times(3)).getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.ORDERS_INFORMATION);
+        verify(mockClient, times(3)).callPrivate(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.ORDERS_INFORMATION), eq(OrdersInformationResult.class), params.capture());
+        List<String> firstIds = new ArrayList<>();
+        for (Map<String, String> chunkParams : params.getAllValues()) {
+            assertThat(chunkParams.get("txid").split(",").length <= KrakenAPIClient.MAX_QUERY_ORDERS_IDS, equalTo(true));
+            firstIds.add(chunkParams.get("txid").split(",")[0]);
+        }
+        assertThat(firstIds, equalTo(Arrays.asList("TX0", "TX50", "TX100")));
+    }
+
+    @Test
+    public void should_query_chunks_in_parallel_on_chunk_executor() throws KrakenApiException {
+
+        // Given
+        List<String> txids = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            txids.add("TX" + i);
+        }
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        // When
+        answerOrdersInformationChunks(threads);
+
+        KrakenAPIClient client = new KrakenAPIClient("apiKey", "apiSecret", mockClientFactory);
+        client.setChunkExecutor(executor);
+        OrdersInformationResult result;
+        try {
+            result = client.getOrdersInformation(txids);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        assertThat(result.getResult().keySet(), equalTo(new HashSet<>(txids)));
+        assertThat(threads.size(), equalTo(3));
+        assertThat(threads.contains(Thread.currentThread().getName()), equalTo(false));
+        verify(mockClientFactory, times(3)).getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.ORDERS_INFORMATION);
+        verify(mockClient, times(3)).callPrivate(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.ORDERS_INFORMATION), eq(OrdersInformationResult.class), anyMap());
+    }
+
+    @Test
+    public void should_not_charge_rate_limiter_for_single_chunk_query() throws KrakenApiException {
+
+        // Given
+        RateLimiter rateLimiter = mock(RateLimiter.class);
+        LedgersResult ledgers = new LedgersResult();
+        ledgers.setResult(new HashMap<>());
+
+        // When
+        when(mockClientFactory.getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.QUERY_LEDGERS)).thenReturn(mockClient);
+        when(mockClient.callPrivate(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.QUERY_LEDGERS), eq(LedgersResult.class), anyMap())).thenReturn(ledgers);
+
+        KrakenAPIClient client = new KrakenAPIClient("apiKey", "apiSecret", mockClientFactory);
+        client.setRateLimiter(rateLimiter);
+        client.getLedgers(Arrays.asList("L0", "L1"));
+
+        // Then
+        verifyZeroInteractions(rateLimiter);
+        verify(mockClientFactory).getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.QUERY_LEDGERS);
+        verify(mockClient).callPrivate(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.QUERY_LEDGERS), eq(LedgersResult.class), anyMap());
+    }
+
+    @Test
+    public void should_charge_rate_limiter_for_each_chunk() throws KrakenApiException {
+
+        // Given
+        RateLimiter rateLimiter = mock(RateLimiter.class);
+        List<String> txids = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            txids.add("TX" + i);
+        }
+
+        // When
+        answerOrdersInformationChunks(new ArrayList<>());
+
+        KrakenAPIClient client = new KrakenAPIClient("apiKey", "apiSecret", mockClientFactory);
+        client.setRateLimiter(rateLimiter);
+        client.getOrdersInformation(txids);
+
+        // Then
+        verify(rateLimiter, times(3)).acquire(anyDouble());
+        verify(mockClientFactory, times(3)).getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.ORDERS_INFORMATION);
+        verify(mockClient, times(3)).callPrivate(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.ORDERS_INFORMATION), eq(OrdersInformationResult.class), anyMap());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void should_fail_chunked_query_when_a_chunk_fails() throws KrakenApiException {
+
+        // Given
+        List<String> ledgerIds = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            ledgerIds.add("L" + i);
+        }
+
+        // When
+        when(mockClientFactory.getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.QUERY_LEDGERS)).thenReturn(mockClient);
+        when(mockClient.callPrivate(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.QUERY_LEDGERS), eq(LedgersResult.class), anyMap())).thenAnswer(invocation -> {
+            // second chunk only, the first one completing
+            if (((Map<String, String>) invocation.getArgument(3)).get("id").startsWith("L20")) {
+                throw new KrakenApiException("EAPI:Invalid nonce");
+            }
+            LedgersResult chunk = new LedgersResult();
+            chunk.setResult(new HashMap<>());
+            return chunk;
+        });
+
+        KrakenAPIClient client = new KrakenAPIClient("apiKey", "apiSecret", mockClientFactory);
+        try {
+            client.getLedgers(ledgerIds);
+            fail("chunk failure should be thrown");
+        } catch (KrakenApiException ex) {
+
+            // Then
+            assertThat(ex.getMessage(), equalTo("[EAPI:Invalid nonce]"));
+        }
+
+        verify(mockClientFactory, times(2)).getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.QUERY_LEDGERS);
+        verify(mockClient, times(2)).callPrivate(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.QUERY_LEDGERS), eq(LedgersResult.class), anyMap());
+    }
+
     @Test
     public void should_return_trades_history() throws IOException, KrakenApiException {
 
@@ -764,4 +930,110 @@ public class KrakenAPIClientTest {
         verify(mockClientFactory).getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.TRADE_VOLUME);
         verify(mockClient).callPrivate(KrakenAPIClient.BASE_URL, KrakenApiMethod.TRADE_VOLUME, TradeVolumeResult.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void should_add_order_batch() throws KrakenApiException, IOException {
+
+        // Given
+        final String jsonResult = StreamUtils.getResourceAsString(this.getClass(), "json/add_order_batch.mock.json");
+        AddOrderBatchResult mockResult = new ObjectMapper().readValue(jsonResult, AddOrderBatchResult.class);
+
+        List<OrderInput> orders = Arrays.asList(
+                new OrderInput(OrderType.LIMIT, OrderDirection.BUY, new BigDecimal("1.25"), new BigDecimal("2100.5")),
+                new OrderInput(OrderType.LIMIT, OrderDirection.BUY, new BigDecimal("1.25"), new BigDecimal("2100.4")));
+
+        Map<String, String> firstOrder = new LinkedHashMap<>();
+        firstOrder.put("ordertype", "limit");
+        firstOrder.put("type", "buy");
+        firstOrder.put("volume", "1.25");
+        firstOrder.put("price", "2100.5");
+
+        // When
+        when(mockClientFactory.getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.ADD_ORDER_BATCH)).thenReturn(mockClient);
+        when(mockClient.callPrivateJson(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.ADD_ORDER_BATCH), eq(AddOrderBatchResult.class), anyMap())).thenReturn(mockResult);
+
+        KrakenAPIClient client = new KrakenAPIClient("apiKey", "apiSecret", mockClientFactory);
+        AddOrderBatchResult result = client.addOrderBatch("XXBTZEUR", orders);
+
+        // Then
+        assertThat(result.getResult().orders.get(0).txid, equalTo("OUF4EM-FRGI2-MQMWZD"));
+        assertThat(result.getResult().orders.get(1).error, equalTo("EOrder:Insufficient funds"));
+
+        ArgumentCaptor<Map> params = ArgumentCaptor.forClass(Map.class);
+        verify(mockClientFactory).getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.ADD_ORDER_BATCH);
+        verify(mockClient).callPrivateJson(eq(KrakenAPIClient.BASE_URL), eq(KrakenApiMethod.ADD_ORDER_BATCH), eq(AddOrderBatchResult.class), params.capture());
+        assertThat(params.getValue().get("pair"), equalTo("XXBTZEUR"));
+        assertThat(((List<?>) params.getValue().get("orders")).get(0), equalTo(firstOrder));
+    }
+
+    @Test
+    public void should_cancel_order_batch() throws KrakenApiException, IOException {
+
+        // Given
+        final String jsonResult = StreamUtils.getResourceAsString(this.getClass(), "json/cancel_order.mock.json");
+        CancelOrderResult mockResult = new ObjectMapper().readValue(jsonResult, CancelOrderResult.class);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("orders", Arrays.asList("TX1", "TX2"));
+
+        // When
+        when(mockClientFactory.getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.CANCEL_ORDER_BATCH)).thenReturn(mockClient);
+        when(mockClient.callPrivateJson(KrakenAPIClient.BASE_URL, KrakenApiMethod.CANCEL_ORDER_BATCH, CancelOrderResult.class, params)).thenReturn(mockResult);
+
+        KrakenAPIClient client = new KrakenAPIClient("apiKey", "apiSecret", mockClientFactory);
+        CancelOrderResult result = client.cancelOrderBatch(Arrays.asList("TX1", "TX2"));
+
+        // Then
+        assertThat(result.getResult().count, equalTo(1));
+
+        verify(mockClientFactory).getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.CANCEL_ORDER_BATCH);
+        verify(mockClient).callPrivateJson(KrakenAPIClient.BASE_URL, KrakenApiMethod.CANCEL_ORDER_BATCH, CancelOrderResult.class, params);
+    }
+
+    @Test
+    public void should_cancel_order() throws KrakenApiException, IOException {
+
+        // Given
+        final String jsonResult = StreamUtils.getResourceAsString(this.getClass(), "json/cancel_order.mock.json");
+        CancelOrderResult mockResult = new ObjectMapper().readValue(jsonResult, CancelOrderResult.class);
+
+        Map<String, String> params = new HashMap<>();
+        params.put("txid", "TX1");
+
+        // When
+        when(mockClientFactory.getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.CANCEL_ORDER)).thenReturn(mockClient);
+        when(mockClient.callPrivate(KrakenAPIClient.BASE_URL, KrakenApiMethod.CANCEL_ORDER, CancelOrderResult.class, params)).thenReturn(mockResult);
+
+        KrakenAPIClient client = new KrakenAPIClient("apiKey", "apiSecret", mockClientFactory);
+        CancelOrderResult result = client.cancelOrder("TX1");
+
+        // Then
+        assertThat(result.getResult().count, equalTo(1));
+        assertThat(result.getResult().pending, equalTo(false));
+
+        verify(mockClientFactory).getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.CANCEL_ORDER);
+        verify(mockClient).callPrivate(KrakenAPIClient.BASE_URL, KrakenApiMethod.CANCEL_ORDER, CancelOrderResult.class, params);
+    }
+
+    @Test
+    public void should_return_websockets_token() throws KrakenApiException, IOException {
+
+        // Given
+        final String jsonResult = StreamUtils.getResourceAsString(this.getClass(), "json/websockets_token.mock.json");
+        WebSocketsTokenResult mockResult = new ObjectMapper().readValue(jsonResult, WebSocketsTokenResult.class);
+
+        // When
+        when(mockClientFactory.getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.WEBSOCKETS_TOKEN)).thenReturn(mockClient);
+        when(mockClient.callPrivate(KrakenAPIClient.BASE_URL, KrakenApiMethod.WEBSOCKETS_TOKEN, WebSocketsTokenResult.class)).thenReturn(mockResult);
+
+        KrakenAPIClient client = new KrakenAPIClient("apiKey", "apiSecret", mockClientFactory);
+        WebSocketsTokenResult result = client.getWebSocketsToken();
+
+        // Then
+        assertThat(result.getResult().token, equalTo("1Dwc4lzSwNWOAwkMdqhssNNFhs1ed606d1WcF3XfEMw"));
+        assertThat(result.getResult().expires, equalTo(900L));
+
+        verify(mockClientFactory).getHttpApiClient("apiKey", "apiSecret", KrakenApiMethod.WEBSOCKETS_TOKEN);
+        verify(mockClient).callPrivate(KrakenAPIClient.BASE_URL, KrakenApiMethod.WEBSOCKETS_TOKEN, WebSocketsTokenResult.class);
+    }
+}
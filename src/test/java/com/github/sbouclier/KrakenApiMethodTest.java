@@ -4,6 +4,7 @@ import org.junit.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsSame.sameInstance;
 
 /**
  * KrakenApiMethod test
@@ -18,9 +19,22 @@ public class KrakenApiMethodTest {
         assertThat(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0), equalTo("/0/private/Balance"));
     }
 
+    @Test
+    public void should_return_precomputed_template() {
+        EndpointTemplate template = KrakenApiMethod.ACCOUNT_BALANCE.getTemplate();
+
+        assertThat(template.getPath(), equalTo("/0/private/Balance"));
+        assertThat(template.getHttpMethod(), equalTo("POST"));
+        assertThat(template.isAuthenticated(), equalTo(true));
+        assertThat(KrakenApiMethod.ACCOUNT_BALANCE.getUrl(0), sameInstance(template.getPath()));
+        assertThat(EndpointTemplate.forPath("/0/private/Balance", true), sameInstance(template));
+        assertThat(KrakenApiMethod.SERVER_TIME.getTemplate().getHttpMethod(), equalTo("GET"));
+        assertThat(KrakenApiMethod.SERVER_TIME.getUrl(1), equalTo("/1/public/Time"));
+    }
+
     @Test
     public void should_return_values() {
-        assertThat(22, equalTo(KrakenApiMethod.values().length));
+        assertThat(27, equalTo(KrakenApiMethod.values().length));
     }
 
     @Test
@@ -0,0 +1,215 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.result.OrderBookResult.Market;
+import com.github.sbouclier.result.OrderBookResult.OrderBook;
+import com.github.sbouclier.result.RecentSpreadResult.Spread;
+import com.github.sbouclier.result.TickerInformationResult;
+import com.github.sbouclier.result.TickerInformationResult.TickerInformation;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+
+/**
+ * Market snapshot cache test
+ *
+ * @author synapticloop
+ */
+public class MarketSnapshotCacheTest {
+
+    private static TickerInformation ticker(String bid, String ask, String last) {
+        TickerInformation ticker = new TickerInformation();
+        ticker.bid = new TickerInformation.PriceWholeLotVolume();
+        ticker.bid.price = new BigDecimal(bid);
+        ticker.bid.lotVolume = new BigDecimal("1.5");
+        ticker.ask = new TickerInformation.PriceWholeLotVolume();
+        ticker.ask.price = new BigDecimal(ask);
+        ticker.ask.lotVolume = new BigDecimal("2.5");
+        ticker.lastTradeClosed = new TickerInformation.PriceLotVolume();
+        ticker.lastTradeClosed.price = new BigDecimal(last);
+        ticker.lastTradeClosed.lotVolume = new BigDecimal("0.1");
+        return ticker;
+    }
+
+    @Test
+    public void should_update_pairs_of_ticker_result() {
+
+        // Given
+        MarketSnapshotCache cache = new MarketSnapshotCache();
+        TickerInformationResult result = new TickerInformationResult();
+        result.setResult(new HashMap<>());
+        result.getResult().put("XXBTZEUR", ticker("2500.1", "2500.2", "2500.15"));
+        result.getResult().put("XETHZEUR", ticker("190.1", "190.3", "190.2"));
+
+        // When
+        cache.update(result);
+
+        // Then
+        MarketSnapshotCache.Snapshot snapshot = cache.get("XXBTZEUR");
+        assertThat(snapshot.getSequence(), equalTo(1L));
+        assertThat(snapshot.getBid(), equalTo(new BigDecimal("2500.1")));
+        assertThat(snapshot.getAskVolume(), equalTo(new BigDecimal("2.5")));
+        assertThat(snapshot.getLast(), equalTo(new BigDecimal("2500.15")));
+        assertThat(cache.get("XETHZEUR").getAsk(), equalTo(new BigDecimal("190.3")));
+        assertThat(cache.getPairs().size(), equalTo(2));
+        assertThat(cache.get("XLTCZEUR"), nullValue());
+    }
+
+    @Test
+    public void should_merge_updates_and_number_them() {
+
+        // Given
+        MarketSnapshotCache cache = new MarketSnapshotCache();
+        cache.update("XXBTZEUR", ticker("2500.1", "2500.2", "2500.15"));
+
+        // When
+        MarketSnapshotCache.Snapshot spread = cache.update("XXBTZEUR", new Spread(1501271914, new BigDecimal("2500.3"), new BigDecimal("2500.4")));
+        OrderBook book = new OrderBook();
+        book.asks = Arrays.asList(new Market(new BigDecimal("2500.5"), new BigDecimal("3"), 1501271915));
+        book.bids = Arrays.asList(new Market(new BigDecimal("2500.4"), new BigDecimal("4"), 1501271915));
+        MarketSnapshotCache.Snapshot top = cache.update("XXBTZEUR", book);
+
+        // Then
+        assertThat(spread.getSequence(), equalTo(2L));
+        assertThat(spread.getBid(), equalTo(new BigDecimal("2500.3")));
+        assertThat(spread.getBidVolume(), nullValue());
+        assertThat(spread.getLast(), equalTo(new BigDecimal("2500.15")));
+        assertThat(spread.getSourceTimeMillis(), equalTo(1501271914000L));
+        assertThat(top.getSequence(), equalTo(3L));
+        assertThat(top.getAskVolume(), equalTo(new BigDecimal("3")));
+        assertThat(top.getLast(), equalTo(new BigDecimal("2500.15")));
+        assertThat(top.getSourceTimeMillis(), equalTo(1501271915000L));
+        assertThat(cache.slot("XXBTZEUR").get(), sameInstance(top));
+    }
+
+    @Test
+    public void should_skip_updates_older_than_snapshot() {
+
+        // Given
+        MarketSnapshotCache cache = new MarketSnapshotCache();
+        MarketSnapshotCache.Snapshot latest = cache.update("XXBTZEUR", new Spread(1501271915, new BigDecimal("2500.3"), new BigDecimal("2500.4")));
+
+        // When
+        MarketSnapshotCache.Snapshot late = cache.update("XXBTZEUR", new Spread(1501271914, new BigDecimal("2500.1"), new BigDecimal("2500.2")));
+
+        // Then
+        assertThat(late, sameInstance(latest));
+        assertThat(cache.get("XXBTZEUR").getBid(), equalTo(new BigDecimal("2500.3")));
+        assertThat(cache.get("XXBTZEUR").getSequence(), equalTo(1L));
+    }
+
+    @Test
+    public void should_not_inherit_source_time_of_other_update() {
+
+        // Given
+        MarketSnapshotCache cache = new MarketSnapshotCache();
+        cache.update("XXBTZEUR", new Spread(1501271914, new BigDecimal("2500.3"), new BigDecimal("2500.4")));
+
+        // When
+        MarketSnapshotCache.Snapshot ticker = cache.update("XXBTZEUR", ticker("2500.1", "2500.2", "2500.15"));
+
+        // Then
+        assertThat(ticker.getSequence(), equalTo(2L));
+        assertThat(ticker.getBid(), equalTo(new BigDecimal("2500.1")));
+        assertThat(ticker.getSourceTimeMillis(), equalTo(0L));
+    }
+
+    @Test
+    public void should_skip_late_book_after_ticker_update() {
+
+        // Given, a book at t2 then a ticker without source time
+        MarketSnapshotCache cache = new MarketSnapshotCache();
+        OrderBook latest = new OrderBook();
+        latest.asks = Arrays.asList(new Market(new BigDecimal("2500.5"), new BigDecimal("3"), 1501271915));
+        latest.bids = Arrays.asList(new Market(new BigDecimal("2500.4"), new BigDecimal("4"), 1501271915));
+        cache.update("XXBTZEUR", latest);
+        MarketSnapshotCache.Snapshot ticker = cache.update("XXBTZEUR", ticker("2500.1", "2500.2", "2500.15"));
+
+        // When, the late response of a book at t1
+        OrderBook late = new OrderBook();
+        late.asks = Arrays.asList(new Market(new BigDecimal("2499.5"), new BigDecimal("1"), 1501271914));
+        late.bids = Arrays.asList(new Market(new BigDecimal("2499.4"), new BigDecimal("2"), 1501271914));
+        MarketSnapshotCache.Snapshot snapshot = cache.update("XXBTZEUR", late);
+
+        // Then
+        assertThat(snapshot, sameInstance(ticker));
+        assertThat(cache.get("XXBTZEUR").getBid(), equalTo(new BigDecimal("2500.1")));
+        assertThat(cache.get("XXBTZEUR").getSequence(), equalTo(2L));
+    }
+
+    @Test
+    public void should_tell_stale_snapshots() throws InterruptedException {
+
+        // Given
+        MarketSnapshotCache cache = new MarketSnapshotCache();
+        MarketSnapshotCache.Snapshot snapshot = cache.update("XXBTZEUR", new BigDecimal("1"), null, new BigDecimal("2"), null, null, null, 0);
+
+        // When
+        Thread.sleep(30);
+
+        // Then
+        assertThat(snapshot.getAgeMillis(), greaterThanOrEqualTo(30L));
+        assertThat(snapshot.isStale(20, TimeUnit.MILLISECONDS), equalTo(true));
+        assertThat(snapshot.isStale(1, TimeUnit.MINUTES), equalTo(false));
+    }
+
+    @Test
+    public void should_give_consistent_snapshots_to_concurrent_readers() throws InterruptedException {
+
+        // Given
+        MarketSnapshotCache cache = new MarketSnapshotCache();
+        MarketSnapshotCache.Slot slot = cache.slot("XXBTZEUR");
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> inconsistency = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    // ask always bid + 1 and last always bid
+                    BigDecimal bid = BigDecimal.valueOf(i);
+                    cache.update("XXBTZEUR", bid, null, bid.add(BigDecimal.ONE), null, bid, null, 0);
+                }
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            threads.add(new Thread(() -> {
+                long lastSequence = 0;
+                while (running.get()) {
+                    MarketSnapshotCache.Snapshot snapshot = slot.get();
+                    if (snapshot == null) {
+                        continue;
+                    }
+                    if (snapshot.getAsk().subtract(snapshot.getBid()).compareTo(BigDecimal.ONE) != 0 || !snapshot.getLast().equals(snapshot.getBid())
+                            || snapshot.getSequence() < lastSequence) {
+                        inconsistency.set(snapshot.toString());
+                    }
+                    lastSequence = snapshot.getSequence();
+                }
+            }));
+        }
+
+        // When
+        threads.forEach(Thread::start);
+        threads.get(0).join();
+        threads.get(1).join();
+        running.set(false);
+        threads.get(2).join();
+        threads.get(3).join();
+
+        // Then
+        assertThat(inconsistency.get(), nullValue());
+        assertThat(slot.get().getSequence(), equalTo(40_000L));
+    }
+}
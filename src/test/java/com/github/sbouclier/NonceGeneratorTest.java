@@ -0,0 +1,55 @@
+package com.github.sbouclier;
+
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Nonce generator test
+ *
+ * @author synapticloop
+ */
+public class NonceGeneratorTest {
+
+    @Test
+    public void should_increase_within_same_millisecond_and_when_clock_goes_backwards() {
+
+        // Given
+        final long[] clock = {1000000};
+        NonceGenerator generator = new NonceGenerator() {
+            @Override
+            protected long currentTimeMicros() {
+                return clock[0];
+            }
+        };
+
+        // When
+        long first = generator.next();
+        long second = generator.next();
+        clock[0] = 999000;
+        long third = generator.next();
+        clock[0] = 2000000;
+        long fourth = generator.next();
+
+        // Then
+        assertThat(first, equalTo(1000000L));
+        assertThat(second, equalTo(1000001L));
+        assertThat(third, equalTo(1000002L));
+        assertThat(fourth, equalTo(2000000L));
+    }
+
+    @Test
+    public void should_never_repeat_across_threads() {
+        NonceGenerator generator = new NonceGenerator();
+        Set<Long> nonces = ConcurrentHashMap.newKeySet();
+
+        IntStream.range(0, 10000).parallel().forEach(i -> nonces.add(generator.next()));
+
+        assertThat(nonces.size(), equalTo(10000));
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.sbouclier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.sbouclier.input.OrderInput;
+import com.github.sbouclier.result.AddStandardOrderResult;
+import com.github.sbouclier.result.OpenOrdersResult;
+import com.github.sbouclier.result.OpenOrdersResult.OpenOrder;
+import com.github.sbouclier.result.common.OrderDirection;
+import com.github.sbouclier.result.common.OrderType;
+import com.github.sbouclier.utils.StreamUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * OpenOrdersState test
+ *
+ * @author synapticloop
+ */
+public class OpenOrdersStateTest {
+
+    private static final OrderInput ORDER = new OrderInput(OrderType.LIMIT, OrderDirection.BUY, new BigDecimal("0.5"), new BigDecimal("2100.5"));
+
+    private OpenOrdersResult snapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        final String jsonResult = StreamUtils.getResourceAsString(this.getClass(), "json/open_orders.mock.json");
+        snapshot = new ObjectMapper().readValue(jsonResult, OpenOrdersResult.class);
+    }
+
+    @Test
+    public void should_seed_state_from_snapshot() {
+
+        // When
+        OpenOrdersState state = new OpenOrdersState(snapshot);
+
+        // Then
+        assertThat(state.size(), equalTo(3));
+        assertThat(state.get("OC6Z5B-NLAHB-6MQNLA").description.price, equalTo(new BigDecimal("2600.000")));
+        assertThat(state.getByPair("XBTEUR"), hasSize(3));
+        assertThat(state.getByPair("ETHEUR"), empty());
+    }
+
+    @Test
+    public void should_track_added_and_cancelled_orders() {
+
+        // Given
+        OpenOrdersState state = new OpenOrdersState(snapshot);
+
+        AddStandardOrderResult result = new AddStandardOrderResult();
+        result.setResult(new AddStandardOrderResult.StandardOrder());
+        result.getResult().txid = Collections.singletonList("ONEW01-AAAAA-BBBBBB");
+
+        // When
+        state.onOrderAdded("XBTEUR", ORDER, result);
+        state.onOrderAdded("ONEW02-AAAAA-BBBBBB", "XBTEUR", ORDER, "42");
+        state.onOrderCancelled("OC6Z5B-NLAHB-6MQNLA");
+
+        // Then
+        assertThat(state.size(), equalTo(4));
+        assertThat(state.get("OC6Z5B-NLAHB-6MQNLA"), nullValue());
+        assertThat(state.get("ONEW01-AAAAA-BBBBBB").volumeOrder, equalTo(new BigDecimal("0.5")));
+        assertThat(state.getByPair("XBTEUR"), hasSize(4));
+        assertThat(state.getByUserref("42"), hasSize(1));
+        assertThat(state.getByUserref("42").iterator().next().description.price, equalTo(new BigDecimal("2100.5")));
+    }
+
+    @Test
+    public void should_apply_feed_updates_without_modifying_orders_read() {
+
+        // Given
+        OpenOrdersState state = new OpenOrdersState(snapshot);
+        OpenOrder before = state.get("ORGIM4-6TDSR-DZMIID");
+
+        // When
+        state.onOrderUpdate("ORGIM4-6TDSR-DZMIID", null, new BigDecimal("0.01"));
+        state.onOrderUpdate("OC6Z5B-NLAHB-6MQNLA", OpenOrder.Status.CLOSED, null);
+        state.onOrderUpdate("UNKNOWN", OpenOrder.Status.OPEN, BigDecimal.ONE);
+
+        // Then
+        assertThat(state.get("ORGIM4-6TDSR-DZMIID").volumeExecuted, equalTo(new BigDecimal("0.01")));
+        assertThat(before.volumeExecuted, equalTo(new BigDecimal("0.00000000")));
+        assertThat(state.get("OC6Z5B-NLAHB-6MQNLA"), nullValue());
+        assertThat(state.get("UNKNOWN"), nullValue());
+        assertThat(state.size(), equalTo(2));
+        assertThat(state.getByPair("XBTEUR"), hasSize(2));
+    }
+
+    @Test
+    public void should_reconcile_without_reverting_changes_newer_than_snapshot() throws KrakenApiException {
+
+        // Given
+        OpenOrdersState state = new OpenOrdersState();
+        state.onOrderAdded("OSTALE-AAAAA-BBBBBB", "XBTEUR", ORDER, null);
+
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.getOpenOrders()).thenAnswer(invocation -> {
+            // changes made while the snapshot is in flight
+            state.onOrderAdded("ONEW01-AAAAA-BBBBBB", "XBTEUR", ORDER, null);
+            state.onOrderCancelled("OC6Z5B-NLAHB-6MQNLA");
+            return snapshot;
+        });
+
+        // When
+        state.reconcile(client);
+
+        // Then
+        assertThat(state.get("OSTALE-AAAAA-BBBBBB"), nullValue());
+        assertThat(state.get("OC6Z5B-NLAHB-6MQNLA"), nullValue());
+        assertThat(state.get("ONEW01-AAAAA-BBBBBB").status, equalTo(OpenOrder.Status.OPEN));
+        assertThat(state.size(), equalTo(3));
+    }
+}
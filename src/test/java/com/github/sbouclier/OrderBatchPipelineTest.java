@@ -0,0 +1,202 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.input.OrderInput;
+import com.github.sbouclier.result.AddOrderBatchResult;
+import com.github.sbouclier.result.AddStandardOrderResult;
+import com.github.sbouclier.result.CancelOrderResult;
+import com.github.sbouclier.result.common.OrderDirection;
+import com.github.sbouclier.result.common.OrderType;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * OrderBatchPipeline test
+ *
+ * @author synapticloop
+ */
+public class OrderBatchPipelineTest {
+
+    private static final OrderInput ORDER = new OrderInput(OrderType.LIMIT, OrderDirection.BUY, BigDecimal.ONE, BigDecimal.TEN);
+
+    @Test
+    public void should_requote_50_levels_in_5_calls() throws Exception {
+
+        // Given
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.cancelOrderBatch(anyList())).thenReturn(new CancelOrderResult());
+        when(client.addOrderBatch(eq("XXBTZEUR"), anyList())).thenAnswer(invocation -> batchResult(invocation.<List<OrderInput>>getArgument(1).size()));
+
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        OrderBatchPipeline pipeline = new OrderBatchPipeline(client, TimeUnit.MINUTES.toMillis(1));
+
+        // When, full batches being sent at once and the last adds on close
+        for (int i = 0; i < 50; i++) {
+            futures.add(pipeline.cancelOrder("XXBTZEUR", "OLD-" + i));
+        }
+        for (int i = 0; i < 50; i++) {
+            futures.add(pipeline.addOrder("XXBTZEUR", ORDER));
+        }
+        pipeline.close();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(pipeline.getActionCount(), equalTo(100L));
+        assertThat(pipeline.getCallCount(), equalTo(5L));
+
+        InOrder inOrder = inOrder(client);
+        inOrder.verify(client).cancelOrderBatch(anyList());
+        inOrder.verify(client, times(4)).addOrderBatch(eq("XXBTZEUR"), anyList());
+        assertThat(futures.get(50).get(), equalTo("TX-0"));
+        verifyNoMoreInteractions(client);
+    }
+
+    @Test
+    public void should_send_full_add_batch_without_waiting_for_window() throws Exception {
+
+        // Given
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.addOrderBatch(eq("XXBTZEUR"), anyList())).thenAnswer(invocation -> batchResult(invocation.<List<OrderInput>>getArgument(1).size()));
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+
+        // When
+        try (OrderBatchPipeline pipeline = new OrderBatchPipeline(client, TimeUnit.MINUTES.toMillis(1))) {
+            for (int i = 0; i < KrakenAPIClient.MAX_ADD_ORDER_BATCH + 1; i++) {
+                futures.add(pipeline.addOrder("XXBTZEUR", ORDER));
+            }
+            futures.get(KrakenAPIClient.MAX_ADD_ORDER_BATCH - 1).get(5, TimeUnit.SECONDS);
+
+            // Then the next add waits for its own window
+            assertThat(pipeline.getCallCount(), equalTo(1L));
+            assertThat(futures.get(KrakenAPIClient.MAX_ADD_ORDER_BATCH).isDone(), equalTo(false));
+        }
+
+        verify(client).addOrderBatch(eq("XXBTZEUR"), argThat(orders -> orders.size() == KrakenAPIClient.MAX_ADD_ORDER_BATCH));
+    }
+
+    @Test
+    public void should_keep_order_of_cancels_and_adds_of_a_pair() throws Exception {
+
+        // Given
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.cancelOrder(anyString())).thenReturn(new CancelOrderResult());
+        when(client.addOrderBatch(anyString(), anyList())).thenAnswer(invocation -> batchResult(invocation.<List<OrderInput>>getArgument(1).size()));
+        when(client.addStandardOrder(anyString(), any(), any(), any(), any())).thenReturn(standardResult("TX-SINGLE"));
+
+        // When
+        try (OrderBatchPipeline pipeline = new OrderBatchPipeline(client, 50)) {
+            pipeline.addOrder("XXBTZEUR", ORDER);
+            pipeline.addOrder("XXBTZEUR", ORDER);
+            pipeline.cancelOrder("XXBTZEUR", "TX-0");
+            pipeline.addOrder("XXBTZEUR", ORDER).get(5, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(pipeline.getCallCount(), equalTo(3L));
+        }
+
+        InOrder inOrder = inOrder(client);
+        inOrder.verify(client).addOrderBatch(eq("XXBTZEUR"), anyList());
+        inOrder.verify(client).cancelOrder("TX-0");
+        inOrder.verify(client).addStandardOrder("XXBTZEUR", OrderType.LIMIT, OrderDirection.BUY, BigDecimal.ONE, BigDecimal.TEN);
+    }
+
+    @Test
+    public void should_fail_rejected_orders_of_a_batch() throws Exception {
+
+        // Given
+        AddOrderBatchResult result = batchResult(2);
+        result.getResult().orders.get(1).txid = null;
+        result.getResult().orders.get(1).error = "EOrder:Insufficient funds";
+
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.addOrderBatch(anyString(), anyList())).thenReturn(result);
+
+        // When
+        try (OrderBatchPipeline pipeline = new OrderBatchPipeline(client, 50)) {
+            CompletableFuture<String> accepted = pipeline.addOrder("XXBTZEUR", ORDER);
+            CompletableFuture<String> rejected = pipeline.addOrder("XXBTZEUR", ORDER);
+
+            // Then
+            assertThat(accepted.get(5, TimeUnit.SECONDS), equalTo("TX-0"));
+            try {
+                rejected.get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException ex) {
+                assertThat(ex.getCause(), instanceOf(KrakenApiException.class));
+                assertThat(ex.getCause().getMessage(), equalTo("[EOrder:Insufficient funds]"));
+            }
+        }
+    }
+
+    @Test
+    public void should_fail_actions_of_a_failed_call() throws Exception {
+
+        // Given
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.cancelOrderBatch(anyList())).thenThrow(new KrakenApiException("unable to query Kraken API"));
+
+        // When
+        try (OrderBatchPipeline pipeline = new OrderBatchPipeline(client, 50)) {
+            pipeline.cancelOrder("XXBTZEUR", "TX-0");
+            CompletableFuture<Void> cancel = pipeline.cancelOrder("XXBTZEUR", "TX-1");
+
+            // Then
+            try {
+                cancel.get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException ex) {
+                assertThat(ex.getCause().getMessage(), equalTo("[unable to query Kraken API]"));
+            }
+        }
+        verify(client).cancelOrderBatch(Arrays.asList("TX-0", "TX-1"));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void should_fail_actions_after_close() throws Exception {
+
+        // Given
+        OrderBatchPipeline pipeline = new OrderBatchPipeline(mock(KrakenAPIClient.class));
+        pipeline.close();
+
+        // When
+        pipeline.cancelOrder("XXBTZEUR", "TX-0").get(5, TimeUnit.SECONDS);
+    }
+
+    private static AddOrderBatchResult batchResult(int size) {
+        AddOrderBatchResult result = new AddOrderBatchResult();
+        result.setResult(new AddOrderBatchResult.OrderBatch());
+        result.getResult().orders = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            AddOrderBatchResult.BatchOrder order = new AddOrderBatchResult.BatchOrder();
+            order.txid = "TX-" + i;
+            result.getResult().orders.add(order);
+        }
+        return result;
+    }
+
+    private static AddStandardOrderResult standardResult(String txid) {
+        AddStandardOrderResult result = new AddStandardOrderResult();
+        result.setResult(new AddStandardOrderResult.StandardOrder());
+        result.getResult().txid = Collections.singletonList(txid);
+        return result;
+    }
+}
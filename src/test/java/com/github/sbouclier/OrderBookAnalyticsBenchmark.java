@@ -0,0 +1,94 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.result.OrderBookResult.Market;
+import com.github.sbouclier.result.OrderBookResult.OrderBook;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Benchmark of VWAP-for-size and depth queries on a 500-level book, a strategy sizing a few orders per snapshot: walk
+ * of the levels against the analytics view, build included. Not a unit test, run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=com.github.sbouclier.OrderBookAnalyticsBenchmark -Dexec.classpathScope=test
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class OrderBookAnalyticsBenchmark {
+
+    private static final int LEVELS = 500;
+    private static final int SNAPSHOTS = 20_000;
+    private static final int QUERIES_PER_SNAPSHOT = 20;
+    private static final int ROUNDS = 5;
+    private static final BigDecimal LIMIT = new BigDecimal("25100");
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        OrderBook book = new OrderBook();
+        book.asks = new ArrayList<>();
+        book.bids = new ArrayList<>();
+        for (int i = 0; i < LEVELS; i++) {
+            book.asks.add(new Market(BigDecimal.valueOf(250_000 + i * 3L, 1), BigDecimal.valueOf(1 + random.nextInt(100_000_000), 8), 1501271914));
+            book.bids.add(new Market(BigDecimal.valueOf(249_999 - i * 3L, 1), BigDecimal.valueOf(1 + random.nextInt(100_000_000), 8), 1501271914));
+        }
+        BigDecimal[] volumes = new BigDecimal[QUERIES_PER_SNAPSHOT];
+        for (int i = 0; i < QUERIES_PER_SNAPSHOT; i++) {
+            volumes[i] = BigDecimal.valueOf(random.nextInt(100_000_000), 6);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            BigDecimal checksum = BigDecimal.ZERO;
+            for (int snapshot = 0; snapshot < SNAPSHOTS; snapshot++) {
+                for (BigDecimal volume : volumes) {
+                    checksum = checksum.add(walk(book, volume)).add(walkDepth(book, LIMIT));
+                }
+            }
+            report("walk", round, start, checksum);
+
+            start = System.nanoTime();
+            checksum = BigDecimal.ZERO;
+            for (int snapshot = 0; snapshot < SNAPSHOTS; snapshot++) {
+                OrderBookAnalytics.Side asks = new OrderBookAnalytics(book).getAsks();
+                for (BigDecimal volume : volumes) {
+                    checksum = checksum.add(asks.getVwap(volume)).add(asks.getDepthAtPrice(LIMIT));
+                }
+            }
+            report("analytics", round, start, checksum);
+        }
+    }
+
+    private static BigDecimal walk(OrderBook book, BigDecimal volume) {
+        BigDecimal remaining = volume;
+        BigDecimal notional = BigDecimal.ZERO;
+        for (Market level : book.asks) {
+            BigDecimal filled = remaining.min(level.volume);
+            notional = notional.add(filled.multiply(level.price));
+            remaining = remaining.subtract(filled);
+            if (remaining.signum() == 0) {
+                break;
+            }
+        }
+        return notional.divide(volume, 5, RoundingMode.HALF_EVEN);
+    }
+
+    private static BigDecimal walkDepth(OrderBook book, BigDecimal price) {
+        BigDecimal depth = BigDecimal.ZERO;
+        for (Market level : book.asks) {
+            if (level.price.compareTo(price) > 0) {
+                break;
+            }
+            depth = depth.add(level.volume);
+        }
+        return depth;
+    }
+
+    private static void report(String name, int round, long start, BigDecimal checksum) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s round %d: %.0f snapshots/s of %d queries (checksum %s)%n", name, round, SNAPSHOTS / seconds, QUERIES_PER_SNAPSHOT, checksum);
+    }
+}
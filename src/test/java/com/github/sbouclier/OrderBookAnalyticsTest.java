@@ -0,0 +1,190 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.result.OrderBookResult.Market;
+import com.github.sbouclier.result.OrderBookResult.OrderBook;
+import com.github.sbouclier.result.common.OrderDirection;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.hamcrest.number.IsCloseTo.closeTo;
+
+/**
+ * Order book analytics test
+ *
+ * @author synapticloop
+ */
+public class OrderBookAnalyticsTest {
+
+    private static Market level(String price, String volume) {
+        return new Market(new BigDecimal(price), new BigDecimal(volume), 1501271914);
+    }
+
+    private static OrderBook book() {
+        OrderBook book = new OrderBook();
+        book.asks = Arrays.asList(level("100.05", "1.0"), level("100.1", "2.5"), level("100.9", "0.5"), level("102", "4"));
+        book.bids = Arrays.asList(level("99.95", "2"), level("99.9", "1.25"), level("99.0", "3"));
+        return book;
+    }
+
+    @Test
+    public void should_compute_depth_at_price() {
+
+        // Given
+        OrderBookAnalytics analytics = new OrderBookAnalytics(book());
+
+        // Then
+        assertThat(analytics.getAsks().getDepthAtPrice(new BigDecimal("100")), equalTo(new BigDecimal("0.00")));
+        assertThat(analytics.getAsks().getDepthAtPrice(new BigDecimal("100.1")), equalTo(new BigDecimal("3.50")));
+        assertThat(analytics.getAsks().getDepthAtPrice(new BigDecimal("101")), equalTo(new BigDecimal("4.00")));
+        assertThat(analytics.getBids().getDepthAtPrice(new BigDecimal("99.9")), equalTo(new BigDecimal("3.25")));
+        assertThat(analytics.getBids().getNotionalAtPrice(new BigDecimal("99.9")), equalTo(new BigDecimal("324.7750")));
+        assertThat(analytics.getAsks().getTotalVolume(), equalTo(new BigDecimal("8.00")));
+        assertThat(analytics.getSpread(), equalTo(new BigDecimal("0.10")));
+        assertThat(analytics.getMidPrice(), equalTo(new BigDecimal("100.000")));
+    }
+
+    @Test
+    public void should_compute_vwap_worst_price_and_slippage_for_size() {
+
+        // Given
+        OrderBookAnalytics analytics = new OrderBookAnalytics(book());
+        OrderBookAnalytics.Side asks = analytics.forOrder(OrderDirection.BUY);
+
+        // When
+        BigDecimal vwap = asks.getVwap(new BigDecimal("2"));
+
+        // Then
+        // 1 @ 100.05 + 1 @ 100.1
+        assertThat(vwap, equalTo(new BigDecimal("100.075000")));
+        assertThat(asks.getWorstPrice(new BigDecimal("2")), equalTo(new BigDecimal("100.10")));
+        assertThat(asks.getSlippageBps(new BigDecimal("2")), closeTo(2.4988, 0.0001));
+        assertThat(asks.getVwap(new BigDecimal("9")), nullValue());
+        assertThat(Double.isNaN(asks.getSlippageBps(new BigDecimal("9"))), equalTo(true));
+        assertThat(analytics.forOrder(OrderDirection.SELL), sameInstance(analytics.getBids()));
+        // 2 @ 99.95 + 1 @ 99.9
+        assertThat(analytics.getBids().getVwap(new BigDecimal("3")), equalTo(new BigDecimal("99.933333")));
+    }
+
+    @Test
+    public void should_compute_vwap_of_volume_finer_than_book() {
+
+        // Given
+        OrderBookAnalytics.Side asks = new OrderBookAnalytics(book()).getAsks();
+
+        // When
+        BigDecimal vwap = asks.getVwap(new BigDecimal("1.001"));
+
+        // Then
+        // rounded up to 1.01: 1 @ 100.05 + 0.01 @ 100.1, within the prices filled
+        assertThat(vwap, equalTo(new BigDecimal("100.050495")));
+        assertThat(vwap.compareTo(asks.getWorstPrice(new BigDecimal("1.001"))) <= 0, equalTo(true));
+    }
+
+    @Test
+    public void should_compute_volume_for_notional() {
+
+        // Given
+        OrderBookAnalytics analytics = new OrderBookAnalytics(book());
+
+        // When
+        BigDecimal volume = analytics.getAsks().getVolumeForNotional(new BigDecimal("200.15"));
+
+        // Then
+        // 100.05 for the first level, 100.1 for 1.0 of the second
+        assertThat(volume, equalTo(new BigDecimal("2.00")));
+        assertThat(analytics.getAsks().getVolumeForNotional(new BigDecimal("1000000")), nullValue());
+    }
+
+    @Test
+    public void should_aggregate_price_buckets() {
+
+        // Given
+        OrderBookAnalytics analytics = new OrderBookAnalytics(book());
+
+        // When
+        List<OrderBookAnalytics.Bucket> asks = analytics.getAsks().getBuckets(new BigDecimal("0.5"), 2);
+        List<OrderBookAnalytics.Bucket> bids = analytics.getBids().getBuckets(10);
+
+        // Then
+        assertThat(asks.size(), equalTo(2));
+        assertThat(asks.get(0).price, equalTo(new BigDecimal("101.00")));
+        assertThat(asks.get(0).volume, equalTo(new BigDecimal("4.00")));
+        assertThat(asks.get(0).levels, equalTo(3));
+        assertThat(asks.get(1).price, equalTo(new BigDecimal("102.00")));
+        assertThat(bids.size(), equalTo(2));
+        assertThat(bids.get(0).price, equalTo(new BigDecimal("99.90")));
+        assertThat(bids.get(0).volume, equalTo(new BigDecimal("3.25")));
+        assertThat(bids.get(1).price, equalTo(new BigDecimal("99.00")));
+    }
+
+    @Test
+    public void should_match_walk_of_levels() {
+
+        // Given
+        Random random = new Random(42);
+        OrderBook book = new OrderBook();
+        book.asks = new ArrayList<>();
+        book.bids = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            book.asks.add(level(BigDecimal.valueOf(250_000 + i * 3L, 1).toPlainString(), BigDecimal.valueOf(1 + random.nextInt(100_000_000), 8).toPlainString()));
+            book.bids.add(level(BigDecimal.valueOf(249_999 - i * 3L, 1).toPlainString(), BigDecimal.valueOf(1 + random.nextInt(100_000_000), 8).toPlainString()));
+        }
+        OrderBookAnalytics analytics = new OrderBookAnalytics(book);
+
+        for (int i = 0; i < 100; i++) {
+            // When
+            BigDecimal volume = BigDecimal.valueOf(random.nextInt(20_000_000), 6);
+            BigDecimal vwap = analytics.getAsks().getVwap(volume);
+
+            // Then
+            assertThat(vwap, equalTo(walkVwap(book.asks, volume).setScale(5, RoundingMode.HALF_EVEN)));
+        }
+    }
+
+    @Test
+    public void should_round_notionals_too_large_for_long() {
+
+        // Given
+        OrderBook book = new OrderBook();
+        book.asks = Arrays.asList(level("0.0712345", "9000000000.12345678"), level("0.0712346", "9000000000.12345678"));
+        book.bids = new ArrayList<>();
+
+        // When
+        OrderBookAnalytics analytics = new OrderBookAnalytics(book);
+
+        // Then
+        assertThat(analytics.getAsks().getTotalNotional().doubleValue(), closeTo(1_282_221_900.0, 1000));
+        assertThat(analytics.getAsks().getVwap(new BigDecimal("9000000000.12345678")), equalTo(new BigDecimal("0.07123450000")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_unsorted_side() {
+        OrderBook book = book();
+        book.bids = Arrays.asList(level("99.0", "3"), level("99.95", "2"));
+        new OrderBookAnalytics(book).getBids();
+    }
+
+    private static BigDecimal walkVwap(List<Market> levels, BigDecimal volume) {
+        BigDecimal remaining = volume;
+        BigDecimal notional = BigDecimal.ZERO;
+        for (Market level : levels) {
+            BigDecimal filled = remaining.min(level.volume);
+            notional = notional.add(filled.multiply(level.price));
+            remaining = remaining.subtract(filled);
+            if (remaining.signum() == 0) {
+                break;
+            }
+        }
+        return notional.divide(volume, 20, RoundingMode.HALF_EVEN);
+    }
+}
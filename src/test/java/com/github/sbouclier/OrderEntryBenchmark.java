@@ -0,0 +1,112 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.result.common.OrderDirection;
+import com.github.sbouclier.result.common.OrderType;
+import com.github.sbouclier.utils.ByteUtils;
+import com.github.sbouclier.utils.ParameterWriter;
+import com.sun.net.httpserver.HttpServer;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Benchmark of the client-side overhead of order entry, from call to socket write.
+ *
+ * Compares what {@link KrakenAPIClient#addStandardOrder} does per call before writing (parameter map, new signer,
+ * form encoding, signature) with {@link OrderEntryEngine} (template, reused signer and buffer), then measures engine
+ * round trips against a loopback stub. Not a unit test, run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=com.github.sbouclier.OrderEntryBenchmark -Dexec.classpathScope=test
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class OrderEntryBenchmark {
+
+    private static final String SECRET = "kQH5HW/8p1uGOVjbgWA7FunAmGO8lsSUXNsu3eow76sz84Q18fWxnyRzBHCd3pd5nE9qa99HAZtuZuj6F1huXg==";
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 100000;
+    private static final int ROUND_TRIPS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        final BigDecimal volume = new BigDecimal("1.25");
+        final BigDecimal price = new BigDecimal("2100.5");
+
+        OrderEntryEngine engine = new OrderEntryEngine("http://127.0.0.1:1", "key", SECRET, new NonceGenerator());
+        OrderTemplate template = engine.getTemplate("XXBTZEUR", OrderType.LIMIT, OrderDirection.BUY);
+
+        report("legacy prepare (map + signer + encode + sign)", measure(ITERATIONS, () -> legacyPrepare(volume, price)));
+        report("engine prepare (template + sign)", measure(ITERATIONS, () -> engine.prepare(template, volume, price)));
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        final byte[] response = ByteUtils.stringToBytes("{\"error\":[],\"result\":{\"descr\":{\"order\":\"buy\"},\"txid\":[\"OGRQC4-Q5C5N-2EYZDZ\"]}}");
+        server.createContext("/", exchange -> {
+            while (exchange.getRequestBody().read() != -1) {
+                // consume request
+            }
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            OrderEntryEngine loopback = new OrderEntryEngine("http://127.0.0.1:" + server.getAddress().getPort(), "key", SECRET, new NonceGenerator());
+            OrderTemplate loopbackTemplate = loopback.getTemplate("XXBTZEUR", OrderType.LIMIT, OrderDirection.BUY);
+            loopback.warmUp();
+
+            report("engine loopback round trip", measure(ROUND_TRIPS, () -> loopback.addOrder(loopbackTemplate, volume, price)));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static String legacyPrepare(BigDecimal volume, BigDecimal price) throws KrakenApiException {
+        Map<String, String> params = new HashMap<>();
+        params.put("pair", "XXBTZEUR");
+        params.put("ordertype", OrderType.LIMIT.getValue());
+        params.put("type", OrderDirection.BUY.getValue());
+        params.put("volume", volume.toString());
+        params.put("price", price.toString());
+
+        RequestSigner signer = new RequestSigner(SECRET);
+        String nonce = String.valueOf(System.currentTimeMillis() * 1000);
+        ParameterWriter body = new ParameterWriter();
+        params.forEach(body::parameter);
+        body.parameter("nonce", nonce);
+
+        byte[] postData = body.toByteArray();
+        return signer.sign(KrakenApiMethod.ADD_STANDARD_ORDER.getTemplate().getPathBytes(), ByteUtils.stringToBytes(nonce), postData);
+    }
+
+    private static long[] measure(int iterations, Action action) throws Exception {
+        for (int i = 0; i < Math.min(WARMUP, iterations); i++) {
+            action.run();
+        }
+
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            action.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static void report(String name, long[] sortedNanos) {
+        System.out.printf("%-50s p50=%8d ns  p99=%8d ns  p99.9=%8d ns%n", name,
+                sortedNanos[sortedNanos.length / 2],
+                sortedNanos[(int) (sortedNanos.length * 0.99)],
+                sortedNanos[(int) (sortedNanos.length * 0.999)]);
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        Object run() throws Exception;
+    }
+}
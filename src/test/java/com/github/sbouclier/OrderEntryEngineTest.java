@@ -0,0 +1,200 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.result.common.OrderDirection;
+import com.github.sbouclier.result.common.OrderType;
+import com.github.sbouclier.utils.ByteUtils;
+import com.github.sbouclier.utils.StreamUtils;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.fail;
+
+/**
+ * Order entry engine test
+ *
+ * @author synapticloop
+ */
+public class OrderEntryEngineTest {
+
+    private static final String SECRET = "c2VjcmV0";
+
+    private HttpServer server;
+    private String baseUrl;
+    private final List<String> bodies = new ArrayList<>();
+    private final List<String> signatures = new ArrayList<>();
+    private volatile String response = "{\"error\":[],\"result\":{\"descr\":{\"order\":\"buy 1.25 XBTEUR @ limit 2100.5\"},\"txid\":[\"OGRQC4-Q5C5N-2EYZDZ\"]}}";
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            bodies.add(StreamUtils.convert(exchange.getRequestBody()));
+            signatures.add(exchange.getRequestHeaders().getFirst("API-Sign"));
+            byte[] body = ByteUtils.stringToBytes(response);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void should_send_signed_order_from_template_and_decode_txid() throws KrakenApiException {
+
+        // Given
+        OrderEntryEngine engine = new OrderEntryEngine(baseUrl, "key", SECRET, fixedNonces(1501271914000000L));
+        OrderTemplate template = engine.getTemplate("XXBTZEUR", OrderType.LIMIT, OrderDirection.BUY);
+
+        // When
+        List<String> txid = engine.addOrder(template, new BigDecimal("1.25"), new BigDecimal("2100.5"));
+
+        // Then
+        final String expectedBody = "ordertype=limit&pair=XXBTZEUR&type=buy&price=2100.5&volume=1.25&nonce=1501271914000000";
+        assertThat(txid, equalTo(Arrays.asList("OGRQC4-Q5C5N-2EYZDZ")));
+        assertThat(bodies, equalTo(Arrays.asList(expectedBody)));
+        assertThat(signatures.get(0), equalTo(new RequestSigner(SECRET).sign(
+                ByteUtils.stringToBytes("/0/private/AddOrder"),
+                ByteUtils.stringToBytes("1501271914000000"),
+                ByteUtils.stringToBytes(expectedBody))));
+    }
+
+    @Test
+    public void should_omit_price_of_market_orders() throws KrakenApiException {
+
+        // Given
+        OrderEntryEngine engine = new OrderEntryEngine(baseUrl, "key", SECRET, fixedNonces(7L));
+
+        // When
+        engine.addOrder(engine.getTemplate("XETHZEUR", OrderType.MARKET, OrderDirection.SELL), new BigDecimal("0.5"), null);
+
+        // Then
+        assertThat(bodies.get(0), equalTo("ordertype=market&pair=XETHZEUR&type=sell&volume=0.5&nonce=7"));
+    }
+
+    @Test
+    public void should_call_base_url_of_client() throws KrakenApiException {
+
+        // Given
+        KrakenAPIClient client = new KrakenAPIClient();
+        client.setBaseUrl(baseUrl);
+        OrderEntryEngine engine = new OrderEntryEngine(client, "key", SECRET);
+
+        // When
+        List<String> txid = engine.addOrder(engine.getTemplate("XXBTZEUR", OrderType.LIMIT, OrderDirection.BUY), BigDecimal.ONE, BigDecimal.TEN);
+
+        // Then
+        assertThat(txid, equalTo(Arrays.asList("OGRQC4-Q5C5N-2EYZDZ")));
+        assertThat(bodies.size(), equalTo(1));
+    }
+
+    @Test
+    public void should_admit_orders_through_scheduler_of_client() throws KrakenApiException {
+
+        // Given
+        RequestScheduler scheduler = RequestScheduler.starter();
+        KrakenAPIClient client = new KrakenAPIClient();
+        client.setBaseUrl(baseUrl);
+        client.setScheduler(scheduler);
+        OrderEntryEngine engine = new OrderEntryEngine(client, "key", SECRET);
+
+        // When
+        engine.addOrder(engine.getTemplate("XXBTZEUR", OrderType.LIMIT, OrderDirection.BUY), BigDecimal.ONE, BigDecimal.TEN);
+
+        // Then
+        assertThat(scheduler.getAdmittedCount(RequestScheduler.RequestClass.ORDER_ENTRY), equalTo(1L));
+        assertThat(scheduler.getRunning(RequestScheduler.RequestClass.ORDER_ENTRY), equalTo(0));
+    }
+
+    @Test
+    public void should_reuse_templates() throws KrakenApiException {
+        OrderEntryEngine engine = new OrderEntryEngine(baseUrl, "key", SECRET, new NonceGenerator());
+
+        assertThat(engine.getTemplate("XXBTZEUR", OrderType.LIMIT, OrderDirection.BUY),
+                sameInstance(engine.getTemplate("XXBTZEUR", OrderType.LIMIT, OrderDirection.BUY)));
+    }
+
+    @Test
+    public void should_throw_kraken_errors() throws KrakenApiException {
+
+        // Given
+        response = "{\"error\":[\"EOrder:Insufficient funds\"]}";
+        OrderEntryEngine engine = new OrderEntryEngine(baseUrl, "key", SECRET, new NonceGenerator());
+
+        // When
+        try {
+            engine.addOrder(engine.getTemplate("XXBTZEUR", OrderType.LIMIT, OrderDirection.BUY), BigDecimal.ONE, BigDecimal.TEN);
+
+            fail();
+        } catch (KrakenApiException ex) {
+            // Then
+            assertThat(ex.getMessage(), equalTo("[EOrder:Insufficient funds]"));
+        }
+    }
+
+    @Test
+    public void should_warm_up_connection() throws KrakenApiException {
+        new OrderEntryEngine(baseUrl, "key", SECRET, new NonceGenerator()).warmUp();
+
+        assertThat(bodies.size(), equalTo(1));
+    }
+
+    @Test
+    public void should_not_take_nonce_on_warm_up() throws KrakenApiException {
+
+        // Given
+        OrderEntryEngine engine = new OrderEntryEngine(baseUrl, "key", SECRET, fixedNonces(7L));
+        OrderTemplate template = engine.getTemplate("XETHZEUR", OrderType.MARKET, OrderDirection.SELL);
+
+        // When
+        engine.warmUp();
+        engine.addOrder(template, new BigDecimal("0.5"), null);
+
+        // Then
+        assertThat(bodies.get(1), equalTo("ordertype=market&pair=XETHZEUR&type=sell&volume=0.5&nonce=7"));
+    }
+
+    @Test
+    public void should_decode_only_txid() throws IOException, KrakenApiException {
+        String json = "{\"error\":[],\"result\":{\"descr\":{\"order\":\"x\",\"close\":[1,2]},\"txid\":[\"A\",\"B\"],\"other\":{}}}";
+
+        assertThat(OrderEntryEngine.decodeTxid(new ByteArrayInputStream(ByteUtils.stringToBytes(json))), equalTo(Arrays.asList("A", "B")));
+    }
+
+    @Test(expected = KrakenApiException.class)
+    public void should_fail_without_txid() throws IOException, KrakenApiException {
+        OrderEntryEngine.decodeTxid(new ByteArrayInputStream(ByteUtils.stringToBytes("{\"error\":[],\"result\":{}}")));
+    }
+
+    @Test(expected = KrakenApiException.class)
+    public void should_not_create_engine_without_credentials() throws KrakenApiException {
+        new OrderEntryEngine(baseUrl, "key", null, new NonceGenerator());
+    }
+
+    private static NonceGenerator fixedNonces(long time) {
+        return new NonceGenerator() {
+            @Override
+            protected long currentTimeMicros() {
+                return time;
+            }
+        };
+    }
+}
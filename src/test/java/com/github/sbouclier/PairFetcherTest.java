@@ -0,0 +1,164 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.result.RecentSpreadResult;
+import com.github.sbouclier.result.RecentTradeResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pair fetcher test
+ *
+ * @author synapticloop
+ */
+public class PairFetcherTest {
+
+    @Test
+    public void should_hand_over_outcomes_in_completion_order() throws Exception {
+
+        // Given
+        RecentTradeResult result = new RecentTradeResult();
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.getRecentTrades(anyString())).thenAnswer(invocation -> {
+            String pair = invocation.getArgument(0);
+            if (pair.equals("SLOW")) {
+                Thread.sleep(300);
+            }
+            if (pair.equals("FAIL")) {
+                throw new KrakenApiException("EQuery:Unknown asset pair");
+            }
+            return result;
+        });
+        PairFetcher fetcher = new PairFetcher(client);
+
+        // When
+        PairFetcher.Fetch<RecentTradeResult> fetch = fetcher.fetch(Arrays.asList("SLOW", "FAIL", "XBTEUR", "ETHEUR"), PairFetcher.recentTrades());
+        List<PairFetcher.Outcome<RecentTradeResult>> outcomes = fetch.awaitAll();
+
+        // Then
+        assertThat(outcomes.size(), equalTo(4));
+        assertThat(outcomes.get(3).getPair(), equalTo("SLOW"));
+        assertThat(outcomes.get(3).getResult(), sameInstance(result));
+        assertThat(outcomes.get(3).getElapsedNanos(), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(300)));
+        PairFetcher.Outcome<RecentTradeResult> failed = outcomes.stream().filter(o -> o.getPair().equals("FAIL")).findFirst().get();
+        assertThat(failed.isSuccess(), equalTo(false));
+        assertThat(failed.getResult(), nullValue());
+        assertThat(failed.getError().getMessage(), equalTo("[EQuery:Unknown asset pair]"));
+        assertThat(fetch.next(), nullValue());
+    }
+
+    @Test
+    public void should_bound_concurrency() throws Exception {
+
+        // Given
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        // each round only completes once 3 calls are in flight together
+        CyclicBarrier round = new CyclicBarrier(3);
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.getRecentSpreads(anyString())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                round.await(5, TimeUnit.SECONDS);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return null;
+        });
+        PairFetcher fetcher = new PairFetcher(client);
+        fetcher.setConcurrency(3);
+        List<String> pairs = IntStream.range(0, 30).mapToObj(i -> "PAIR" + i).collect(Collectors.toList());
+
+        // When
+        List<PairFetcher.Outcome<RecentSpreadResult>> outcomes = fetcher.fetch(pairs, PairFetcher.recentSpreads()).awaitAll();
+
+        // Then
+        assertThat(outcomes.size(), equalTo(30));
+        assertThat(outcomes.stream().allMatch(PairFetcher.Outcome::isSuccess), equalTo(true));
+        assertThat(maxInFlight.get(), equalTo(3));
+    }
+
+    @Test
+    public void should_not_rate_limit_pairs_by_default() throws Exception {
+
+        // Given, 200 pairs: over 10 minutes within a starter account limiter
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.getRecentTrades(anyString())).thenReturn(new RecentTradeResult());
+        List<String> pairs = IntStream.range(0, 200).mapToObj(i -> "PAIR" + i).collect(Collectors.toList());
+        PairFetcher fetcher = new PairFetcher(client);
+
+        // When
+        long start = System.nanoTime();
+        List<PairFetcher.Outcome<RecentTradeResult>> outcomes = fetcher.fetch(pairs, PairFetcher.recentTrades()).awaitAll();
+
+        // Then
+        assertThat(outcomes.size(), equalTo(200));
+        assertThat(outcomes.stream().allMatch(PairFetcher.Outcome::isSuccess), equalTo(true));
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), lessThanOrEqualTo(5L));
+    }
+
+    @Test
+    public void should_charge_rate_limiter_when_set() throws Exception {
+
+        // Given
+        RateLimiter rateLimiter = mock(RateLimiter.class);
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        PairFetcher fetcher = new PairFetcher(client);
+        fetcher.setRateLimiter(rateLimiter);
+
+        // When
+        fetcher.fetch(Arrays.asList("XBTEUR", "ETHEUR"), PairFetcher.recentTrades()).awaitAll();
+
+        // Then
+        verify(rateLimiter, times(2)).acquire(1);
+    }
+
+    @Test
+    public void should_stop_starting_pairs_once_cancelled() throws Exception {
+
+        // Given
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.getRecentTrades(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return new RecentTradeResult();
+        });
+        PairFetcher fetcher = new PairFetcher(client);
+        fetcher.setConcurrency(1);
+        PairFetcher.Fetch<RecentTradeResult> fetch = fetcher.fetch(Arrays.asList("A", "B", "C", "D"), PairFetcher.recentTrades());
+
+        // When
+        PairFetcher.Outcome<RecentTradeResult> first = fetch.next();
+        fetch.cancel();
+        List<PairFetcher.Outcome<RecentTradeResult>> rest = fetch.awaitAll();
+
+        // Then
+        assertThat(first.getPair(), equalTo("A"));
+        assertThat(rest.size(), lessThanOrEqualTo(1));
+        assertThat(fetch.getPairCount(), equalTo(4));
+    }
+
+    @Test
+    public void should_complete_empty_fetch() throws Exception {
+        PairFetcher fetcher = new PairFetcher(mock(KrakenAPIClient.class));
+        assertThat(fetcher.fetch(Collections.emptyList(), PairFetcher.orderBook(10)).next(), nullValue());
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.sbouclier;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.fail;
+
+/**
+ * Rate limiter test
+ *
+ * @author synapticloop
+ */
+public class RateLimiterTest {
+
+    @Test
+    public void should_not_wait_within_counter_maximum() throws KrakenApiException {
+
+        // Given
+        RateLimiter limiter = new RateLimiter(3, 1);
+
+        // When
+        long start = System.nanoTime();
+        limiter.acquire(1);
+        limiter.acquire(2);
+
+        // Then
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lessThan(50L));
+        assertThat(limiter.getAvailable(), lessThan(0.1));
+    }
+
+    @Test
+    public void should_wait_for_counter_to_decay() throws KrakenApiException {
+
+        // Given
+        RateLimiter limiter = new RateLimiter(1, 20);
+        limiter.acquire(1);
+
+        // When
+        long start = System.nanoTime();
+        long waitedNanos = limiter.acquire(1);
+
+        // Then
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), greaterThanOrEqualTo(40L));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(waitedNanos), greaterThanOrEqualTo(40L));
+    }
+
+    @Test
+    public void should_fail_at_once_when_wait_exceeds_deadline() throws KrakenApiException {
+
+        // Given
+        RateLimiter limiter = new RateLimiter(1, 0.1);
+        limiter.acquire(1);
+
+        // When
+        long start = System.nanoTime();
+        Deadline.Scope scope = Deadline.after(200, TimeUnit.MILLISECONDS).bind();
+        try {
+            limiter.acquire(1);
+            fail("deadline should be exceeded");
+        } catch (KrakenApiException ex) {
+
+            // Then
+            assertThat(ex.getMessage(), equalTo("[call deadline exceeded]"));
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lessThan(100L));
+        } finally {
+            scope.close();
+        }
+    }
+}
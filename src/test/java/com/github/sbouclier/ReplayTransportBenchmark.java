@@ -0,0 +1,66 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.input.Interval;
+import com.github.sbouclier.simulator.KrakenSimulator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Benchmark of the full decode path (decompression, JSON parsing, last id extraction) on production-sized payloads
+ * replayed without network: 720-bar OHLC and 1000-trade pages. Not a unit test, run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=com.github.sbouclier.ReplayTransportBenchmark -Dexec.classpathScope=test
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class ReplayTransportBenchmark {
+
+    private static final int CALLS = 2_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        ByteArrayOutputStream recording = new ByteArrayOutputStream();
+        try (KrakenSimulator simulator = KrakenSimulator.start()) {
+            KrakenAPIClient client = new KrakenAPIClient();
+            client.setBaseUrl(simulator.getBaseUrl());
+            try (RecordingTransport transport = new RecordingTransport(new HttpURLConnectionTransport(), recording)) {
+                client.setTransport(transport);
+                client.getOHLC("XXBTZEUR", Interval.ONE_MINUTE);
+                client.getRecentTrades("XXBTZEUR");
+            }
+        }
+
+        ReplayTransport transport = new ReplayTransport(new ByteArrayInputStream(recording.toByteArray()));
+        transport.setSpeed(0);
+        transport.setLoop(true);
+        for (ReplayTransport.Exchange exchange : transport.getExchanges()) {
+            System.out.println(exchange);
+        }
+
+        KrakenAPIClient client = new KrakenAPIClient();
+        client.setTransport(transport);
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            long checksum = 0;
+            for (int i = 0; i < CALLS; i++) {
+                checksum += client.getOHLC("XXBTZEUR", Interval.ONE_MINUTE).getLastId();
+            }
+            report("OHLC 720 bars", round, start, checksum);
+
+            start = System.nanoTime();
+            checksum = 0;
+            for (int i = 0; i < CALLS; i++) {
+                checksum += client.getRecentTrades("XXBTZEUR").getResult().get("XXBTZEUR").size();
+            }
+            report("trades 1000", round, start, checksum);
+        }
+    }
+
+    private static void report(String name, int round, long start, long checksum) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s round %d: %.0f calls/s, %.1f us/call (checksum %d)%n", name, round, CALLS / seconds, seconds / CALLS * 1e6, checksum);
+    }
+}
@@ -0,0 +1,171 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.input.Interval;
+import com.github.sbouclier.result.AccountBalanceResult;
+import com.github.sbouclier.result.OHLCResult;
+import com.github.sbouclier.result.RecentTradeResult;
+import com.github.sbouclier.simulator.KrakenSimulator;
+import com.github.sbouclier.simulator.LatencyModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+import static org.hamcrest.number.OrderingComparison.lessThan;
+import static org.junit.Assert.fail;
+
+/**
+ * Record and replay transports test
+ *
+ * @author synapticloop
+ */
+public class ReplayTransportTest {
+
+    private static final String SECRET = "c2VjcmV0";
+
+    private KrakenSimulator simulator;
+
+    @Before
+    public void setUp() throws IOException, KrakenApiException {
+        simulator = KrakenSimulator.start();
+        simulator.addAccount("key", SECRET);
+    }
+
+    @After
+    public void tearDown() {
+        simulator.close();
+    }
+
+    private byte[] record(KrakenApiCall... calls) throws Exception {
+        ByteArrayOutputStream recording = new ByteArrayOutputStream();
+        KrakenAPIClient client = new KrakenAPIClient("key", SECRET);
+        client.setBaseUrl(simulator.getBaseUrl());
+        try (RecordingTransport transport = new RecordingTransport(new HttpURLConnectionTransport(), recording)) {
+            client.setTransport(transport);
+            for (KrakenApiCall call : calls) {
+                call.call(client);
+            }
+        }
+        return recording.toByteArray();
+    }
+
+    private KrakenAPIClient replayClient(ReplayTransport transport) {
+        KrakenAPIClient client = new KrakenAPIClient("key", SECRET);
+        client.setBaseUrl("http://127.0.0.1:1");
+        client.setTransport(transport);
+        return client;
+    }
+
+    @Test
+    public void should_replay_recorded_responses_byte_for_byte() throws Exception {
+
+        // Given
+        KrakenAPIClient live = new KrakenAPIClient("key", SECRET);
+        live.setBaseUrl(simulator.getBaseUrl());
+        live.setTransport(new HttpURLConnectionTransport());
+        OHLCResult expectedOhlc = live.getOHLC("XXBTZEUR", Interval.ONE_MINUTE);
+        RecentTradeResult expectedTrades = live.getRecentTrades("XXBTZEUR");
+        byte[] recording = record(
+                client -> client.getOHLC("XXBTZEUR", Interval.ONE_MINUTE),
+                client -> client.getRecentTrades("XXBTZEUR"),
+                client -> client.getAccountBalance());
+        simulator.close();
+
+        // When
+        ReplayTransport transport = new ReplayTransport(new ByteArrayInputStream(recording));
+        transport.setSpeed(0);
+        KrakenAPIClient client = replayClient(transport);
+        OHLCResult ohlc = client.getOHLC("XXBTZEUR", Interval.ONE_MINUTE);
+        RecentTradeResult trades = client.getRecentTrades("XXBTZEUR");
+        AccountBalanceResult balance = client.getAccountBalance();
+
+        // Then
+        assertThat(transport.getExchanges().size(), equalTo(3));
+        assertThat(transport.getExchanges().get(0).getContentEncoding(), equalTo("gzip"));
+        assertThat(ohlc.getResult().get("XXBTZEUR").size(), equalTo(720));
+        assertThat(ohlc.getResult().toString(), equalTo(expectedOhlc.getResult().toString()));
+        assertThat(ohlc.getLastId(), equalTo(expectedOhlc.getLastId()));
+        assertThat(trades.getResult().get("XXBTZEUR").size(), equalTo(1000));
+        assertThat(trades.getResult().toString(), equalTo(expectedTrades.getResult().toString()));
+        assertThat(balance.getResult().size(), equalTo(3));
+    }
+
+    @Test
+    public void should_not_record_credentials() throws Exception {
+
+        // Given
+        byte[] recording = record(client -> client.getAccountBalance());
+
+        // When
+        ReplayTransport.Exchange exchange = new ReplayTransport(new ByteArrayInputStream(recording)).getExchanges().get(0);
+
+        // Then
+        assertThat(exchange.getMethod(), equalTo("POST"));
+        assertThat(exchange.getTarget(), equalTo("/0/private/Balance"));
+        assertThat(exchange.getHeaders().get("API-Key"), nullValue());
+        assertThat(exchange.getHeaders().get("API-Sign"), nullValue());
+        assertThat(new String(exchange.getRequestBody(), "UTF-8").startsWith("nonce="), equalTo(true));
+    }
+
+    @Test
+    public void should_fail_once_recorded_exchanges_served_unless_looping() throws Exception {
+
+        // Given
+        ReplayTransport transport = new ReplayTransport(new ByteArrayInputStream(record(client -> client.getServerTime())));
+        transport.setSpeed(0);
+        KrakenAPIClient client = replayClient(transport);
+        client.getServerTime();
+
+        // When
+        try {
+            client.getServerTime();
+            fail("all exchanges were served");
+        } catch (KrakenApiException ex) {
+            // Then
+            assertThat(ex.getMessage(), equalTo("[unable to query Kraken API]"));
+        }
+        transport.setLoop(true);
+        client.getServerTime();
+    }
+
+    @Test
+    public void should_replay_with_recorded_or_compressed_timing() throws Exception {
+
+        // Given
+        simulator.setLatency(LatencyModel.fixed(100));
+        ReplayTransport transport = new ReplayTransport(new ByteArrayInputStream(record(client -> client.getServerTime())));
+        transport.setLoop(true);
+        KrakenAPIClient client = replayClient(transport);
+
+        // When
+        long start = System.nanoTime();
+        client.getServerTime();
+        long original = System.nanoTime() - start;
+        transport.setSpeed(10);
+        start = System.nanoTime();
+        client.getServerTime();
+        long compressed = System.nanoTime() - start;
+
+        // Then
+        assertThat(transport.getExchanges().get(0).getFirstByteNanos(), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100)));
+        assertThat(original, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100)));
+        assertThat(compressed, lessThan(TimeUnit.MILLISECONDS.toNanos(100)));
+    }
+
+    @Test(expected = IOException.class)
+    public void should_reject_file_not_a_recording() throws IOException {
+        new ReplayTransport(new ByteArrayInputStream("{\"error\":[]}".getBytes("UTF-8")));
+    }
+
+    private interface KrakenApiCall {
+        void call(KrakenAPIClient client) throws Exception;
+    }
+}
@@ -0,0 +1,212 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.RequestScheduler.RequestClass;
+import com.github.sbouclier.simulator.KrakenSimulator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+import static org.hamcrest.number.OrderingComparison.lessThan;
+import static org.junit.Assert.fail;
+
+/**
+ * Request scheduler test
+ *
+ * @author synapticloop
+ */
+public class RequestSchedulerTest {
+
+    private static CompletableFuture<RequestScheduler.Permit> acquireAsync(RequestScheduler scheduler, RequestClass requestClass, double cost) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return scheduler.acquire(requestClass, cost);
+            } catch (KrakenApiException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+    }
+
+    private static void awaitQueued(RequestScheduler scheduler, RequestClass requestClass, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getQueueDepth(requestClass) < depth && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void should_classify_methods() {
+        assertThat(RequestClass.of(KrakenApiMethod.ADD_STANDARD_ORDER), equalTo(RequestClass.ORDER_ENTRY));
+        assertThat(RequestClass.of(KrakenApiMethod.OPEN_ORDERS), equalTo(RequestClass.ORDER_STATUS));
+        assertThat(RequestClass.of(KrakenApiMethod.ORDER_BOOK), equalTo(RequestClass.MARKET_DATA));
+        assertThat(RequestClass.of(KrakenApiMethod.LEDGERS_INFORMATION), equalTo(RequestClass.HISTORY));
+        assertThat(RequestScheduler.costOf(KrakenApiMethod.LEDGERS_INFORMATION), equalTo(2.0));
+        assertThat(RequestScheduler.costOf(KrakenApiMethod.ACCOUNT_BALANCE), equalTo(1.0));
+        assertThat(RequestScheduler.costOf(KrakenApiMethod.ADD_STANDARD_ORDER), equalTo(0.0));
+        assertThat(RequestScheduler.costOf(KrakenApiMethod.TICKER_INFORMATION), equalTo(0.0));
+    }
+
+    @Test
+    public void should_cap_concurrency_per_class() throws Exception {
+
+        // Given
+        RequestScheduler scheduler = new RequestScheduler(10, 1);
+        scheduler.setLimits(RequestClass.HISTORY, 1, 1);
+        RequestScheduler.Permit first = scheduler.acquire(RequestClass.HISTORY, 1);
+
+        // When
+        CompletableFuture<RequestScheduler.Permit> second = acquireAsync(scheduler, RequestClass.HISTORY, 1);
+        awaitQueued(scheduler, RequestClass.HISTORY, 1);
+        RequestScheduler.Permit status = scheduler.acquire(RequestClass.ORDER_STATUS, 1);
+
+        // Then
+        assertThat(second.isDone(), equalTo(false));
+        assertThat(scheduler.getRunning(RequestClass.HISTORY), equalTo(1));
+        first.release();
+        first.release();
+        second.get(5, TimeUnit.SECONDS).release();
+        status.release();
+        assertThat(scheduler.getRunning(RequestClass.HISTORY), equalTo(0));
+        assertThat(scheduler.getAdmittedCount(RequestClass.HISTORY), equalTo(2L));
+        assertThat(scheduler.getMaxWaitMillis(RequestClass.HISTORY), greaterThan(0.0));
+    }
+
+    @Test
+    public void should_let_higher_class_overtake_queued_backfill() throws Exception {
+
+        // Given
+        RequestScheduler scheduler = new RequestScheduler(2, 10);
+        scheduler.acquire(RequestClass.ORDER_STATUS, 2).release();
+        ConcurrentLinkedQueue<RequestClass> order = new ConcurrentLinkedQueue<>();
+
+        // When
+        CompletableFuture<Void> history = acquireAsync(scheduler, RequestClass.HISTORY, 2).thenAccept(permit -> {
+            order.add(RequestClass.HISTORY);
+            permit.release();
+        });
+        awaitQueued(scheduler, RequestClass.HISTORY, 1);
+        CompletableFuture<Void> status = acquireAsync(scheduler, RequestClass.ORDER_STATUS, 1).thenAccept(permit -> {
+            order.add(RequestClass.ORDER_STATUS);
+            permit.release();
+        });
+        CompletableFuture.allOf(history, status).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(new ArrayList<>(order).get(0), equalTo(RequestClass.ORDER_STATUS));
+        assertThat(order.size(), equalTo(2));
+    }
+
+    @Test
+    public void should_admit_order_entry_while_budget_is_exhausted() throws Exception {
+
+        // Given
+        RequestScheduler scheduler = new RequestScheduler(1, 0.1);
+        scheduler.acquire(RequestClass.ORDER_STATUS, 1).release();
+        CompletableFuture<RequestScheduler.Permit> history = acquireAsync(scheduler, RequestClass.HISTORY, 1);
+        awaitQueued(scheduler, RequestClass.HISTORY, 1);
+
+        // When
+        long start = System.nanoTime();
+        RequestScheduler.Permit order = scheduler.acquire(KrakenApiMethod.ADD_STANDARD_ORDER);
+
+        // Then
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lessThan(50L));
+        assertThat(scheduler.getRunning(RequestClass.ORDER_ENTRY), equalTo(1));
+        assertThat(scheduler.getQueueDepth(RequestClass.HISTORY), equalTo(1));
+        order.release();
+        history.cancel(true);
+    }
+
+    @Test
+    public void should_share_budget_by_weight() throws Exception {
+
+        // Given
+        RequestScheduler scheduler = new RequestScheduler(1, 400);
+        AtomicInteger remaining = new AtomicInteger(100);
+        List<Thread> threads = new ArrayList<>();
+        for (RequestClass requestClass : new RequestClass[]{RequestClass.ORDER_STATUS, RequestClass.HISTORY}) {
+            for (int i = 0; i < 2; i++) {
+                threads.add(new Thread(() -> {
+                    try {
+                        while (remaining.decrementAndGet() >= 0) {
+                            scheduler.acquire(requestClass, 1).release();
+                        }
+                    } catch (KrakenApiException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }));
+            }
+        }
+
+        // When
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(10_000);
+        }
+
+        // Then
+        long status = scheduler.getAdmittedCount(RequestClass.ORDER_STATUS);
+        long history = scheduler.getAdmittedCount(RequestClass.HISTORY);
+        assertThat(status + history, equalTo(100L));
+        // weights 4 to 1
+        assertThat((double) status / history, greaterThanOrEqualTo(2.5));
+        assertThat(history, greaterThan(0L));
+        assertThat(scheduler.getAverageWaitMillis(RequestClass.HISTORY), greaterThan(scheduler.getAverageWaitMillis(RequestClass.ORDER_STATUS)));
+    }
+
+    @Test
+    public void should_give_up_at_deadline() throws KrakenApiException {
+
+        // Given
+        RequestScheduler scheduler = new RequestScheduler(1, 0.1);
+        scheduler.acquire(RequestClass.ORDER_STATUS, 1).release();
+
+        // When
+        long start = System.nanoTime();
+        Deadline.Scope scope = Deadline.after(100, TimeUnit.MILLISECONDS).bind();
+        try {
+            scheduler.acquire(RequestClass.HISTORY, 1);
+            fail("deadline should be exceeded");
+        } catch (KrakenApiException ex) {
+            // Then
+            assertThat(ex.getMessage(), equalTo("[call deadline exceeded]"));
+        } finally {
+            scope.close();
+        }
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lessThan(1000L));
+        assertThat(scheduler.getQueueDepth(RequestClass.HISTORY), equalTo(0));
+        assertThat(scheduler.getAbandonedCount(RequestClass.HISTORY), equalTo(1L));
+    }
+
+    @Test
+    public void should_schedule_client_calls() throws Exception {
+
+        // Given
+        RequestScheduler scheduler = RequestScheduler.starter();
+        try (KrakenSimulator simulator = KrakenSimulator.start()) {
+            simulator.addAccount("key", "c2VjcmV0");
+            KrakenAPIClient client = new KrakenAPIClient("key", "c2VjcmV0");
+            client.setBaseUrl(simulator.getBaseUrl());
+            client.setTransport(new HttpURLConnectionTransport());
+            client.setScheduler(scheduler);
+
+            // When
+            client.getServerTime();
+            client.getAccountBalance();
+        }
+
+        // Then
+        assertThat(scheduler.getAdmittedCount(RequestClass.MARKET_DATA), equalTo(1L));
+        assertThat(scheduler.getAdmittedCount(RequestClass.ORDER_STATUS), equalTo(1L));
+        assertThat(scheduler.getRunning(RequestClass.ORDER_STATUS), equalTo(0));
+        assertThat(scheduler.getAvailable(), lessThan(RateLimiter.STARTER_MAX_COUNTER));
+    }
+}
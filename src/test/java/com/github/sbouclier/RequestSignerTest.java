@@ -0,0 +1,59 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.utils.Base64Utils;
+import com.github.sbouclier.utils.ByteUtils;
+import com.github.sbouclier.utils.CryptoUtils;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * RequestSigner test
+ *
+ * @author synapticloop
+ */
+public class RequestSignerTest {
+
+    @Test
+    public void should_sign_like_kraken_algorithm() throws Exception {
+
+        // Given
+        final String secret = Base64Utils.base64Encode(ByteUtils.stringToBytes("my secret key"));
+        final String path = "/0/private/AddOrder";
+        final String nonce = "1504035462000000";
+        final String postData = "pair=XXBTZEUR&volume=1.5&nonce=1504035462000000";
+
+        final byte[] expectedHmac = CryptoUtils.hmacSha512(Base64Utils.base64Decode(secret),
+                ByteUtils.concatArrays(ByteUtils.stringToBytes(path), CryptoUtils.sha256(nonce + postData)));
+
+        // When
+        RequestSigner signer = new RequestSigner(secret);
+        String signature = signer.sign(ByteUtils.stringToBytes(path), ByteUtils.stringToBytes(nonce), ByteUtils.stringToBytes(postData));
+
+        // Then
+        assertThat(signature, equalTo(Base64Utils.base64Encode(expectedHmac)));
+        assertThat(signer.sign(ByteUtils.stringToBytes(path), ByteUtils.stringToBytes(nonce), ByteUtils.stringToBytes(postData)), equalTo(signature));
+    }
+
+    @Test
+    public void should_sign_body_slice() throws Exception {
+
+        // Given
+        RequestSigner signer = new RequestSigner("c2VjcmV0");
+        final byte[] path = ByteUtils.stringToBytes("/0/private/Balance");
+        final byte[] nonce = ByteUtils.stringToBytes("1");
+        final byte[] buffer = ByteUtils.stringToBytes("xxnonce=1yy");
+
+        // When
+        String signature = signer.sign(path, nonce, buffer, 2, 7);
+
+        // Then
+        assertThat(signature, equalTo(signer.sign(path, nonce, ByteUtils.stringToBytes("nonce=1"))));
+    }
+
+    @Test(expected = KrakenApiException.class)
+    public void should_throw_exception_if_secret_is_not_base64() throws KrakenApiException {
+        new RequestSigner("not base64 !");
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.utils.ByteUtils;
+import com.github.sbouclier.utils.StreamUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Response compression test
+ *
+ * @author synapticloop
+ */
+public class ResponseCompressionTest {
+
+    private static final String JSON = "{\"error\":[],\"result\":{\"XXBTZEUR\":[[\"2353.673\",\"93.29671921\",286],[\"2353.673\",\"93.29671921\",286]]}}";
+
+    @Test
+    public void should_request_compression_of_large_endpoints_until_sizes_are_known() {
+
+        // Given
+        ResponseCompression compression = new ResponseCompression(1024);
+
+        // When
+        compression.record(KrakenApiMethod.SERVER_TIME.getUrl(0), null, 60, 60);
+        compression.record(KrakenApiMethod.OHLC.getUrl(0), "gzip", 5000, 50000);
+
+        // Then
+        assertThat(compression.shouldRequest(KrakenApiMethod.RECENT_TRADES.getTemplate()), equalTo(true));
+        assertThat(compression.shouldRequest(KrakenApiMethod.TICKER_INFORMATION.getTemplate()), equalTo(false));
+        assertThat(compression.shouldRequest(KrakenApiMethod.SERVER_TIME.getTemplate()), equalTo(false));
+        assertThat(compression.shouldRequest(KrakenApiMethod.OHLC.getTemplate()), equalTo(true));
+    }
+
+    @Test
+    public void should_stop_requesting_compression_of_small_responses() {
+
+        // Given
+        ResponseCompression compression = new ResponseCompression(1024);
+
+        // When
+        compression.record(KrakenApiMethod.ORDER_BOOK.getUrl(0), null, 400, 400);
+
+        // Then
+        assertThat(compression.shouldRequest(KrakenApiMethod.ORDER_BOOK.getTemplate()), equalTo(false));
+        assertThat(compression.getAverageResponseBytes(KrakenApiMethod.ORDER_BOOK.getUrl(0)), equalTo(400L));
+    }
+
+    @Test
+    public void should_decode_gzip() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(ByteUtils.stringToBytes(JSON));
+        }
+
+        String decoded = StreamUtils.convert(new ResponseCompression(0).decode(new ByteArrayInputStream(compressed.toByteArray()), "gzip"));
+
+        assertThat(decoded, equalTo(JSON));
+    }
+
+    @Test
+    public void should_decode_zlib_and_raw_deflate() throws IOException {
+        ResponseCompression compression = new ResponseCompression(0);
+
+        assertThat(StreamUtils.convert(compression.decode(new ByteArrayInputStream(deflate(false)), "deflate")), equalTo(JSON));
+        assertThat(StreamUtils.convert(compression.decode(new ByteArrayInputStream(deflate(true)), "deflate")), equalTo(JSON));
+    }
+
+    @Test
+    public void should_not_decode_identity() throws IOException {
+        ByteArrayInputStream body = new ByteArrayInputStream(ByteUtils.stringToBytes(JSON));
+
+        assertThat(new ResponseCompression(0).decode(body, null), equalTo(body));
+    }
+
+    @Test(expected = IOException.class)
+    public void should_reject_unsupported_encoding() throws IOException {
+        new ResponseCompression(0).decode(new ByteArrayInputStream(new byte[0]), "br");
+    }
+
+    @Test
+    public void should_compute_compression_ratio() {
+
+        // Given
+        ResponseCompression compression = new ResponseCompression(1024);
+
+        // When
+        compression.record("/0/public/Trades", "gzip", 1000, 8000);
+        compression.record("/0/public/Trades", "gzip", 1000, 4000);
+        compression.record("/0/public/Time", null, 60, 60);
+
+        // Then
+        assertThat(compression.getCompressedResponses(), equalTo(2L));
+        assertThat(compression.getCompressionRatio(), equalTo(6.0));
+        assertThat(compression.getSavedBytes(), equalTo(10000L));
+        assertThat(compression.getIdentityResponses(), equalTo(1L));
+        assertThat(compression.getIdentityBytes(), equalTo(60L));
+    }
+
+    private static byte[] deflate(boolean raw) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            out.write(ByteUtils.stringToBytes(JSON));
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,222 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.result.ServerTimeResult;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.number.IsCloseTo.closeTo;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+import static org.hamcrest.number.OrderingComparison.lessThan;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Server clock test
+ *
+ * @author synapticloop
+ */
+public class ServerClockTest {
+
+    private static final long ANCHOR_MILLIS = 1_501_271_914_000L;
+    private static final long SECOND = 1_000_000_000L;
+
+    /**
+     * Simulated local time source and server clock
+     */
+    private static class Simulation {
+        private final long[] now = {5 * SECOND};
+        private final Random random = new Random(42);
+        private final ServerClock clock = new ServerClock(() -> now[0], ANCHOR_MILLIS);
+        private final double offsetNanos;
+        private final double drift;
+
+        Simulation(double offsetMillis, double driftPpm) {
+            this.offsetNanos = offsetMillis * 1e6;
+            this.drift = driftPpm * 1e-6;
+        }
+
+        long serverNanos(long local) {
+            long elapsed = local - 5 * SECOND;
+            return ANCHOR_MILLIS * 1_000_000L + elapsed + (long) offsetNanos + (long) (drift * elapsed);
+        }
+
+        void sample(long roundTripMillis) {
+            long sent = now[0];
+            long received = sent + roundTripMillis * 1_000_000L;
+            long serverSeconds = Math.floorDiv(serverNanos(sent + (long) (random.nextDouble() * (received - sent))), SECOND);
+            now[0] = received;
+            clock.addSample(sent, received, serverSeconds);
+        }
+
+        void advanceMillis(long millis) {
+            now[0] += millis * 1_000_000L;
+        }
+
+        double errorMillis() {
+            return (clock.currentTimeNanos() - serverNanos(now[0])) / 1e6;
+        }
+    }
+
+    @Test
+    public void should_follow_local_clock_until_synchronized() {
+
+        // Given
+        Simulation simulation = new Simulation(0, 0);
+
+        // When
+        long millis = simulation.clock.currentTimeMillis();
+
+        // Then
+        assertThat(millis, equalTo(ANCHOR_MILLIS));
+        assertThat(simulation.clock.getUncertaintyMillis(), equalTo(1000.0));
+    }
+
+    @Test
+    public void should_narrow_offset_below_server_second_resolution() {
+
+        // Given
+        Simulation simulation = new Simulation(2345.6, 0);
+
+        // When
+        for (int i = 0; i < 32; i++) {
+            simulation.sample(20 + simulation.random.nextInt(20));
+            simulation.advanceMillis(60_000 + simulation.random.nextInt(1000));
+        }
+
+        // Then
+        assertThat(simulation.clock.getOffsetMillis(), closeTo(2345.6, 40));
+        assertThat(simulation.errorMillis(), closeTo(0, 40));
+        assertThat(simulation.clock.getUncertaintyMillis(), lessThan(100.0));
+        assertThat(simulation.clock.getMinRoundTripMillis(), greaterThanOrEqualTo(20.0));
+        assertThat(simulation.clock.getSampleCount(), equalTo(32L));
+    }
+
+    @Test
+    public void should_barely_count_samples_with_long_round_trips() {
+
+        // Given
+        Simulation simulation = new Simulation(-800, 0);
+        for (int i = 0; i < 16; i++) {
+            simulation.sample(10);
+            simulation.advanceMillis(60_000 + simulation.random.nextInt(1000));
+        }
+        double before = simulation.clock.getOffsetMillis();
+
+        // When
+        simulation.sample(3000);
+
+        // Then
+        assertThat(simulation.clock.getOffsetMillis(), closeTo(before, 10));
+        assertThat(simulation.errorMillis(), closeTo(0, 20));
+    }
+
+    @Test
+    public void should_estimate_drift() {
+
+        // Given
+        Simulation simulation = new Simulation(500, 100);
+
+        // When
+        for (int i = 0; i < 120; i++) {
+            simulation.sample(20);
+            simulation.advanceMillis(60_000 + simulation.random.nextInt(1000));
+        }
+
+        // Then
+        assertThat(simulation.clock.getDriftPpm(), closeTo(100, 30));
+        simulation.advanceMillis(600_000);
+        assertThat(simulation.errorMillis(), closeTo(0, 40));
+    }
+
+    @Test
+    public void should_never_go_backwards() {
+
+        // Given
+        Simulation simulation = new Simulation(-5000, 0);
+        long before = simulation.clock.currentTimeNanos();
+
+        // When
+        simulation.sample(20);
+        long after = simulation.clock.currentTimeNanos();
+        simulation.advanceMillis(6000);
+        long caughtUp = simulation.clock.currentTimeNanos();
+
+        // Then
+        assertThat(after, greaterThanOrEqualTo(before));
+        assertThat((caughtUp - simulation.serverNanos(simulation.now[0])) / 1e6, closeTo(0, 1000));
+    }
+
+    @Test
+    public void should_base_nonces_on_server_clock() {
+
+        // Given
+        Simulation simulation = new Simulation(3_600_000, 0);
+        simulation.sample(20);
+        NonceGenerator generator = new NonceGenerator();
+        generator.setClock(simulation.clock);
+
+        // When
+        long nonce = generator.next();
+
+        // Then
+        assertThat(nonce / 1000.0, closeTo(ANCHOR_MILLIS + 3_600_000, 1000));
+    }
+
+    @Test
+    public void should_sample_server_time_periodically() throws Exception {
+
+        // Given
+        ServerTimeResult result = new ServerTimeResult();
+        result.setResult(new ServerTimeResult.ServerTime());
+        result.getResult().unixtime = System.currentTimeMillis() / 1000 + 3600;
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.getServerTime()).thenReturn(result);
+        ServerClock clock = new ServerClock();
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+        // When
+        Future<?> sync = clock.scheduleSync(executor, client, 10, TimeUnit.MILLISECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (clock.getSampleCount() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        sync.cancel(false);
+        executor.shutdown();
+
+        // Then
+        assertThat(clock.getSampleCount(), greaterThanOrEqualTo(3L));
+        assertThat(clock.getOffsetMillis(), closeTo(3_600_000, 2000));
+    }
+
+    @Test
+    public void should_keep_sampling_after_unchecked_failure() throws Exception {
+
+        // Given
+        ServerTimeResult result = new ServerTimeResult();
+        result.setResult(new ServerTimeResult.ServerTime());
+        result.getResult().unixtime = System.currentTimeMillis() / 1000;
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.getServerTime()).thenThrow(new IllegalStateException("malformed response")).thenReturn(result);
+        ServerClock clock = new ServerClock();
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+        // When
+        Future<?> sync = clock.scheduleSync(executor, client, 10, TimeUnit.MILLISECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (clock.getSampleCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        sync.cancel(false);
+        executor.shutdown();
+
+        // Then
+        assertThat(clock.getSampleCount(), greaterThanOrEqualTo(2L));
+    }
+}
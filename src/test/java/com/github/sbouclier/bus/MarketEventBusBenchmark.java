@@ -0,0 +1,116 @@
+package com.github.sbouclier.bus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Throughput of a producer fanning market events out to several consumers: the ring buffer bus with each wait strategy
+ * against one blocking queue per consumer fed with an event allocated per consumer. Busy spin needs a core per thread.
+ * Not a unit test, run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=com.github.sbouclier.bus.MarketEventBusBenchmark -Dexec.classpathScope=test
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class MarketEventBusBenchmark {
+
+    private static final int CONSUMERS = 4;
+    private static final int EVENTS = 10_000_000;
+    private static final int SIZE = 1 << 16;
+    private static final int ROUNDS = 3;
+
+    private static final class QueuedEvent {
+        final int pairId;
+        final long bid;
+        final long ask;
+        final long timeNanos;
+
+        QueuedEvent(int pairId, long bid, long ask, long timeNanos) {
+            this.pairId = pairId;
+            this.bid = bid;
+            this.ask = ask;
+            this.timeNanos = timeNanos;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        List<WaitStrategy> strategies = new ArrayList<>();
+        strategies.add(WaitStrategy.PARK);
+        strategies.add(WaitStrategy.YIELD);
+        if (Runtime.getRuntime().availableProcessors() > CONSUMERS) {
+            strategies.add(WaitStrategy.BUSY_SPIN);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            report("blocking queues", round, queues());
+            for (WaitStrategy strategy : strategies) {
+                report("ring buffer " + strategy, round, ringBuffer(strategy));
+            }
+        }
+    }
+
+    private static long ringBuffer(WaitStrategy strategy) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(CONSUMERS);
+        long[] checksums = new long[CONSUMERS];
+        try (MarketEventBus bus = new MarketEventBus(SIZE, strategy)) {
+            for (int c = 0; c < CONSUMERS; c++) {
+                int consumer = c;
+                bus.subscribe("consumer-" + c, (event, sequence, endOfBatch) -> {
+                    checksums[consumer] += event.ask - event.bid;
+                    if (sequence == EVENTS - 1) {
+                        done.countDown();
+                    }
+                });
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < EVENTS; i++) {
+                bus.publishSpread(i & 255, 1, 250_000 + (i & 1023), 250_001 + (i & 1023), i);
+            }
+            done.await();
+            return System.nanoTime() - start;
+        }
+    }
+
+    private static long queues() throws InterruptedException {
+        List<BlockingQueue<QueuedEvent>> queues = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        long[] checksums = new long[CONSUMERS];
+        for (int c = 0; c < CONSUMERS; c++) {
+            BlockingQueue<QueuedEvent> queue = new ArrayBlockingQueue<>(SIZE);
+            int consumer = c;
+            queues.add(queue);
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < EVENTS; i++) {
+                        QueuedEvent event = queue.take();
+                        checksums[consumer] += event.ask - event.bid;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) {
+            for (BlockingQueue<QueuedEvent> queue : queues) {
+                queue.put(new QueuedEvent(i & 255, 250_000 + (i & 1023), 250_001 + (i & 1023), i));
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String name, int round, long nanos) {
+        System.out.printf("%s round %d: %.1f M events/s to %d consumers%n", name, round, EVENTS / (nanos / 1e3), CONSUMERS);
+    }
+}
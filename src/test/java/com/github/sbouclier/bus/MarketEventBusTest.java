@@ -0,0 +1,104 @@
+package com.github.sbouclier.bus;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Market event bus test
+ *
+ * @author synapticloop
+ */
+public class MarketEventBusTest {
+
+    @Test
+    public void should_convert_fixed_point_values() {
+        assertThat(MarketEvent.toFixed(new BigDecimal("2500.1"), 2), equalTo(250010L));
+        assertThat(MarketEvent.toFixed(new BigDecimal("0.123456785"), 8), equalTo(12345678L));
+        assertThat(MarketEvent.toDecimal(250010L, 2), equalTo(new BigDecimal("2500.10")));
+    }
+
+    @Test
+    public void should_assign_pair_ids() {
+        try (MarketEventBus bus = new MarketEventBus(8, WaitStrategy.PARK)) {
+            int xbteur = bus.getPairId("XXBTZEUR");
+            int etheur = bus.getPairId("XETHZEUR");
+
+            assertThat(bus.getPairId("XXBTZEUR"), equalTo(xbteur));
+            assertThat(etheur, equalTo(xbteur + 1));
+            assertThat(bus.getPair(etheur), equalTo("XETHZEUR"));
+        }
+    }
+
+    @Test
+    public void should_fan_out_events_to_every_consumer_in_order() throws InterruptedException {
+
+        // Given
+        int events = 10_000;
+        CountDownLatch done = new CountDownLatch(2);
+        List<List<String>> received = new ArrayList<>();
+
+        try (MarketEventBus bus = new MarketEventBus(256, WaitStrategy.YIELD)) {
+            for (int c = 0; c < 2; c++) {
+                List<String> consumer = Collections.synchronizedList(new ArrayList<>());
+                received.add(consumer);
+                bus.subscribe("consumer-" + c, (event, sequence, endOfBatch) -> {
+                    consumer.add(event.type + ":" + event.price);
+                    if (consumer.size() == events) {
+                        done.countDown();
+                    }
+                });
+            }
+            int pairId = bus.getPairId("XXBTZEUR");
+
+            // When
+            for (int i = 0; i < events; i++) {
+                if (i % 2 == 0) {
+                    bus.publishTrade(pairId, 1, i, 8, 100_000_000L, i);
+                } else {
+                    bus.publishTicker(pairId, 1, i - 1, i + 1, i, 8, 1, 0);
+                }
+            }
+
+            // Then
+            assertThat(done.await(10, TimeUnit.SECONDS), equalTo(true));
+        }
+        for (List<String> consumer : received) {
+            assertThat(consumer.size(), equalTo(events));
+            assertThat(consumer.get(0), equalTo("TRADE:0"));
+            assertThat(consumer.get(events - 1), equalTo("TICKER:" + (events - 1)));
+        }
+        assertThat(received.get(0), equalTo(received.get(1)));
+    }
+
+    @Test
+    public void should_keep_consuming_after_handler_error() throws InterruptedException {
+
+        // Given
+        CountDownLatch done = new CountDownLatch(1);
+        try (MarketEventBus bus = new MarketEventBus(8, WaitStrategy.BUSY_SPIN)) {
+            EventProcessor<MarketEvent> processor = bus.subscribe("failing", (event, sequence, endOfBatch) -> {
+                if (event.bid == 1) {
+                    throw new IllegalStateException("boom");
+                }
+                done.countDown();
+            });
+
+            // When
+            bus.publishSpread(0, 0, 1, 2, 0);
+            bus.publishSpread(0, 0, 2, 3, 0);
+
+            // Then
+            assertThat(done.await(5, TimeUnit.SECONDS), equalTo(true));
+            assertThat(processor.getErrorCount(), equalTo(1L));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.github.sbouclier.bus;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsSame.sameInstance;
+
+/**
+ * Ring buffer test
+ *
+ * @author synapticloop
+ */
+public class RingBufferTest {
+
+    private static class LongEvent {
+        long value;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_size_not_power_of_two() {
+        new RingBuffer<>(1000, LongEvent::new);
+    }
+
+    @Test
+    public void should_reuse_preallocated_events() {
+
+        // Given
+        RingBuffer<LongEvent> ringBuffer = new RingBuffer<>(4, LongEvent::new);
+
+        // When
+        long first = ringBuffer.publishEvent(event -> event.value = 1);
+        for (int i = 0; i < 3; i++) {
+            ringBuffer.publishEvent(event -> event.value = 2);
+        }
+        long fifth = ringBuffer.publishEvent(event -> event.value = 5);
+
+        // Then
+        assertThat(first, equalTo(0L));
+        assertThat(fifth, equalTo(4L));
+        assertThat(ringBuffer.get(fifth), sameInstance(ringBuffer.get(first)));
+        assertThat(ringBuffer.get(first).value, equalTo(5L));
+        assertThat(ringBuffer.isPublished(fifth), equalTo(true));
+        assertThat(ringBuffer.isPublished(first), equalTo(false));
+    }
+
+    @Test
+    public void should_report_highest_published_without_gap() {
+
+        // Given
+        RingBuffer<LongEvent> ringBuffer = new RingBuffer<>(8, LongEvent::new);
+        long first = ringBuffer.next();
+        long second = ringBuffer.next();
+        long third = ringBuffer.next();
+
+        // When
+        ringBuffer.publish(first);
+        ringBuffer.publish(third);
+
+        // Then
+        assertThat(ringBuffer.getHighestPublished(0, ringBuffer.getCursor()), equalTo(first));
+        ringBuffer.publish(second);
+        assertThat(ringBuffer.getHighestPublished(0, ringBuffer.getCursor()), equalTo(third));
+    }
+
+    @Test
+    public void should_not_overtake_slowest_consumer() throws Exception {
+
+        // Given
+        RingBuffer<LongEvent> ringBuffer = new RingBuffer<>(4, LongEvent::new);
+        CountDownLatch release = new CountDownLatch(1);
+        EventProcessor<LongEvent> processor = new EventProcessor<>(ringBuffer, (event, sequence, endOfBatch) -> release.await(), WaitStrategy.PARK);
+        Thread consumer = new Thread(processor);
+        consumer.start();
+        for (int i = 0; i < 4; i++) {
+            ringBuffer.publishEvent(event -> event.value = 1);
+        }
+
+        // When
+        Thread producer = new Thread(() -> ringBuffer.publishEvent(event -> event.value = 2));
+        producer.start();
+        producer.join(100);
+
+        // Then
+        assertThat(producer.isAlive(), equalTo(true));
+        assertThat(ringBuffer.getRemainingCapacity(), equalTo(0L));
+        release.countDown();
+        producer.join(TimeUnit.SECONDS.toMillis(5));
+        assertThat(producer.isAlive(), equalTo(false));
+        processor.halt();
+        consumer.join();
+    }
+
+    @Test
+    public void should_deliver_every_event_of_many_producers_to_every_consumer() throws Exception {
+
+        // Given
+        RingBuffer<LongEvent> ringBuffer = new RingBuffer<>(64, LongEvent::new);
+        int producers = 3;
+        int perProducer = 100_000;
+        long expectedSum = (long) producers * perProducer * (perProducer + 1) / 2;
+        List<long[]> sums = new ArrayList<>();
+        List<EventProcessor<LongEvent>> processors = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            long[] sum = new long[2];
+            sums.add(sum);
+            EventProcessor<LongEvent> processor = new EventProcessor<>(ringBuffer, (event, sequence, endOfBatch) -> {
+                sum[0] += event.value;
+                sum[1]++;
+            }, waitStrategy);
+            processors.add(processor);
+            threads.add(new Thread(processor));
+        }
+        threads.forEach(Thread::start);
+
+        // When
+        List<Thread> producerThreads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            producerThreads.add(new Thread(() -> {
+                for (int i = 1; i <= perProducer; i++) {
+                    long value = i;
+                    long sequence = ringBuffer.next();
+                    ringBuffer.get(sequence).value = value;
+                    ringBuffer.publish(sequence);
+                }
+            }));
+        }
+        producerThreads.forEach(Thread::start);
+        for (Thread thread : producerThreads) {
+            thread.join();
+        }
+        long last = ringBuffer.getCursor();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (processors.stream().anyMatch(p -> p.getSequence() < last) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        processors.forEach(EventProcessor::halt);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        for (long[] sum : sums) {
+            assertThat(sum[1], equalTo((long) producers * perProducer));
+            assertThat(sum[0], equalTo(expectedSum));
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.github.sbouclier.flow;
+
+import com.github.sbouclier.KrakenAPIClient;
+import com.github.sbouclier.input.Interval;
+import com.github.sbouclier.result.OHLCResult;
+import com.github.sbouclier.result.OHLCResult.OHLC;
+import com.github.sbouclier.result.RecentSpreadResult;
+import com.github.sbouclier.result.RecentSpreadResult.Spread;
+import com.github.sbouclier.result.RecentTradeResult;
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+import com.github.sbouclier.result.TickerInformationResult;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Kraken publishers test
+ *
+ * @author synapticloop
+ */
+public class KrakenPublishersTest {
+
+    private static RecentTradeResult trades(long lastId, int count) {
+        List<RecentTrade> trades = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            RecentTrade trade = new RecentTrade();
+            trade.price = BigDecimal.valueOf(2500 + i);
+            trades.add(trade);
+        }
+        RecentTradeResult result = new RecentTradeResult();
+        result.setResult(new HashMap<>());
+        result.getResult().put("XXBTZEUR", trades);
+        result.setLastId(lastId);
+        return result;
+    }
+
+    private static RecentSpreadResult spreads(long lastId, Spread... spreads) {
+        RecentSpreadResult result = new RecentSpreadResult();
+        result.setResult(new HashMap<>());
+        result.getResult().put("XXBTZEUR", Arrays.asList(spreads));
+        result.setLastId(lastId);
+        return result;
+    }
+
+    private static OHLC bar(int time, String close) {
+        OHLC bar = new OHLC();
+        bar.time = time;
+        bar.close = new BigDecimal(close);
+        return bar;
+    }
+
+    private static OHLCResult bars(long lastId, OHLC... bars) {
+        OHLCResult result = new OHLCResult();
+        result.setResult(new HashMap<>());
+        result.getResult().put("XXBTZEUR", Arrays.asList(bars));
+        result.setLastId(lastId);
+        return result;
+    }
+
+    private static <T> List<T> take(Flow.Publisher<T> publisher, int count) throws InterruptedException {
+        return take(publisher, count, new AtomicReference<>());
+    }
+
+    private static <T> List<T> take(Flow.Publisher<T> publisher, int count, AtomicReference<Throwable> error) throws InterruptedException {
+        List<T> items = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        publisher.subscribe(new Flow.Subscriber<T>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(count);
+            }
+
+            @Override
+            public void onNext(T item) {
+                items.add(item);
+                if (items.size() == count) {
+                    subscription.cancel();
+                    done.countDown();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                error.set(throwable);
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+        done.await(5, TimeUnit.SECONDS);
+        return items;
+    }
+
+    @Test
+    public void should_follow_trades_with_since_cursor() throws Exception {
+
+        // Given
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.getRecentTrades("XBTEUR")).thenReturn(trades(100L, KrakenPublishers.TRADES_PAGE_SIZE));
+        when(client.getRecentTrades("XBTEUR", 100L)).thenReturn(trades(200L, 2));
+
+        // When
+        List<RecentTrade> items = take(KrakenPublishers.recentTrades(client, "XBTEUR", null, 1, TimeUnit.SECONDS), KrakenPublishers.TRADES_PAGE_SIZE + 2);
+
+        // Then
+        assertThat(items.size(), equalTo(KrakenPublishers.TRADES_PAGE_SIZE + 2));
+        assertThat(items.get(KrakenPublishers.TRADES_PAGE_SIZE).price, equalTo(BigDecimal.valueOf(2500)));
+        verify(client, times(1)).getRecentTrades("XBTEUR");
+        verify(client, times(1)).getRecentTrades("XBTEUR", 100L);
+    }
+
+    @Test
+    public void should_follow_spreads_with_since_cursor() throws Exception {
+
+        // Given
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        Spread first = new Spread(1501271914, new BigDecimal("2500.1"), new BigDecimal("2500.2"));
+        Spread second = new Spread(1501271915, new BigDecimal("2500.3"), new BigDecimal("2500.4"));
+        when(client.getRecentSpreads("XBTEUR")).thenReturn(spreads(1501271914L, first));
+        when(client.getRecentSpreads("XBTEUR", 1501271914)).thenReturn(spreads(1501271915L, second));
+
+        // When
+        List<Spread> items = take(KrakenPublishers.recentSpreads(client, "XBTEUR", null, 10, TimeUnit.MILLISECONDS), 2);
+
+        // Then
+        assertThat(items, equalTo(Arrays.asList(first, second)));
+        verify(client, times(1)).getRecentSpreads("XBTEUR");
+        verify(client, times(1)).getRecentSpreads("XBTEUR", 1501271914);
+    }
+
+    @Test
+    public void should_fail_spreads_with_cursor_out_of_int_range() throws Exception {
+
+        // Given
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        // When
+        List<Spread> items = take(KrakenPublishers.recentSpreads(client, "XBTEUR", Integer.MAX_VALUE + 1L, 10, TimeUnit.MILLISECONDS), 1, error);
+
+        // Then
+        assertThat(items.isEmpty(), equalTo(true));
+        assertThat(error.get(), instanceOf(ArithmeticException.class));
+        verifyNoMoreInteractions(client);
+    }
+
+    @Test
+    public void should_publish_bar_in_progress_again_with_its_update() throws Exception {
+
+        // Given
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        OHLC closed = bar(1501271880, "2500.1");
+        OHLC inProgress = bar(1501271940, "2500.2");
+        OHLC updated = bar(1501271940, "2500.3");
+        when(client.getOHLC("XBTEUR", Interval.ONE_MINUTE)).thenReturn(bars(1501271880L, closed, inProgress));
+        when(client.getOHLC("XBTEUR", Interval.ONE_MINUTE, 1501271880)).thenReturn(bars(1501271880L, updated));
+
+        // When
+        List<OHLC> items = take(KrakenPublishers.ohlc(client, "XBTEUR", Interval.ONE_MINUTE, null, 10, TimeUnit.MILLISECONDS), 3);
+
+        // Then
+        assertThat(items, equalTo(Arrays.asList(closed, inProgress, updated)));
+        verify(client, times(1)).getOHLC("XBTEUR", Interval.ONE_MINUTE);
+        verify(client, times(1)).getOHLC("XBTEUR", Interval.ONE_MINUTE, 1501271880);
+    }
+
+    @Test
+    public void should_poll_ticker_once_per_item() throws Exception {
+
+        // Given
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        TickerInformationResult ticker = new TickerInformationResult();
+        when(client.getTickerInformation(Arrays.asList("XBTEUR"))).thenReturn(ticker);
+
+        // When
+        List<TickerInformationResult> items = take(KrakenPublishers.ticker(client, Collections.singletonList("XBTEUR"), 10, TimeUnit.MILLISECONDS), 3);
+
+        // Then
+        assertThat(items, equalTo(Arrays.asList(ticker, ticker, ticker)));
+        verify(client, times(3)).getTickerInformation(Arrays.asList("XBTEUR"));
+    }
+}
@@ -0,0 +1,279 @@
+package com.github.sbouclier.flow;
+
+import com.github.sbouclier.KrakenApiException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
+
+/**
+ * Polling publisher test
+ *
+ * @author synapticloop
+ */
+public class PollingPublisherTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final ScheduledExecutorService pollExecutor = Executors.newScheduledThreadPool(2);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        pollExecutor.shutdownNow();
+    }
+
+    /**
+     * Poll executor running the immediate polls at once and holding the delayed ones until run by the test
+     */
+    private static class ManualScheduler extends ScheduledThreadPoolExecutor {
+        final BlockingQueue<Runnable> delayed = new LinkedBlockingQueue<>();
+        final List<Long> delaysMillis = new CopyOnWriteArrayList<>();
+
+        ManualScheduler() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            if (delay == 0) {
+                return super.schedule(command, 0, unit);
+            }
+            delaysMillis.add(unit.toMillis(delay));
+            delayed.add(command);
+            return super.schedule(() -> { }, 1, TimeUnit.DAYS);
+        }
+
+        void runDelayed() throws InterruptedException {
+            Runnable command = delayed.poll(5, TimeUnit.SECONDS);
+            assertThat(command, notNullValue());
+            execute(command);
+        }
+    }
+
+    /**
+     * Subscriber recording its signals
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<Long> {
+        final List<Long> items = new CopyOnWriteArrayList<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch subscribed = new CountDownLatch(1);
+        final CountDownLatch terminated = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscribed.countDown();
+        }
+
+        @Override
+        public void onNext(Long item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            terminated.countDown();
+        }
+
+        void awaitItems(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (items.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    /**
+     * Poller of pages of 3 consecutive numbers, the cursor being the last number
+     */
+    private static PollingPublisher<Long> counting(AtomicInteger polls) {
+        return new PollingPublisher<>(cursor -> {
+            polls.incrementAndGet();
+            long from = (cursor != null) ? cursor + 1 : 0;
+            return PollingPublisher.Page.of(Arrays.asList(from, from + 1, from + 2), from + 2, true);
+        }, null, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void should_not_poll_without_demand() throws InterruptedException {
+
+        // Given
+        AtomicInteger polls = new AtomicInteger();
+        PollingPublisher<Long> publisher = counting(polls);
+        publisher.setExecutor(executor);
+        publisher.setPollExecutor(pollExecutor);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        // When
+        publisher.subscribe(subscriber);
+        subscriber.subscribed.await(5, TimeUnit.SECONDS);
+        Thread.sleep(50);
+
+        // Then
+        assertThat(polls.get(), equalTo(0));
+        assertThat(subscriber.items.size(), equalTo(0));
+    }
+
+    @Test
+    public void should_poll_only_as_far_as_demand() throws InterruptedException {
+
+        // Given
+        AtomicInteger polls = new AtomicInteger();
+        PollingPublisher<Long> publisher = counting(polls);
+        publisher.setExecutor(executor);
+        publisher.setPollExecutor(pollExecutor);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscribed.await(5, TimeUnit.SECONDS);
+
+        // When
+        subscriber.subscription.request(4);
+        subscriber.awaitItems(4);
+        Thread.sleep(50);
+
+        // Then
+        assertThat(subscriber.items, equalTo(Arrays.asList(0L, 1L, 2L, 3L)));
+        // the second page is held until requested
+        assertThat(polls.get(), equalTo(2));
+        subscriber.subscription.request(2);
+        subscriber.awaitItems(6);
+        Thread.sleep(50);
+        assertThat(subscriber.items, equalTo(Arrays.asList(0L, 1L, 2L, 3L, 4L, 5L)));
+        assertThat(polls.get(), equalTo(2));
+        assertThat(publisher.getPollCount(), equalTo(2L));
+    }
+
+    @Test
+    public void should_wait_for_interval_once_caught_up() throws InterruptedException {
+
+        // Given
+        AtomicInteger polls = new AtomicInteger();
+        ManualScheduler scheduler = new ManualScheduler();
+        PollingPublisher<Long> publisher = new PollingPublisher<>(cursor -> {
+            polls.incrementAndGet();
+            return PollingPublisher.Page.of(Arrays.asList(1L), null, false);
+        }, null, 200, TimeUnit.MILLISECONDS);
+        publisher.setExecutor(executor);
+        publisher.setPollExecutor(scheduler);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscribed.await(5, TimeUnit.SECONDS);
+
+        try {
+            // When
+            subscriber.subscription.request(Long.MAX_VALUE);
+            subscriber.awaitItems(1);
+            scheduler.runDelayed();
+            subscriber.awaitItems(2);
+
+            // Then, the first poll at once and each next one after the interval
+            assertThat(polls.get(), equalTo(2));
+            assertThat(scheduler.delaysMillis.get(0), greaterThan(0L));
+            assertThat(scheduler.delaysMillis.get(0), lessThanOrEqualTo(200L));
+            assertThat(scheduler.delayed.poll(5, TimeUnit.SECONDS), notNullValue());
+            assertThat(polls.get(), equalTo(2));
+            subscriber.subscription.cancel();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void should_stop_polling_once_cancelled() throws InterruptedException {
+
+        // Given
+        AtomicInteger polls = new AtomicInteger();
+        PollingPublisher<Long> publisher = counting(polls);
+        publisher.setExecutor(executor);
+        publisher.setPollExecutor(pollExecutor);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscribed.await(5, TimeUnit.SECONDS);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.awaitItems(30);
+
+        // When
+        subscriber.subscription.cancel();
+        Thread.sleep(20);
+        int pollsAtCancel = polls.get();
+        int itemsAtCancel = subscriber.items.size();
+        Thread.sleep(50);
+
+        // Then
+        assertThat(polls.get(), equalTo(pollsAtCancel));
+        assertThat(subscriber.items.size(), equalTo(itemsAtCancel));
+        assertThat(subscriber.terminated.getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void should_deliver_polled_items_before_error() throws InterruptedException {
+
+        // Given
+        AtomicInteger polls = new AtomicInteger();
+        PollingPublisher<Long> publisher = new PollingPublisher<>(cursor -> {
+            if (polls.incrementAndGet() > 1) {
+                throw new KrakenApiException("EService:Unavailable");
+            }
+            return PollingPublisher.Page.of(Arrays.asList(1L, 2L), 2L, true);
+        }, null, 0, TimeUnit.MILLISECONDS);
+        publisher.setExecutor(executor);
+        publisher.setPollExecutor(pollExecutor);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscribed.await(5, TimeUnit.SECONDS);
+
+        // When
+        subscriber.subscription.request(10);
+
+        // Then
+        assertThat(subscriber.terminated.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(subscriber.items, equalTo(Arrays.asList(1L, 2L)));
+        assertThat(subscriber.error.get().getMessage(), equalTo("[EService:Unavailable]"));
+    }
+
+    @Test
+    public void should_signal_error_on_non_positive_request() throws InterruptedException {
+
+        // Given
+        PollingPublisher<Long> publisher = counting(new AtomicInteger());
+        publisher.setExecutor(executor);
+        publisher.setPollExecutor(pollExecutor);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscribed.await(5, TimeUnit.SECONDS);
+
+        // When
+        subscriber.subscription.request(0);
+
+        // Then
+        assertThat(subscriber.terminated.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(subscriber.error.get(), instanceOf(IllegalArgumentException.class));
+    }
+}
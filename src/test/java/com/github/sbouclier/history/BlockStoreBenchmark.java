@@ -0,0 +1,105 @@
+package com.github.sbouclier.history;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of the block store: size against the JSON of the {@code Trades} endpoint, and decode throughput.
+ * Not a unit test, run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=com.github.sbouclier.history.BlockStoreBenchmark -Dexec.classpathScope=test
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class BlockStoreBenchmark {
+
+    private static final int TRADES = 2_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        List<RecentTrade> trades = generate(TRADES, new Random(42));
+        long json = new ObjectMapper().writeValueAsBytes(trades).length;
+
+        Path directory = Files.createTempDirectory("block-store");
+        try {
+            for (boolean deflate : new boolean[]{false, true}) {
+                Path file = directory.resolve("trades-" + deflate);
+                try (BlockStoreWriter writer = BlockStoreWriter.create(file, TapeKind.TRADES, "XXBTZEUR", BlockStoreWriter.DEFAULT_BLOCK_ROWS, deflate)) {
+                    for (RecentTrade trade : trades) {
+                        writer.write(trade);
+                    }
+                }
+                long size = Files.size(file);
+                System.out.printf("deflate=%s: %.2f bytes/trade, %.1fx smaller than JSON (%d bytes)%n", deflate, (double) size / TRADES, (double) json / size, json);
+
+                for (int round = 0; round < ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    long checksum = 0;
+                    try (BlockStoreReader reader = new BlockStoreReader(file)) {
+                        while (reader.next()) {
+                            checksum += reader.getUnscaledPrice() + reader.getUnscaled(1) + (reader.isSell() ? 1 : 0);
+                        }
+                    }
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    System.out.printf("  decode round %d: %.1f M rows/s (checksum %d)%n", round, TRADES / seconds / 1e6, checksum);
+                }
+            }
+        } finally {
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                files.forEach(file -> file.toFile().delete());
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Trades shaped like those of XBTEUR: price random walk at 1 decimal written with 5, volume with 8 decimals,
+     * time with 4 decimals, bursts of trades at the same time
+     */
+    public static List<RecentTrade> generate(int count, Random random) {
+        List<RecentTrade> trades = new ArrayList<>(count);
+        long price = 231200;
+        long time = 15016093820000L;
+        for (int i = 0; i < count; i++) {
+            if (random.nextInt(3) > 0) {
+                time += 1 + random.nextInt(20000);
+            }
+            price += random.nextInt(11) - 5;
+
+            RecentTrade trade = new RecentTrade();
+            trade.time = BigDecimal.valueOf(time, 4);
+            trade.price = BigDecimal.valueOf(price * 10000, 5);
+            trade.volume = BigDecimal.valueOf(volume(random), 8);
+            trade.buySell = random.nextBoolean() ? "b" : "s";
+            trade.marketLimit = random.nextInt(4) == 0 ? "m" : "l";
+            trade.miscellaneous = "";
+            trades.add(trade);
+        }
+        return trades;
+    }
+
+    /**
+     * Volume with 8 decimals, half of them round amounts as typed by people, the others fills of any size
+     */
+    static long volume(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return (1 + random.nextInt(100)) * 1_000_000L;
+            case 1:
+                return (1 + random.nextInt(50)) * 100_000L;
+            case 2:
+                return random.nextInt(1_000_000);
+            default:
+                return random.nextInt(100_000_000);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.sbouclier.history;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.sbouclier.result.RecentSpreadResult.Spread;
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Block store writer and reader test
+ *
+ * @author synapticloop
+ */
+public class BlockStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(List<RecentTrade> trades, int blockRows, boolean deflate) throws IOException {
+        Path file = folder.newFile().toPath();
+        try (BlockStoreWriter writer = BlockStoreWriter.create(file, TapeKind.TRADES, "XXBTZEUR", blockRows, deflate)) {
+            for (RecentTrade trade : trades) {
+                writer.write(trade);
+            }
+        }
+        return file;
+    }
+
+    private static void assertTrade(RecentTrade actual, RecentTrade expected) {
+        assertThat(TradeLogWriter.toNanos(actual.time), equalTo(TradeLogWriter.toNanos(expected.time)));
+        assertThat(actual.price, comparesEqualTo(expected.price));
+        assertThat(actual.volume, comparesEqualTo(expected.volume));
+        assertThat(actual.buySell, equalTo(expected.buySell));
+        assertThat(actual.marketLimit, equalTo(expected.marketLimit));
+        assertThat(actual.miscellaneous, equalTo(expected.miscellaneous));
+    }
+
+    @Test
+    public void should_write_and_read_trades_across_blocks() throws IOException {
+
+        // Given
+        List<RecentTrade> trades = BlockStoreBenchmark.generate(1000, new Random(1));
+        trades.get(10).miscellaneous = "liquidation";
+        trades.get(500).price = trades.get(500).price.stripTrailingZeros();
+        trades.get(999).miscellaneous = "é";
+
+        for (boolean deflate : new boolean[]{false, true}) {
+
+            // When
+            Path file = write(trades, 128, deflate);
+
+            // Then
+            try (BlockStoreReader reader = new BlockStoreReader(file)) {
+                assertThat(reader.getKind(), equalTo(TapeKind.TRADES));
+                assertThat(reader.getPair(), equalTo("XXBTZEUR"));
+                assertThat(reader.getBlockCount(), equalTo(8));
+                assertThat(reader.getRowCount(), equalTo(1000L));
+                assertThat(reader.getFirstTimeNanos(), equalTo(TradeLogWriter.toNanos(trades.get(0).time)));
+
+                int i = 0;
+                while (reader.next()) {
+                    assertTrade(reader.toRecentTrade(), trades.get(i++));
+                }
+                assertThat(i, equalTo(1000));
+            }
+        }
+    }
+
+    @Test
+    public void should_be_much_smaller_than_json() throws IOException {
+
+        // Given
+        List<RecentTrade> trades = BlockStoreBenchmark.generate(50000, new Random(2));
+        long json = new ObjectMapper().writeValueAsBytes(trades).length;
+
+        // When
+        Path file = write(trades, BlockStoreWriter.DEFAULT_BLOCK_ROWS, true);
+
+        // Then
+        assertThat(Files.size(file) * 10, lessThan(json));
+    }
+
+    @Test
+    public void should_seek_time_through_index() throws IOException {
+
+        // Given
+        List<RecentTrade> trades = BlockStoreBenchmark.generate(1000, new Random(3));
+        Path file = write(trades, 100, false);
+        long target = TradeLogWriter.toNanos(trades.get(637).time);
+        int first = 637;
+        while (first > 0 && TradeLogWriter.toNanos(trades.get(first - 1).time) == target) {
+            first--;
+        }
+
+        try (BlockStoreReader reader = new BlockStoreReader(file)) {
+
+            // When
+            reader.seek(target - 1);
+
+            // Then
+            assertThat(reader.next(), equalTo(true));
+            assertTrade(reader.toRecentTrade(), trades.get(first));
+            assertThat(reader.next(), equalTo(true));
+            assertTrade(reader.toRecentTrade(), trades.get(first + 1));
+
+            reader.seek(0);
+            assertThat(reader.next(), equalTo(true));
+            assertTrade(reader.toRecentTrade(), trades.get(0));
+
+            reader.seek(Long.MAX_VALUE);
+            assertThat(reader.next(), equalTo(false));
+        }
+    }
+
+    @Test
+    public void should_write_and_read_spreads() throws IOException {
+
+        // Given
+        Path file = folder.newFile().toPath();
+        List<Spread> spreads = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            spreads.add(new Spread(1501609382 + i / 3, new BigDecimal("2312.0").add(BigDecimal.valueOf(i % 7, 1)), new BigDecimal("2312.90000")));
+        }
+
+        // When
+        try (BlockStoreWriter writer = BlockStoreWriter.create(file, TapeKind.SPREADS, "XXBTZEUR")) {
+            for (Spread spread : spreads) {
+                writer.write(spread);
+            }
+        }
+
+        // Then
+        try (BlockStoreReader reader = new BlockStoreReader(file)) {
+            assertThat(reader.getKind(), equalTo(TapeKind.SPREADS));
+            for (Spread spread : spreads) {
+                assertThat(reader.next(), equalTo(true));
+                Spread read = reader.toSpread();
+                assertThat(read.time, equalTo(spread.time));
+                assertThat(read.bid, comparesEqualTo(spread.bid));
+                assertThat(read.ask, comparesEqualTo(spread.ask));
+            }
+            assertThat(reader.next(), equalTo(false));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void should_reject_rows_of_another_kind() throws IOException {
+        try (BlockStoreWriter writer = BlockStoreWriter.create(folder.newFile().toPath(), TapeKind.SPREADS, "XXBTZEUR")) {
+            writer.writeTrade(1, BigDecimal.ONE, BigDecimal.ONE, false, false, null);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_rows_out_of_time_order() throws IOException {
+        try (BlockStoreWriter writer = BlockStoreWriter.create(folder.newFile().toPath(), TapeKind.SPREADS, "XXBTZEUR")) {
+            writer.writeSpread(2, BigDecimal.ONE, BigDecimal.TEN);
+            writer.writeSpread(1, BigDecimal.ONE, BigDecimal.TEN);
+        }
+    }
+}
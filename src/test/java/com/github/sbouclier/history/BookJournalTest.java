@@ -0,0 +1,236 @@
+package com.github.sbouclier.history;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.sbouclier.result.OrderBookResult;
+import com.github.sbouclier.result.OrderBookResult.Market;
+import com.github.sbouclier.result.OrderBookResult.OrderBook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+
+/**
+ * Order book journal writer and reader test
+ *
+ * @author synapticloop
+ */
+public class BookJournalTest {
+
+    private static final long START = 1_500_000_000_000_000_000L;
+    private static final long INTERVAL = 1_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Generate books of 25 levels per side, a few levels changing between snapshots
+     */
+    private static List<OrderBook> generate(int count, Random random) {
+        List<OrderBook> books = new ArrayList<>(count);
+        TreeMap<Long, Market> asks = new TreeMap<>();
+        TreeMap<Long, Market> bids = new TreeMap<>(Collections.reverseOrder());
+        for (int i = 0; i < count; i++) {
+            int seconds = (int) ((START + i * INTERVAL) / 1_000_000_000L);
+            if (i == 0) {
+                for (long price = 250000; price < 250025; price++) {
+                    asks.put(price, market(price + 1, random, seconds));
+                    bids.put(price, market(price - 25, random, seconds));
+                }
+            }
+            for (int change = 0; change < 3; change++) {
+                TreeMap<Long, Market> side = random.nextBoolean() ? asks : bids;
+                Long price = random.nextBoolean() ? side.firstKey() : side.lastKey();
+                side.remove(price);
+                long added = side.firstKey() + (side == asks ? -1 : 1) * (1 + random.nextInt(3));
+                if (random.nextBoolean() || side.containsKey(added)) {
+                    added = side.lastKey() + (side == asks ? 1 : -1);
+                }
+                side.put(added, market(added + (side == asks ? 1 : -25), random, seconds));
+            }
+            OrderBook book = new OrderBook();
+            book.asks = new ArrayList<>(asks.values());
+            book.bids = new ArrayList<>(bids.values());
+            books.add(book);
+        }
+        return books;
+    }
+
+    private static Market market(long price, Random random, int timestamp) {
+        return new Market(BigDecimal.valueOf(price, 1), BigDecimal.valueOf(1 + random.nextInt(5_000_000), 8), timestamp);
+    }
+
+    private Path write(List<OrderBook> books, int keyframeInterval) throws IOException {
+        Path file = folder.newFile().toPath();
+        try (BookJournalWriter writer = BookJournalWriter.create(file, "XXBTZEUR", keyframeInterval)) {
+            for (int i = 0; i < books.size(); i++) {
+                writer.write(START + i * INTERVAL, books.get(i));
+            }
+        }
+        return file;
+    }
+
+    private static void assertBook(OrderBook actual, OrderBook expected) {
+        assertLevels(actual.asks, expected.asks);
+        assertLevels(actual.bids, expected.bids);
+    }
+
+    private static void assertLevels(List<Market> actual, List<Market> expected) {
+        assertThat(actual.size(), equalTo(expected.size()));
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).price, comparesEqualTo(expected.get(i).price));
+            assertThat(actual.get(i).volume, comparesEqualTo(expected.get(i).volume));
+            assertThat(actual.get(i).timestamp, equalTo(expected.get(i).timestamp));
+        }
+    }
+
+    @Test
+    public void should_write_and_read_snapshots() throws IOException {
+
+        // Given
+        List<OrderBook> books = generate(250, new Random(1));
+
+        // When
+        Path file = write(books, 100);
+
+        // Then
+        try (BookJournalReader reader = new BookJournalReader(file)) {
+            assertThat(reader.getPair(), equalTo("XXBTZEUR"));
+            assertThat(reader.getCount(), equalTo(250L));
+            assertThat(reader.getKeyframeCount(), equalTo(3));
+            assertThat(reader.getFirstTimeNanos(), equalTo(START));
+            assertThat(reader.getLastTimeNanos(), equalTo(START + 249 * INTERVAL));
+
+            int i = 0;
+            while (reader.next()) {
+                assertThat(reader.getTimeNanos(), equalTo(START + i * INTERVAL));
+                assertBook(reader.getBook(), books.get(i++));
+            }
+            assertThat(i, equalTo(250));
+        }
+    }
+
+    @Test
+    public void should_rebuild_book_at_any_time() throws IOException {
+
+        // Given
+        List<OrderBook> books = generate(250, new Random(2));
+        Path file = write(books, 20);
+
+        try (BookJournalReader reader = new BookJournalReader(file)) {
+
+            // When
+            OrderBook before = reader.bookAt(START - 1);
+            OrderBook between = reader.bookAt(START + 137 * INTERVAL + INTERVAL / 2);
+
+            // Then
+            assertThat(before, nullValue());
+            assertBook(between, books.get(137));
+            assertThat(reader.getTimeNanos(), equalTo(START + 137 * INTERVAL));
+
+            // reading goes on after the rebuilt book
+            assertThat(reader.next(), equalTo(true));
+            assertBook(reader.getBook(), books.get(138));
+
+            assertBook(reader.bookAt(START + 40 * INTERVAL), books.get(40));
+            assertBook(reader.bookAt(Long.MAX_VALUE), books.get(249));
+            assertThat(reader.next(), equalTo(false));
+        }
+    }
+
+    @Test
+    public void should_write_keyframe_when_scale_grows() throws IOException {
+
+        // Given
+        OrderBook first = new OrderBook();
+        first.asks = Collections.singletonList(new Market(new BigDecimal("2500.1"), new BigDecimal("1.5"), 1500000000));
+        first.bids = Collections.singletonList(new Market(new BigDecimal("2499.9"), new BigDecimal("2"), 1500000000));
+        OrderBook second = new OrderBook();
+        second.asks = Collections.singletonList(new Market(new BigDecimal("2500.05"), new BigDecimal("1.25"), 1500000001));
+        second.bids = first.bids;
+        OrderBookResult result = new OrderBookResult();
+        result.setResult(Collections.singletonMap("XXBTZEUR", second));
+
+        // When
+        Path file = folder.newFile().toPath();
+        try (BookJournalWriter writer = BookJournalWriter.create(file, "XXBTZEUR")) {
+            writer.write(START, first);
+            writer.write(START + INTERVAL, result);
+        }
+
+        // Then
+        try (BookJournalReader reader = new BookJournalReader(file)) {
+            assertThat(reader.getKeyframeCount(), equalTo(2));
+            assertThat(reader.next(), equalTo(true));
+            assertBook(reader.getBook(), first);
+            assertThat(reader.next(), equalTo(true));
+            assertBook(reader.getBook(), second);
+        }
+    }
+
+    @Test
+    public void should_ignore_truncated_last_snapshot() throws IOException {
+
+        // Given
+        List<OrderBook> books = generate(10, new Random(3));
+        Path file = write(books, 100);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 2));
+
+        // When
+        try (BookJournalReader reader = new BookJournalReader(file)) {
+
+            // Then
+            assertThat(reader.getCount(), equalTo(9L));
+            int i = 0;
+            while (reader.next()) {
+                assertBook(reader.getBook(), books.get(i++));
+            }
+            assertThat(i, equalTo(9));
+        }
+    }
+
+    @Test
+    public void should_be_much_smaller_than_json() throws IOException {
+
+        // Given
+        List<OrderBook> books = generate(1000, new Random(4));
+        List<Object> snapshots = new ArrayList<>();
+        for (OrderBook book : books) {
+            snapshots.add(Arrays.asList(toJson(book.asks), toJson(book.bids)));
+        }
+        long json = new ObjectMapper().writeValueAsBytes(snapshots).length;
+
+        // When
+        Path file = write(books, BookJournalWriter.DEFAULT_KEYFRAME_INTERVAL);
+
+        // Then
+        assertThat(Files.size(file) * 20, lessThan(json));
+    }
+
+    /**
+     * Levels as sent by Kraken: price, volume and timestamp
+     */
+    private static List<List<Object>> toJson(List<Market> levels) {
+        List<List<Object>> json = new ArrayList<>();
+        for (Market level : levels) {
+            json.add(Arrays.asList(level.price.toPlainString(), level.volume.toPlainString(), level.timestamp));
+        }
+        return json;
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.sbouclier.history;
+
+import com.github.sbouclier.KrakenAPIClient;
+import com.github.sbouclier.KrakenApiException;
+import com.github.sbouclier.result.RecentTradeResult;
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * TradeBackfill test
+ *
+ * @author synapticloop
+ */
+public class TradeBackfillTest {
+
+    private static final long FROM = 1501609382000000000L;
+    private static final long TO = FROM + 1000 * 1000000L;
+    private static final int PAGE_SIZE = 50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<RecentTrade> tape = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        // one trade per millisecond, every tenth trade repeated as an identical trade at the same time
+        for (int i = 0; i < 1000; i++) {
+            String time = BigDecimal.valueOf(FROM + i * 1000000L, 9).toPlainString();
+            tape.add(TradeLogTest.trade(time, "2312." + (i % 7), "0.1", (i % 3 == 0) ? "s" : "b", "l", ""));
+            if (i % 10 == 0) {
+                tape.add(TradeLogTest.trade(time, "2312." + (i % 7), "0.1", (i % 3 == 0) ? "s" : "b", "l", ""));
+            }
+        }
+        // trades after the range
+        tape.add(TradeLogTest.trade(BigDecimal.valueOf(TO, 9).toPlainString(), "2400", "1", "b", "l", ""));
+    }
+
+    /**
+     * Pages of trades at or after the cursor, so that each page starts again with the last trades of the previous one
+     */
+    private RecentTradeResult page(long since) {
+        List<RecentTrade> trades = new ArrayList<>();
+        for (RecentTrade trade : tape) {
+            if (TradeLogWriter.toNanos(trade.time) >= since && trades.size() < PAGE_SIZE) {
+                trades.add(trade);
+            }
+        }
+
+        RecentTradeResult result = new RecentTradeResult();
+        result.setResult(Collections.singletonMap("XXBTZEUR", trades));
+        result.setLastId(trades.isEmpty() ? since : TradeLogWriter.toNanos(trades.get(trades.size() - 1).time));
+        return result;
+    }
+
+    private List<RecentTrade> read(Path file) throws IOException {
+        List<RecentTrade> trades = new ArrayList<>();
+        try (TradeLogReader reader = new TradeLogReader(file)) {
+            while (reader.next()) {
+                trades.add(reader.toRecentTrade());
+            }
+        }
+        return trades;
+    }
+
+    private void assertTape(Path file) throws IOException {
+        List<RecentTrade> trades = read(file);
+        assertThat(trades.size(), equalTo(tape.size() - 1));
+        for (int i = 0; i < trades.size(); i++) {
+            assertThat(TradeLogWriter.toNanos(trades.get(i).time), equalTo(TradeLogWriter.toNanos(tape.get(i).time)));
+            assertThat(trades.get(i).price, equalTo(tape.get(i).price));
+            assertThat(trades.get(i).buySell, equalTo(tape.get(i).buySell));
+        }
+    }
+
+    @Test
+    public void should_backfill_slices_in_parallel_without_duplicates() throws KrakenApiException, IOException {
+
+        // Given
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.getRecentTrades(eq("XBTEUR"), anyLong())).thenAnswer(invocation -> page(invocation.getArgument(1)));
+
+        TradeBackfill backfill = new TradeBackfill(client, "XBTEUR", folder.getRoot().toPath());
+
+        // When
+        Path file = backfill.run(FROM, TO, 4);
+
+        // Then
+        assertTape(file);
+        assertThat(backfill.getSliceCount(), equalTo(4));
+        assertThat(backfill.getCompletedSlices(), equalTo(4));
+        assertThat(backfill.getCompletion(), equalTo(1.0));
+        assertThat(backfill.getTradeCount(), equalTo(1100L));
+        assertThat(backfill.getDuplicateCount(), greaterThan(0L));
+        assertThat(Files.list(folder.getRoot().toPath()).count(), equalTo(1L));
+        assertThat(Files.size(file), lessThan(1100L * 8));
+    }
+
+    @Test
+    public void should_resume_after_failure() throws KrakenApiException, IOException {
+
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        Answer<RecentTradeResult> failing = invocation -> {
+            if (calls.incrementAndGet() > 12) {
+                throw new KrakenApiException("EService:Unavailable");
+            }
+            return page(invocation.getArgument(1));
+        };
+        KrakenAPIClient failingClient = mock(KrakenAPIClient.class);
+        when(failingClient.getRecentTrades(eq("XBTEUR"), anyLong())).thenAnswer(failing);
+
+        try {
+            new TradeBackfill(failingClient, "XBTEUR", folder.getRoot().toPath()).run(FROM, TO, 4);
+            fail("backfill should fail");
+        } catch (KrakenApiException ex) {
+            assertThat(ex.getMessage(), equalTo("[EService:Unavailable]"));
+        }
+
+        KrakenAPIClient client = mock(KrakenAPIClient.class);
+        when(client.getRecentTrades(eq("XBTEUR"), anyLong())).thenAnswer(invocation -> page(invocation.getArgument(1)));
+
+        TradeBackfill backfill = new TradeBackfill(client, "XBTEUR", folder.getRoot().toPath());
+        backfill.setParallelism(2);
+
+        // When
+        Path file = backfill.run(FROM, TO, 4);
+
+        // Then
+        assertTape(file);
+        assertThat(backfill.getTradeCount(), lessThan(1100L));
+        assertThat(backfill.run(FROM, TO, 4), equalTo(file));
+    }
+}
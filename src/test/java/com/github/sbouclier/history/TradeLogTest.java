@@ -0,0 +1,128 @@
+package com.github.sbouclier.history;
+
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Trade log writer and reader test
+ *
+ * @author synapticloop
+ */
+public class TradeLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static RecentTrade trade(String time, String price, String volume, String buySell, String marketLimit, String miscellaneous) {
+        RecentTrade trade = new RecentTrade();
+        trade.time = new BigDecimal(time);
+        trade.price = new BigDecimal(price);
+        trade.volume = new BigDecimal(volume);
+        trade.buySell = buySell;
+        trade.marketLimit = marketLimit;
+        trade.miscellaneous = miscellaneous;
+        return trade;
+    }
+
+    @Test
+    public void should_write_and_read_trades() throws IOException {
+
+        // Given
+        Path file = folder.newFile().toPath();
+        List<RecentTrade> trades = new ArrayList<>();
+        trades.add(trade("1501609382.4828", "2312.00000", "4.37910702", "b", "l", ""));
+        trades.add(trade("1501609382.5028", "2311.90000", "0.21710733", "s", "m", ""));
+        trades.add(trade("1501609390.0001", "2312.1", "1", "b", "m", "liquidation"));
+
+        // When
+        try (TradeLogWriter writer = TradeLogWriter.create(file)) {
+            for (RecentTrade trade : trades) {
+                writer.write(trade);
+            }
+            assertThat(writer.getCount(), equalTo(3L));
+        }
+
+        // Then
+        List<RecentTrade> read = new ArrayList<>();
+        try (TradeLogReader reader = new TradeLogReader(file)) {
+            while (reader.next()) {
+                read.add(reader.toRecentTrade());
+            }
+        }
+
+        assertThat(read.size(), equalTo(3));
+        for (int i = 0; i < trades.size(); i++) {
+            assertThat(read.get(i).time, comparesEqualTo(trades.get(i).time));
+            assertThat(read.get(i).price, equalTo(trades.get(i).price));
+            assertThat(read.get(i).volume, equalTo(trades.get(i).volume));
+            assertThat(read.get(i).buySell, equalTo(trades.get(i).buySell));
+            assertThat(read.get(i).marketLimit, equalTo(trades.get(i).marketLimit));
+            assertThat(read.get(i).miscellaneous, equalTo(trades.get(i).miscellaneous));
+        }
+        // about 170 bytes as JSON
+        assertThat(Files.size(file), lessThan(80L));
+    }
+
+    @Test
+    public void should_append_after_dropping_record_cut_short() throws IOException {
+
+        // Given
+        Path file = folder.newFile().toPath();
+        long synced;
+        try (TradeLogWriter writer = TradeLogWriter.create(file)) {
+            writer.write(trade("1501609382.4828", "2312.00000", "4.37910702", "b", "l", ""));
+            writer.sync();
+            synced = writer.getLength();
+            writer.write(trade("1501609382.5028", "2311.90000", "0.21710733", "s", "m", ""));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 2);
+        }
+
+        try (TradeLogReader reader = new TradeLogReader(file)) {
+            assertThat(reader.next(), equalTo(true));
+            assertThat(reader.next(), equalTo(false));
+            assertThat(reader.getPosition(), equalTo(synced));
+        }
+
+        // When
+        try (TradeLogWriter writer = TradeLogWriter.append(file, synced)) {
+            assertThat(writer.getCount(), equalTo(1L));
+            writer.write(trade("1501609383", "2313.00000", "1.00000000", "s", "l", ""));
+        }
+
+        // Then
+        try (TradeLogReader reader = new TradeLogReader(file)) {
+            assertThat(reader.next(), equalTo(true));
+            assertThat(reader.next(), equalTo(true));
+            assertThat(reader.getTimeNanos(), equalTo(1501609383000000000L));
+            assertThat(reader.getPrice(), equalTo(new BigDecimal("2313.00000")));
+            assertThat(reader.isSell(), equalTo(true));
+            assertThat(reader.next(), equalTo(false));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void should_reject_file_which_is_not_a_trade_log() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, "{\"error\":[]}".getBytes());
+
+        new TradeLogReader(file);
+    }
+}
@@ -4,6 +4,7 @@ package com.github.sbouclier.mock;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLPeerUnverifiedException;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -16,10 +17,29 @@ import java.security.cert.Certificate;
  * @author Stéphane Bouclier
  */
 public class MockHttpsURLConnection extends HttpsURLConnection {
+
+    private final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+
+    private byte[] responseBody;
+    private String contentEncoding;
+
     public MockHttpsURLConnection(URL url) {
         super(url);
     }
 
+    public void setResponse(byte[] responseBody, String contentEncoding) {
+        this.responseBody = responseBody;
+        this.contentEncoding = contentEncoding;
+    }
+
+    public byte[] getRequestBody() {
+        return requestBody.toByteArray();
+    }
+
+    public long getFixedContentLength() {
+        return fixedContentLength;
+    }
+
     @Override
     public String getCipherSuite() {
         return null;
@@ -52,16 +72,19 @@ public class MockHttpsURLConnection extends HttpsURLConnection {
 
     @Override
     public OutputStream getOutputStream() throws IOException {
-        return new OutputStream() {
-            @Override
-            public void write(int b) throws IOException {
+        return requestBody;
+    }
 
-            }
-        };
+    @Override
+    public String getHeaderField(String name) {
+        return "content-encoding".equalsIgnoreCase(name) ? contentEncoding : null;
     }
 
     @Override
     public InputStream getInputStream() throws IOException {
+        if (responseBody != null) {
+            return new ByteArrayInputStream(responseBody);
+        }
         return new ByteArrayInputStream("read inputstream".getBytes("UTF-8"));
     }
 }
@@ -0,0 +1,249 @@
+package com.github.sbouclier.replay;
+
+import com.github.sbouclier.KrakenApiException;
+import com.github.sbouclier.history.BlockStoreReader;
+import com.github.sbouclier.history.BlockStoreWriter;
+import com.github.sbouclier.history.BookJournalReader;
+import com.github.sbouclier.history.BookJournalWriter;
+import com.github.sbouclier.history.TapeKind;
+import com.github.sbouclier.history.TradeLogReader;
+import com.github.sbouclier.history.TradeLogWriter;
+import com.github.sbouclier.input.InfoInput;
+import com.github.sbouclier.input.Interval;
+import com.github.sbouclier.result.AssetPairsResult;
+import com.github.sbouclier.result.AssetsInformationResult;
+import com.github.sbouclier.result.OHLCResult;
+import com.github.sbouclier.result.OHLCResult.OHLC;
+import com.github.sbouclier.result.OrderBookResult.Market;
+import com.github.sbouclier.result.OrderBookResult.OrderBook;
+import com.github.sbouclier.result.RecentSpreadResult;
+import com.github.sbouclier.result.RecentTradeResult;
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+import com.github.sbouclier.result.TickerInformationResult.TickerInformation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Replay client test
+ *
+ * @author synapticloop
+ */
+public class ReplayAPIClientTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long START = 1_500_000_000L * SECOND;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ReplayEngine engine;
+    private ReplayAPIClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        // trades every second, spreads every 2 seconds, books every 10 seconds, 1 minute bars
+        Path trades = folder.newFile().toPath();
+        try (TradeLogWriter writer = TradeLogWriter.create(trades)) {
+            for (int i = 0; i < 1500; i++) {
+                writer.write(START + i * SECOND, BigDecimal.valueOf(25000 + i, 1), new BigDecimal("0.5"), i % 2 == 0, false, "");
+            }
+        }
+        Path spreads = folder.newFile().toPath();
+        try (BlockStoreWriter writer = BlockStoreWriter.create(spreads, TapeKind.SPREADS, "XXBTZEUR")) {
+            for (int i = 0; i < 750; i++) {
+                writer.writeSpread(START + 2 * i * SECOND, BigDecimal.valueOf(24990 + i, 1), BigDecimal.valueOf(25010 + i, 1));
+            }
+        }
+        Path books = folder.newFile().toPath();
+        try (BookJournalWriter writer = BookJournalWriter.create(books, "XXBTZEUR")) {
+            for (int i = 0; i < 150; i++) {
+                OrderBook book = new OrderBook();
+                book.asks = Arrays.asList(market(25010 + i), market(25011 + i), market(25012 + i));
+                book.bids = Arrays.asList(market(24990 + i), market(24989 + i));
+                writer.write(START + 10 * i * SECOND, book);
+            }
+        }
+        List<OHLC> bars = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            OHLC bar = new OHLC();
+            bar.time = (int) (START / SECOND) + 60 * i;
+            bar.close = BigDecimal.valueOf(i);
+            bars.add(bar);
+        }
+
+        engine = new ReplayEngine();
+        engine.add(ReplayStream.trades("XXBTZEUR", new TradeLogReader(trades)));
+        engine.add(ReplayStream.of(new BlockStoreReader(spreads)));
+        engine.add(ReplayStream.books(new BookJournalReader(books)));
+        engine.add(ReplayStream.ohlc("XXBTZEUR", Interval.ONE_MINUTE, bars));
+        client = new ReplayAPIClient(engine);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        engine.close();
+    }
+
+    private static Market market(long price) {
+        return new Market(BigDecimal.valueOf(price, 1), BigDecimal.ONE, (int) (START / SECOND));
+    }
+
+    @Test
+    public void should_answer_from_replay_state() throws KrakenApiException, IOException {
+
+        // Given
+        engine.runUntil(START + 1200 * SECOND + SECOND / 2);
+
+        // When
+        RecentTradeResult trades = client.getRecentTrades("XXBTZEUR");
+        RecentSpreadResult spreads = client.getRecentSpreads("XXBTZEUR");
+        OrderBook book = client.getOrderBook("XXBTZEUR", 2).getResult().get("XXBTZEUR");
+        OHLCResult ohlc = client.getOHLC("XXBTZEUR", Interval.ONE_MINUTE);
+
+        // Then
+        List<RecentTrade> recent = trades.getResult().get("XXBTZEUR");
+        assertThat(recent.size(), equalTo(ReplayAPIClient.MAX_RECENT));
+        assertThat(recent.get(999).price, comparesEqualTo(new BigDecimal("2620.0")));
+        assertThat(recent.get(999).buySell, equalTo("s"));
+        assertThat(trades.getLastId(), equalTo(START + 1200 * SECOND));
+
+        assertThat(spreads.getResult().get("XXBTZEUR").size(), equalTo(601));
+        assertThat(spreads.getLastId(), equalTo(START / SECOND + 1200));
+
+        assertThat(book.asks.size(), equalTo(2));
+        assertThat(book.asks.get(0).price, comparesEqualTo(new BigDecimal("2513.0")));
+        assertThat(book.bids.get(0).price, comparesEqualTo(new BigDecimal("2511.0")));
+
+        // 20 bars closed, the 21st closes at 1260 seconds
+        assertThat(ohlc.getResult().get("XXBTZEUR").size(), equalTo(20));
+        assertThat(client.getServerTime().getResult().unixtime, equalTo(START / SECOND + 1200));
+    }
+
+    @Test
+    public void should_return_data_since_last_id() throws KrakenApiException, IOException {
+
+        // Given
+        engine.runUntil(START + 100 * SECOND);
+        long lastId = client.getRecentTrades("XXBTZEUR").getLastId();
+        engine.runUntil(START + 103 * SECOND);
+
+        // When
+        RecentTradeResult trades = client.getRecentTrades("XXBTZEUR", lastId);
+
+        // Then
+        assertThat(trades.getResult().get("XXBTZEUR").size(), equalTo(3));
+        assertThat(trades.getLastId(), equalTo(START + 103 * SECOND));
+        assertThat(client.getRecentTrades("XXBTZEUR", trades.getLastId()).getResult().get("XXBTZEUR"), empty());
+    }
+
+    @Test
+    public void should_return_empty_data_before_replay() throws KrakenApiException {
+
+        // When
+        OrderBook book = client.getOrderBook("XXBTZEUR").getResult().get("XXBTZEUR");
+
+        // Then
+        assertThat(book.asks, empty());
+        assertThat(client.getRecentTrades("XXBTZEUR").getResult().get("XXBTZEUR"), empty());
+    }
+
+    @Test(expected = KrakenApiException.class)
+    public void should_fail_for_unknown_pair() throws KrakenApiException {
+        client.getRecentTrades("XETHZEUR");
+    }
+
+    @Test
+    public void should_build_ticker_from_replayed_book_and_trades() throws KrakenApiException, IOException {
+
+        // Given
+        engine.runUntil(START + 1200 * SECOND + SECOND / 2);
+
+        // When
+        TickerInformation ticker = client.getTickerInformation(Collections.singletonList("XXBTZEUR")).getResult().get("XXBTZEUR");
+
+        // Then
+        assertThat(ticker.ask.price, comparesEqualTo(new BigDecimal("2513.0")));
+        assertThat(ticker.ask.wholeLotVolume, equalTo(1));
+        assertThat(ticker.bid.price, comparesEqualTo(new BigDecimal("2511.0")));
+        assertThat(ticker.lastTradeClosed.price, comparesEqualTo(new BigDecimal("2620.0")));
+        assertThat(ticker.lastTradeClosed.lotVolume, comparesEqualTo(new BigDecimal("0.5")));
+
+        // 1201 trades of 0.5 since 02:40 UTC, all of them today
+        assertThat(ticker.numberOfTrades.today, equalTo(1201));
+        assertThat(ticker.numberOfTrades.last24hours, equalTo(1201));
+        assertThat(ticker.volume.today, comparesEqualTo(new BigDecimal("600.5")));
+        assertThat(ticker.volume.last24hours, comparesEqualTo(new BigDecimal("600.5")));
+        assertThat(ticker.volumeWeightAverage.today, closeTo(new BigDecimal("2560.0"), new BigDecimal("0.000001")));
+        assertThat(ticker.low.today, comparesEqualTo(new BigDecimal("2500.0")));
+        assertThat(ticker.high.last24hours, comparesEqualTo(new BigDecimal("2620.0")));
+        assertThat(ticker.todayOpenPrice, comparesEqualTo(new BigDecimal("2500.0")));
+    }
+
+    @Test
+    public void should_answer_asset_pairs_and_assets_from_recorded_metadata() throws KrakenApiException {
+
+        // Given
+        AssetPairsResult.AssetPair pair = new AssetPairsResult.AssetPair();
+        pair.alternatePairName = "XBTEUR";
+        AssetPairsResult assetPairs = new AssetPairsResult();
+        assetPairs.setResult(new HashMap<>());
+        assetPairs.getResult().put("XXBTZEUR", pair);
+        assetPairs.getResult().put("XETHZEUR", new AssetPairsResult.AssetPair());
+
+        AssetsInformationResult.AssetInformation asset = new AssetsInformationResult.AssetInformation();
+        asset.alternateName = "XBT";
+        AssetsInformationResult assets = new AssetsInformationResult();
+        assets.setResult(new HashMap<>());
+        assets.getResult().put("XXBT", asset);
+
+        client.setAssetPairs(assetPairs);
+        client.setAssetsInformation(assets);
+
+        // When
+        AssetPairsResult selected = client.getAssetPairs(InfoInput.ALL, "XBTEUR");
+
+        // Then
+        assertThat(client.getAssetPairs().getResult().size(), equalTo(2));
+        assertThat(selected.getResult().size(), equalTo(1));
+        assertThat(selected.getResult().get("XXBTZEUR"), equalTo(pair));
+        assertThat(client.getAssetsInformation("XBT").getResult().get("XXBT"), equalTo(asset));
+        assertThat(client.getAssetsInformation().getResult().size(), equalTo(1));
+    }
+
+    @Test(expected = KrakenApiException.class)
+    public void should_fail_for_unknown_recorded_asset() throws KrakenApiException {
+        AssetsInformationResult assets = new AssetsInformationResult();
+        assets.setResult(new HashMap<>());
+        client.setAssetsInformation(assets);
+
+        client.getAssetsInformation("XETH");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void should_not_answer_asset_pairs_without_recorded_metadata() throws KrakenApiException {
+        client.getAssetPairs();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void should_not_reach_kraken_for_other_calls() throws KrakenApiException {
+        client.getAccountBalance();
+    }
+}
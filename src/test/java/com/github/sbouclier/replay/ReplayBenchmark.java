@@ -0,0 +1,102 @@
+package com.github.sbouclier.replay;
+
+import com.github.sbouclier.history.BlockStoreBenchmark;
+import com.github.sbouclier.history.BlockStoreReader;
+import com.github.sbouclier.history.BlockStoreWriter;
+import com.github.sbouclier.history.TapeKind;
+import com.github.sbouclier.result.RecentTradeResult.RecentTrade;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of the replay engine on one core: merge of in-memory streams, with the replay client state, and from
+ * block stores. Not a unit test, run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=com.github.sbouclier.replay.ReplayBenchmark -Dexec.classpathScope=test
+ * </pre>
+ *
+ * @author synapticloop
+ */
+public class ReplayBenchmark {
+
+    private static final int PAIRS = 8;
+    private static final int EVENTS_PER_PAIR = 2_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(42);
+        long[][] times = new long[PAIRS][EVENTS_PER_PAIR];
+        long[][] prices = new long[PAIRS][EVENTS_PER_PAIR];
+        for (int pair = 0; pair < PAIRS; pair++) {
+            long time = 1_500_000_000_000_000_000L;
+            for (int i = 0; i < EVENTS_PER_PAIR; i++) {
+                time += random.nextInt(1_000_000_000);
+                times[pair][i] = time;
+                prices[pair][i] = 25_000 + random.nextInt(1000);
+            }
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            ReplayEngine engine = new ReplayEngine();
+            for (int pair = 0; pair < PAIRS; pair++) {
+                engine.add(new ReplayEngineTest.ArrayStream("P" + pair, times[pair], prices[pair]));
+            }
+            long[] checksum = {0};
+            engine.addListener(stream -> checksum[0] += stream.getUnscaled(0));
+            report("in memory", round, engine, () -> checksum[0]);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            ReplayEngine engine = new ReplayEngine();
+            for (int pair = 0; pair < PAIRS; pair++) {
+                engine.add(new ReplayEngineTest.ArrayStream("P" + pair, times[pair], prices[pair]));
+            }
+            ReplayAPIClient client = new ReplayAPIClient(engine);
+            report("in memory with client", round, engine, () -> client.getRecentTrades("P0").getLastId());
+        }
+
+        Path directory = Files.createTempDirectory("replay");
+        try {
+            Path[] files = new Path[PAIRS];
+            for (int pair = 0; pair < PAIRS; pair++) {
+                List<RecentTrade> trades = BlockStoreBenchmark.generate(EVENTS_PER_PAIR / 4, new Random(pair));
+                files[pair] = directory.resolve("trades-" + pair);
+                try (BlockStoreWriter writer = BlockStoreWriter.create(files[pair], TapeKind.TRADES, "P" + pair)) {
+                    for (RecentTrade trade : trades) {
+                        writer.write(trade);
+                    }
+                }
+            }
+            for (int round = 0; round < ROUNDS; round++) {
+                try (ReplayEngine engine = new ReplayEngine()) {
+                    for (Path file : files) {
+                        engine.add(ReplayStream.of(new BlockStoreReader(file)));
+                    }
+                    long[] checksum = {0};
+                    engine.addListener(stream -> checksum[0] += stream.getUnscaled(0));
+                    report("block stores", round, engine, () -> checksum[0]);
+                }
+            }
+        } finally {
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                files.forEach(file -> file.toFile().delete());
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private interface Checksum {
+        long get() throws Exception;
+    }
+
+    private static void report(String name, int round, ReplayEngine engine, Checksum checksum) throws Exception {
+        long start = System.nanoTime();
+        long events = engine.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s round %d: %.1f M events/s (%d events, checksum %d)%n", name, round, events / seconds / 1e6, events, checksum.get());
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.sbouclier.replay;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Replay engine test
+ *
+ * @author synapticloop
+ */
+public class ReplayEngineTest {
+
+    /**
+     * Trades of a pair held in memory: time, price at scale 1 and volume at scale 8
+     */
+    static class ArrayStream extends ReplayStream {
+        private final long[] times;
+        private final long[] prices;
+        private int index = -1;
+        boolean closed;
+
+        ArrayStream(String pair, long[] times, long[] prices) {
+            super(pair, ReplayEvent.TRADE);
+            this.times = times;
+            this.prices = prices;
+        }
+
+        @Override
+        public long getTimeNanos() {
+            return times[index];
+        }
+
+        @Override
+        public long getUnscaled(int column) {
+            return (column == 0) ? prices[index] : 100_000_000L;
+        }
+
+        @Override
+        public int getScale(int column) {
+            return (column == 0) ? 1 : 8;
+        }
+
+        @Override
+        public boolean isSell() {
+            return (index & 1) != 0;
+        }
+
+        @Override
+        public boolean isMarket() {
+            return false;
+        }
+
+        @Override
+        public String getMiscellaneous() {
+            return "";
+        }
+
+        @Override
+        public boolean next() {
+            return ++index < times.length;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static ArrayStream stream(String pair, long... times) {
+        return new ArrayStream(pair, times, new long[times.length]);
+    }
+
+    @Test
+    public void should_merge_streams_in_time_order() throws IOException {
+
+        // Given
+        ReplayEngine engine = new ReplayEngine();
+        engine.add(stream("A", 1, 4, 4, 9));
+        engine.add(stream("B", 2, 4, 10));
+        engine.add(stream("C"));
+        engine.add(stream("D", 0, 3, 4));
+
+        List<String> events = new ArrayList<>();
+        List<Long> clock = new ArrayList<>();
+        engine.addListener(stream -> {
+            events.add(stream.getPair() + stream.getTimeNanos());
+            clock.add(engine.getClock().getTimeNanos());
+        });
+
+        // When
+        long count = engine.run();
+
+        // Then
+        assertThat(count, equalTo(10L));
+        // same times in the order the streams were added
+        assertThat(events, contains("D0", "A1", "B2", "D3", "A4", "A4", "B4", "D4", "A9", "B10"));
+        assertThat(clock, contains(0L, 1L, 2L, 3L, 4L, 4L, 4L, 4L, 9L, 10L));
+        assertThat(engine.isFinished(), equalTo(true));
+        assertThat(engine.getPairs(), contains("A", "B", "C", "D"));
+    }
+
+    @Test
+    public void should_run_until_time() throws IOException {
+
+        // Given
+        ReplayEngine engine = new ReplayEngine();
+        engine.add(stream("A", 10, 20, 30));
+        engine.add(stream("B", 15, 25));
+
+        // When
+        long first = engine.runUntil(20);
+        long second = engine.runUntil(22);
+
+        // Then
+        assertThat(first, equalTo(3L));
+        assertThat(second, equalTo(0L));
+        assertThat(engine.getClock().getTimeNanos(), equalTo(22L));
+        assertThat(engine.getNextTimeNanos(), equalTo(25L));
+        assertThat(engine.getEventCount(), equalTo(3L));
+    }
+
+    @Test
+    public void should_merge_many_streams() throws IOException {
+
+        // Given
+        ReplayEngine engine = new ReplayEngine();
+        for (int i = 0; i < 50; i++) {
+            long[] times = new long[100];
+            for (int j = 0; j < times.length; j++) {
+                times[j] = (long) j * 50 + (i * 7) % 50;
+            }
+            engine.add(stream("P" + i, times));
+        }
+        long[] previous = {Long.MIN_VALUE};
+        engine.addListener(stream -> {
+            assertThat(stream.getTimeNanos(), greaterThanOrEqualTo(previous[0]));
+            previous[0] = stream.getTimeNanos();
+        });
+
+        // When
+        long count = engine.run();
+
+        // Then
+        assertThat(count, equalTo(5000L));
+    }
+
+    @Test
+    public void should_close_streams() throws IOException {
+
+        // Given
+        ArrayStream a = stream("A", 1);
+        ArrayStream b = stream("B");
+        ReplayEngine engine = new ReplayEngine();
+        engine.add(a);
+        engine.add(b);
+
+        // When
+        engine.close();
+
+        // Then
+        assertThat(Arrays.asList(a.closed, b.closed), contains(true, true));
+        assertThat(engine.step(), equalTo(false));
+    }
+
+    @Test
+    public void should_pace_replay() throws IOException {
+
+        // Given
+        ReplayClock clock = new ReplayClock();
+        clock.setSpeed(10);
+        ReplayEngine engine = new ReplayEngine(clock);
+        engine.add(stream("A", 0, 1_000_000_000L));
+
+        // When
+        long start = System.nanoTime();
+        engine.run();
+        long elapsed = System.nanoTime() - start;
+
+        // Then
+        assertThat(elapsed, greaterThanOrEqualTo(90_000_000L));
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.sbouclier.result;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.sbouclier.utils.StreamUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.StringStartsWith.startsWith;
+
+/**
+ * CancelOrderResult test
+ *
+ * @author synapticloop
+ */
+public class CancelOrderResultTest {
+
+    @Test
+    public void should_return_to_string() throws IOException {
+
+        // Given
+        final String jsonResult = StreamUtils.getResourceAsString(this.getClass(), "json/cancel_order.mock.json");
+        CancelOrderResult mockResult = new ObjectMapper().readValue(jsonResult, CancelOrderResult.class);
+
+        // When
+        final String toString = mockResult.toString();
+
+        // Then
+        assertThat(toString, startsWith("CancelOrderResult"));
+    }
+}
\ No newline at end of file
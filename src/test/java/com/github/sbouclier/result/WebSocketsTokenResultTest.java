@@ -0,0 +1,32 @@
+package com.github.sbouclier.result;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.sbouclier.utils.StreamUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.StringStartsWith.startsWith;
+
+/**
+ * WebSocketsTokenResult test
+ *
+ * @author synapticloop
+ */
+public class WebSocketsTokenResultTest {
+
+    @Test
+    public void should_return_to_string() throws IOException {
+
+        // Given
+        final String jsonResult = StreamUtils.getResourceAsString(this.getClass(), "json/websockets_token.mock.json");
+        WebSocketsTokenResult mockResult = new ObjectMapper().readValue(jsonResult, WebSocketsTokenResult.class);
+
+        // When
+        final String toString = mockResult.toString();
+
+        // Then
+        assertThat(toString, startsWith("WebSocketsTokenResult"));
+    }
+}
\ No newline at end of file
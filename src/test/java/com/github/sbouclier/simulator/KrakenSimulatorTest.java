@@ -0,0 +1,222 @@
+package com.github.sbouclier.simulator;
+
+import com.github.sbouclier.HttpURLConnectionTransport;
+import com.github.sbouclier.KrakenAPIClient;
+import com.github.sbouclier.KrakenApiException;
+import com.github.sbouclier.KrakenApiMethod;
+import com.github.sbouclier.RequestSigner;
+import com.github.sbouclier.result.AccountBalanceResult;
+import com.github.sbouclier.result.RecentTradeResult;
+import com.github.sbouclier.result.ServerTimeResult;
+import com.github.sbouclier.utils.ByteUtils;
+import com.github.sbouclier.utils.StreamUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+import static org.junit.Assert.fail;
+
+/**
+ * Kraken simulator test
+ *
+ * @author synapticloop
+ */
+public class KrakenSimulatorTest {
+
+    private static final String SECRET = "c2VjcmV0";
+
+    private KrakenSimulator simulator;
+
+    @Before
+    public void setUp() throws IOException, KrakenApiException {
+        simulator = KrakenSimulator.start();
+        simulator.addAccount("key", SECRET);
+    }
+
+    @After
+    public void tearDown() {
+        simulator.close();
+    }
+
+    private KrakenAPIClient client(String apiKey, String secret) {
+        KrakenAPIClient client = new KrakenAPIClient(apiKey, secret);
+        client.setBaseUrl(simulator.getBaseUrl());
+        client.setTransport(new HttpURLConnectionTransport());
+        return client;
+    }
+
+    @Test
+    public void should_serve_generated_public_data() throws KrakenApiException {
+
+        // Given
+        KrakenAPIClient client = client(null, null);
+
+        // When
+        ServerTimeResult time = client.getServerTime();
+        RecentTradeResult trades = client.getRecentTrades("XXBTZEUR");
+
+        // Then
+        assertThat(time.getResult().unixtime, greaterThan(1_500_000_000L));
+        assertThat(trades.getResult().get("XXBTZEUR").size(), equalTo(1000));
+        assertThat(trades.getLastId(), greaterThan(0L));
+    }
+
+    @Test
+    public void should_serve_fixture() throws KrakenApiException {
+
+        // Given
+        simulator.setFixture(KrakenApiMethod.SERVER_TIME, "{\"error\":[],\"result\":{\"unixtime\":1501271914,\"rfc1123\":\"Fri, 28 Jul 17 19:58:34 +0000\"}}");
+
+        // When
+        ServerTimeResult time = client(null, null).getServerTime();
+
+        // Then
+        assertThat(time.getResult().unixtime, equalTo(1501271914L));
+    }
+
+    @Test
+    public void should_authenticate_private_call() throws KrakenApiException {
+
+        // When
+        AccountBalanceResult balance = client("key", SECRET).getAccountBalance();
+
+        // Then
+        assertThat(balance.getResult().get("XXBT"), equalTo(new BigDecimal("10.0000000000")));
+        assertThat(simulator.getRejectedCount(), equalTo(0L));
+    }
+
+    @Test
+    public void should_reject_unknown_key_and_invalid_signature() {
+
+        // When
+        String unknownKey = errorOf(() -> client("other", SECRET).getAccountBalance());
+        String invalidSignature = errorOf(() -> client("key", "b3RoZXI=").getAccountBalance());
+
+        // Then
+        assertThat(unknownKey, equalTo("[" + KrakenSimulator.INVALID_KEY + "]"));
+        assertThat(invalidSignature, equalTo("[" + KrakenSimulator.INVALID_SIGNATURE + "]"));
+        assertThat(simulator.getRejectedCount(), equalTo(2L));
+    }
+
+    @Test
+    public void should_reject_nonce_not_increasing() throws Exception {
+
+        // Given
+        String first = postBalance(1501271914000000L);
+
+        // When
+        String replayed = postBalance(1501271914000000L);
+        String lower = postBalance(1501271913000000L);
+        simulator.setNonceWindow(5000000L);
+        String inWindow = postBalance(1501271913000000L);
+        String replayedInWindow = postBalance(1501271913000000L);
+
+        // Then
+        assertThat(first.startsWith("{\"error\":[],"), equalTo(true));
+        assertThat(replayed, equalTo("{\"error\":[\"" + KrakenSimulator.INVALID_NONCE + "\"]}"));
+        assertThat(lower, equalTo("{\"error\":[\"" + KrakenSimulator.INVALID_NONCE + "\"]}"));
+        assertThat(inWindow.startsWith("{\"error\":[],"), equalTo(true));
+        assertThat(replayedInWindow, equalTo("{\"error\":[\"" + KrakenSimulator.INVALID_NONCE + "\"]}"));
+    }
+
+    @Test
+    public void should_inject_errors() {
+
+        // Given
+        simulator.injectError(KrakenSimulator.RATE_LIMIT_EXCEEDED, 1.0);
+
+        // When
+        String error = errorOf(() -> client(null, null).getServerTime());
+
+        // Then
+        assertThat(error, equalTo("[" + KrakenSimulator.RATE_LIMIT_EXCEEDED + "]"));
+        assertThat(simulator.getInjectedErrorCount(), equalTo(1L));
+    }
+
+    @Test
+    public void should_drop_connections() {
+
+        // Given
+        simulator.setResetProbability(1.0);
+
+        // When
+        errorOf(() -> client(null, null).getServerTime());
+
+        // Then
+        assertThat(simulator.getResetCount(), greaterThanOrEqualTo(1L));
+    }
+
+    @Test
+    public void should_add_latency() throws KrakenApiException {
+
+        // Given
+        simulator.setLatency(KrakenApiMethod.SERVER_TIME, LatencyModel.fixed(50));
+        KrakenAPIClient client = client(null, null);
+
+        // When
+        long start = System.nanoTime();
+        client.getServerTime();
+        long elapsed = System.nanoTime() - start;
+
+        // Then
+        assertThat(elapsed, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50)));
+    }
+
+    @Test
+    public void should_report_load() throws InterruptedException {
+
+        // Given
+        KrakenAPIClient client = client(null, null);
+        simulator.injectError(KrakenSimulator.SERVICE_UNAVAILABLE, 0.5);
+
+        // When
+        LoadReport report = new LoadGenerator(4).runCount(client::getServerTime, 50);
+
+        // Then
+        assertThat(report.getCount(), equalTo(200L));
+        assertThat(report.getErrorCount(), equalTo(simulator.getInjectedErrorCount()));
+        assertThat(report.getErrors().keySet().iterator().next(), equalTo("[" + KrakenSimulator.SERVICE_UNAVAILABLE + "]"));
+        assertThat(report.getLatencyNanos(99), greaterThanOrEqualTo(report.getLatencyNanos(50)));
+        assertThat(report.getMaxLatencyNanos(), greaterThanOrEqualTo(report.getLatencyNanos(99.9)));
+        assertThat(report.getThroughput(), greaterThan(0.0));
+    }
+
+    private String postBalance(long nonce) throws Exception {
+        String path = KrakenApiMethod.ACCOUNT_BALANCE.getTemplate().getPath();
+        byte[] body = ByteUtils.stringToBytes("nonce=" + nonce);
+        HttpURLConnection connection = (HttpURLConnection) new URL(simulator.getBaseUrl() + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("API-Key", "key");
+        connection.setRequestProperty("API-Sign", new RequestSigner(SECRET).sign(ByteUtils.stringToBytes(path), ByteUtils.stringToBytes(String.valueOf(nonce)), body));
+        connection.setDoOutput(true);
+        connection.getOutputStream().write(body);
+        try (InputStream in = connection.getInputStream()) {
+            return StreamUtils.convert(in);
+        }
+    }
+
+    private interface Call {
+        void call() throws Exception;
+    }
+
+    private static String errorOf(Call call) {
+        try {
+            call.call();
+        } catch (Exception ex) {
+            return ex.getMessage();
+        }
+        fail("call should have failed");
+        return null;
+    }
+}
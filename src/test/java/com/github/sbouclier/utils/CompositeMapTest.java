@@ -0,0 +1,59 @@
+package com.github.sbouclier.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Composite map test
+ *
+ * @author synapticloop
+ */
+public class CompositeMapTest {
+
+    @Test
+    public void should_view_all_maps_without_copying() {
+
+        // Given
+        Map<String, Integer> first = new LinkedHashMap<>();
+        first.put("A", 1);
+        first.put("B", 2);
+        Map<String, Integer> second = new LinkedHashMap<>();
+        second.put("C", 3);
+
+        // When
+        CompositeMap<String, Integer> map = new CompositeMap<>(Arrays.asList(first, null, new HashMap<>(), second));
+
+        // Then
+        assertThat(map.size(), equalTo(3));
+        assertThat(map.get("B"), equalTo(2));
+        assertThat(map.get("C"), equalTo(3));
+        assertThat(map.get("D"), nullValue());
+        assertThat(map.containsKey("A"), equalTo(true));
+        assertThat(new ArrayList<>(map.keySet()), contains("A", "B", "C"));
+        assertThat(new ArrayList<>(map.values()), contains(1, 2, 3));
+
+        Map<String, Integer> copy = new HashMap<>(first);
+        copy.putAll(second);
+        assertThat(map, equalTo(copy));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void should_be_read_only() {
+        Map<String, Integer> first = new HashMap<>();
+        first.put("A", 1);
+        List<Map<String, Integer>> maps = Arrays.asList(first);
+
+        new CompositeMap<>(maps).entrySet().iterator().next().setValue(2);
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.sbouclier.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Counting input stream test
+ *
+ * @author synapticloop
+ */
+public class CountingInputStreamTest {
+
+    @Test
+    public void should_count_read_skipped_and_drained_bytes() throws IOException {
+        CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(new byte[5000]));
+
+        in.read();
+        in.read(new byte[100], 0, 100);
+        in.skip(99);
+
+        assertThat(in.getCount(), equalTo(200L));
+        assertThat(in.drain(), equalTo(4800L));
+        assertThat(in.getCount(), equalTo(5000L));
+        assertThat(in.read(), equalTo(-1));
+        assertThat(in.getCount(), equalTo(5000L));
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.sbouclier.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Parameter writer test
+ *
+ * @author synapticloop
+ */
+public class ParameterWriterTest {
+
+    @Test
+    public void should_write_query_string_without_trailing_separator() {
+        ParameterWriter writer = new ParameterWriter()
+                .raw("https://api.kraken.com").raw("/0/public/Depth").startQuery()
+                .parameter("pair", "XXBTZEUR")
+                .parameter("count", "10");
+
+        assertThat(writer.toString(), equalTo("https://api.kraken.com/0/public/Depth?pair=XXBTZEUR&count=10"));
+    }
+
+    @Test
+    public void should_not_write_question_mark_without_parameters() {
+        ParameterWriter writer = new ParameterWriter().raw("https://api.kraken.com/0/public/Time").startQuery();
+
+        assertThat(writer.toString(), equalTo("https://api.kraken.com/0/public/Time"));
+    }
+
+    @Test
+    public void should_skip_null_values() {
+        ParameterWriter writer = new ParameterWriter()
+                .parameter("ofs", "0")
+                .parameter("start", null)
+                .parameter("nonce", "123");
+
+        assertThat(writer.toString(), equalTo("ofs=0&nonce=123"));
+    }
+
+    @Test
+    public void should_encode_like_url_encoder() throws IOException {
+        final String value = "a b&c=d/e,f+g*h.i-j_k~lé€😀";
+
+        ParameterWriter writer = new ParameterWriter(4).parameter("k y", value);
+
+        assertThat(writer.toString(), equalTo("k+y=" + URLEncoder.encode(value, "UTF-8")));
+    }
+
+    @Test
+    public void should_reuse_buffer_after_reset() throws IOException {
+        ParameterWriter writer = new ParameterWriter().parameter("a", "A");
+        writer.reset().parameter("b", "B");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+
+        assertThat(out.toString("UTF-8"), equalTo("b=B"));
+        assertThat(writer.toByteArray().length, equalTo(3));
+        assertThat(writer.length(), equalTo(3));
+    }
+}
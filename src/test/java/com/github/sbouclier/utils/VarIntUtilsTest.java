@@ -0,0 +1,68 @@
+package com.github.sbouclier.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Variable length encoding test
+ *
+ * @author synapticloop
+ */
+public class VarIntUtilsTest {
+
+    @Test(expected = InvocationTargetException.class)
+    public void should_not_access_private_constructor() throws Exception {
+        Constructor<VarIntUtils> constructor = VarIntUtils.class.getDeclaredConstructor();
+        assertTrue(Modifier.isPrivate(constructor.getModifiers()));
+        constructor.setAccessible(true);
+        constructor.newInstance();
+    }
+
+    @Test
+    public void should_round_trip_signed_and_unsigned_values() throws IOException {
+
+        // Given
+        long[] values = {0, 1, -1, 63, -64, 64, 127, 128, 300, -300, 1501609382482800000L, Long.MAX_VALUE, Long.MIN_VALUE};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        for (long value : values) {
+            VarIntUtils.writeSigned(out, value);
+            VarIntUtils.writeUnsigned(out, value);
+        }
+
+        // Then
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        for (long value : values) {
+            assertThat(VarIntUtils.readSigned(in), equalTo(value));
+            assertThat(VarIntUtils.readUnsigned(in), equalTo(value));
+        }
+        assertThat(in.available(), equalTo(0));
+    }
+
+    @Test
+    public void should_keep_small_values_short() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThat(VarIntUtils.writeSigned(out, -64), equalTo(1));
+        assertThat(VarIntUtils.writeSigned(out, 64), equalTo(2));
+        assertThat(VarIntUtils.writeUnsigned(out, 127), equalTo(1));
+        assertThat(VarIntUtils.writeUnsigned(out, -1), equalTo(10));
+    }
+
+    @Test(expected = EOFException.class)
+    public void should_fail_on_value_cut_short() throws IOException {
+        VarIntUtils.readUnsigned(new ByteArrayInputStream(new byte[]{(byte) 0x80}));
+    }
+}
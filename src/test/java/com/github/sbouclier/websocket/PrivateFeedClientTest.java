@@ -0,0 +1,334 @@
+package com.github.sbouclier.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.sbouclier.KrakenAPIClient;
+import com.github.sbouclier.KrakenApiException;
+import com.github.sbouclier.result.OpenOrdersResult;
+import com.github.sbouclier.result.OpenOrdersResult.OpenOrder;
+import com.github.sbouclier.result.TradesHistoryResult;
+import com.github.sbouclier.result.TradesHistoryResult.TradeHistory;
+import com.github.sbouclier.result.WebSocketsTokenResult;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.Mockito.*;
+
+/**
+ * PrivateFeedClient test, against a local WebSocket stub
+ *
+ * @author synapticloop
+ */
+public class PrivateFeedClientTest {
+
+    private static final String TRADE = "{\"ordertxid\":\"OQCLML-BW3P3-BUCMWZ\",\"pair\":\"XBT/EUR\",\"time\":\"%s\",\"type\":\"buy\",\"ordertype\":\"limit\",\"price\":\"3800.0\",\"cost\":\"7.6\",\"fee\":\"0.01\",\"vol\":\"0.002\",\"margin\":\"0.0\",\"postxid\":\"TKH2SE-M7IF5-CFI7LT\"}";
+    private static final String ORDER = "{\"status\":\"open\",\"opentm\":\"1560516023.070651\",\"starttm\":\"0\",\"expiretm\":\"0\",\"descr\":{\"pair\":\"XBT/EUR\",\"type\":\"sell\",\"ordertype\":\"limit\",\"price\":\"34.5\",\"price2\":\"0.0\",\"leverage\":\"0:1\",\"order\":\"sell 10.0 XBT/EUR @ limit 34.5\",\"close\":\"\"},\"vol\":\"10.0\",\"vol_exec\":\"0.0\",\"cost\":\"0.0\",\"fee\":\"0.0\",\"avg_price\":\"0.0\",\"misc\":\"\",\"oflags\":\"fcib\"}";
+
+    private StubServer server;
+    private KrakenAPIClient client;
+    private RecordingListener listener;
+    private PrivateFeedClient feed;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubServer();
+        server.start();
+        server.started.await(5, TimeUnit.SECONDS);
+
+        client = mock(KrakenAPIClient.class);
+        when(client.getWebSocketsToken()).thenReturn(token("token-1", 900), token("token-2", 900));
+
+        listener = new RecordingListener();
+        feed = new PrivateFeedClient(URI.create("ws://127.0.0.1:" + server.getPort()), client, listener);
+        feed.setInitialReconnectDelayMillis(10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        feed.close();
+        server.stop(1000);
+    }
+
+    private static TradesHistoryResult history(Long count, String... idsAndTimes) {
+        TradesHistoryResult history = new TradesHistoryResult();
+        history.setResult(new TradesHistoryResult.TradesHistory());
+        history.getResult().trades = new java.util.LinkedHashMap<>();
+        for (int i = 0; i < idsAndTimes.length; i += 2) {
+            history.getResult().trades.put(idsAndTimes[i], trade(idsAndTimes[i + 1]));
+        }
+        history.getResult().count = count;
+        return history;
+    }
+
+    @Test
+    public void should_stream_own_trades_and_open_orders() throws Exception {
+
+        // Given
+        feed.connect();
+        WebSocket socket = server.subscribed.poll(5, TimeUnit.SECONDS);
+
+        // When
+        socket.send("[[{\"TDLH43-DVQXD-2KHVYY\":" + String.format(TRADE, "1560516023.070651") + "}],\"ownTrades\",{\"sequence\":1}]");
+        socket.send("[[{\"OGTT3Y-C6I3P-XRI6HX\":" + ORDER + "}],\"openOrders\",{\"sequence\":1}]");
+        socket.send("[[{\"OGTT3Y-C6I3P-XRI6HX\":{\"vol_exec\":\"4.0\",\"cost\":\"138.0\"}}],\"openOrders\",{\"sequence\":2}]");
+        socket.send("[[{\"OGTT3Y-C6I3P-XRI6HX\":{\"status\":\"closed\"}}],\"openOrders\",{\"sequence\":3}]");
+
+        // Then
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("connected"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("trade TDLH43-DVQXD-2KHVYY OQCLML-BW3P3-BUCMWZ 3800.0"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("snapshot {OGTT3Y-C6I3P-XRI6HX=OPEN 1560516023}"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("update OGTT3Y-C6I3P-XRI6HX null 4.0"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("update OGTT3Y-C6I3P-XRI6HX CLOSED null"));
+        assertThat(server.messages.get(0), containsString("\"token\":\"token-1\""));
+    }
+
+    @Test
+    public void should_reconnect_and_backfill_missed_trades() throws Exception {
+
+        // Given
+        TradesHistoryResult history = new TradesHistoryResult();
+        history.setResult(new TradesHistoryResult.TradesHistory());
+        history.getResult().trades = new java.util.LinkedHashMap<>();
+        history.getResult().trades.put("TOLD00-AAAAA-BBBBBB", trade("1560516000.0"));
+        history.getResult().trades.put("TMISS2-AAAAA-BBBBBB", trade("1560516025.0"));
+        history.getResult().trades.put("TMISS1-AAAAA-BBBBBB", trade("1560516024.0"));
+        history.getResult().count = 3L;
+        when(client.getTradesHistory(0, "1560516023.0")).thenReturn(history);
+
+        feed.connect();
+        WebSocket socket = server.subscribed.poll(5, TimeUnit.SECONDS);
+        socket.send("[[{\"TDLH43-DVQXD-2KHVYY\":" + String.format(TRADE, "1560516023.0") + "}],\"ownTrades\",{\"sequence\":1}]");
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("connected"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("trade TDLH43-DVQXD-2KHVYY OQCLML-BW3P3-BUCMWZ 3800.0"));
+
+        // When
+        socket.close();
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("disconnected"));
+        socket = server.subscribed.poll(5, TimeUnit.SECONDS);
+        socket.send("[[{\"TMISS2-AAAAA-BBBBBB\":" + String.format(TRADE, "1560516025.0") + "}],\"ownTrades\",{\"sequence\":1}]");
+
+        // Then
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("connected"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("trade TMISS1-AAAAA-BBBBBB OQCLML-BW3P3-BUCMWZ 3800.0"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("trade TMISS2-AAAAA-BBBBBB OQCLML-BW3P3-BUCMWZ 3800.0"));
+        assertThat(listener.events.poll(200, TimeUnit.MILLISECONDS), equalTo(null));
+        verify(client).getTradesHistory(0, "1560516023.0");
+    }
+
+    @Test
+    public void should_page_backfill_until_gap_is_closed() throws Exception {
+
+        // Given
+        TradesHistoryResult first = history(3L, "TMISS3-AAAAA-BBBBBB", "1560516026.0", "TMISS2-AAAAA-BBBBBB", "1560516025.0");
+        TradesHistoryResult second = history(3L, "TMISS1-AAAAA-BBBBBB", "1560516024.0");
+        when(client.getTradesHistory(0, "1560516023.0")).thenReturn(first);
+        when(client.getTradesHistory(2, "1560516023.0")).thenReturn(second);
+
+        feed.connect();
+        WebSocket socket = server.subscribed.poll(5, TimeUnit.SECONDS);
+        socket.send("[[{\"TDLH43-DVQXD-2KHVYY\":" + String.format(TRADE, "1560516023.0") + "}],\"ownTrades\",{\"sequence\":1}]");
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("connected"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("trade TDLH43-DVQXD-2KHVYY OQCLML-BW3P3-BUCMWZ 3800.0"));
+
+        // When, a sequence gap on the live connection
+        socket.send("[[{\"TMISS3-AAAAA-BBBBBB\":" + String.format(TRADE, "1560516026.0") + "}],\"ownTrades\",{\"sequence\":3}]");
+
+        // Then
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("trade TMISS1-AAAAA-BBBBBB OQCLML-BW3P3-BUCMWZ 3800.0"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("trade TMISS2-AAAAA-BBBBBB OQCLML-BW3P3-BUCMWZ 3800.0"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("trade TMISS3-AAAAA-BBBBBB OQCLML-BW3P3-BUCMWZ 3800.0"));
+        assertThat(listener.events.poll(200, TimeUnit.MILLISECONDS), equalTo(null));
+        verify(client).getTradesHistory(0, "1560516023.0");
+        verify(client).getTradesHistory(2, "1560516023.0");
+    }
+
+    @Test
+    public void should_get_new_token_when_rejected() throws Exception {
+
+        // Given
+        server.rejectToken = "token-1";
+
+        // When
+        feed.connect();
+
+        // Then
+        assertThat(server.subscribed.poll(5, TimeUnit.SECONDS) != null, equalTo(true));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("disconnected"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("connected"));
+        verify(client, times(2)).getWebSocketsToken();
+    }
+
+    @Test
+    public void should_fill_sequence_gap_with_open_orders_snapshot() throws Exception {
+
+        // Given
+        OpenOrdersResult open = new OpenOrdersResult();
+        open.setResult(new OpenOrdersResult.OpenOrders());
+        open.getResult().open = Collections.singletonMap("OGTT3Y-C6I3P-XRI6HX", new ObjectMapper().readValue("{\"status\":\"open\",\"opentm\":1560516023.07}", OpenOrder.class));
+        when(client.getOpenOrders()).thenReturn(open);
+
+        feed.connect();
+        WebSocket socket = server.subscribed.poll(5, TimeUnit.SECONDS);
+        socket.send("[[],\"openOrders\",{\"sequence\":1}]");
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("connected"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("snapshot {}"));
+
+        // When
+        socket.send("[[{\"OGTT3Y-C6I3P-XRI6HX\":{\"status\":\"canceled\"}}],\"openOrders\",{\"sequence\":3}]");
+
+        // Then
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("snapshot {OGTT3Y-C6I3P-XRI6HX=OPEN 1560516023}"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("update OGTT3Y-C6I3P-XRI6HX CANCELED null"));
+    }
+
+    @Test
+    public void should_stream_trades_while_open_orders_snapshot_is_fetched() throws Exception {
+
+        // Given
+        CountDownLatch fetched = new CountDownLatch(1);
+        OpenOrdersResult open = new OpenOrdersResult();
+        open.setResult(new OpenOrdersResult.OpenOrders());
+        open.getResult().open = Collections.emptyMap();
+        when(client.getOpenOrders()).thenAnswer(invocation -> {
+            fetched.await(5, TimeUnit.SECONDS);
+            return open;
+        });
+
+        feed.connect();
+        WebSocket socket = server.subscribed.poll(5, TimeUnit.SECONDS);
+        socket.send("[[],\"openOrders\",{\"sequence\":1}]");
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("connected"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("snapshot {}"));
+
+        // When
+        socket.send("[[{\"OGTT3Y-C6I3P-XRI6HX\":{\"status\":\"canceled\"}}],\"openOrders\",{\"sequence\":3}]");
+        socket.send("[[{\"TDLH43-DVQXD-2KHVYY\":" + String.format(TRADE, "1560516023.070651") + "}],\"ownTrades\",{\"sequence\":1}]");
+
+        // Then
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("trade TDLH43-DVQXD-2KHVYY OQCLML-BW3P3-BUCMWZ 3800.0"));
+        fetched.countDown();
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("snapshot {}"));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), equalTo("update OGTT3Y-C6I3P-XRI6HX CANCELED null"));
+    }
+
+    private static WebSocketsTokenResult token(String value, long expires) {
+        WebSocketsTokenResult result = new WebSocketsTokenResult();
+        result.setResult(new WebSocketsTokenResult.WebSocketsToken());
+        result.getResult().token = value;
+        result.getResult().expires = expires;
+        return result;
+    }
+
+    private static TradeHistory trade(String time) {
+        TradeHistory trade = new TradeHistory();
+        trade.orderTransactionId = "OQCLML-BW3P3-BUCMWZ";
+        trade.tradeTimestamp = time;
+        trade.price = new BigDecimal("3800.0");
+        return trade;
+    }
+
+    /**
+     * Stub of the private WebSocket API, acknowledging subscriptions
+     */
+    private static class StubServer extends WebSocketServer {
+        final CountDownLatch started = new CountDownLatch(1);
+        final BlockingQueue<WebSocket> subscribed = new LinkedBlockingQueue<>();
+        final List<String> messages = new CopyOnWriteArrayList<>();
+        volatile String rejectToken;
+
+        StubServer() {
+            super(new InetSocketAddress("127.0.0.1", 0));
+            setReuseAddr(true);
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            messages.add(message);
+            String name = message.contains(PrivateFeedClient.OWN_TRADES) ? PrivateFeedClient.OWN_TRADES : PrivateFeedClient.OPEN_ORDERS;
+
+            if (rejectToken != null && message.contains(rejectToken)) {
+                conn.send("{\"event\":\"subscriptionStatus\",\"status\":\"error\",\"errorMessage\":\"EGeneral:Invalid arguments:token\",\"subscription\":{\"name\":\"" + name + "\"}}");
+            } else {
+                conn.send("{\"event\":\"subscriptionStatus\",\"status\":\"subscribed\",\"channelName\":\"" + name + "\",\"subscription\":{\"name\":\"" + name + "\"}}");
+            }
+
+            if (PrivateFeedClient.OPEN_ORDERS.equals(name)) {
+                subscribed.add(conn);
+            }
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+    }
+
+    /**
+     * Listener recording notifications as text
+     */
+    private static class RecordingListener implements PrivateFeedListener {
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onOwnTrade(String tradeId, TradeHistory trade) {
+            events.add("trade " + tradeId + " " + trade.orderTransactionId + " " + trade.price);
+        }
+
+        @Override
+        public void onOpenOrdersSnapshot(Map<String, OpenOrder> open) {
+            StringBuilder text = new StringBuilder();
+            open.forEach((txid, order) -> text.append(txid).append('=').append(order.status).append(' ').append(order.openTimestamp));
+            events.add("snapshot {" + text + "}");
+        }
+
+        @Override
+        public void onOpenOrder(String txid, OpenOrder order) {
+            events.add("order " + txid + " " + order.status);
+        }
+
+        @Override
+        public void onOrderUpdate(String txid, OpenOrder.Status status, BigDecimal volumeExecuted) {
+            events.add("update " + txid + " " + status + " " + volumeExecuted);
+        }
+
+        @Override
+        public void onConnected() {
+            events.add("connected");
+        }
+
+        @Override
+        public void onDisconnected(String reason) {
+            events.add("disconnected");
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.simulator.KrakenSimulator;
+import com.github.sbouclier.simulator.LatencyModel;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+import static org.hamcrest.number.OrderingComparison.lessThan;
+
+/**
+ * Flight recorder event test, run against the Java 11+ classes of the multi-release jar by the {@code test-java11}
+ * execution and skipped against the Java 8 ones
+ *
+ * @author synapticloop
+ */
+public class ApiCallEventTest {
+
+    private static final String EVENT_NAME = "com.github.sbouclier.ApiCall";
+
+    private KrakenSimulator simulator;
+
+    @Before
+    public void setUp() throws IOException {
+        Assume.assumeTrue(isRecorded());
+        simulator = KrakenSimulator.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (simulator != null) {
+            simulator.close();
+        }
+    }
+
+    private static boolean isRecorded() {
+        try {
+            Class.forName("com.github.sbouclier.ApiCallEvent");
+            return true;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    private static List<RecordedEvent> apiCallEvents(Recording recording) throws IOException {
+        Path dump = Files.createTempFile("api-call", ".jfr");
+        try {
+            recording.dump(dump);
+            return RecordingFile.readAllEvents(dump).stream()
+                    .filter(event -> event.getEventType().getName().equals(EVENT_NAME))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    @Test
+    public void should_record_event_of_api_call() throws IOException, KrakenApiException {
+
+        // Given, a 30 ms response latency and the only market data permit of the scheduler held for 100 ms
+        simulator.setLatency(LatencyModel.fixed(30));
+        RequestScheduler scheduler = RequestScheduler.starter();
+        scheduler.setLimits(RequestScheduler.RequestClass.MARKET_DATA, 2, 1);
+        KrakenAPIClient client = new KrakenAPIClient();
+        client.setBaseUrl(simulator.getBaseUrl());
+        client.setTransport(new HttpURLConnectionTransport());
+        client.setScheduler(scheduler);
+        RequestScheduler.Permit held = scheduler.acquire(RequestScheduler.RequestClass.MARKET_DATA, 0);
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            held.release();
+        });
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT_NAME).withoutThreshold();
+            recording.start();
+
+            // When
+            releaser.start();
+            client.getTickerInformation(Collections.singletonList("XBTEUR"));
+
+            recording.stop();
+            events = apiCallEvents(recording);
+        }
+
+        // Then
+        assertThat(events.size(), equalTo(1));
+        RecordedEvent event = events.get(0);
+        assertThat(event.getString("method"), equalTo("TICKER_INFORMATION"));
+        assertThat(event.getString("pair"), equalTo("XBTEUR"));
+        assertThat(event.getInt("statusCode"), equalTo(200));
+        assertThat(event.getBoolean("success"), equalTo(true));
+        assertThat(event.getLong("responseBytes"), greaterThan(0L));
+        assertThat(event.getDuration("rateLimitWait"), greaterThanOrEqualTo(Duration.ofMillis(50)));
+        assertThat(event.getDuration("timeToFirstByte"), greaterThanOrEqualTo(Duration.ofMillis(30)));
+        assertThat(event.getDuration("connect"), lessThan(event.getDuration("rateLimitWait")));
+        assertThat(event.getDuration("decode"), greaterThan(Duration.ZERO));
+        assertThat(event.getDuration(), greaterThanOrEqualTo(Duration.ofMillis(80)));
+    }
+
+    @Test
+    public void should_record_failed_api_call() throws IOException, KrakenApiException {
+
+        // Given
+        simulator.injectError(KrakenSimulator.SERVICE_UNAVAILABLE, 1);
+        KrakenAPIClient client = new KrakenAPIClient();
+        client.setBaseUrl(simulator.getBaseUrl());
+        client.setTransport(new HttpURLConnectionTransport());
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT_NAME).withoutThreshold();
+            recording.start();
+
+            // When
+            try {
+                client.getServerTime();
+            } catch (KrakenApiException ex) {
+                // expected
+            }
+
+            recording.stop();
+            events = apiCallEvents(recording);
+        }
+
+        // Then
+        assertThat(events.size(), equalTo(1));
+        assertThat(events.get(0).getString("method"), equalTo("SERVER_TIME"));
+        assertThat(events.get(0).getBoolean("success"), equalTo(false));
+        assertThat(events.get(0).getString("error"), equalTo("[EService:Unavailable]"));
+        assertThat(events.get(0).getDuration("rateLimitWait"), lessThan(Duration.ofMillis(50)));
+    }
+}
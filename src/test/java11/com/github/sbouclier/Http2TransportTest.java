@@ -0,0 +1,115 @@
+package com.github.sbouclier;
+
+import com.github.sbouclier.result.ServerTimeResult;
+import com.github.sbouclier.simulator.KrakenSimulator;
+import com.github.sbouclier.utils.StreamUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+import static org.junit.Assert.fail;
+
+/**
+ * HTTP/2 transport test, run against the Java 11+ classes of the multi-release jar by the {@code test-java11} execution
+ * only
+ *
+ * @author synapticloop
+ */
+public class Http2TransportTest {
+
+    private KrakenSimulator simulator;
+
+    @Before
+    public void setUp() throws IOException {
+        Assume.assumeTrue(HttpTransports.isHttp2Supported());
+        simulator = KrakenSimulator.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (simulator != null) {
+            simulator.close();
+        }
+    }
+
+    private TransportRequest serverTime() throws IOException {
+        return new TransportRequest("GET", new URL(simulator.getBaseUrl() + KrakenApiMethod.SERVER_TIME.getUrl(0)));
+    }
+
+    @Test
+    public void should_call_kraken_through_transport() throws KrakenApiException {
+
+        // Given
+        Http2Transport transport = new Http2Transport(4, 5000);
+        KrakenAPIClient client = new KrakenAPIClient();
+        client.setBaseUrl(simulator.getBaseUrl());
+        client.setTransport(transport);
+
+        // When
+        ServerTimeResult result = client.getServerTime();
+
+        // Then
+        assertThat(result.getResult().unixtime, greaterThan(1_500_000_000L));
+        assertThat(transport.getActiveStreams(), equalTo(0));
+    }
+
+    @Test
+    public void should_hand_response_to_handler() throws IOException {
+
+        // Given
+        Http2Transport transport = new Http2Transport(4, 5000);
+
+        // When
+        String body = transport.send(serverTime(), (statusCode, contentEncoding, stream) -> {
+            assertThat(statusCode, equalTo(200));
+            assertThat(transport.getActiveStreams(), equalTo(1));
+            return StreamUtils.convert(stream);
+        });
+
+        // Then
+        assertThat(body, containsString("unixtime"));
+        assertThat(transport.getActiveStreams(), equalTo(0));
+    }
+
+    @Test
+    public void should_time_out_waiting_for_a_free_stream() throws IOException {
+
+        // Given
+        Http2Transport transport = new Http2Transport(1, 200);
+
+        // When, the only stream being held by the first request
+        long start = System.nanoTime();
+        transport.send(serverTime(), (statusCode, contentEncoding, stream) -> {
+            try {
+                transport.send(serverTime(), (secondStatusCode, secondContentEncoding, secondStream) -> "second");
+                fail("second request should time out");
+            } catch (IOException ex) {
+                // Then
+                assertThat(ex.getMessage(), containsString("no free HTTP/2 stream"));
+            }
+            return null;
+        });
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), greaterThan(150L));
+        assertThat(transport.getActiveStreams(), equalTo(0));
+    }
+
+    @Test
+    public void should_create_http2_transport_from_factory() {
+        assertThat(HttpTransports.http2OrDefault() instanceof Http2Transport, equalTo(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_non_positive_stream_limit() {
+        new Http2Transport(0, 1000);
+    }
+}